@@ -0,0 +1,163 @@
+/*
+ * Carrot2 project.
+ *
+ * Copyright (C) 2002-2019, Dawid Weiss, Stanisław Osiński.
+ * All rights reserved.
+ *
+ * Refer to the full license file "carrot2.LICENSE"
+ * in the root folder of the repository checkout or at:
+ * http://www.carrot2.org/carrot2.LICENSE
+ */
+
+package org.carrot2.core;
+
+import java.io.*;
+import java.util.*;
+
+import org.carrot2.core.attribute.AttributeNames;
+import org.junit.*;
+
+import com.carrotsearch.junitbenchmarks.AbstractBenchmark;
+import com.carrotsearch.junitbenchmarks.BenchmarkOptions;
+import com.carrotsearch.junitbenchmarks.h2.*;
+import org.carrot2.shaded.guava.common.collect.Lists;
+import org.carrot2.shaded.guava.common.collect.Maps;
+
+/**
+ * Compares the speed of the XML, JSON and binary serialization of a
+ * {@link ProcessingResult} with 1000 documents and a few dozen clusters. The JSON
+ * serialization is also measured for a small result, where per-call overhead dominates.
+ */
+@AxisRange(min = 0)
+@BenchmarkMethodChart(filePrefix = "individual")
+@BenchmarkHistoryChart(filePrefix = "history")
+@BenchmarkOptions(benchmarkRounds = 20, warmupRounds = 5)
+public class SerializationBenchmark extends AbstractBenchmark
+{
+    static final int internalRounds = 20;
+
+    static ProcessingResult result;
+    static ProcessingResult smallResult;
+    static byte [] xml;
+    static byte [] binary;
+
+    @BeforeClass
+    public static void prepareResult() throws Exception
+    {
+        final Random random = new Random(0);
+        final List<Document> documents = Lists.newArrayList();
+        for (int i = 0; i < 1000; i++)
+        {
+            final Document document = new Document(words(random, 8), words(random, 40),
+                "http://www.example.com/" + i);
+            document.setScore(random.nextDouble());
+            document.setLanguage(LanguageCode.ENGLISH);
+            documents.add(document);
+        }
+
+        final List<Cluster> clusters = Lists.newArrayList();
+        for (int i = 0; i < 50; i++)
+        {
+            final Cluster cluster = new Cluster(words(random, 3));
+            cluster.setScore(random.nextDouble());
+            for (int j = 0; j < 30; j++)
+            {
+                cluster.addDocuments(documents.get(random.nextInt(documents.size())));
+            }
+            clusters.add(cluster);
+        }
+
+        final Map<String, Object> attributes = Maps.newHashMap();
+        attributes.put(AttributeNames.QUERY, "query");
+        attributes.put(AttributeNames.RESULTS, documents.size());
+        attributes.put(AttributeNames.PROCESSING_TIME_TOTAL, 100L);
+        attributes.put(AttributeNames.DOCUMENTS, documents);
+        attributes.put(AttributeNames.CLUSTERS, clusters);
+        result = new ProcessingResult(attributes);
+
+        final Map<String, Object> smallAttributes = Maps.newHashMap(attributes);
+        smallAttributes.put(AttributeNames.DOCUMENTS, documents.subList(0, 10));
+        smallAttributes.put(AttributeNames.CLUSTERS, clusters.subList(0, 2));
+        smallResult = new ProcessingResult(smallAttributes);
+
+        final ByteArrayOutputStream xmlStream = new ByteArrayOutputStream();
+        result.serialize(xmlStream);
+        xml = xmlStream.toByteArray();
+
+        final ByteArrayOutputStream binaryStream = new ByteArrayOutputStream();
+        result.serializeBinary(binaryStream);
+        binary = binaryStream.toByteArray();
+    }
+
+    private static String words(Random random, int count)
+    {
+        final StringBuilder words = new StringBuilder();
+        for (int i = 0; i < count; i++)
+        {
+            if (i > 0)
+            {
+                words.append(' ');
+            }
+            final int length = 3 + random.nextInt(8);
+            for (int j = 0; j < length; j++)
+            {
+                words.append((char) ('a' + random.nextInt(26)));
+            }
+        }
+        return words.toString();
+    }
+
+    @Test
+    public void serializeXml() throws Exception
+    {
+        for (int i = 0; i < internalRounds; i++)
+        {
+            result.serialize(new ByteArrayOutputStream(xml.length));
+        }
+    }
+
+    @Test
+    public void serializeJson() throws Exception
+    {
+        for (int i = 0; i < internalRounds; i++)
+        {
+            result.serializeJson(new StringWriter());
+        }
+    }
+
+    @Test
+    public void serializeJsonSmall() throws Exception
+    {
+        for (int i = 0; i < internalRounds * 100; i++)
+        {
+            smallResult.serializeJson(new StringWriter());
+        }
+    }
+
+    @Test
+    public void serializeBinary() throws Exception
+    {
+        for (int i = 0; i < internalRounds; i++)
+        {
+            result.serializeBinary(new ByteArrayOutputStream(binary.length));
+        }
+    }
+
+    @Test
+    public void deserializeXml() throws Exception
+    {
+        for (int i = 0; i < internalRounds; i++)
+        {
+            ProcessingResult.deserialize(new ByteArrayInputStream(xml));
+        }
+    }
+
+    @Test
+    public void deserializeBinary() throws Exception
+    {
+        for (int i = 0; i < internalRounds; i++)
+        {
+            ProcessingResult.deserializeBinary(new ByteArrayInputStream(binary));
+        }
+    }
+}
@@ -0,0 +1,203 @@
+/*
+ * Carrot2 project.
+ *
+ * Copyright (C) 2002-2019, Dawid Weiss, Stanisław Osiński.
+ * All rights reserved.
+ *
+ * Refer to the full license file "carrot2.LICENSE"
+ * in the root folder of the repository checkout or at:
+ * http://www.carrot2.org/carrot2.LICENSE
+ */
+
+package org.carrot2.matrix;
+
+import java.util.Random;
+
+import org.carrot2.mahout.math.matrix.DoubleMatrix2D;
+import org.carrot2.mahout.math.matrix.impl.DenseDoubleMatrix2D;
+import org.carrot2.mahout.math.matrix.impl.DenseMatrixMultiplication;
+import org.junit.After;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.carrotsearch.junitbenchmarks.AbstractBenchmark;
+import com.carrotsearch.junitbenchmarks.BenchmarkOptions;
+import com.carrotsearch.junitbenchmarks.h2.AxisRange;
+import com.carrotsearch.junitbenchmarks.h2.BenchmarkHistoryChart;
+import com.carrotsearch.junitbenchmarks.h2.BenchmarkMethodChart;
+
+/**
+ * Compares the blocked {@link DenseMatrixMultiplication} kernel (sequential and
+ * parallel) with the kernel previously used by {@link DenseDoubleMatrix2D}, copied
+ * below. Matrix shapes correspond to the multiplications performed by the NMF
+ * factorizations on a term-document matrix.
+ */
+@AxisRange(min = 0)
+@BenchmarkMethodChart(filePrefix = "matrix-multiplication")
+@BenchmarkHistoryChart(filePrefix = "matrix-multiplication-history")
+@BenchmarkOptions(benchmarkRounds = 10, warmupRounds = 5)
+public class MatrixMultiplicationBenchmark extends AbstractBenchmark
+{
+    /** Term-document matrix: terms x documents */
+    static DoubleMatrix2D A;
+
+    /** Base vectors: terms x k */
+    static DoubleMatrix2D U;
+
+    /** Coefficients: documents x k */
+    static DoubleMatrix2D V;
+
+    /** Row-major elements of A, U and V for the previous kernel */
+    static double [] AElems, UElems, VElems;
+
+    static final long defaultThreshold = DenseMatrixMultiplication.getParallelThreshold();
+
+    @BeforeClass
+    public static void prepareMatrices()
+    {
+        final Random random = new Random(0);
+        A = random(random, 1000, 500);
+        U = random(random, 1000, 50);
+        V = random(random, 500, 50);
+        AElems = elements(A);
+        UElems = elements(U);
+        VElems = elements(V);
+    }
+
+    @After
+    public void restoreThreshold()
+    {
+        DenseMatrixMultiplication.setParallelThreshold(defaultThreshold);
+    }
+
+    @Test
+    public void testPreviousKernel()
+    {
+        // A'U and AV as in the NMF updates, plus a square A'A. A transposed operand is
+        // a view with swapped strides, as in the previous DenseDoubleMatrix2D.zMult().
+        previousKernel(AElems, 1, 500, 500, 1000, UElems, 50, 1, 50,
+            new double [500 * 50], 50, 1, 1, 0);
+        previousKernel(AElems, 500, 1, 1000, 500, VElems, 50, 1, 50,
+            new double [1000 * 50], 50, 1, 1, 0);
+        previousKernel(AElems, 1, 500, 500, 1000, AElems, 500, 1, 500,
+            new double [500 * 500], 500, 1, 1, 0);
+    }
+
+    @Test
+    public void testBlockedSequential()
+    {
+        DenseMatrixMultiplication.setParallelThreshold(Long.MAX_VALUE);
+        multiplyAll();
+    }
+
+    @Test
+    public void testBlockedParallel()
+    {
+        DenseMatrixMultiplication.setParallelThreshold(1L << 20);
+        multiplyAll();
+    }
+
+    private void multiplyAll()
+    {
+        A.zMult(U, null, 1, 0, true, false);
+        A.zMult(V, null, 1, 0, false, false);
+        A.zMult(A, null, 1, 0, true, false);
+    }
+
+    /**
+     * The kernel of <code>DenseDoubleMatrix2D.zMult()</code> before the blocked
+     * {@link DenseMatrixMultiplication}, computing <code>C = alpha * A * B + beta * C</code>
+     * for an <code>m x n</code> matrix <code>A</code> and an <code>n x p</code> matrix
+     * <code>B</code>, given by their elements and row and column strides. Each result
+     * cell is an inner product computed with an unrolled loop; blocks of rows of
+     * <code>A</code> are sized to fit in the cache.
+     */
+    private static void previousKernel(double [] AElems, int rA, int cA, int m, int n,
+        double [] BElems, int rB, int cB, int p, double [] CElems, int rC, int cC,
+        double alpha, double beta)
+    {
+        int blockSize = 30000; // * 8 == Level 2 cache in bytes
+        int mOptimal = (blockSize - n) / (n + 1);
+        if (mOptimal <= 0)
+        {
+            mOptimal = 1;
+        }
+        int blocks = m / mOptimal;
+        if (m % mOptimal != 0)
+        {
+            blocks++;
+        }
+        int rr = 0;
+        while (--blocks >= 0)
+        {
+            int jB = 0;
+            int indexA = rr * rA;
+            int jC = rr * rC;
+            rr += mOptimal;
+            if (blocks == 0)
+            {
+                mOptimal += m - rr;
+            }
+
+            for (int j = p; --j >= 0;)
+            {
+                int iA = indexA;
+                int iC = jC;
+                for (int i = mOptimal; --i >= 0;)
+                {
+                    int kA = iA;
+                    int kB = jB;
+
+                    // loop unrolled
+                    kA -= cA;
+                    kB -= rB;
+
+                    double s = 0;
+                    for (int k = n % 4; --k >= 0;)
+                    {
+                        s += AElems[kA += cA] * BElems[kB += rB];
+                    }
+                    for (int k = n / 4; --k >= 0;)
+                    {
+                        s += AElems[kA += cA] * BElems[kB += rB]
+                            + AElems[kA += cA] * BElems[kB += rB]
+                            + AElems[kA += cA] * BElems[kB += rB]
+                            + AElems[kA += cA] * BElems[kB += rB];
+                    }
+
+                    CElems[iC] = alpha * s + beta * CElems[iC];
+                    iA += rA;
+                    iC += rC;
+                }
+                jB += cB;
+                jC += cC;
+            }
+        }
+    }
+
+    private static double [] elements(DoubleMatrix2D matrix)
+    {
+        final double [] elements = new double [matrix.rows() * matrix.columns()];
+        for (int r = 0, i = 0; r < matrix.rows(); r++)
+        {
+            for (int c = 0; c < matrix.columns(); c++)
+            {
+                elements[i++] = matrix.getQuick(r, c);
+            }
+        }
+        return elements;
+    }
+
+    private static DoubleMatrix2D random(Random random, int rows, int columns)
+    {
+        final DoubleMatrix2D matrix = new DenseDoubleMatrix2D(rows, columns);
+        for (int r = 0; r < rows; r++)
+        {
+            for (int c = 0; c < columns; c++)
+            {
+                matrix.setQuick(r, c, random.nextDouble());
+            }
+        }
+        return matrix;
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * Carrot2 project.
+ *
+ * Copyright (C) 2002-2019, Dawid Weiss, Stanisław Osiński.
+ * All rights reserved.
+ *
+ * Refer to the full license file "carrot2.LICENSE"
+ * in the root folder of the repository checkout or at:
+ * http://www.carrot2.org/carrot2.LICENSE
+ */
+
+package org.carrot2.text.analysis;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+
+import org.carrot2.core.Document;
+import org.carrot2.core.test.SampleDocumentData;
+import org.carrot2.text.util.MutableCharArray;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import org.carrot2.shaded.guava.common.collect.Lists;
+
+import com.carrotsearch.junitbenchmarks.AbstractBenchmark;
+import com.carrotsearch.junitbenchmarks.BenchmarkOptions;
+import com.carrotsearch.junitbenchmarks.h2.AxisRange;
+import com.carrotsearch.junitbenchmarks.h2.BenchmarkHistoryChart;
+import com.carrotsearch.junitbenchmarks.h2.BenchmarkMethodChart;
+
+/**
+ * Compares tokenization of document fields read through a {@link StringReader} with
+ * tokenization of the fields' characters in place, on {@link SampleDocumentData}.
+ */
+@AxisRange(min = 0)
+@BenchmarkMethodChart(filePrefix = "tokenizer")
+@BenchmarkHistoryChart(filePrefix = "tokenizer-history")
+@BenchmarkOptions(benchmarkRounds = 20, warmupRounds = 5)
+public class TokenizerBenchmark extends AbstractBenchmark
+{
+    /** Number of passes over all fields in each round */
+    static final int PASSES = 100;
+
+    /** Titles and snippets of all sample documents */
+    static String [] fields;
+
+    /** Prevents dead code elimination */
+    static volatile int guard;
+
+    @BeforeClass
+    public static void prepareFields()
+    {
+        final List<String> values = Lists.newArrayList();
+        for (List<Document> documents : SampleDocumentData.ALL)
+        {
+            for (Document document : documents)
+            {
+                for (String field : new String [] {Document.TITLE, Document.SUMMARY})
+                {
+                    final String value = document.getField(field);
+                    if (value != null)
+                    {
+                        values.add(value);
+                    }
+                }
+            }
+        }
+        fields = values.toArray(new String [values.size()]);
+    }
+
+    @Test
+    public void testReader() throws IOException
+    {
+        final ITokenizer tokenizer = new ExtendedWhitespaceTokenizer();
+        final MutableCharArray image = new MutableCharArray();
+        int tokens = 0;
+        for (int pass = 0; pass < PASSES; pass++)
+        {
+            for (String field : fields)
+            {
+                tokenizer.reset(new StringReader(field));
+                tokens += consume(tokenizer, image);
+            }
+        }
+        guard = tokens;
+    }
+
+    @Test
+    public void testCharSequence() throws IOException
+    {
+        final ICharSequenceTokenizer tokenizer = new ExtendedWhitespaceTokenizer();
+        final MutableCharArray image = new MutableCharArray();
+        int tokens = 0;
+        for (int pass = 0; pass < PASSES; pass++)
+        {
+            for (String field : fields)
+            {
+                tokenizer.reset(field);
+                tokens += consume(tokenizer, image);
+            }
+        }
+        guard = tokens;
+    }
+
+    private static int consume(ITokenizer tokenizer, MutableCharArray image)
+        throws IOException
+    {
+        int tokens = 0;
+        while (tokenizer.nextToken() != ITokenizer.TT_EOF)
+        {
+            tokenizer.setTermBuffer(image);
+            tokens += image.length();
+        }
+        return tokens;
+    }
+}
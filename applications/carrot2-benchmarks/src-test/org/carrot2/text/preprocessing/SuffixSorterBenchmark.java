@@ -0,0 +1,139 @@
+/*
+ * Carrot2 project.
+ *
+ * Copyright (C) 2002-2019, Dawid Weiss, Stanisław Osiński.
+ * All rights reserved.
+ *
+ * Refer to the full license file "carrot2.LICENSE"
+ * in the root folder of the repository checkout or at:
+ * http://www.carrot2.org/carrot2.LICENSE
+ */
+
+package org.carrot2.text.preprocessing;
+
+import java.util.Random;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.carrotsearch.hppc.sorting.IndirectComparator;
+import com.carrotsearch.hppc.sorting.IndirectSort;
+import com.carrotsearch.junitbenchmarks.AbstractBenchmark;
+import com.carrotsearch.junitbenchmarks.BenchmarkOptions;
+import com.carrotsearch.junitbenchmarks.h2.AxisRange;
+import com.carrotsearch.junitbenchmarks.h2.BenchmarkHistoryChart;
+import com.carrotsearch.junitbenchmarks.h2.BenchmarkMethodChart;
+
+/**
+ * Compares the linear-time {@link SuffixSorter} with the comparison-based suffix
+ * sorting it replaced, on a corpus of near-duplicate snippets and on random text.
+ */
+@AxisRange(min = 0)
+@BenchmarkMethodChart(filePrefix = "suffix-sorter")
+@BenchmarkHistoryChart(filePrefix = "suffix-sorter-history")
+@BenchmarkOptions(benchmarkRounds = 10, warmupRounds = 3)
+public class SuffixSorterBenchmark extends AbstractBenchmark
+{
+    /** Number of tokens in each corpus */
+    static final int TOKENS = 200000;
+
+    /** Snippets that differ in a few words only */
+    static int [] repetitive;
+
+    /** Words drawn uniformly from a large vocabulary */
+    static int [] random;
+
+    @BeforeClass
+    public static void prepareCorpora()
+    {
+        final Random rnd = new Random(0);
+        final int [] template = new int [200];
+        for (int i = 0; i < template.length; i++)
+        {
+            template[i] = rnd.nextInt(500);
+        }
+
+        repetitive = new int [TOKENS];
+        random = new int [TOKENS];
+        int separator = -1;
+        for (int i = 0; i < TOKENS; i++)
+        {
+            final int position = i % (template.length + 1);
+            if (position == template.length || i == TOKENS - 1)
+            {
+                repetitive[i] = separator;
+                random[i] = separator--;
+            }
+            else
+            {
+                repetitive[i] = rnd.nextInt(100) == 0 ? rnd.nextInt(500) : template[position];
+                random[i] = rnd.nextInt(20000);
+            }
+        }
+    }
+
+    @Test
+    public void testSaisRepetitive()
+    {
+        sais(repetitive);
+    }
+
+    @Test
+    public void testMergesortRepetitive()
+    {
+        mergesort(repetitive);
+    }
+
+    @Test
+    public void testSaisRandom()
+    {
+        sais(random);
+    }
+
+    @Test
+    public void testMergesortRandom()
+    {
+        mergesort(random);
+    }
+
+    private static void sais(int [] codes)
+    {
+        SuffixSorter.calculateLcp(codes, SuffixSorter.suffixArray(codes));
+    }
+
+    /**
+     * Suffix sorting with a suffix comparator and a rescanning LCP loop, as done before
+     * the linear-time implementation.
+     */
+    private static void mergesort(final int [] codes)
+    {
+        final int [] suffixOrder = IndirectSort.mergesort(0, codes.length,
+            new IndirectComparator()
+            {
+                public int compare(int a, int b)
+                {
+                    if (a == b)
+                    {
+                        return 0;
+                    }
+                    while (codes[a] == codes[b])
+                    {
+                        a++;
+                        b++;
+                    }
+                    return codes[b] - codes[a];
+                }
+            });
+
+        final int [] lcpArray = new int [codes.length];
+        for (int i = 1; i < lcpArray.length - 1; i++)
+        {
+            int lcp = 0;
+            while (codes[suffixOrder[i - 1] + lcp] == codes[suffixOrder[i] + lcp])
+            {
+                lcp++;
+            }
+            lcpArray[i] = lcp;
+        }
+    }
+}
@@ -12,7 +12,9 @@
 
 package org.carrot2.cli.batch;
 
+import java.io.BufferedInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.Writer;
@@ -24,6 +26,7 @@ import java.util.List;
 import java.util.Map;
 
 import org.apache.commons.lang3.StringUtils;
+import org.carrot2.core.BatchItemResult;
 import org.carrot2.core.Controller;
 import org.carrot2.core.ControllerFactory;
 import org.carrot2.core.ProcessingComponentDescriptor;
@@ -71,7 +74,15 @@ public class BatchApp
 
     enum Format
     {
-        JSON, XML;
+        JSON(".json"), XML(".xml"), BINARY(".c2b");
+
+        /** Extension of output files in this format */
+        final String extension;
+
+        private Format(String extension)
+        {
+            this.extension = extension;
+        }
     }
 
     @Option(name = "-f", aliases =
@@ -98,7 +109,13 @@ public class BatchApp
     }, required = false, metaVar = "ALGORITHM", usage = "Identifier or class name of the clustering algorithm to use, see below for the list")
     String algorithm;
 
-    @Argument(metaVar = "INPUT", required = true, usage = "File in Carrot2 XML format or directory of files to cluster")
+    @Option(name = "-p", aliases =
+    {
+        "--parallelism"
+    }, required = false, metaVar = "THREADS", usage = "Number of files to cluster in parallel, the number of processors by default")
+    int parallelism = Runtime.getRuntime().availableProcessors();
+
+    @Argument(metaVar = "INPUT", required = true, usage = "File in Carrot2 XML or binary (*.c2b) format or directory of files to cluster")
     List<Path> inputFiles;
 
     int filesClusteredTotal = 0;
@@ -107,6 +124,31 @@ public class BatchApp
     private ProcessingComponentSuite componentSuite;
     private List<ProcessingComponentDescriptor> algorithms;
 
+    /**
+     * Input files in the XML format, clustered with the XML document source.
+     */
+    private final List<Job> xmlJobs = Lists.newArrayList();
+
+    /**
+     * Input files in the binary format, clustered directly.
+     */
+    private final List<Job> binaryJobs = Lists.newArrayList();
+
+    /**
+     * An input file and the corresponding output file.
+     */
+    private static final class Job
+    {
+        final Path input;
+        final Path output;
+
+        Job(Path input, Path output)
+        {
+            this.input = input;
+            this.output = output;
+        }
+    }
+
     /**
      * Private constructor. Reads the available algorithms from the component suite.
      */
@@ -137,7 +179,14 @@ public class BatchApp
      */
     private int process() throws Exception
     {
+        if (parallelism <= 0)
+        {
+            log.warn("Parallelism must be positive: " + parallelism);
+            return 20;
+        }
+
         final Controller controller = ControllerFactory.createPooling();
+        controller.setBatchParallelism(parallelism);
         final Map<String, Object> initAttributes = ImmutableMap.<String, Object> of(
             AttributeUtils.getKey(DefaultLexicalDataFactory.class, "resourceLookup"), 
             new ResourceLookup(new DirLocator("resources")));
@@ -184,14 +233,14 @@ public class BatchApp
             return 20;
         }
 
-        // Process files in the order they were specified. For input directories,
+        // Collect files in the order they were specified. For input directories,
         // a corresponding directory will be created on output.
         final long start = System.currentTimeMillis();
         for (Path file : inputFiles)
         {
             try
             {
-                process(file, outputDir, controller);
+                collect(file, outputDir);
             }
             catch (Exception e)
             {
@@ -199,6 +248,19 @@ public class BatchApp
             }
         }
 
+        // Cluster the files in batches, so that only a limited number of inputs and
+        // results are kept in memory.
+        final int batchSize = parallelism * 4;
+        for (List<Job> jobs : Lists.partition(xmlJobs, batchSize))
+        {
+            process(jobs, false, controller);
+        }
+        for (List<Job> jobs : Lists.partition(binaryJobs, batchSize))
+        {
+            process(jobs, true, controller);
+        }
+        controller.dispose();
+
         log.info("Clustering of "
             + filesClusteredTotal
             + " files completed"
@@ -257,10 +319,9 @@ public class BatchApp
     }
 
     /**
-     * Processes an individual file or a directory.
+     * Collects an individual file or the files in a directory for clustering.
      */
-    private void process(Path fileOrDirectory, Path currentOutputDir,
-        Controller controller) throws Exception
+    private void collect(Path fileOrDirectory, Path currentOutputDir) throws Exception
     {
         if (!Files.exists(fileOrDirectory))
         {
@@ -278,7 +339,7 @@ public class BatchApp
                   for (Path fileOrDir : s) {
                     try
                     {
-                        process(fileOrDir, newCurrentOutputDir, controller);
+                        collect(fileOrDir, newCurrentOutputDir);
                     }
                     catch (Exception e)
                     {
@@ -292,40 +353,131 @@ public class BatchApp
         {
             filesClusteredTotal++;
 
-            final Map<String, Object> attributes = Maps.newHashMap();
-            attributes.put("XmlDocumentSource.xml", new FileResource(fileOrDirectory));
-            final ProcessingResult result = controller.process(attributes,
-                XmlDocumentSource.class.getName(), algorithm);
-
             // Stick to UTF-8 encoding on the output.
-            final String outputFileName = 
-                Format.JSON.equals(outputFormat) && fileName.endsWith(".xml") 
-                ? fileName.substring(0, fileName .length() - 4) + ".json" : fileName;
+            String outputFileName = fileName;
+            for (Format format : Format.values())
+            {
+                if (fileName.endsWith(format.extension))
+                {
+                    outputFileName = fileName.substring(0,
+                        fileName.length() - format.extension.length())
+                        + outputFormat.extension;
+                    break;
+                }
+            }
 
-            final OutputStream stream = Files.newOutputStream(currentOutputDir.resolve(outputFileName));
-            try
+            final Job job = new Job(fileOrDirectory, currentOutputDir.resolve(outputFileName));
+            if (fileName.endsWith(Format.BINARY.extension))
+            {
+                binaryJobs.add(job);
+            }
+            else
             {
-                if (Format.JSON.equals(outputFormat))
+                xmlJobs.add(job);
+            }
+        }
+    }
+
+    /**
+     * Clusters a batch of files of the same format and saves the results.
+     */
+    private void process(List<Job> jobs, boolean binary, Controller controller)
+    {
+        final List<Job> readJobs = Lists.newArrayList();
+        final List<Map<String, Object>> requests = Lists.newArrayList();
+        for (Job job : jobs)
+        {
+            final Map<String, Object> attributes = Maps.newHashMap();
+            if (binary)
+            {
+                // Documents in the binary format, cluster them directly. Only the
+                // documents and the query are taken over, other stored attributes are
+                // outputs of the previous run.
+                try
                 {
-                    Writer w = new OutputStreamWriter(stream, "UTF-8");
-                    result.serializeJson(w, null, outputDocuments, true, outputAttributes);
-                    w.flush();
+                    final InputStream input = new BufferedInputStream(
+                        Files.newInputStream(job.input));
+                    try
+                    {
+                        final Map<String, Object> stored = ProcessingResult
+                            .deserializeBinary(input).getAttributes();
+                        attributes.put(AttributeNames.DOCUMENTS,
+                            stored.get(AttributeNames.DOCUMENTS));
+                        if (stored.containsKey(AttributeNames.QUERY))
+                        {
+                            attributes.put(AttributeNames.QUERY,
+                                stored.get(AttributeNames.QUERY));
+                        }
+                    }
+                    finally
+                    {
+                        CloseableUtils.close(input);
+                    }
                 }
-                else
+                catch (Exception e)
                 {
-                    result.serialize(stream, outputDocuments, true, outputAttributes);
+                    processingWarning(job.input, e);
+                    continue;
                 }
             }
-            finally
+            else
             {
-                CloseableUtils.close(stream);
+                attributes.put("XmlDocumentSource.xml", new FileResource(job.input));
             }
+            readJobs.add(job);
+            requests.add(attributes);
+        }
+
+        final List<BatchItemResult> results = binary
+            ? controller.processBatch(requests, algorithm)
+            : controller.processBatch(requests, XmlDocumentSource.class.getName(), algorithm);
 
-            log.info("Clustering " + fileOrDirectory.toAbsolutePath() + " ["
-                + result.getAttribute(AttributeNames.PROCESSING_TIME_TOTAL) + "ms]");
+        for (int i = 0; i < results.size(); i++)
+        {
+            final Job job = readJobs.get(i);
+            try
+            {
+                save(results.get(i).get(), job);
+            }
+            catch (Exception e)
+            {
+                processingWarning(job.input, e);
+            }
         }
     }
 
+    /**
+     * Saves the result of clustering an individual file.
+     */
+    private void save(ProcessingResult result, Job job) throws Exception
+    {
+        final OutputStream stream = Files.newOutputStream(job.output);
+        try
+        {
+            if (Format.JSON.equals(outputFormat))
+            {
+                Writer w = new OutputStreamWriter(stream, "UTF-8");
+                result.serializeJson(w, null, outputDocuments, true, outputAttributes);
+                w.flush();
+            }
+            else if (Format.BINARY.equals(outputFormat))
+            {
+                result.serializeBinary(stream, outputDocuments, true, outputAttributes);
+            }
+            else
+            {
+                result.serialize(stream, outputDocuments, true, outputAttributes);
+            }
+        }
+        finally
+        {
+            CloseableUtils.close(stream);
+        }
+
+        log.info("Clustering " + job.input.toAbsolutePath() + " ["
+            + result.getAttribute(AttributeNames.PROCESSING_TIME_TOTAL) + "ms]");
+    }
+
     public static void main(String [] args) throws Exception
     {
         final BatchApp batch = new BatchApp();
@@ -14,10 +14,16 @@ package org.carrot2.dcs;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.List;
 
+import org.carrot2.core.ConcurrencyLimitConfiguration;
+import org.carrot2.core.ResultCacheConfiguration;
+import org.carrot2.shaded.guava.common.collect.Lists;
 import org.carrot2.util.CloseableUtils;
 import org.carrot2.util.resource.IResource;
 import org.simpleframework.xml.Attribute;
+import org.simpleframework.xml.Element;
+import org.simpleframework.xml.ElementList;
 import org.simpleframework.xml.Root;
 import org.simpleframework.xml.core.Persister;
 import org.slf4j.Logger;
@@ -39,6 +45,26 @@ class DcsConfig
     @Attribute(name = "cache-clusters", required = false)
     boolean cacheClusters = false;
 
+    /**
+     * Size, expiry and refreshing settings of the documents and clusters cache.
+     */
+    @Element(name = "result-cache", required = false)
+    ResultCacheConfiguration resultCache = new ResultCacheConfiguration();
+
+    /**
+     * Limits of concurrently processed requests, in total and for specific components.
+     */
+    @ElementList(name = "concurrency-limits", entry = "concurrency-limit", required = false)
+    List<ConcurrencyLimitConfiguration> concurrencyLimits = Lists.newArrayList();
+
+    /**
+     * If positive, requests with documents in the input count against the concurrency
+     * limits with one unit of weight for every this many kilobytes of the input text
+     * (plus one).
+     */
+    @Attribute(name = "input-weight-kilobytes", required = false)
+    long inputWeightKilobytes = 0;
+
     @Attribute(name = "xslt", required = false)
     String xslt = null;
     
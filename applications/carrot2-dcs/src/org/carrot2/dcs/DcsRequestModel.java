@@ -45,7 +45,7 @@ public class DcsRequestModel
      */
     public enum OutputFormat
     {
-        XML("text/xml"), JSON("text/json");
+        XML("text/xml"), JSON("text/json"), BINARY("application/x-carrot2-result");
 
         /** Content type for this output format */
         public final String contentType;
@@ -45,6 +45,7 @@ import org.apache.commons.lang3.StringUtils;
 import org.apache.log4j.FileAppender;
 import org.apache.log4j.Logger;
 import org.apache.log4j.PatternLayout;
+import org.carrot2.core.ConcurrencyLimitConfiguration;
 import org.carrot2.core.Controller;
 import org.carrot2.core.ControllerFactory;
 import org.carrot2.core.Document;
@@ -54,7 +55,9 @@ import org.carrot2.core.IProcessingComponent;
 import org.carrot2.core.ProcessingComponentConfiguration;
 import org.carrot2.core.ProcessingComponentSuite;
 import org.carrot2.core.ProcessingException;
+import org.carrot2.core.ProcessingRejectedException;
 import org.carrot2.core.ProcessingResult;
+import org.carrot2.core.attribute.AttributeNames;
 import org.carrot2.dcs.DcsRequestModel.OutputFormat;
 import org.carrot2.shaded.guava.common.collect.ImmutableMap;
 import org.carrot2.shaded.guava.common.collect.Lists;
@@ -96,6 +99,7 @@ public final class RestProcessorServlet extends HttpServlet
     private final static String UTF8 = "UTF-8";
     private final static String MIME_XML_UTF8 = "text/xml; charset=" + UTF8;
     private final static String MIME_JSON_UTF8 = "text/json; charset=" + UTF8;
+    private final static String MIME_BINARY = OutputFormat.BINARY.contentType;
 
     /**
      * {@link ProcessingResult} served as input/output example.
@@ -276,7 +280,7 @@ public final class RestProcessorServlet extends HttpServlet
             cachedComponentClasses.add(IClusteringAlgorithm.class);
         }
 
-        controller = ControllerFactory.createCachingPooling(
+        controller = ControllerFactory.create(true, config.resultCache,
             cachedComponentClasses.toArray(new Class [cachedComponentClasses.size()]));
 
         List<IResourceLocator> locators = Lists.newArrayList();
@@ -313,6 +317,11 @@ public final class RestProcessorServlet extends HttpServlet
             ImmutableMap.<String, Object> of(resourceLookupAttrKey, new ResourceLookup(locators)), 
             configurations);
 
+        for (ConcurrencyLimitConfiguration limit : config.concurrencyLimits)
+        {
+            controller.addConcurrencyLimit(limit);
+        }
+
         config.logger.info("DCS request processor started.");
     }
 
@@ -461,13 +470,22 @@ public final class RestProcessorServlet extends HttpServlet
                 }
 
                 // Deserialize documents from the stream
+                final boolean binary = MIME_BINARY.equals(fileItem.getContentType());
                 try
                 {
-                    input = ProcessingResult.deserialize(uploadInputStream);
+                    if (binary)
+                    {
+                        input = ProcessingResult.deserializeBinary(uploadInputStream);
+                    }
+                    else
+                    {
+                        input = ProcessingResult.deserialize(uploadInputStream);
+                    }
                 }
                 catch (Exception e)
                 {
-                    sendBadRequest("Could not parse Carrot2 XML stream", response, e);
+                    sendBadRequest("Could not parse Carrot2 " + (binary ? "binary" : "XML")
+                        + " stream", response, e);
                     return;
                 }
                 finally
@@ -544,6 +562,14 @@ public final class RestProcessorServlet extends HttpServlet
             return;
         }
 
+        // Large inputs take a larger share of the concurrency limits
+        if (config.inputWeightKilobytes > 0 && documents != null)
+        {
+            processingAttributes.put(AttributeNames.PROCESSING_WEIGHT,
+                1 + approximateCharacterCount(documents)
+                    / (config.inputWeightKilobytes * 1024));
+        }
+
         // Perform processing
         ProcessingResult result = null;
         try
@@ -568,6 +594,12 @@ public final class RestProcessorServlet extends HttpServlet
                   (System.currentTimeMillis() - start) / 1000.0));
             }
         }
+        catch (ProcessingRejectedException e)
+        {
+            config.logger.warn("Request rejected: " + e.getMessage());
+            response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE, e.getMessage());
+            return;
+        }
         catch (ProcessingException e)
         {
             sendInternalServerError("Could not perform processing", response, e);
@@ -588,6 +620,12 @@ public final class RestProcessorServlet extends HttpServlet
                 result.serializeJson(response.getWriter(), requestModel.jsonCallback,
                     !requestModel.clustersOnly, true);
             }
+            else if (OutputFormat.BINARY.equals(requestModel.outputFormat))
+            {
+                response.setContentType(MIME_BINARY);
+                result.serializeBinary(response.getOutputStream(),
+                    !requestModel.clustersOnly, true, true);
+            }
             else
             {
                 response.sendError(HttpServletResponse.SC_BAD_REQUEST,
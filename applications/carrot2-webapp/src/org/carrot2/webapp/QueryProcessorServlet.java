@@ -31,6 +31,7 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
 import org.apache.commons.lang3.StringUtils;
+import org.carrot2.core.ComponentCacheStatistics;
 import org.carrot2.core.Controller;
 import org.carrot2.core.ControllerFactory;
 import org.carrot2.core.ControllerStatistics;
@@ -154,7 +155,7 @@ public class QueryProcessorServlet extends HttpServlet
         if (Boolean.getBoolean(ENABLE_CLASSPATH_LOCATOR))
             locators.add(Location.CONTEXT_CLASS_LOADER.locator);
 
-        controller = ControllerFactory.createCachingPooling(
+        controller = ControllerFactory.create(true, webappConfig.resultCache,
             ResultsCacheModel.toClassArray(webappConfig.caches));
         controller.init(
             ImmutableMap.<String, Object> of(
@@ -396,6 +397,35 @@ public class QueryProcessorServlet extends HttpServlet
 
             output.write("cache.hits: " + statistics.cacheHitsTotal + "\n");
             output.write("cache.misses: " + statistics.cacheMisses + "\n");
+            output.write("cache.coalesced: " + statistics.cacheCoalesced + "\n");
+            output.write("cache.evictions: " + statistics.cacheEvictions + "\n");
+            output.write("cache.entries: " + statistics.cacheEntries + "\n");
+            if (statistics.cacheDiskHits != null)
+            {
+                output.write("cache.disk.hits: " + statistics.cacheDiskHits + "\n");
+                output.write("cache.disk.entries: " + statistics.cacheDiskEntries + "\n");
+                output.write("cache.disk.bytes: " + statistics.cacheDiskBytes + "\n");
+            }
+            if (statistics.cacheComponents != null)
+            {
+                for (ComponentCacheStatistics component : statistics.cacheComponents)
+                {
+                    final String prefix = "cache." + component.componentClass + ".";
+                    output.write(prefix + "hits: " + component.hits + "\n");
+                    output.write(prefix + "misses: " + component.misses + "\n");
+                    output.write(prefix + "coalesced: " + component.coalesced + "\n");
+                    output.write(prefix + "evictions: " + component.evictions + "\n");
+                    output.write(prefix + "load-time-total: " + component.loadTimeTotal + "\n");
+                }
+            }
+
+            if (statistics.poolHits != null)
+            {
+                output.write("pool.hits: " + statistics.poolHits + "\n");
+                output.write("pool.misses: " + statistics.poolMisses + "\n");
+                output.write("pool.evictions: " + statistics.poolEvictions + "\n");
+                output.write("pool.idle: " + statistics.poolIdle + "\n");
+            }
 
             output.flush();
         }
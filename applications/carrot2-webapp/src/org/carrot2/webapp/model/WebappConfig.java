@@ -77,6 +77,9 @@ public class WebappConfig
 
     @ElementList(entry = "cache", required = false)
     public ArrayList<ResultsCacheModel> caches = Lists.newArrayList();
+
+    @Element(name = "result-cache", required = false)
+    public ResultCacheConfiguration resultCache = new ResultCacheConfiguration();
     
     @Attribute(name = "skins-folder")
     public String skinsFolder;
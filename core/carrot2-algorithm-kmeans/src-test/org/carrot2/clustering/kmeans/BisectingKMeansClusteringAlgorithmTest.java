@@ -13,16 +13,25 @@
 package org.carrot2.clustering.kmeans;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import org.carrot2.core.Cluster;
+import org.carrot2.core.ControllerFactory;
 import org.carrot2.core.Document;
+import org.carrot2.core.LanguageCode;
 import org.carrot2.core.ProcessingResult;
+import org.carrot2.core.attribute.AttributeNames;
+import org.carrot2.core.attribute.Processing;
 import org.carrot2.core.test.ClusteringAlgorithmTestBase;
 import org.carrot2.core.test.SampleDocumentData;
 import org.carrot2.core.test.assertions.Carrot2CoreAssertions;
 import org.carrot2.text.clustering.MultilingualClustering.LanguageAggregationStrategy;
 import org.carrot2.text.clustering.MultilingualClusteringDescriptor;
+import org.carrot2.text.vsm.TermDocumentMatrixBuilderDescriptor;
+import org.carrot2.util.attribute.Attribute;
+import org.carrot2.util.attribute.Bindable;
+import org.carrot2.util.attribute.Output;
 import org.junit.Test;
 
 import org.carrot2.shaded.guava.common.collect.Lists;
@@ -41,6 +50,19 @@ public class BisectingKMeansClusteringAlgorithmTest extends
 
     @Test
     public void smokeTest()
+    {
+        checkSmokeTest();
+    }
+
+    @Test
+    public void smokeTestCompressedMatrix()
+    {
+        TermDocumentMatrixBuilderDescriptor.attributeBuilder(processingAttributes)
+            .maximumSparseMatrixDensity(1.0);
+        checkSmokeTest();
+    }
+
+    private void checkSmokeTest()
     {
         final List<Document> documents = Lists.newArrayList();
         documents.add(new Document("WordA . WordA"));
@@ -79,4 +101,36 @@ public class BisectingKMeansClusteringAlgorithmTest extends
 
         assertThat(clusterNames).contains("English", "Italian", "French", "Spanish", "German");
     }
+
+    @Test
+    public void testClusterOverrideCalled()
+    {
+        processingAttributes.put(AttributeNames.DOCUMENTS,
+            SampleDocumentData.DOCUMENTS_DATA_MINING);
+        final ProcessingResult result = ControllerFactory.createSimple().process(
+            processingAttributes, OverridingClusterAlgorithm.class);
+
+        assertEquals(Boolean.TRUE, result.getAttribute("overridden"));
+        final Map<String, Long> stages = result
+            .getAttribute(AttributeNames.PROCESSING_TIME_STAGES);
+        assertNotNull(stages);
+        assertFalse(stages.isEmpty());
+    }
+
+    @Bindable
+    public static class OverridingClusterAlgorithm extends
+        BisectingKMeansClusteringAlgorithm
+    {
+        @Processing
+        @Output
+        @Attribute(key = "overridden")
+        public boolean overridden;
+
+        @Override
+        protected void cluster(LanguageCode language)
+        {
+            overridden = true;
+            super.cluster(language);
+        }
+    }
 }
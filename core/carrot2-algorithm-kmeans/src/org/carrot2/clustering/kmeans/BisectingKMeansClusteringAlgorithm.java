@@ -16,6 +16,7 @@ import java.util.Collections;
 import java.util.Comparator;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 
 import org.carrot2.core.Cluster;
@@ -30,7 +31,7 @@ import org.carrot2.core.attribute.Init;
 import org.carrot2.core.attribute.Internal;
 import org.carrot2.core.attribute.Processing;
 import org.carrot2.text.analysis.ITokenizer;
-import org.carrot2.text.clustering.IMonolingualClusteringAlgorithm;
+import org.carrot2.text.clustering.IMonolingualClusterer;
 import org.carrot2.text.clustering.MultilingualClustering;
 import org.carrot2.text.preprocessing.LabelFormatter;
 import org.carrot2.text.preprocessing.PreprocessingContext;
@@ -40,6 +41,7 @@ import org.carrot2.text.vsm.ReducedVectorSpaceModelContext;
 import org.carrot2.text.vsm.TermDocumentMatrixBuilder;
 import org.carrot2.text.vsm.TermDocumentMatrixReducer;
 import org.carrot2.text.vsm.VectorSpaceModelContext;
+import org.carrot2.util.StageTimer;
 import org.carrot2.util.attribute.Attribute;
 import org.carrot2.util.attribute.AttributeLevel;
 import org.carrot2.util.attribute.Bindable;
@@ -66,6 +68,7 @@ import org.carrot2.mahout.math.matrix.DoubleMatrix1D;
 import org.carrot2.mahout.math.matrix.DoubleMatrix2D;
 import org.carrot2.mahout.math.matrix.impl.DenseDoubleMatrix1D;
 import org.carrot2.mahout.math.matrix.impl.DenseDoubleMatrix2D;
+import org.carrot2.matrix.CompressedColumnDoubleMatrix2D;
 import org.carrot2.shaded.guava.common.collect.Lists;
 
 /**
@@ -94,6 +97,24 @@ public class BisectingKMeansClusteringAlgorithm extends ProcessingComponentBase
     @Attribute(key = AttributeNames.CLUSTERS, inherit = true)
     public List<Cluster> clusters = null;
 
+    /**
+     * Processing time of the individual stages of the algorithm.
+     */
+    @Processing
+    @Output
+    @Internal
+    @Attribute(key = AttributeNames.PROCESSING_TIME_STAGES, inherit = true)
+    public Map<String, Long> processingTimeStages;
+
+    /**
+     * Memory allocated by the individual stages of the algorithm.
+     */
+    @Processing
+    @Output
+    @Internal
+    @Attribute(key = AttributeNames.PROCESSING_ALLOCATION_STAGES, inherit = true)
+    public Map<String, Long> processingAllocationStages;
+
     /**
      * The number of clusters to create. The algorithm will create at most the specified
      * number of clusters.
@@ -191,33 +212,67 @@ public class BisectingKMeansClusteringAlgorithm extends ProcessingComponentBase
      */
     public final MultilingualClustering multilingualClustering = new MultilingualClustering();
 
+    /**
+     * Collects stage times of the language clustered by {@link #cluster(LanguageCode)},
+     * <code>null</code> outside of {@link #process()}.
+     */
+    private StageTimer languageStageTimer;
+
     @Override
     public void process() throws ProcessingException
     {
         // There is a tiny trick here to support multilingual clustering without
         // refactoring the whole component: we remember the original list of documents
         // and invoke clustering for each language separately within the 
-        // IMonolingualClusteringAlgorithm implementation below. This is safe because
+        // IMonolingualClusterer implementation below. This is safe because
         // processing components are not thread-safe by definition and 
-        // IMonolingualClusteringAlgorithm forbids concurrent execution by contract.
+        // MultilingualClustering clusters one language at a time with this instance.
+        // Languages clustered concurrently are processed by separate copies of this
+        // component instead.
         final List<Document> originalDocuments = documents;
-        clusters = multilingualClustering.process(documents,
-            new IMonolingualClusteringAlgorithm()
+        final StageTimer stageTimer = new StageTimer();
+        clusters = multilingualClustering.process(documents, this,
+            this.<BisectingKMeansClusteringAlgorithm> getCopyPool(),
+            new IMonolingualClusterer<BisectingKMeansClusteringAlgorithm>()
             {
-                public List<Cluster> process(List<Document> documents, LanguageCode language)
+                public List<Cluster> process(BisectingKMeansClusteringAlgorithm algorithm,
+                    List<Document> documents, LanguageCode language)
                 {
-                    BisectingKMeansClusteringAlgorithm.this.documents = documents;
-                    BisectingKMeansClusteringAlgorithm.this.cluster(language);
-                    return BisectingKMeansClusteringAlgorithm.this.clusters;
+                    algorithm.documents = documents;
+                    algorithm.languageStageTimer = stageTimer;
+                    try
+                    {
+                        algorithm.cluster(language);
+                    }
+                    finally
+                    {
+                        algorithm.languageStageTimer = null;
+                    }
+                    return algorithm.clusters;
                 }
-            });
+            },
+            multilingualClustering.maxConcurrentLanguages > 1 ? getSharedExecutor(
+                MultilingualClustering.MAX_CONCURRENT_LANGUAGES,
+                MultilingualClustering.class) : null);
         documents = originalDocuments;
+        processingTimeStages = stageTimer.getTimes();
+        processingAllocationStages = stageTimer.getAllocations();
     }
 
     /**
      * Perform clustering for a given language.
      */
     protected void cluster(LanguageCode language)
+    {
+        cluster(language, languageStageTimer != null ? languageStageTimer
+            : new StageTimer());
+    }
+
+    /**
+     * Perform clustering for a given language. Times of the individual stages are added
+     * to <code>stageTimer</code>.
+     */
+    protected void cluster(LanguageCode language, StageTimer stageTimer)
     {
         // Preprocessing of documents
         final PreprocessingContext preprocessingContext = 
@@ -250,6 +305,7 @@ public class BisectingKMeansClusteringAlgorithm extends ProcessingComponentBase
 
             matrixBuilder.buildTermDocumentMatrix(vsmContext);
             matrixBuilder.buildTermPhraseMatrix(vsmContext);
+            preprocessingContext.timer.lap("TermDocumentMatrixBuilder");
 
             // Prepare rowIndex -> stemIndex mapping for labeling
             final IntIntHashMap rowToStemIndex = new IntIntHashMap();
@@ -262,6 +318,7 @@ public class BisectingKMeansClusteringAlgorithm extends ProcessingComponentBase
             if (useDimensionalityReduction && clusterCount * 2 < preprocessingContext.documents.size())
             {
                 matrixReducer.reduce(reducedVsmContext, clusterCount * 2);
+                preprocessingContext.timer.lap("TermDocumentMatrixReducer");
                 tdMatrix = reducedVsmContext.coefficientMatrix.viewDice();
             }
             else
@@ -307,6 +364,8 @@ public class BisectingKMeansClusteringAlgorithm extends ProcessingComponentBase
                 }
             }
 
+            preprocessingContext.timer.lap("KMeans");
+
             for (int i = 0; i < rawClusters.size(); i++)
             {
                 final Cluster cluster = new Cluster();
@@ -329,6 +388,9 @@ public class BisectingKMeansClusteringAlgorithm extends ProcessingComponentBase
 
         Collections.sort(clusters, Cluster.BY_REVERSED_SIZE_AND_LABEL_COMPARATOR);
         Cluster.appendOtherTopics(documents, clusters);
+        preprocessingContext.timer.lap("LabelFormatter");
+
+        stageTimer.addAll(preprocessingContext.timer);
     }
 
     private static final Comparator<IntArrayList> BY_SIZE_DESCENDING = new Comparator<IntArrayList>()
@@ -394,9 +456,17 @@ public class BisectingKMeansClusteringAlgorithm extends ProcessingComponentBase
     private List<IntArrayList> split(int partitions, DoubleMatrix2D input,
         IntArrayList columns, int iterations)
     {
-        // Prepare selected matrix
-        final DoubleMatrix2D selected = input.viewSelection(null, columns.toArray())
-            .copy();
+        // Prepare selected matrix, a copy of a compressed matrix stays compressed
+        final DoubleMatrix2D selected;
+        if (input instanceof CompressedColumnDoubleMatrix2D)
+        {
+            selected = ((CompressedColumnDoubleMatrix2D) input).copyColumns(columns
+                .toArray());
+        }
+        else
+        {
+            selected = input.viewSelection(null, columns.toArray()).copy();
+        }
         final IntIntMap selectedToInput = new IntIntHashMap(selected.columns());
         for (int i = 0; i < columns.size(); i++)
         {
@@ -421,8 +491,8 @@ public class BisectingKMeansClusteringAlgorithm extends ProcessingComponentBase
         final DoubleMatrix2D similarities = new DenseDoubleMatrix2D(partitions,
             selected.columns());
 
-        // Run a fixed number of K-means iterations
-        for (int it = 0; it < iterations; it++)
+        // Run a fixed number of K-means iterations, stop early if interrupted
+        for (int it = 0; it < iterations && !Thread.currentThread().isInterrupted(); it++)
         {
             // Update centroids
             for (int i = 0; i < result.size(); i++)
@@ -12,12 +12,18 @@
 
 package org.carrot2.clustering.lingo;
 
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 import org.carrot2.core.Cluster;
+import org.carrot2.core.Controller;
 import org.carrot2.core.Document;
+import org.carrot2.core.IClusteringAlgorithm;
+import org.carrot2.core.LatencyStatistics;
 import org.carrot2.core.ProcessingException;
+import org.carrot2.core.ProcessingResult;
 import org.carrot2.core.attribute.AttributeNames;
 import org.carrot2.core.test.ClusteringAlgorithmTestBase;
 import org.carrot2.core.test.SampleDocumentData;
@@ -98,4 +104,68 @@ public class LingoClusteringAlgorithmTest extends
         assertThat(clusters).hasSize(2);
         assertThat(clusters.get(0).getLabel().toLowerCase()).startsWith("program");
     }
+
+    @Test
+    public void testStageTimes()
+    {
+        processingAttributes.put(AttributeNames.DOCUMENTS,
+            SampleDocumentData.DOCUMENTS_DATA_MINING);
+        final Controller controller = getSimpleController(initAttributes);
+        final ProcessingResult result = controller.process(processingAttributes,
+            getComponentClass());
+
+        final Map<String, Long> times = result.getAttribute(
+            AttributeNames.PROCESSING_TIME_STAGES);
+        assertEquals(Arrays.asList("Tokenizer", "CaseNormalizer",
+            "LanguageModelStemmer", "StopListMarker", "PhraseExtractor",
+            "LabelFilterProcessor", "DocumentAssigner", "TermDocumentMatrixBuilder",
+            "TermDocumentMatrixReducer", "ClusterBuilder", "LabelFormatter"),
+            Lists.newArrayList(times.keySet()));
+
+        long total = 0;
+        for (Long time : times.values())
+        {
+            assertThat(time).isGreaterThanOrEqualTo(0);
+            total += time;
+        }
+        final long algorithmTime = result.getAttribute(
+            AttributeNames.PROCESSING_TIME_ALGORITHM);
+        assertThat(total / 1000000).isLessThanOrEqualTo(algorithmTime + 50);
+
+        final Map<String, Long> allocations = result.getAttribute(
+            AttributeNames.PROCESSING_ALLOCATION_STAGES);
+        assertNotNull(allocations);
+        if (!allocations.isEmpty())
+        {
+            assertEquals(times.keySet(), allocations.keySet());
+        }
+
+        final List<LatencyStatistics> stages = controller.getStatistics().algorithmStages;
+        assertEquals(times.size(), stages.size());
+        for (LatencyStatistics stage : stages)
+        {
+            assertThat(stage.name).startsWith(LingoClusteringAlgorithm.class.getSimpleName() + "/");
+            assertEquals(1, stage.count);
+        }
+    }
+
+    @Test
+    public void testStageTimesOfCachedResultsNotRecorded()
+    {
+        processingAttributes.put(AttributeNames.DOCUMENTS,
+            SampleDocumentData.DOCUMENTS_DATA_MINING);
+        final Controller controller = getCachingController(initAttributes,
+            IClusteringAlgorithm.class);
+        controller.process(processingAttributes, getComponentClass());
+        final ProcessingResult cached = controller.process(processingAttributes,
+            getComponentClass());
+        assertNotNull(cached.getAttribute(AttributeNames.PROCESSING_TIME_STAGES));
+
+        final List<LatencyStatistics> stages = controller.getStatistics().algorithmStages;
+        assertThat(stages).isNotEmpty();
+        for (LatencyStatistics stage : stages)
+        {
+            assertEquals(1, stage.count);
+        }
+    }
 }
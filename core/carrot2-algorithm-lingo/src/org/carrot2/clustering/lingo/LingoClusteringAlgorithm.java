@@ -14,6 +14,7 @@ package org.carrot2.clustering.lingo;
 
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 
 import org.carrot2.core.Cluster;
 import org.carrot2.core.Document;
@@ -26,7 +27,7 @@ import org.carrot2.core.attribute.CommonAttributes;
 import org.carrot2.core.attribute.Init;
 import org.carrot2.core.attribute.Internal;
 import org.carrot2.core.attribute.Processing;
-import org.carrot2.text.clustering.IMonolingualClusteringAlgorithm;
+import org.carrot2.text.clustering.IMonolingualClusterer;
 import org.carrot2.text.clustering.MultilingualClustering;
 import org.carrot2.text.preprocessing.LabelFormatter;
 import org.carrot2.text.preprocessing.PreprocessingContext;
@@ -36,6 +37,7 @@ import org.carrot2.text.vsm.ReducedVectorSpaceModelContext;
 import org.carrot2.text.vsm.TermDocumentMatrixBuilder;
 import org.carrot2.text.vsm.TermDocumentMatrixReducer;
 import org.carrot2.text.vsm.VectorSpaceModelContext;
+import org.carrot2.util.StageTimer;
 import org.carrot2.util.attribute.Attribute;
 import org.carrot2.util.attribute.AttributeLevel;
 import org.carrot2.util.attribute.Bindable;
@@ -89,6 +91,24 @@ public class LingoClusteringAlgorithm extends ProcessingComponentBase implements
     @Attribute(key = AttributeNames.CLUSTERS, inherit = true)
     public List<Cluster> clusters = null;
 
+    /**
+     * Processing time of the individual stages of the algorithm.
+     */
+    @Processing
+    @Output
+    @Internal
+    @Attribute(key = AttributeNames.PROCESSING_TIME_STAGES, inherit = true)
+    public Map<String, Long> processingTimeStages;
+
+    /**
+     * Memory allocated by the individual stages of the algorithm.
+     */
+    @Processing
+    @Output
+    @Internal
+    @Attribute(key = AttributeNames.PROCESSING_ALLOCATION_STAGES, inherit = true)
+    public Map<String, Long> processingAllocationStages;
+
     /**
      * Balance between cluster score and size during cluster sorting. Value equal to 0.0
      * will cause Lingo to sort clusters based only on cluster size. Value equal to 1.0
@@ -163,29 +183,39 @@ public class LingoClusteringAlgorithm extends ProcessingComponentBase implements
         // There is a tiny trick here to support multilingual clustering without
         // refactoring the whole component: we remember the original list of documents
         // and invoke clustering for each language separately within the
-        // IMonolingualClusteringAlgorithm implementation below. This is safe because
+        // IMonolingualClusterer implementation below. This is safe because
         // processing components are not thread-safe by definition and
-        // IMonolingualClusteringAlgorithm forbids concurrent execution by contract.
+        // MultilingualClustering clusters one language at a time with this instance.
+        // Languages clustered concurrently are processed by separate copies of this
+        // component instead.
         final List<Document> originalDocuments = documents;
-        clusters = multilingualClustering.process(documents,
-            new IMonolingualClusteringAlgorithm()
+        final StageTimer stageTimer = new StageTimer();
+        clusters = multilingualClustering.process(documents, this,
+            this.<LingoClusteringAlgorithm> getCopyPool(),
+            new IMonolingualClusterer<LingoClusteringAlgorithm>()
             {
-                public List<Cluster> process(List<Document> documents,
-                    LanguageCode language)
+                public List<Cluster> process(LingoClusteringAlgorithm algorithm,
+                    List<Document> documents, LanguageCode language)
                 {
-                    LingoClusteringAlgorithm.this.documents = documents;
-                    LingoClusteringAlgorithm.this.cluster(language);
-                    return LingoClusteringAlgorithm.this.clusters;
+                    algorithm.documents = documents;
+                    algorithm.cluster(language, stageTimer);
+                    return algorithm.clusters;
                 }
-            });
+            },
+            multilingualClustering.maxConcurrentLanguages > 1 ? getSharedExecutor(
+                MultilingualClustering.MAX_CONCURRENT_LANGUAGES,
+                MultilingualClustering.class) : null);
         documents = originalDocuments;
+        processingTimeStages = stageTimer.getTimes();
+        processingAllocationStages = stageTimer.getAllocations();
     }
 
     /**
      * Performs the actual clustering with an assumption that all documents are written in
-     * one <code>language</code>.
+     * one <code>language</code>. Times of the individual stages are added to
+     * <code>stageTimer</code>.
      */
-    private void cluster(LanguageCode language)
+    private void cluster(LanguageCode language, StageTimer stageTimer)
     {
         // Preprocessing of documents
         final PreprocessingContext context = preprocessingPipeline.preprocess(documents,
@@ -205,9 +235,11 @@ public class LingoClusteringAlgorithm extends ProcessingComponentBase implements
 
             matrixBuilder.buildTermDocumentMatrix(vsmContext);
             matrixBuilder.buildTermPhraseMatrix(vsmContext);
+            context.timer.lap("TermDocumentMatrixBuilder");
 
             matrixReducer.reduce(reducedVsmContext,
                 computeClusterCount(desiredClusterCountBase, documents.size()));
+            context.timer.lap("TermDocumentMatrixReducer");
 
             // Cluster label building
             clusterBuilder.buildLabels(lingoContext, matrixBuilder.termWeighting);
@@ -217,6 +249,7 @@ public class LingoClusteringAlgorithm extends ProcessingComponentBase implements
 
             // Cluster merging
             clusterBuilder.merge(lingoContext);
+            context.timer.lap("ClusterBuilder");
 
             // Format final clusters
             final int [] clusterLabelIndex = lingoContext.clusterLabelFeatureIndex;
@@ -253,6 +286,9 @@ public class LingoClusteringAlgorithm extends ProcessingComponentBase implements
         }
 
         Cluster.appendOtherTopics(documents, clusters);
+        context.timer.lap("LabelFormatter");
+
+        stageTimer.addAll(context.timer);
     }
 
     /**
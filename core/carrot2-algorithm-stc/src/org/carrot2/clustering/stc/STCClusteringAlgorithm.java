@@ -34,13 +34,14 @@ import org.carrot2.core.attribute.Internal;
 import org.carrot2.core.attribute.Processing;
 import org.carrot2.text.analysis.ITokenizer;
 import org.carrot2.text.analysis.TokenTypeUtils;
-import org.carrot2.text.clustering.IMonolingualClusteringAlgorithm;
+import org.carrot2.text.clustering.IMonolingualClusterer;
 import org.carrot2.text.clustering.MultilingualClustering;
 import org.carrot2.text.linguistic.ILexicalData;
 import org.carrot2.text.preprocessing.LabelFormatter;
 import org.carrot2.text.preprocessing.PreprocessingContext;
 import org.carrot2.text.preprocessing.pipeline.BasicPreprocessingPipeline;
 import org.carrot2.text.preprocessing.pipeline.IPreprocessingPipeline;
+import org.carrot2.util.StageTimer;
 import org.carrot2.util.attribute.Attribute;
 import org.carrot2.util.attribute.AttributeLevel;
 import org.carrot2.util.attribute.Bindable;
@@ -109,6 +110,24 @@ public final class STCClusteringAlgorithm extends ProcessingComponentBase implem
     @Attribute(key = AttributeNames.CLUSTERS, inherit = true)
     public List<Cluster> clusters = null;
 
+    /**
+     * Processing time of the individual stages of the algorithm.
+     */
+    @Processing
+    @Output
+    @Internal
+    @Attribute(key = AttributeNames.PROCESSING_TIME_STAGES, inherit = true)
+    public Map<String, Long> processingTimeStages;
+
+    /**
+     * Memory allocated by the individual stages of the algorithm.
+     */
+    @Processing
+    @Output
+    @Internal
+    @Attribute(key = AttributeNames.PROCESSING_ALLOCATION_STAGES, inherit = true)
+    public Map<String, Long> processingAllocationStages;
+
     /**
      * Minimum word-document recurrences.
      */
@@ -384,29 +403,39 @@ public final class STCClusteringAlgorithm extends ProcessingComponentBase implem
         // There is a tiny trick here to support multilingual clustering without
         // refactoring the whole component: we remember the original list of documents
         // and invoke clustering for each language separately within the 
-        // IMonolingualClusteringAlgorithm implementation below. This is safe because
+        // IMonolingualClusterer implementation below. This is safe because
         // processing components are not thread-safe by definition and 
-        // IMonolingualClusteringAlgorithm forbids concurrent execution by contract.
+        // MultilingualClustering clusters one language at a time with this instance.
+        // Languages clustered concurrently are processed by separate copies of this
+        // component instead.
         final List<Document> originalDocuments = documents;
-        clusters = multilingualClustering.process(documents,
-            new IMonolingualClusteringAlgorithm()
+        final StageTimer stageTimer = new StageTimer();
+        clusters = multilingualClustering.process(documents, this,
+            this.<STCClusteringAlgorithm> getCopyPool(),
+            new IMonolingualClusterer<STCClusteringAlgorithm>()
             {
-                public List<Cluster> process(List<Document> documents,
-                    LanguageCode language)
+                public List<Cluster> process(STCClusteringAlgorithm algorithm,
+                    List<Document> documents, LanguageCode language)
                 {
-                    STCClusteringAlgorithm.this.documents = documents;
-                    STCClusteringAlgorithm.this.cluster(language);
-                    return STCClusteringAlgorithm.this.clusters;
+                    algorithm.documents = documents;
+                    algorithm.cluster(language, stageTimer);
+                    return algorithm.clusters;
                 }
-            });
+            },
+            multilingualClustering.maxConcurrentLanguages > 1 ? getSharedExecutor(
+                MultilingualClustering.MAX_CONCURRENT_LANGUAGES,
+                MultilingualClustering.class) : null);
         documents = originalDocuments;
+        processingTimeStages = stageTimer.getTimes();
+        processingAllocationStages = stageTimer.getAllocations();
     }
 
     /**
      * Performs the actual clustering with an assumption that all documents are written in
-     * one <code>language</code>.
+     * one <code>language</code>. Times of the individual stages are added to
+     * <code>stageTimer</code>.
      */
-    private void cluster(LanguageCode language)
+    private void cluster(LanguageCode language, StageTimer stageTimer)
     {
         clusters = new ArrayList<Cluster>();
 
@@ -446,23 +475,29 @@ public final class STCClusteringAlgorithm extends ProcessingComponentBase implem
             }
         }
         sb.buildSuffixTree();
+        context.timer.lap("GeneralizedSuffixTree");
 
         /*
          * Step 3: Find "base" clusters by looking up frequently recurring phrases in the 
          * generalized suffix tree.
          */
         List<ClusterCandidate> baseClusters = createBaseClusters(sb);
+        context.timer.lap("BaseClusters");
 
         /*
          * Step 4: Merge base clusters that overlap too much to form final clusters.
          */
         List<ClusterCandidate> mergedClusters = createMergedClusters(baseClusters);
+        context.timer.lap("MergedClusters");
 
         /*
          * Step 5: Create the junk (unassigned documents) cluster and create the final
          * set of clusters in Carrot2 format.
          */
         postProcessing(mergedClusters);
+        context.timer.lap("PostProcessing");
+
+        stageTimer.addAll(context.timer);
     }
 
     /**
@@ -0,0 +1,151 @@
+/*
+ * Carrot2 project.
+ *
+ * Copyright (C) 2002-2019, Dawid Weiss, Stanisław Osiński.
+ * All rights reserved.
+ *
+ * Refer to the full license file "carrot2.LICENSE"
+ * in the root folder of the repository checkout or at:
+ * http://www.carrot2.org/carrot2.LICENSE
+ */
+
+package org.carrot2.core;
+
+import java.util.Map;
+
+import org.carrot2.core.attribute.Processing;
+import org.carrot2.util.attribute.Attribute;
+import org.carrot2.util.attribute.AttributeBinder;
+import org.carrot2.util.attribute.Bindable;
+import org.carrot2.util.attribute.Input;
+import org.carrot2.util.attribute.Output;
+import org.carrot2.util.tests.CarrotTestCase;
+import org.junit.Test;
+
+import org.carrot2.shaded.guava.common.collect.Maps;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test cases for {@link AttributeBindingPlan}.
+ */
+public class AttributeBindingPlanTest extends CarrotTestCase
+{
+    @Bindable
+    public static class Component extends ProcessingComponentBase
+    {
+        @Processing
+        @Input
+        @Output
+        @Attribute(key = "shared")
+        public String shared = "component";
+
+        @Processing
+        @Input
+        @Attribute(key = "number")
+        public int number = 1;
+
+        @Processing
+        @Output
+        @Attribute(key = "result")
+        public String result;
+
+        public Nested nested = new Nested();
+
+        public Object other = "not bindable";
+    }
+
+    @Bindable
+    public static class Nested
+    {
+        @Processing
+        @Input
+        @Output
+        @Attribute(key = "shared")
+        public String shared = "nested";
+
+        @Processing
+        @Input
+        @Attribute(key = "nested.value")
+        public double value = 0.5;
+    }
+
+    @Bindable
+    public static class OtherNested extends Nested
+    {
+        @Processing
+        @Input
+        @Output
+        @Attribute(key = "other.value")
+        public String otherValue = "other";
+    }
+
+    @Test
+    public void testGetEqualsAttributeBinder() throws Exception
+    {
+        final Component component = new Component();
+        component.result = "result";
+        checkGet(component);
+
+        // A different nested implementation requires a different plan
+        component.nested = new OtherNested();
+        checkGet(component);
+
+        // A bindable object where the plan expected none
+        component.other = new Nested();
+        checkGet(component);
+
+        component.nested = null;
+        checkGet(component);
+    }
+
+    @Test
+    public void testRestoreSnapshot() throws Exception
+    {
+        final Component component = new Component();
+        final AttributeBindingPlan.Snapshot snapshot = AttributeBindingPlan.get(
+            component, Input.class, Processing.class);
+
+        component.shared = "changed";
+        component.number = 10;
+        component.nested.shared = "changed";
+        component.nested.value = 2;
+        AttributeBindingPlan.set(component, snapshot, Input.class, Processing.class);
+
+        // Attributes sharing a key get their own values back
+        assertEquals("component", component.shared);
+        assertEquals(1, component.number);
+        assertEquals("nested", component.nested.shared);
+        assertEquals(0.5, component.nested.value, 0);
+    }
+
+    @Test
+    public void testRestoreSnapshotAfterStructureChange() throws Exception
+    {
+        final Component component = new Component();
+        final AttributeBindingPlan.Snapshot snapshot = AttributeBindingPlan.get(
+            component, Input.class, Processing.class);
+
+        component.number = 10;
+        component.nested = new OtherNested();
+        component.nested.value = 2;
+        AttributeBindingPlan.set(component, snapshot, Input.class, Processing.class);
+
+        // Values are bound by keys, as AttributeBinder would do
+        assertEquals(1, component.number);
+        assertEquals("component", component.nested.shared);
+        assertEquals(0.5, component.nested.value, 0);
+    }
+
+    private static void checkGet(Component component) throws Exception
+    {
+        for (int i = 0; i < 2; i++)
+        {
+            final Map<String, Object> expected = Maps.newHashMap();
+            AttributeBinder.get(component, expected, Output.class, Processing.class);
+            final Map<String, Object> actual = Maps.newHashMap();
+            AttributeBindingPlan.get(component, actual, Output.class, Processing.class);
+            assertEquals(expected, actual);
+        }
+    }
+}
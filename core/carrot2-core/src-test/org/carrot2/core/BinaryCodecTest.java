@@ -0,0 +1,225 @@
+/*
+ * Carrot2 project.
+ *
+ * Copyright (C) 2002-2019, Dawid Weiss, Stanisław Osiński.
+ * All rights reserved.
+ *
+ * Refer to the full license file "carrot2.LICENSE"
+ * in the root folder of the repository checkout or at:
+ * http://www.carrot2.org/carrot2.LICENSE
+ */
+
+package org.carrot2.core;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.NotSerializableException;
+import java.io.StreamCorruptedException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.carrot2.core.attribute.AttributeNames;
+import org.carrot2.util.tests.CarrotTestCase;
+import org.junit.Test;
+
+import org.carrot2.shaded.guava.common.collect.ImmutableMap;
+import org.carrot2.shaded.guava.common.collect.Lists;
+import org.carrot2.shaded.guava.common.collect.Maps;
+import org.carrot2.shaded.guava.common.collect.Sets;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test cases for {@link BinaryCodec}.
+ */
+public class BinaryCodecTest extends CarrotTestCase
+{
+    @Test
+    public void testValues() throws IOException
+    {
+        final Map<String, Object> attributes = Maps.newHashMap();
+        attributes.put("string", "zażółć gęślą jaźń");
+        attributes.put("long-string", randomAsciiOfLength(100000));
+        attributes.put("int", -5);
+        attributes.put("long", Long.MAX_VALUE);
+        attributes.put("double", 0.25);
+        attributes.put("float", 1.5f);
+        attributes.put("boolean", true);
+        attributes.put("short", (short) 3);
+        attributes.put("byte", (byte) -1);
+        attributes.put("char", 'x');
+        attributes.put("null", null);
+        attributes.put("enum", LanguageCode.POLISH);
+        attributes.put("class", Document.class);
+        attributes.put("list", Arrays.asList("a", 1, null));
+        attributes.put("map", ImmutableMap.of("a", 1, "b", Arrays.asList(2L)));
+
+        assertEquals(attributes, roundTrip(attributes));
+    }
+
+    @Test
+    public void testDocumentsAndClusters() throws IOException
+    {
+        final Document d1 = new Document("title 1", "snippet 1", "http://a",
+            LanguageCode.ENGLISH, "1");
+        d1.setSources(Lists.newArrayList("s1", "s2"));
+        d1.setScore(0.5);
+        final Document d2 = new Document("title 2", null);
+        d2.setField("custom", ImmutableMap.of("k", "v"));
+
+        final Cluster c1 = new Cluster(0, "phrase", d1, d2);
+        c1.addPhrases("other phrase");
+        c1.setScore(2.0);
+        final Cluster c2 = new Cluster(1, "sub", d2);
+        c1.addSubclusters(c2);
+        final Cluster other = new Cluster(2, "Other", d1).setOtherTopics(true);
+
+        final Map<String, Object> attributes = Maps.newHashMap();
+        attributes.put(AttributeNames.DOCUMENTS, Arrays.asList(d1, d2));
+        attributes.put(AttributeNames.CLUSTERS, Arrays.asList(c1, other));
+
+        final Map<String, Object> read = roundTrip(attributes);
+
+        @SuppressWarnings("unchecked")
+        final List<Document> documents = (List<Document>) read.get(AttributeNames.DOCUMENTS);
+        assertEquals(2, documents.size());
+        assertEquals(d1.getFields(), documents.get(0).getFields());
+        assertEquals("1", documents.get(0).getStringId());
+        assertEquals(LanguageCode.ENGLISH, documents.get(0).getLanguage());
+        assertEquals(d2.getFields(), documents.get(1).getFields());
+        assertNull(documents.get(1).getStringId());
+
+        @SuppressWarnings("unchecked")
+        final List<Cluster> clusters = (List<Cluster>) read.get(AttributeNames.CLUSTERS);
+        assertEquals(2, clusters.size());
+        final Cluster r1 = clusters.get(0);
+        assertEquals(Integer.valueOf(0), r1.getId());
+        assertEquals(c1.getPhrases(), r1.getPhrases());
+        assertEquals(c1.getAttributes(), r1.getAttributes());
+        assertEquals(1, r1.getSubclusters().size());
+        assertEquals("sub", r1.getSubclusters().get(0).getLabel());
+        assertTrue(clusters.get(1).isOtherTopics());
+
+        // Documents in clusters are the same instances as in the document list
+        assertSame(documents.get(0), r1.getDocuments().get(0));
+        assertSame(documents.get(1), r1.getDocuments().get(1));
+        assertSame(documents.get(1), r1.getSubclusters().get(0).getDocuments().get(0));
+        assertSame(documents.get(0), clusters.get(1).getDocuments().get(0));
+    }
+
+    @Test(expected = NotSerializableException.class)
+    public void testUnsupportedValue() throws IOException
+    {
+        final Map<String, Object> attributes = Maps.newHashMap();
+        attributes.put("set", Sets.newHashSet("a"));
+        roundTrip(attributes);
+    }
+
+    @Test
+    public void testUntrustedClassesAndEnums() throws IOException
+    {
+        final Map<String, Object> attributes = Maps.newHashMap();
+        attributes.put("enum", LanguageCode.POLISH);
+        attributes.put("other-enum", Thread.State.NEW);
+        attributes.put("class", Document.class);
+
+        final Map<String, Object> read = read(write(attributes), false);
+        assertEquals(LanguageCode.POLISH, read.get("enum"));
+        assertTrue(read.containsKey("other-enum"));
+        assertNull(read.get("other-enum"));
+        assertTrue(read.containsKey("class"));
+        assertNull(read.get("class"));
+    }
+
+    @Test(expected = StreamCorruptedException.class)
+    public void testLengthTooLarge() throws IOException
+    {
+        // One attribute with a key declared as Integer.MAX_VALUE bytes long.
+        read(new byte [] {1, (byte) 0xff, (byte) 0xff, (byte) 0xff, (byte) 0xff, 0x07},
+            false);
+    }
+
+    @Test(expected = EOFException.class)
+    public void testLengthNotBackedByInput() throws IOException
+    {
+        // One attribute with a key declared as MAX_LENGTH bytes long, but no bytes.
+        read(new byte [] {1, (byte) 0x80, (byte) 0x80, (byte) 0x80, 0x20}, false);
+    }
+
+    @Test(expected = StreamCorruptedException.class)
+    public void testNestingTooDeep() throws IOException
+    {
+        // One attribute with an empty key and a list nested in MAX_DEPTH lists.
+        final byte [] input = new byte [3 + 2 * (BinaryCodec.MAX_DEPTH + 1)];
+        input[0] = 1;
+        input[1] = 0;
+        for (int i = 2; i < input.length - 1; i += 2)
+        {
+            input[i] = 10;
+            input[i + 1] = 1;
+        }
+        read(input, false);
+    }
+
+    @Test(expected = StreamCorruptedException.class)
+    public void testClusterWithNonDocument() throws IOException
+    {
+        final Map<String, Object> attributes = Maps.newHashMap();
+        attributes.put(AttributeNames.CLUSTERS,
+            Arrays.asList(new Cluster(0, "phrase", new Document("title"))));
+        final byte [] bytes = write(attributes);
+
+        // Replace the document tag, following the single phrase, with a string tag.
+        final int phrase = indexOf(bytes, "phrase".getBytes("UTF-8"));
+        final int documentTag = phrase + "phrase".length() + 1;
+        assertEquals(12, bytes[documentTag]);
+        bytes[documentTag] = 1;
+        read(bytes, true);
+    }
+
+    private static int indexOf(byte [] bytes, byte [] sequence)
+    {
+        outer: for (int i = 0; i <= bytes.length - sequence.length; i++)
+        {
+            for (int j = 0; j < sequence.length; j++)
+            {
+                if (bytes[i + j] != sequence[j])
+                {
+                    continue outer;
+                }
+            }
+            return i;
+        }
+        throw new AssertionError("Sequence not found");
+    }
+
+    private static Map<String, Object> roundTrip(Map<String, Object> attributes)
+        throws IOException
+    {
+        return read(write(attributes), true);
+    }
+
+    private static byte [] write(Map<String, Object> attributes) throws IOException
+    {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final DataOutputStream out = new DataOutputStream(bytes);
+        new BinaryCodec.Writer(out).writeAttributes(attributes);
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    private static Map<String, Object> read(byte [] bytes, boolean trusted)
+        throws IOException
+    {
+        final DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+        final Map<String, Object> result = new BinaryCodec.Reader(in, trusted)
+            .readAttributes();
+        assertEquals(-1, in.read());
+        return result;
+    }
+}
@@ -0,0 +1,515 @@
+/*
+ * Carrot2 project.
+ *
+ * Copyright (C) 2002-2019, Dawid Weiss, Stanisław Osiński.
+ * All rights reserved.
+ *
+ * Refer to the full license file "carrot2.LICENSE"
+ * in the root folder of the repository checkout or at:
+ * http://www.carrot2.org/carrot2.LICENSE
+ */
+
+package org.carrot2.core;
+
+import java.io.ByteArrayInputStream;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.carrot2.core.attribute.AttributeNames;
+import org.carrot2.core.attribute.Processing;
+import org.carrot2.util.attribute.Attribute;
+import org.carrot2.util.attribute.Bindable;
+import org.carrot2.util.attribute.Input;
+import org.carrot2.util.attribute.Output;
+import org.carrot2.util.tests.CarrotTestCase;
+import org.junit.Test;
+import org.simpleframework.xml.core.Persister;
+
+import com.carrotsearch.randomizedtesting.LifecycleScope;
+import com.carrotsearch.randomizedtesting.annotations.ThreadLeakLingering;
+
+import org.carrot2.shaded.guava.common.collect.Lists;
+import org.carrot2.shaded.guava.common.collect.Maps;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test cases for the results cache configuration, statistics and coalescing of requests
+ * in {@link CachingProcessingComponentManager}.
+ */
+public class CachingProcessingComponentManagerTest extends CarrotTestCase
+{
+    @Bindable
+    public static class DocumentProducer extends ProcessingComponentBase implements
+        IDocumentSource
+    {
+        @Processing
+        @Input
+        @Attribute(key = AttributeNames.QUERY)
+        public String query;
+
+        @Processing
+        @Input
+        @Attribute(key = AttributeNames.RESULTS)
+        public int results = 10;
+
+        @Processing
+        @Output
+        @Attribute(key = AttributeNames.DOCUMENTS)
+        public List<Document> documents;
+
+        @Override
+        public void process() throws ProcessingException
+        {
+            documents = Lists.newArrayList();
+            for (int i = 0; i < results; i++)
+            {
+                documents.add(new Document(query + " title " + i, query + " snippet " + i));
+            }
+        }
+    }
+
+    /**
+     * Blocks in {@link #process()} until released, so that concurrent requests can be
+     * coalesced.
+     */
+    @Bindable
+    public static class BlockingProducer extends DocumentProducer
+    {
+        static final AtomicInteger runs = new AtomicInteger();
+        static volatile CountDownLatch started;
+        static volatile CountDownLatch release;
+        static volatile boolean fail;
+
+        /** If <code>true</code>, an interrupt ends processing with no documents. */
+        static volatile boolean partialOnInterrupt;
+
+        @Override
+        public void process() throws ProcessingException
+        {
+            runs.incrementAndGet();
+            started.countDown();
+            try
+            {
+                release.await();
+            }
+            catch (InterruptedException e)
+            {
+                if (partialOnInterrupt)
+                {
+                    Thread.currentThread().interrupt();
+                    documents = Lists.newArrayList();
+                    return;
+                }
+                throw new ProcessingException(e);
+            }
+
+            if (fail)
+            {
+                throw new ProcessingException("Failed on purpose");
+            }
+            super.process();
+        }
+    }
+
+    @Test
+    public void testSizeEstimateGrowsWithResults()
+    {
+        final Map<String, Object> small = process(new DocumentProducer(), 10);
+        final Map<String, Object> large = process(new DocumentProducer(), 1000);
+
+        final long smallSize = ResultSizeEstimator.estimate(small);
+        final long largeSize = ResultSizeEstimator.estimate(large);
+        assertTrue(smallSize > 10 * 100);
+        assertTrue(largeSize > 50 * smallSize);
+    }
+
+    @Test
+    public void testSharedDocumentsCountedOnce()
+    {
+        final Document document = new Document("title", "snippet");
+        final Map<String, Object> once = Maps.newHashMap();
+        once.put("a", Collections.singletonList(document));
+        final Map<String, Object> twice = Maps.newHashMap(once);
+        twice.put("b", Collections.singletonList(document));
+
+        final long size = ResultSizeEstimator.estimate(once);
+        assertTrue(ResultSizeEstimator.estimate(twice) - size < size / 2);
+    }
+
+    @Test
+    public void testWeightBasedEviction()
+    {
+        final Controller controller = ControllerFactory.create(false,
+            new ResultCacheConfiguration().maximumBytes(200 * 1024), IDocumentSource.class);
+        try
+        {
+            // A single large result does not fit in the cache
+            query(controller, "large", 5000);
+            query(controller, "large", 5000);
+
+            // Small results do
+            query(controller, "small", 10);
+            query(controller, "small", 10);
+
+            final ControllerStatistics statistics = controller.getStatistics();
+            assertEquals(3, (long) statistics.cacheMisses);
+            assertEquals(1, (long) statistics.cacheHitsTotal);
+            assertEquals(1, (long) statistics.cacheEntries);
+            assertEquals(2, (long) statistics.cacheEvictions);
+        }
+        finally
+        {
+            controller.dispose();
+        }
+    }
+
+    @Test
+    public void testComponentStatistics()
+    {
+        final Controller controller = ControllerFactory.createCachingPooling(
+            IDocumentSource.class);
+        try
+        {
+            query(controller, "a", 10);
+            query(controller, "a", 10);
+            query(controller, "b", 10);
+
+            final List<ComponentCacheStatistics> components = controller.getStatistics().cacheComponents;
+            assertEquals(1, components.size());
+            final ComponentCacheStatistics component = components.get(0);
+            assertEquals(DocumentProducer.class.getName(), component.componentClass);
+            assertEquals(1, component.hits);
+            assertEquals(2, component.misses);
+            assertEquals(0, component.evictions);
+        }
+        finally
+        {
+            controller.dispose();
+        }
+    }
+
+    @Test
+    public void testMaximumEntries()
+    {
+        final Controller controller = ControllerFactory.create(true,
+            new ResultCacheConfiguration().maximumEntries(1), IDocumentSource.class);
+        try
+        {
+            query(controller, "a", 10);
+            query(controller, "b", 10);
+            query(controller, "a", 10);
+
+            final ControllerStatistics statistics = controller.getStatistics();
+            assertEquals(3, (long) statistics.cacheMisses);
+            assertEquals(1, (long) statistics.cacheEntries);
+        }
+        finally
+        {
+            controller.dispose();
+        }
+    }
+
+    @Test
+    public void testDeserializeConfiguration() throws Exception
+    {
+        final String xml = "<result-cache maximum-megabytes='64' "
+            + "expire-after-write-seconds='3600' refresh-after-write-seconds='60' />";
+        final ResultCacheConfiguration configuration = new Persister().read(
+            ResultCacheConfiguration.class, new ByteArrayInputStream(xml.getBytes("UTF-8")));
+
+        assertEquals(64L * 1024 * 1024, configuration.getMaximumBytes());
+        assertEquals(ResultCacheConfiguration.DEFAULT_MAXIMUM_ENTRIES,
+            configuration.getMaximumEntries());
+        assertEquals(3600, configuration.getExpireAfterWriteSeconds());
+        assertEquals(60, configuration.getRefreshAfterWriteSeconds());
+    }
+
+    @Test
+    public void testConcurrentMissesCoalesced() throws Exception
+    {
+        final Controller controller = ControllerFactory.createCachingPooling(
+            IDocumentSource.class);
+        final ExecutorService executor = Executors.newFixedThreadPool(2);
+        try
+        {
+            resetBlockingProducer(false);
+            final Future<ProcessingResult> first = executor.submit(blockingQuery(
+                controller, false));
+            assertTrue(BlockingProducer.started.await(10, TimeUnit.SECONDS));
+
+            final Future<ProcessingResult> second = executor.submit(blockingQuery(
+                controller, false));
+            waitForCoalesced(controller, 1);
+            BlockingProducer.release.countDown();
+
+            assertEquals(10, first.get().getDocuments().size());
+            assertEquals(first.get().getDocuments(), second.get().getDocuments());
+            assertEquals(1, BlockingProducer.runs.get());
+
+            final ControllerStatistics statistics = controller.getStatistics();
+            assertEquals(1, (long) statistics.cacheMisses);
+            assertEquals(1, (long) statistics.cacheCoalesced);
+            assertEquals(0, (long) statistics.cacheHitsTotal);
+        }
+        finally
+        {
+            executor.shutdown();
+            executor.awaitTermination(10, TimeUnit.SECONDS);
+            controller.dispose();
+        }
+    }
+
+    @Test
+    public void testFailurePropagatedToCoalescedRequests() throws Exception
+    {
+        final Controller controller = ControllerFactory.createCachingPooling(
+            IDocumentSource.class);
+        final ExecutorService executor = Executors.newFixedThreadPool(2);
+        try
+        {
+            resetBlockingProducer(true);
+            final Future<ProcessingResult> first = executor.submit(blockingQuery(
+                controller, false));
+            assertTrue(BlockingProducer.started.await(10, TimeUnit.SECONDS));
+            final Future<ProcessingResult> second = executor.submit(blockingQuery(
+                controller, false));
+            waitForCoalesced(controller, 1);
+            BlockingProducer.release.countDown();
+
+            assertProcessingFailed(first, "Failed on purpose");
+            assertProcessingFailed(second, "Failed on purpose");
+            assertEquals(1, BlockingProducer.runs.get());
+
+            // Failures are not cached
+            BlockingProducer.fail = false;
+            assertEquals(10, blockingQuery(controller, false).call().getDocuments().size());
+            assertEquals(2, BlockingProducer.runs.get());
+        }
+        finally
+        {
+            executor.shutdown();
+            executor.awaitTermination(10, TimeUnit.SECONDS);
+            controller.dispose();
+        }
+    }
+
+    @Test
+    @ThreadLeakLingering(linger = 2000)
+    public void testInterruptedResultNotCachedOrShared() throws Exception
+    {
+        final Controller controller = ControllerFactory.createCachingPooling(
+            IDocumentSource.class);
+        final ExecutorService executor = Executors.newFixedThreadPool(1);
+        try
+        {
+            resetBlockingProducer(false);
+            BlockingProducer.partialOnInterrupt = true;
+            final Map<String, Object> attributes = Maps.newHashMap();
+            attributes.put(AttributeNames.QUERY, "query");
+            final Future<ProcessingResult> first = controller.processAsync(attributes,
+                BlockingProducer.class);
+            assertTrue(BlockingProducer.started.await(10, TimeUnit.SECONDS));
+
+            final Future<ProcessingResult> second = executor.submit(blockingQuery(
+                controller, false));
+            waitForCoalesced(controller, 1);
+
+            // The waiting request computes the result itself
+            BlockingProducer.started = new CountDownLatch(1);
+            first.cancel(true);
+            assertTrue(BlockingProducer.started.await(10, TimeUnit.SECONDS));
+            BlockingProducer.release.countDown();
+            assertEquals(10, second.get().getDocuments().size());
+            assertEquals(2, BlockingProducer.runs.get());
+
+            // And caches it
+            assertEquals(10, blockingQuery(controller, false).call().getDocuments().size());
+            assertEquals(2, BlockingProducer.runs.get());
+        }
+        finally
+        {
+            executor.shutdown();
+            executor.awaitTermination(10, TimeUnit.SECONDS);
+            controller.dispose();
+        }
+    }
+
+    @Test
+    public void testCoalescingTimeout() throws Exception
+    {
+        final Controller controller = ControllerFactory.create(true,
+            new ResultCacheConfiguration().coalescingTimeoutMillis(50),
+            IDocumentSource.class);
+        final ExecutorService executor = Executors.newFixedThreadPool(2);
+        try
+        {
+            resetBlockingProducer(false);
+            final Future<ProcessingResult> first = executor.submit(blockingQuery(
+                controller, false));
+            assertTrue(BlockingProducer.started.await(10, TimeUnit.SECONDS));
+            final Future<ProcessingResult> second = executor.submit(blockingQuery(
+                controller, false));
+
+            assertProcessingFailed(second, "Timed out");
+            BlockingProducer.release.countDown();
+            assertEquals(10, first.get().getDocuments().size());
+            assertEquals(1, BlockingProducer.runs.get());
+        }
+        finally
+        {
+            executor.shutdown();
+            executor.awaitTermination(10, TimeUnit.SECONDS);
+            controller.dispose();
+        }
+    }
+
+    @Test
+    public void testBypassNotCoalesced() throws Exception
+    {
+        final Controller controller = ControllerFactory.createCachingPooling(
+            IDocumentSource.class);
+        final ExecutorService executor = Executors.newFixedThreadPool(2);
+        try
+        {
+            resetBlockingProducer(false);
+            final Future<ProcessingResult> first = executor.submit(blockingQuery(
+                controller, false));
+            assertTrue(BlockingProducer.started.await(10, TimeUnit.SECONDS));
+            final Future<ProcessingResult> second = executor.submit(blockingQuery(
+                controller, true));
+            BlockingProducer.release.countDown();
+
+            first.get();
+            second.get();
+            assertEquals(2, BlockingProducer.runs.get());
+            assertEquals(0, (long) controller.getStatistics().cacheCoalesced);
+        }
+        finally
+        {
+            executor.shutdown();
+            executor.awaitTermination(10, TimeUnit.SECONDS);
+            controller.dispose();
+        }
+    }
+
+    @Test
+    public void testDiskCacheSurvivesRestart() throws Exception
+    {
+        final ResultCacheConfiguration configuration = new ResultCacheConfiguration()
+            .diskDirectory(newTempDir(LifecycleScope.TEST).toFile());
+        resetBlockingProducer(false);
+        BlockingProducer.release.countDown();
+
+        Controller controller = ControllerFactory.create(true, configuration,
+            IDocumentSource.class);
+        try
+        {
+            blockingQuery(controller, false).call();
+            assertEquals(1, (long) controller.getStatistics().cacheDiskEntries);
+        }
+        finally
+        {
+            controller.dispose();
+        }
+
+        controller = ControllerFactory.create(true, configuration, IDocumentSource.class);
+        try
+        {
+            final ProcessingResult result = blockingQuery(controller, false).call();
+            assertEquals(10, result.getDocuments().size());
+            assertEquals(1, BlockingProducer.runs.get());
+
+            // Promoted to the in-memory cache
+            blockingQuery(controller, false).call();
+            final ControllerStatistics statistics = controller.getStatistics();
+            assertEquals(1, (long) statistics.cacheDiskHits);
+            assertEquals(1, (long) statistics.cacheHitsTotal);
+        }
+        finally
+        {
+            controller.dispose();
+        }
+    }
+
+    private static void resetBlockingProducer(boolean fail)
+    {
+        BlockingProducer.runs.set(0);
+        BlockingProducer.started = new CountDownLatch(1);
+        BlockingProducer.release = new CountDownLatch(1);
+        BlockingProducer.fail = fail;
+        BlockingProducer.partialOnInterrupt = false;
+    }
+
+    private static Callable<ProcessingResult> blockingQuery(final Controller controller,
+        final boolean bypass)
+    {
+        return new Callable<ProcessingResult>()
+        {
+            public ProcessingResult call() throws Exception
+            {
+                final Map<String, Object> attributes = Maps.newHashMap();
+                attributes.put(AttributeNames.QUERY, "query");
+                if (bypass)
+                {
+                    attributes.put(CachingProcessingComponentManager.CACHE_BYPASS_ATTR,
+                        true);
+                }
+                return controller.process(attributes, BlockingProducer.class);
+            }
+        };
+    }
+
+    private static void waitForCoalesced(Controller controller, long coalesced)
+        throws InterruptedException
+    {
+        final long deadline = System.currentTimeMillis() + 10000;
+        while (controller.getStatistics().cacheCoalesced < coalesced)
+        {
+            assertTrue(System.currentTimeMillis() < deadline);
+            Thread.sleep(5);
+        }
+    }
+
+    private static void assertProcessingFailed(Future<ProcessingResult> future,
+        String message) throws InterruptedException
+    {
+        try
+        {
+            future.get();
+            fail();
+        }
+        catch (ExecutionException e)
+        {
+            assertTrue(e.getCause() instanceof ProcessingException);
+            assertTrue(e.getCause().getMessage(), e.getCause().getMessage().contains(message));
+        }
+    }
+
+    private static Map<String, Object> process(DocumentProducer producer, int results)
+    {
+        producer.query = "query";
+        producer.results = results;
+        producer.process();
+        final Map<String, Object> attributes = Maps.newHashMap();
+        attributes.put(AttributeNames.DOCUMENTS, producer.documents);
+        return attributes;
+    }
+
+    private static void query(Controller controller, String query, int results)
+    {
+        final Map<String, Object> attributes = Maps.newHashMap();
+        attributes.put(AttributeNames.QUERY, query);
+        attributes.put(AttributeNames.RESULTS, results);
+        controller.process(attributes, DocumentProducer.class);
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * Carrot2 project.
+ *
+ * Copyright (C) 2002-2019, Dawid Weiss, Stanisław Osiński.
+ * All rights reserved.
+ *
+ * Refer to the full license file "carrot2.LICENSE"
+ * in the root folder of the repository checkout or at:
+ * http://www.carrot2.org/carrot2.LICENSE
+ */
+
+package org.carrot2.core;
+
+import static org.junit.Assert.*;
+
+import org.carrot2.core.attribute.Init;
+import org.carrot2.core.attribute.Processing;
+import org.carrot2.util.attribute.Attribute;
+import org.carrot2.util.attribute.Bindable;
+import org.carrot2.util.attribute.Input;
+import org.carrot2.util.tests.CarrotTestCase;
+import org.junit.Test;
+
+/**
+ * Test cases for {@link ComponentCopyPool}.
+ */
+public class ComponentCopyPoolTest extends CarrotTestCase
+{
+    @Bindable
+    public static class CopiedComponent extends ProcessingComponentBase
+    {
+        @Init
+        @Input
+        @Attribute(key = "init")
+        public String init;
+
+        @Processing
+        @Input
+        @Attribute(key = "processing")
+        public String processing;
+
+        int initCount;
+        int processingCount;
+        boolean inProcessing;
+        boolean disposed;
+
+        @Override
+        public void init(IControllerContext context)
+        {
+            super.init(context);
+            initCount++;
+        }
+
+        @Override
+        public void beforeProcessing() throws ProcessingException
+        {
+            processingCount++;
+            inProcessing = true;
+        }
+
+        @Override
+        public void afterProcessing()
+        {
+            inProcessing = false;
+        }
+
+        @Override
+        public void dispose()
+        {
+            super.dispose();
+            disposed = true;
+        }
+
+        ComponentCopyPool<CopiedComponent> copies()
+        {
+            return getCopyPool();
+        }
+    }
+
+    @Test
+    public void testCopiesReused()
+    {
+        final CopiedComponent component = new CopiedComponent();
+        component.init(new DummyControllerContext());
+        component.init = "i";
+        component.processing = "p1";
+
+        final ComponentCopyPool<CopiedComponent> copies = component.copies();
+        final CopiedComponent copy = copies.borrow();
+        assertNotSame(component, copy);
+        assertEquals("i", copy.init);
+        assertEquals("p1", copy.processing);
+        assertTrue(copy.inProcessing);
+        copies.release(copy);
+        assertFalse(copy.inProcessing);
+
+        component.processing = "p2";
+        assertSame(copy, copies.borrow());
+        assertEquals("p2", copy.processing);
+        assertEquals(1, copy.initCount);
+        assertEquals(2, copy.processingCount);
+
+        final CopiedComponent other = copies.borrow();
+        assertNotSame(copy, other);
+        copies.release(other);
+        copies.release(copy);
+        assertFalse(copy.disposed);
+
+        component.dispose();
+        assertTrue(copy.disposed);
+        assertTrue(other.disposed);
+    }
+
+    @Test
+    public void testReleasedAfterDisposal()
+    {
+        final CopiedComponent component = new CopiedComponent();
+        component.init(new DummyControllerContext());
+
+        final ComponentCopyPool<CopiedComponent> copies = component.copies();
+        final CopiedComponent copy = copies.borrow();
+        component.dispose();
+        assertFalse(copy.disposed);
+        copies.release(copy);
+        assertTrue(copy.disposed);
+    }
+}
@@ -0,0 +1,234 @@
+/*
+ * Carrot2 project.
+ *
+ * Copyright (C) 2002-2019, Dawid Weiss, Stanisław Osiński.
+ * All rights reserved.
+ *
+ * Refer to the full license file "carrot2.LICENSE"
+ * in the root folder of the repository checkout or at:
+ * http://www.carrot2.org/carrot2.LICENSE
+ */
+
+package org.carrot2.core;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.carrot2.core.CachingProcessingComponentManagerTest.DocumentProducer;
+import org.carrot2.core.attribute.AttributeNames;
+import org.carrot2.util.attribute.Bindable;
+import org.carrot2.util.tests.CarrotTestCase;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.carrot2.shaded.guava.common.collect.Maps;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test cases for {@link Controller#processAsync(Map, Object...)}, processing timeouts
+ * and cancellation.
+ */
+public class ControllerAsyncTest extends CarrotTestCase
+{
+    /**
+     * Blocks in {@link #process()} until interrupted.
+     */
+    @Bindable
+    public static class InterruptibleProducer extends DocumentProducer
+    {
+        static volatile CountDownLatch started;
+        static volatile CountDownLatch interrupted;
+
+        @Override
+        public void process() throws ProcessingException
+        {
+            started.countDown();
+            try
+            {
+                new CountDownLatch(1).await();
+            }
+            catch (InterruptedException e)
+            {
+                interrupted.countDown();
+                throw new ProcessingException(e);
+            }
+        }
+    }
+
+    private Controller controller;
+
+    @Before
+    public void prepare()
+    {
+        InterruptibleProducer.started = new CountDownLatch(1);
+        InterruptibleProducer.interrupted = new CountDownLatch(1);
+        controller = ControllerFactory.createSimple();
+    }
+
+    @After
+    public void dispose()
+    {
+        controller.dispose();
+    }
+
+    @Test
+    public void testProcessAsync() throws Exception
+    {
+        final Map<String, Object> attributes = attributes("query");
+        final Future<ProcessingResult> future = controller.processAsync(attributes,
+            DocumentProducer.class);
+
+        // The attributes have been copied
+        attributes.put(AttributeNames.QUERY, "other");
+
+        final List<Document> documents = future.get().getDocuments();
+        assertEquals(10, documents.size());
+        assertEquals("query title 0", documents.get(0).getTitle());
+    }
+
+    @Test
+    public void testConcurrentRequests() throws Exception
+    {
+        final Future<ProcessingResult> future = controller.processAsync(
+            attributes("query"), InterruptibleProducer.class);
+        assertTrue(InterruptibleProducer.started.await(10, TimeUnit.SECONDS));
+        controller.processAsync(attributes("query"), DocumentProducer.class).get();
+        assertFalse(future.isDone());
+        future.cancel(true);
+    }
+
+    @Test
+    public void testTimeout() throws Exception
+    {
+        final Map<String, Object> attributes = attributes("query");
+        attributes.put(AttributeNames.PROCESSING_TIMEOUT, 100L);
+        final Future<ProcessingResult> future = controller.processAsync(attributes,
+            InterruptibleProducer.class);
+
+        try
+        {
+            future.get();
+            fail();
+        }
+        catch (ExecutionException e)
+        {
+            assertTrue(e.getCause() instanceof ProcessingException);
+            assertTrue(e.getCause().getMessage().contains("timed out"));
+        }
+        assertTrue(InterruptibleProducer.interrupted.await(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testTimeoutNotReached() throws Exception
+    {
+        final Map<String, Object> attributes = attributes("query");
+        attributes.put(AttributeNames.PROCESSING_TIMEOUT, 60000);
+        assertEquals(10, controller.processAsync(attributes, DocumentProducer.class)
+            .get().getDocuments().size());
+    }
+
+    @Test
+    public void testCancel() throws Exception
+    {
+        final Future<ProcessingResult> future = controller.processAsync(
+            attributes("query"), InterruptibleProducer.class);
+        assertTrue(InterruptibleProducer.started.await(10, TimeUnit.SECONDS));
+
+        assertTrue(future.cancel(true));
+        assertTrue(InterruptibleProducer.interrupted.await(10, TimeUnit.SECONDS));
+        try
+        {
+            future.get();
+            fail();
+        }
+        catch (CancellationException e)
+        {
+            // expected
+        }
+    }
+
+    @Test
+    public void testSynchronousTimeout()
+    {
+        final Map<String, Object> attributes = attributes("query");
+        attributes.put(AttributeNames.PROCESSING_TIMEOUT, "100");
+        try
+        {
+            controller.process(attributes, InterruptibleProducer.class);
+            fail();
+        }
+        catch (ProcessingException e)
+        {
+            assertTrue(e.getMessage().contains("timed out"));
+        }
+        assertFalse(Thread.currentThread().isInterrupted());
+    }
+
+    @Test
+    public void testSynchronousTimeoutNotReached()
+    {
+        final Map<String, Object> attributes = attributes("query");
+        attributes.put(AttributeNames.PROCESSING_TIMEOUT, 60000L);
+        assertEquals(10, controller.process(attributes, DocumentProducer.class)
+            .getDocuments().size());
+    }
+
+    @Test
+    public void testInvalidTimeout() throws Exception
+    {
+        final Map<String, Object> attributes = attributes("query");
+        attributes.put(AttributeNames.PROCESSING_TIMEOUT, "soon");
+        try
+        {
+            controller.processAsync(attributes, DocumentProducer.class).get();
+            fail();
+        }
+        catch (ExecutionException e)
+        {
+            assertTrue(e.getCause() instanceof ProcessingException);
+        }
+    }
+
+    @Test
+    public void testCustomExecutor() throws Exception
+    {
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try
+        {
+            controller.setExecutor(executor);
+            controller.processAsync(attributes("query"), DocumentProducer.class).get();
+
+            // The executor belongs to the caller
+            controller.dispose();
+            assertFalse(executor.isShutdown());
+        }
+        finally
+        {
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testExecutorAlreadyInUse() throws Exception
+    {
+        controller.processAsync(attributes("query"), DocumentProducer.class).get();
+        controller.setExecutor(Executors.newSingleThreadExecutor());
+    }
+
+    private static Map<String, Object> attributes(String query)
+    {
+        final Map<String, Object> attributes = Maps.newHashMap();
+        attributes.put(AttributeNames.QUERY, query);
+        return attributes;
+    }
+}
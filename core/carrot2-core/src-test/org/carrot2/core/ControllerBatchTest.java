@@ -0,0 +1,184 @@
+/*
+ * Carrot2 project.
+ *
+ * Copyright (C) 2002-2019, Dawid Weiss, Stanisław Osiński.
+ * All rights reserved.
+ *
+ * Refer to the full license file "carrot2.LICENSE"
+ * in the root folder of the repository checkout or at:
+ * http://www.carrot2.org/carrot2.LICENSE
+ */
+
+package org.carrot2.core;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.carrot2.core.CachingProcessingComponentManagerTest.DocumentProducer;
+import org.carrot2.core.attribute.AttributeNames;
+import org.carrot2.util.attribute.Bindable;
+import org.carrot2.util.tests.CarrotTestCase;
+import org.junit.After;
+import org.junit.Test;
+
+import org.carrot2.shaded.guava.common.collect.Lists;
+import org.carrot2.shaded.guava.common.collect.Maps;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test cases for {@link Controller#processBatch(List, Object...)}.
+ */
+public class ControllerBatchTest extends CarrotTestCase
+{
+    /**
+     * Counts its instances and fails for the "fail" query.
+     */
+    @Bindable
+    public static class CountingProducer extends DocumentProducer
+    {
+        static final AtomicInteger instances = new AtomicInteger();
+
+        public CountingProducer()
+        {
+            instances.incrementAndGet();
+        }
+
+        @Override
+        public void process() throws ProcessingException
+        {
+            if ("fail".equals(query))
+            {
+                throw new ProcessingException("Failed on purpose.");
+            }
+            super.process();
+        }
+    }
+
+    private Controller controller;
+
+    @After
+    public void dispose()
+    {
+        if (controller != null)
+        {
+            controller.dispose();
+        }
+    }
+
+    @Test
+    public void testOrderedResultsWithErrors()
+    {
+        controller = ControllerFactory.createSimple().setBatchParallelism(4);
+
+        final List<Map<String, Object>> requests = Lists.newArrayList();
+        for (int i = 0; i < 50; i++)
+        {
+            requests.add(attributes(i % 10 == 5 ? "fail" : "q" + i));
+        }
+
+        final List<BatchItemResult> results = controller.processBatch(requests,
+            CountingProducer.class);
+        assertEquals(requests.size(), results.size());
+        for (int i = 0; i < results.size(); i++)
+        {
+            final BatchItemResult result = results.get(i);
+            if (i % 10 == 5)
+            {
+                assertFalse(result.isSuccessful());
+                assertNull(result.getResult());
+                assertEquals("Failed on purpose.", result.getException().getMessage());
+            }
+            else
+            {
+                assertTrue(result.isSuccessful());
+                assertEquals("q" + i + " title 0", result.get().getDocuments().get(0)
+                    .getTitle());
+            }
+        }
+
+        final ControllerStatistics statistics = controller.getStatistics();
+        assertEquals(50, statistics.totalQueries);
+        assertEquals(45, statistics.goodQueries);
+    }
+
+    @Test
+    public void testComponentsReused()
+    {
+        controller = ControllerFactory.createSimple().setBatchParallelism(2);
+        CountingProducer.instances.set(0);
+
+        final List<Map<String, Object>> requests = Lists.newArrayList();
+        for (int i = 0; i < 20; i++)
+        {
+            requests.add(attributes("q" + i));
+        }
+        controller.processBatch(requests, CountingProducer.class);
+
+        assertTrue(CountingProducer.instances.get() <= 2);
+    }
+
+    @Test
+    public void testProcessingAttributesReset()
+    {
+        controller = ControllerFactory.createPooling().setBatchParallelism(1);
+
+        final Map<String, Object> fewResults = attributes("few");
+        fewResults.put(AttributeNames.RESULTS, 3);
+        final List<Map<String, Object>> requests = Lists.newArrayList();
+        requests.add(fewResults);
+        requests.add(attributes("default"));
+        final List<BatchItemResult> results = controller.processBatch(requests,
+            CountingProducer.class);
+
+        assertEquals(3, results.get(0).get().getDocuments().size());
+        assertEquals(10, results.get(1).get().getDocuments().size());
+    }
+
+    @Test
+    public void testCachingController()
+    {
+        controller = ControllerFactory.createCachingPooling(IDocumentSource.class)
+            .setBatchParallelism(3);
+
+        final List<Map<String, Object>> requests = Lists.newArrayList();
+        for (int i = 0; i < 10; i++)
+        {
+            requests.add(attributes("q" + (i % 2)));
+        }
+
+        final List<BatchItemResult> results = controller.processBatch(requests,
+            CountingProducer.class);
+        for (int i = 0; i < results.size(); i++)
+        {
+            assertEquals("q" + (i % 2) + " title 0", results.get(i).get().getDocuments()
+                .get(0).getTitle());
+        }
+    }
+
+    @Test
+    public void testEmptyBatch()
+    {
+        controller = ControllerFactory.createSimple();
+        assertTrue(controller.processBatch(
+            Lists.<Map<String, Object>> newArrayList(), CountingProducer.class)
+            .isEmpty());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownComponent()
+    {
+        controller = ControllerFactory.createSimple();
+        final List<Map<String, Object>> requests = Lists.newArrayList();
+        requests.add(attributes("q"));
+        controller.processBatch(requests, "unknown");
+    }
+
+    private static Map<String, Object> attributes(String query)
+    {
+        final Map<String, Object> attributes = Maps.newHashMap();
+        attributes.put(AttributeNames.QUERY, query);
+        return attributes;
+    }
+}
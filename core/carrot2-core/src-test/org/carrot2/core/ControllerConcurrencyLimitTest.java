@@ -0,0 +1,241 @@
+/*
+ * Carrot2 project.
+ *
+ * Copyright (C) 2002-2019, Dawid Weiss, Stanisław Osiński.
+ * All rights reserved.
+ *
+ * Refer to the full license file "carrot2.LICENSE"
+ * in the root folder of the repository checkout or at:
+ * http://www.carrot2.org/carrot2.LICENSE
+ */
+
+package org.carrot2.core;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.carrot2.core.CachingProcessingComponentManagerTest.DocumentProducer;
+import org.carrot2.core.ControllerAsyncTest.InterruptibleProducer;
+import org.carrot2.core.attribute.AttributeNames;
+import org.carrot2.util.tests.CarrotTestCase;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.carrot2.shaded.guava.common.collect.Maps;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test cases for {@link Controller#addConcurrencyLimit(ConcurrencyLimitConfiguration)}.
+ */
+public class ControllerConcurrencyLimitTest extends CarrotTestCase
+{
+    private Controller controller;
+
+    @Before
+    public void prepare()
+    {
+        InterruptibleProducer.started = new CountDownLatch(1);
+        InterruptibleProducer.interrupted = new CountDownLatch(1);
+        controller = ControllerFactory.createSimple();
+        controller.init(Collections.<String, Object> emptyMap(),
+            new ProcessingComponentConfiguration(InterruptibleProducer.class, "blocking"),
+            new ProcessingComponentConfiguration(DocumentProducer.class, "documents"));
+    }
+
+    @After
+    public void dispose()
+    {
+        controller.dispose();
+    }
+
+    @Test
+    public void testRejectedWhenQueueFull() throws Exception
+    {
+        controller.addConcurrencyLimit(new ConcurrencyLimitConfiguration().limit(1));
+
+        final Future<ProcessingResult> blocking = startBlocking(attributes(1));
+        try
+        {
+            controller.process(attributes(1), "documents");
+            fail();
+        }
+        catch (ProcessingRejectedException e)
+        {
+            // expected
+        }
+
+        final ConcurrencyLimitStatistics statistics = getLimitStatistics(0);
+        assertNull(statistics.componentId);
+        assertEquals(1, statistics.limit);
+        assertEquals(1, statistics.inUse);
+        assertEquals(1, statistics.admitted);
+        assertEquals(1, statistics.rejected);
+        assertEquals(0, statistics.timedOut);
+
+        release(blocking);
+        assertEquals(10, controller.process(attributes(1), "documents").getDocuments()
+            .size());
+    }
+
+    @Test
+    public void testQueuedRequestAdmitted() throws Exception
+    {
+        controller.addConcurrencyLimit(new ConcurrencyLimitConfiguration().limit(1)
+            .queueDepth(1));
+
+        final Future<ProcessingResult> blocking = startBlocking(attributes(1));
+        final Future<ProcessingResult> queued = controller.processAsync(attributes(1),
+            "documents");
+        while (getLimitStatistics(0).queued == 0)
+        {
+            Thread.sleep(10);
+        }
+        assertEquals(1, getLimitStatistics(0).peakQueued);
+        assertFalse(queued.isDone());
+
+        // The queue is full
+        try
+        {
+            controller.process(attributes(1), "documents");
+            fail();
+        }
+        catch (ProcessingRejectedException e)
+        {
+            // expected
+        }
+
+        release(blocking);
+        assertEquals(10, queued.get(10, TimeUnit.SECONDS).getDocuments().size());
+        assertEquals(0, getLimitStatistics(0).queued);
+        assertEquals(2, getLimitStatistics(0).admitted);
+    }
+
+    @Test
+    public void testQueueTimeout() throws Exception
+    {
+        controller.addConcurrencyLimit(new ConcurrencyLimitConfiguration().limit(1)
+            .queueDepth(1).queueTimeoutMillis(100));
+
+        final Future<ProcessingResult> blocking = startBlocking(attributes(1));
+        final long start = System.currentTimeMillis();
+        try
+        {
+            controller.process(attributes(1), "documents");
+            fail();
+        }
+        catch (ProcessingRejectedException e)
+        {
+            assertTrue(System.currentTimeMillis() - start >= 90);
+        }
+        assertEquals(1, getLimitStatistics(0).timedOut);
+        assertEquals(0, getLimitStatistics(0).queued);
+        release(blocking);
+    }
+
+    @Test
+    public void testComponentLimit() throws Exception
+    {
+        controller.addConcurrencyLimit(new ConcurrencyLimitConfiguration().componentId(
+            "blocking").limit(1));
+
+        final Future<ProcessingResult> blocking = startBlocking(attributes(1));
+
+        // Other components are not limited
+        assertEquals(10, controller.process(attributes(1), "documents").getDocuments()
+            .size());
+
+        try
+        {
+            controller.process(attributes(1), "blocking");
+            fail();
+        }
+        catch (ProcessingRejectedException e)
+        {
+            // expected
+        }
+
+        final ConcurrencyLimitStatistics statistics = getLimitStatistics(0);
+        assertEquals("blocking", statistics.componentId);
+        assertEquals(1, statistics.rejected);
+        release(blocking);
+    }
+
+    @Test
+    public void testWeight() throws Exception
+    {
+        controller.addConcurrencyLimit(new ConcurrencyLimitConfiguration().limit(4));
+
+        final Future<ProcessingResult> blocking = startBlocking(attributes(3));
+        assertEquals(3, getLimitStatistics(0).inUse);
+
+        try
+        {
+            controller.process(attributes("2"), "documents");
+            fail();
+        }
+        catch (ProcessingRejectedException e)
+        {
+            // expected
+        }
+        assertEquals(10, controller.process(attributes(1), "documents").getDocuments()
+            .size());
+        release(blocking);
+
+        // Requests heavier than the limit take the whole limit
+        assertEquals(10, controller.process(attributes(100), "documents").getDocuments()
+            .size());
+        assertEquals(0, getLimitStatistics(0).inUse);
+    }
+
+    @Test(expected = ProcessingException.class)
+    public void testInvalidWeight()
+    {
+        controller.addConcurrencyLimit(new ConcurrencyLimitConfiguration().limit(4));
+        controller.process(attributes("heavy"), "documents");
+    }
+
+    @Test
+    public void testNoLimits()
+    {
+        assertNull(controller.getStatistics().concurrencyLimits);
+        assertEquals(10, controller.process(attributes(100), "documents").getDocuments()
+            .size());
+    }
+
+    private Future<ProcessingResult> startBlocking(Map<String, Object> attributes)
+        throws InterruptedException
+    {
+        final Future<ProcessingResult> future = controller.processAsync(attributes,
+            "blocking");
+        assertTrue(InterruptibleProducer.started.await(10, TimeUnit.SECONDS));
+        return future;
+    }
+
+    private void release(Future<ProcessingResult> blocking) throws Exception
+    {
+        blocking.cancel(true);
+        assertTrue(InterruptibleProducer.interrupted.await(10, TimeUnit.SECONDS));
+        while (getLimitStatistics(0).inUse > 0)
+        {
+            Thread.sleep(10);
+        }
+    }
+
+    private ConcurrencyLimitStatistics getLimitStatistics(int index)
+    {
+        return controller.getStatistics().concurrencyLimits.get(index);
+    }
+
+    private static Map<String, Object> attributes(Object weight)
+    {
+        final Map<String, Object> attributes = Maps.newHashMap();
+        attributes.put(AttributeNames.QUERY, "query");
+        attributes.put(AttributeNames.PROCESSING_WEIGHT, weight);
+        return attributes;
+    }
+}
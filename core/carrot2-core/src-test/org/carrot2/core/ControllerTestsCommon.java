@@ -558,6 +558,14 @@ public abstract class ControllerTestsCommon extends ControllerTestsBase
         assertThat(statistics.sourceTimeMeasurementsInWindow).isEqualTo(0);
         assertThat(statistics.totalTimeAverageInWindow).isEqualTo(0);
         assertThat(statistics.totalTimeMeasurementsInWindow).isEqualTo(0);
+        assertThat(statistics.throughputInWindow).isEqualTo(0);
+        assertThat(statistics.latencies).hasSize(3);
+        for (LatencyStatistics latency : statistics.latencies)
+        {
+            assertThat(latency.count).isEqualTo(0);
+            assertThat(latency.errors).isEqualTo(0);
+        }
+        assertThat(statistics.componentLatencies).isNull();
 
         if (isCaching())
         {
@@ -602,6 +610,25 @@ public abstract class ControllerTestsCommon extends ControllerTestsBase
         assertThat(statistics.sourceTimeMeasurementsInWindow).isEqualTo(1);
         assertThat(statistics.totalTimeAverageInWindow).isGreaterThanOrEqualTo(2 * halfDelay);
         assertThat(statistics.totalTimeMeasurementsInWindow).isEqualTo(1);
+        assertThat(statistics.throughputInWindow).isGreaterThan(0);
+
+        final Map<String, LatencyStatistics> latencies = getLatencies(statistics.latencies);
+        assertThat(latencies.keySet()).containsOnly("total", "source", "algorithm");
+        assertThat(latencies.get("total").count).isEqualTo(1);
+        assertThat(latencies.get("total").p50).isGreaterThanOrEqualTo(2 * halfDelay);
+        assertThat(latencies.get("total").p999).isEqualTo(latencies.get("total").max);
+        assertThat(latencies.get("source").p99).isGreaterThanOrEqualTo(halfDelay);
+        assertThat(latencies.get("algorithm").p99).isGreaterThanOrEqualTo(halfDelay);
+
+        final Map<String, LatencyStatistics> componentLatencies = getLatencies(statistics.componentLatencies);
+        assertThat(componentLatencies.keySet()).containsOnly(Component1.class.getSimpleName(),
+            Component2.class.getSimpleName());
+        for (LatencyStatistics latency : componentLatencies.values())
+        {
+            assertThat(latency.count).isEqualTo(1);
+            assertThat(latency.errors).isEqualTo(0);
+        }
+
         if (isCaching())
         {
             assertThat(statistics.cacheMisses).isEqualTo(2);
@@ -660,6 +687,17 @@ public abstract class ControllerTestsCommon extends ControllerTestsBase
             assertThat(statistics.totalQueries).isEqualTo(2);
             assertThat(statistics.goodQueries).isEqualTo(1);
 
+            final Map<String, LatencyStatistics> latencies = getLatencies(statistics.latencies);
+            assertThat(latencies.get("total").count).isEqualTo(1);
+            assertThat(latencies.get("total").errors).isEqualTo(1);
+            assertThat(latencies.get("source").count).isEqualTo(0);
+            assertThat(latencies.get("source").errors).isEqualTo(1);
+
+            final LatencyStatistics component1 = getLatencies(
+                statistics.componentLatencies).get(Component1.class.getSimpleName());
+            assertThat(component1.count).isEqualTo(0);
+            assertThat(component1.errors).isEqualTo(1);
+
             if (isCaching())
             {
                 assertThat(statistics.cacheMisses).isEqualTo(2);
@@ -671,6 +709,17 @@ public abstract class ControllerTestsCommon extends ControllerTestsBase
         }
     }
 
+    private static Map<String, LatencyStatistics> getLatencies(
+        List<LatencyStatistics> latencies)
+    {
+        final Map<String, LatencyStatistics> result = Maps.newHashMap();
+        for (LatencyStatistics latency : latencies)
+        {
+            result.put(latency.name, latency);
+        }
+        return result;
+    }
+
     @Test
     public void settingInitAttributeToNull()
     {
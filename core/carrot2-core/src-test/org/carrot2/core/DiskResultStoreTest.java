@@ -0,0 +1,183 @@
+/*
+ * Carrot2 project.
+ *
+ * Copyright (C) 2002-2019, Dawid Weiss, Stanisław Osiński.
+ * All rights reserved.
+ *
+ * Refer to the full license file "carrot2.LICENSE"
+ * in the root folder of the repository checkout or at:
+ * http://www.carrot2.org/carrot2.LICENSE
+ */
+
+package org.carrot2.core;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import org.carrot2.util.tests.CarrotTestCase;
+import org.junit.Test;
+
+import com.carrotsearch.randomizedtesting.LifecycleScope;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test cases for {@link DiskResultStore}.
+ */
+public class DiskResultStoreTest extends CarrotTestCase
+{
+    @Test
+    public void testPutGet() throws IOException
+    {
+        final DiskResultStore store = new DiskResultStore(newDirectory(), 1024 * 1024);
+        try
+        {
+            store.put(key(1), bytes(1, 100));
+            store.put(key(2), bytes(2, 0));
+            store.put(key(1), bytes(3, 50));
+
+            assertArrayEquals(bytes(3, 50), store.get(key(1), 0));
+            assertArrayEquals(bytes(2, 0), store.get(key(2), 0));
+            assertNull(store.get(key(3), 0));
+            assertEquals(2, store.size());
+        }
+        finally
+        {
+            store.close();
+        }
+    }
+
+    @Test
+    public void testReopen() throws IOException
+    {
+        final File directory = newDirectory();
+        DiskResultStore store = new DiskResultStore(directory, 1024 * 1024);
+        store.put(key(1), bytes(1, 100));
+        store.put(key(2), bytes(2, 200));
+        store.put(key(1), bytes(3, 300));
+        store.close();
+
+        store = new DiskResultStore(directory, 1024 * 1024);
+        try
+        {
+            assertEquals(2, store.size());
+            assertArrayEquals(bytes(3, 300), store.get(key(1), 0));
+            assertArrayEquals(bytes(2, 200), store.get(key(2), 0));
+        }
+        finally
+        {
+            store.close();
+        }
+    }
+
+    @Test
+    public void testIncompleteRecordIgnored() throws IOException
+    {
+        final File directory = newDirectory();
+        DiskResultStore store = new DiskResultStore(directory, 1024 * 1024);
+        store.put(key(1), bytes(1, 100));
+        store.put(key(2), bytes(2, 100));
+        store.close();
+
+        // Damage the payload of the second record
+        final RandomAccessFile segment = new RandomAccessFile(new File(directory,
+            "segment-00000000.dat"), "rw");
+        try
+        {
+            segment.seek(2 * (4 + 4 + DiskResultStore.KEY_LENGTH + 8) + 100 + 10);
+            segment.write(0xff);
+        }
+        finally
+        {
+            segment.close();
+        }
+
+        store = new DiskResultStore(directory, 1024 * 1024);
+        try
+        {
+            assertArrayEquals(bytes(1, 100), store.get(key(1), 0));
+            assertNull(store.get(key(2), 0));
+
+            // New records overwrite the damaged one
+            store.put(key(3), bytes(3, 10));
+            assertArrayEquals(bytes(3, 10), store.get(key(3), 0));
+        }
+        finally
+        {
+            store.close();
+        }
+    }
+
+    @Test
+    public void testCompactionKeepsRecentlyRead() throws IOException
+    {
+        final long maximumBytes = 4 * 64 * 1024;
+        final DiskResultStore store = new DiskResultStore(newDirectory(), maximumBytes);
+        try
+        {
+            store.put(key(0), bytes(0, 1000));
+            for (int i = 1; i < 2000; i++)
+            {
+                // Keep reading the first record, so that it is hot
+                assertNotNull(store.get(key(0), 0));
+                store.put(key(i), bytes(i, 1000));
+                assertTrue(store.getSizeInBytes() <= maximumBytes);
+            }
+
+            assertArrayEquals(bytes(0, 1000), store.get(key(0), 0));
+            assertArrayEquals(bytes(1999, 1000), store.get(key(1999), 0));
+            assertNull(store.get(key(1), 0));
+            assertTrue(store.size() < 2000);
+        }
+        finally
+        {
+            store.close();
+        }
+    }
+
+    @Test
+    public void testDirectoryLocked() throws IOException
+    {
+        final File directory = newDirectory();
+        final DiskResultStore store = new DiskResultStore(directory, 1024 * 1024);
+        try
+        {
+            new DiskResultStore(directory, 1024 * 1024);
+            fail();
+        }
+        catch (IOException e)
+        {
+            // expected
+        }
+        finally
+        {
+            store.close();
+        }
+
+        new DiskResultStore(directory, 1024 * 1024).close();
+    }
+
+    private static File newDirectory() throws IOException
+    {
+        return newTempDir(LifecycleScope.TEST).toFile();
+    }
+
+    private static DiskResultStore.Key key(int i)
+    {
+        final byte [] key = new byte [DiskResultStore.KEY_LENGTH];
+        key[0] = (byte) i;
+        key[1] = (byte) (i >> 8);
+        return new DiskResultStore.Key(key);
+    }
+
+    private static byte [] bytes(int seed, int length)
+    {
+        final byte [] bytes = new byte [length];
+        for (int i = 0; i < length; i++)
+        {
+            bytes[i] = (byte) (seed + i);
+        }
+        return bytes;
+    }
+}
@@ -18,6 +18,7 @@ import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.StreamCorruptedException;
 import java.io.StringReader;
 import java.io.StringWriter;
 import java.util.ArrayList;
@@ -26,6 +27,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import org.apache.commons.io.IOUtils;
 import org.apache.commons.io.output.NullOutputStream;
 import org.carrot2.core.attribute.AttributeNames;
 import org.carrot2.util.CloseableUtils;
@@ -39,6 +41,7 @@ import com.fasterxml.jackson.core.JsonParseException;
 import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import org.carrot2.shaded.guava.common.collect.Lists;
 import org.carrot2.shaded.guava.common.collect.Maps;
 
@@ -52,25 +55,98 @@ public class ProcessingResultTest extends CarrotTestCase
     @Test
     public void testSerializationDeserializationAll() throws Exception
     {
-        checkSerializationDeserialization(true, true, true);
+        checkSerializationDeserialization(true, true, true, false);
     }
 
     @Test
     public void testSerializationDeserializationDocumentsOnly() throws Exception
     {
-        checkSerializationDeserialization(true, false, false);
+        checkSerializationDeserialization(true, false, false, false);
     }
 
     @Test
     public void testSerializationDeserializationClustersOnly() throws Exception
     {
-        checkSerializationDeserialization(false, true, false);
+        checkSerializationDeserialization(false, true, false, false);
     }
     
     @Test
     public void testSerializationDeserializationAttributesOnly() throws Exception
     {
-        checkSerializationDeserialization(false, false, true);
+        checkSerializationDeserialization(false, false, true, false);
+    }
+
+    @Test
+    public void testBinarySerializationDeserializationAll() throws Exception
+    {
+        checkSerializationDeserialization(true, true, true, true);
+    }
+
+    @Test
+    public void testBinarySerializationDeserializationDocumentsOnly() throws Exception
+    {
+        checkSerializationDeserialization(true, false, false, true);
+    }
+
+    @Test
+    public void testBinarySerializationDeserializationClustersOnly() throws Exception
+    {
+        checkSerializationDeserialization(false, true, false, true);
+    }
+
+    @Test
+    public void testBinarySerializationDeserializationAttributesOnly() throws Exception
+    {
+        checkSerializationDeserialization(false, false, true, true);
+    }
+
+    @Test
+    public void testBinaryDocumentReferencesInClusters() throws Exception
+    {
+        final ProcessingResult deserialized = binaryRoundTrip(prepareProcessingResult());
+        final List<Document> documents = deserialized.getDocuments();
+        final Cluster clusterB = deserialized.getClusters().get(1);
+        assertSame(documents.get(1), clusterB.getDocuments().get(0));
+        assertSame(documents.get(2), clusterB.getDocuments().get(1));
+        assertEquals(LanguageCode.POLISH, documents.get(0).getLanguage());
+        assertTrue(deserialized.getClusters().get(2).isOtherTopics());
+    }
+
+    @Test
+    public void testBinaryUnsupportedAttributeWrittenAsNull() throws Exception
+    {
+        final Map<String, Object> attributes = Maps.newHashMap();
+        attributes.put(AttributeNames.QUERY, "query");
+        attributes.put("unsupported", new Object());
+
+        final ProcessingResult deserialized = binaryRoundTrip(new ProcessingResult(
+            attributes));
+        assertNull(deserialized.getAttribute("unsupported"));
+        assertEquals("query", deserialized.getAttribute(AttributeNames.QUERY));
+    }
+
+    @Test
+    public void testBinaryMultipleResultsInOneStream() throws Exception
+    {
+        final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        final ProcessingResult result = prepareProcessingResult();
+        result.serializeBinary(outputStream);
+        result.serializeBinary(outputStream, false, true, false);
+
+        final InputStream inputStream = new ByteArrayInputStream(
+            outputStream.toByteArray());
+        assertNotNull(ProcessingResult.deserializeBinary(inputStream).getDocuments());
+        assertNull(ProcessingResult.deserializeBinary(inputStream).getDocuments());
+        assertEquals(-1, inputStream.read());
+    }
+
+    @Test(expected = StreamCorruptedException.class)
+    public void testBinaryDeserializationOfXml() throws Exception
+    {
+        final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        prepareProcessingResult().serialize(outputStream);
+        ProcessingResult.deserializeBinary(new ByteArrayInputStream(
+            outputStream.toByteArray()));
     }
 
     @Test
@@ -323,6 +399,108 @@ public class ProcessingResultTest extends CarrotTestCase
         Assertions.assertThat(root.get("results")).isNotNull();
     }
     
+    /**
+     * Documents and clusters must serialize exactly as they did before the streaming JSON
+     * writer, including the order of properties. The expected output was produced by
+     * the data-binding serializer.
+     */
+    @Test
+    public void testJsonGoldenOutput() throws IOException
+    {
+        final List<Document> documents = Lists.newArrayList(new Document("Test title 1",
+            "Test snippet 1", "http://test1.com"), new Document("Test title 2",
+            "Test snippet 2", "http://test2.com/test"), new Document("Test title 3",
+            "Test snippet 3. Some more words and <b>html</b>", "http://test2.com"),
+            new Document("Other", "Other", "Other"));
+        final Map<String, Object> attributes = Maps.newHashMap();
+        attributes.put(AttributeNames.DOCUMENTS, documents);
+
+        final Document document = documents.get(0);
+        document.setField("testString", "test");
+        document.setField("testInteger", 10);
+        document.setField("testDouble", 10.3);
+        document.setField("testBoolean", true);
+        document.setLanguage(LanguageCode.POLISH);
+        document.setSources(Lists.newArrayList("s1", "s2"));
+        Document.assignDocumentIds(documents);
+
+        final Cluster clusterA = new Cluster();
+        clusterA.addPhrases("Label 1", "Label 2");
+        clusterA.setAttribute(Cluster.SCORE, 1.0);
+        clusterA.setAttribute("testString", "test");
+        final Cluster clusterAA = new Cluster();
+        clusterAA.addPhrases("Label 3");
+        clusterAA.addDocuments(documents.get(0), documents.get(1));
+        clusterA.addSubclusters(clusterAA);
+        final Cluster clusterO = new Cluster();
+        clusterO.setOtherTopics(true);
+        clusterO.addPhrases(Cluster.OTHER_TOPICS_LABEL);
+        clusterO.addDocuments(documents.get(2), documents.get(3));
+        attributes.put(AttributeNames.CLUSTERS, Lists.newArrayList(clusterA, clusterO));
+        attributes.put(AttributeNames.QUERY, "query");
+
+        final StringWriter json = new StringWriter();
+        new ProcessingResult(attributes).serializeJson(json, null, true, true, true, false);
+
+        final InputStream expected = getClass().getResourceAsStream(
+            "ProcessingResultTest.json");
+        try
+        {
+            Assertions.assertThat(json.toString().replace("\r\n", "\n").trim()).isEqualTo(
+                IOUtils.toString(expected, "UTF-8").replace("\r\n", "\n").trim());
+        }
+        finally
+        {
+            CloseableUtils.close(expected);
+        }
+    }
+
+    @Test
+    public void testJsonSameAsDataBinding() throws IOException
+    {
+        final ProcessingResult result = prepareProcessingResult();
+        final Map<String, Object> attributes = Maps.newHashMap(result.getAttributes());
+        attributes.put("other", Arrays.asList(1, "a", null));
+        attributes.put("nothing", null);
+        attributes.put(AttributeNames.DOCUMENTS, Lists.newArrayList(result.getDocuments()));
+        attributes.put(AttributeNames.CLUSTERS, Lists.newArrayList(result.getClusters()));
+        final ProcessingResult extended = new ProcessingResult(attributes);
+
+        for (boolean saveDocuments : new boolean [] {true, false})
+        {
+            for (boolean saveOther : new boolean [] {true, false})
+            {
+                final Map<String, Object> expected = Maps.newHashMap();
+                if (saveOther)
+                {
+                    expected.putAll(extended.getAttributes());
+                    expected.remove(AttributeNames.DOCUMENTS);
+                    expected.remove(AttributeNames.CLUSTERS);
+                }
+                else
+                {
+                    expected.put(AttributeNames.QUERY,
+                        extended.getAttribute(AttributeNames.QUERY));
+                }
+                if (saveDocuments)
+                {
+                    expected.put(AttributeNames.DOCUMENTS, extended.getDocuments());
+                }
+                expected.put(AttributeNames.CLUSTERS, extended.getClusters());
+
+                final ObjectMapper mapper = new ObjectMapper();
+                mapper.enable(SerializationFeature.INDENT_OUTPUT);
+                final String expectedJson = "cb(" + mapper.writeValueAsString(expected)
+                    + ");";
+
+                final StringWriter writer = new StringWriter();
+                extended.serializeJson(writer, "cb", false, saveDocuments, true,
+                    saveOther);
+                assertEquals(expectedJson, writer.toString());
+            }
+        }
+    }
+
     @Test
     public void testNoFalseJunkGroupAttribute() throws Exception
     {
@@ -398,19 +576,38 @@ public class ProcessingResultTest extends CarrotTestCase
         return root;
     }
 
+    private ProcessingResult binaryRoundTrip(ProcessingResult result) throws IOException
+    {
+        final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        result.serializeBinary(outputStream);
+        return ProcessingResult.deserializeBinary(new ByteArrayInputStream(
+            outputStream.toByteArray()));
+    }
+
     private void checkSerializationDeserialization(boolean documentsDeserialized,
-        boolean clustersDeserialized, boolean attributesDeserialized) throws Exception
+        boolean clustersDeserialized, boolean attributesDeserialized, boolean binary)
+        throws Exception
     {
         final ProcessingResult sourceProcessingResult = prepareProcessingResult();
 
         final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-        sourceProcessingResult.serialize(new NullOutputStream());
-        sourceProcessingResult.serialize(outputStream, documentsDeserialized,
-            clustersDeserialized, attributesDeserialized);
-        CloseableUtils.close(outputStream);
-
-        final ProcessingResult deserialized = ProcessingResult
-            .deserialize(new ByteArrayInputStream(outputStream.toByteArray()));
+        final ProcessingResult deserialized;
+        if (binary)
+        {
+            sourceProcessingResult.serializeBinary(outputStream, documentsDeserialized,
+                clustersDeserialized, attributesDeserialized);
+            deserialized = ProcessingResult.deserializeBinary(new ByteArrayInputStream(
+                outputStream.toByteArray()));
+        }
+        else
+        {
+            sourceProcessingResult.serialize(new NullOutputStream());
+            sourceProcessingResult.serialize(outputStream, documentsDeserialized,
+                clustersDeserialized, attributesDeserialized);
+            CloseableUtils.close(outputStream);
+            deserialized = ProcessingResult.deserialize(new ByteArrayInputStream(
+                outputStream.toByteArray()));
+        }
 
         assertNotNull(deserialized);
         assertNotNull(deserialized.getAttributes());
@@ -32,6 +32,7 @@ import org.carrot2.core.Cluster;
 import org.carrot2.core.Controller;
 import org.carrot2.core.Document;
 import org.carrot2.core.IClusteringAlgorithm;
+import org.carrot2.core.LanguageCode;
 import org.carrot2.core.Platform;
 import org.carrot2.core.ProcessingResult;
 import org.carrot2.core.attribute.AttributeNames;
@@ -115,6 +116,33 @@ public abstract class ClusteringAlgorithmTestBase<T extends IClusteringAlgorithm
         assertThat(clusters.size()).isGreaterThan(0);
     }
 
+    /**
+     * Clustering language partitions concurrently must not change the results.
+     */
+    @Test
+    public void testConcurrentLanguages()
+    {
+        final LanguageCode [] languages = new LanguageCode []
+        {
+            LanguageCode.ENGLISH, LanguageCode.GERMAN, LanguageCode.FRENCH, null
+        };
+        final List<Document> documents = Lists.newArrayList();
+        for (Document document : DOCUMENTS_DATA_MINING)
+        {
+            documents.add(new Document(document.getTitle(), document.getSummary(),
+                languages[documents.size() % languages.length]));
+        }
+
+        final ProcessingResult sequential = cluster(documents);
+        processingAttributes.put("MultilingualClustering.maxConcurrentLanguages", 4);
+        final ProcessingResult concurrent = cluster(documents);
+
+        assertThatClusters(concurrent.getClusters()).isEquivalentTo(
+            sequential.getClusters());
+        assertEquals(sequential.getAttributes().get("MultilingualClustering.languageCounts"),
+            concurrent.getAttributes().get("MultilingualClustering.languageCounts"));
+    }
+
     @SuppressWarnings("unchecked")
     @Test
     @ThreadLeakLingering(linger = 5000)
@@ -0,0 +1,450 @@
+/*
+ * Carrot2 project.
+ *
+ * Copyright (C) 2002-2019, Dawid Weiss, Stanisław Osiński.
+ * All rights reserved.
+ *
+ * Refer to the full license file "carrot2.LICENSE"
+ * in the root folder of the repository checkout or at:
+ * http://www.carrot2.org/carrot2.LICENSE
+ */
+
+package org.carrot2.core;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.carrot2.util.Pair;
+import org.carrot2.util.attribute.Attribute;
+import org.carrot2.util.attribute.AttributeBinder;
+import org.carrot2.util.attribute.Bindable;
+import org.carrot2.util.attribute.BindableUtils;
+
+import org.carrot2.shaded.guava.common.base.Predicate;
+import org.carrot2.shaded.guava.common.collect.Lists;
+import org.carrot2.shaded.guava.common.collect.Maps;
+import org.carrot2.shaded.guava.common.collect.Sets;
+
+/**
+ * A precomputed sequence of field accesses that reads or writes all attributes with the
+ * given annotations in a component's graph of {@link Bindable} objects. The plan visits
+ * the fields in the same order as {@link AttributeBinder} does, but without walking class
+ * hierarchies, evaluating annotations or tracking bindings on every call.
+ * <p>
+ * Plans are cached per component class. Because the graph of {@link Bindable} objects
+ * depends on attribute values (e.g. the implementation of a nested component chosen at
+ * initialization), every execution checks the classes of the nested objects it passes
+ * through. If they differ from the ones the plan was built for, a new plan is built.
+ * </p>
+ */
+final class AttributeBindingPlan
+{
+    /** Cached plans, by component class and attribute annotations. */
+    private static final ConcurrentHashMap<Pair<Class<?>, List<Class<? extends Annotation>>>, AttributeBindingPlan> PLANS =
+        new ConcurrentHashMap<Pair<Class<?>, List<Class<? extends Annotation>>>, AttributeBindingPlan>();
+
+    /** Caches the presence of {@link Bindable} on classes. */
+    private static final ClassValue<Boolean> BINDABLE = new ClassValue<Boolean>()
+    {
+        @Override
+        protected Boolean computeValue(Class<?> clazz)
+        {
+            return clazz.getAnnotation(Bindable.class) != null;
+        }
+    };
+
+    /**
+     * Field of an owner object, either an attribute or a field that may hold a nested
+     * {@link Bindable} object.
+     */
+    private final Field [] fields;
+
+    /** Index of the object owning the field of each step, 0 is the component. */
+    private final int [] owners;
+
+    /** Attribute keys of attribute steps, <code>null</code> for nested object steps. */
+    private final String [] keys;
+
+    /**
+     * For attribute steps, whether the value would be collected by
+     * {@link AttributeBinder#get(Object, Map, Class...)}, which returns the value of the
+     * attribute closest to the component for keys occurring more than once.
+     */
+    private final boolean [] collected;
+
+    /**
+     * For nested object steps, the class of the {@link Bindable} object the plan expects,
+     * <code>null</code> if the field is expected not to hold a {@link Bindable} object.
+     */
+    private final Class<?> [] expectedClasses;
+
+    /** For nested object steps, the index the nested object gets, -1 if not visited. */
+    private final int [] targets;
+
+    /** Number of objects the plan visits. */
+    private final int objectCount;
+
+    /** Number of attribute steps. */
+    private final int attributeCount;
+
+    /**
+     * Values of attributes read from a component with a specific plan.
+     */
+    static final class Snapshot
+    {
+        final AttributeBindingPlan plan;
+        final Object [] values;
+
+        Snapshot(AttributeBindingPlan plan, Object [] values)
+        {
+            this.plan = plan;
+            this.values = values;
+        }
+    }
+
+    private AttributeBindingPlan(List<Step> steps, int objectCount)
+    {
+        final int size = steps.size();
+        this.fields = new Field [size];
+        this.owners = new int [size];
+        this.keys = new String [size];
+        this.collected = new boolean [size];
+        this.expectedClasses = new Class<?> [size];
+        this.targets = new int [size];
+        this.objectCount = objectCount;
+
+        int attributes = 0;
+        for (int i = 0; i < size; i++)
+        {
+            final Step step = steps.get(i);
+            fields[i] = step.field;
+            owners[i] = step.owner;
+            keys[i] = step.key;
+            collected[i] = step.collected;
+            expectedClasses[i] = step.expectedClass;
+            targets[i] = step.target;
+            if (step.key != null)
+            {
+                attributes++;
+            }
+        }
+        this.attributeCount = attributes;
+    }
+
+    /**
+     * Reads values of all attributes with the given annotations.
+     */
+    @SafeVarargs
+    static Snapshot get(Object component, Class<? extends Annotation>... annotations)
+    {
+        final List<Class<? extends Annotation>> filter = Lists
+            .newArrayListWithCapacity(annotations.length);
+        for (Class<? extends Annotation> annotation : annotations)
+        {
+            filter.add(annotation);
+        }
+
+        final Pair<Class<?>, List<Class<? extends Annotation>>> key = key(component,
+            filter);
+        AttributeBindingPlan plan = PLANS.get(key);
+        if (plan != null)
+        {
+            final Object [] values = new Object [plan.attributeCount];
+            if (plan.execute(component, values, null, false))
+            {
+                return new Snapshot(plan, values);
+            }
+        }
+
+        plan = build(component, filter);
+        PLANS.put(key, plan);
+        final Object [] values = new Object [plan.attributeCount];
+        plan.execute(component, values, null, false);
+        return new Snapshot(plan, values);
+    }
+
+    /**
+     * Puts values of attributes with the given annotations into the provided map, with
+     * the same result as {@link AttributeBinder#get(Object, Map, Class...)}.
+     */
+    @SafeVarargs
+    static void get(Object component, Map<String, Object> attributes,
+        Class<? extends Annotation>... annotations)
+    {
+        final List<Class<? extends Annotation>> filter = Lists
+            .newArrayListWithCapacity(annotations.length);
+        for (Class<? extends Annotation> annotation : annotations)
+        {
+            filter.add(annotation);
+        }
+
+        final Pair<Class<?>, List<Class<? extends Annotation>>> key = key(component,
+            filter);
+        AttributeBindingPlan plan = PLANS.get(key);
+        final Map<String, Object> values = Maps.newHashMap();
+        if (plan == null || !plan.execute(component, null, values, false))
+        {
+            plan = build(component, filter);
+            PLANS.put(key, plan);
+            values.clear();
+            plan.execute(component, null, values, false);
+        }
+        attributes.putAll(values);
+    }
+
+    /**
+     * Writes back attribute values read by {@link #get(Object, Class...)}. Values are
+     * restored field by field, so that attributes sharing a key get their own values.
+     */
+    @SafeVarargs
+    static void set(Object component, Snapshot snapshot,
+        Class<? extends Annotation>... annotations) throws InstantiationException
+    {
+        if (!snapshot.plan.execute(component, snapshot.values, null, true))
+        {
+            // The structure of the component changed in a way restoring the values did
+            // not revert. Fall back to binding by keys.
+            final Map<String, Object> attributes = Maps.newHashMap();
+            for (int i = 0, a = 0; i < snapshot.plan.keys.length; i++)
+            {
+                if (snapshot.plan.keys[i] != null)
+                {
+                    if (snapshot.plan.collected[i])
+                    {
+                        attributes.put(snapshot.plan.keys[i], snapshot.values[a]);
+                    }
+                    a++;
+                }
+            }
+            final List<Class<? extends Annotation>> filter = Lists
+                .newArrayListWithCapacity(annotations.length);
+            for (Class<? extends Annotation> annotation : annotations)
+            {
+                filter.add(annotation);
+            }
+            AttributeBinder.set(component, attributes, false, new Predicate<Field>()
+            {
+                public boolean apply(Field field)
+                {
+                    return hasAllAnnotations(field, filter);
+                }
+            });
+        }
+    }
+
+    /**
+     * Executes the plan. Returns <code>false</code> if the component's graph of objects
+     * does not match the plan, in which case the execution may have been incomplete.
+     */
+    private boolean execute(Object component, Object [] values,
+        Map<String, Object> attributes, boolean write)
+    {
+        final Object [] objects = new Object [objectCount];
+        objects[0] = component;
+
+        try
+        {
+            for (int i = 0, a = 0; i < fields.length; i++)
+            {
+                final Object owner = objects[owners[i]];
+                if (keys[i] != null)
+                {
+                    if (write)
+                    {
+                        fields[i].set(owner, values[a++]);
+                    }
+                    else if (values != null)
+                    {
+                        values[a++] = fields[i].get(owner);
+                    }
+                    else if (collected[i])
+                    {
+                        attributes.put(keys[i], fields[i].get(owner));
+                    }
+                }
+                else
+                {
+                    final Object value = fields[i].get(owner);
+                    final Class<?> expected = expectedClasses[i];
+                    if (expected == null)
+                    {
+                        if (value != null && BINDABLE.get(value.getClass()))
+                        {
+                            return false;
+                        }
+                    }
+                    else
+                    {
+                        if (value == null || value.getClass() != expected)
+                        {
+                            return false;
+                        }
+                        if (targets[i] >= 0)
+                        {
+                            objects[targets[i]] = value;
+                        }
+                    }
+                }
+            }
+        }
+        catch (IllegalAccessException e)
+        {
+            throw new ProcessingException("Could not access attribute field", e);
+        }
+
+        return true;
+    }
+
+    private static Pair<Class<?>, List<Class<? extends Annotation>>> key(
+        Object component, List<Class<? extends Annotation>> annotations)
+    {
+        return new Pair<Class<?>, List<Class<? extends Annotation>>>(
+            component.getClass(), annotations);
+    }
+
+    /**
+     * A single step of a plan being built.
+     */
+    private static final class Step
+    {
+        int owner;
+        Field field;
+        String key;
+        boolean collected;
+        Class<?> expectedClass;
+        int target = -1;
+    }
+
+    /**
+     * Builds a plan for the current graph of objects of the component.
+     */
+    private static AttributeBindingPlan build(Object component,
+        List<Class<? extends Annotation>> annotations)
+    {
+        final List<Step> steps = Lists.newArrayList();
+        final Set<ReferenceEquality> visited = Sets.newHashSet();
+        final Map<String, Integer> collectedLevels = Maps.newHashMap();
+        visited.add(new ReferenceEquality(component));
+        final int objectCount = build(component, 0, 0, 1, annotations, steps, visited,
+            collectedLevels);
+        return new AttributeBindingPlan(steps, objectCount);
+    }
+
+    /**
+     * Adds steps for the object and, recursively, the nested {@link Bindable} objects.
+     * Returns the number of objects indexed so far.
+     */
+    private static int build(Object object, int index, int level, int objectCount,
+        List<Class<? extends Annotation>> annotations, List<Step> steps,
+        Set<ReferenceEquality> visited, Map<String, Integer> collectedLevels)
+    {
+        for (Field field : getFieldsFromBindableHierarchy(object.getClass()))
+        {
+            final int modifiers = field.getModifiers();
+            if (Modifier.isStatic(modifiers) || !Modifier.isPublic(modifiers))
+            {
+                continue;
+            }
+            field.setAccessible(true);
+
+            if (field.getAnnotation(Attribute.class) != null
+                && hasAllAnnotations(field, annotations))
+            {
+                final Step step = new Step();
+                step.owner = index;
+                step.field = field;
+                step.key = BindableUtils.getKey(field);
+
+                // Same rule as AttributeBinder.BindingTracker
+                final Integer collectedLevel = collectedLevels.get(step.key);
+                step.collected = collectedLevel == null || collectedLevel > level;
+                if (step.collected)
+                {
+                    collectedLevels.put(step.key, level);
+                }
+                steps.add(step);
+            }
+
+            if (!mayHoldBindable(field.getType()))
+            {
+                continue;
+            }
+
+            final Object value;
+            try
+            {
+                value = field.get(object);
+            }
+            catch (IllegalAccessException e)
+            {
+                throw new ProcessingException("Could not access attribute field", e);
+            }
+
+            final Step step = new Step();
+            step.owner = index;
+            step.field = field;
+            steps.add(step);
+            if (value != null && BINDABLE.get(value.getClass()))
+            {
+                step.expectedClass = value.getClass();
+                if (visited.add(new ReferenceEquality(value)))
+                {
+                    step.target = objectCount;
+                    objectCount = build(value, objectCount, level + 1, objectCount + 1,
+                        annotations, steps, visited, collectedLevels);
+                }
+            }
+        }
+
+        return objectCount;
+    }
+
+    private static boolean hasAllAnnotations(Field field,
+        List<Class<? extends Annotation>> annotations)
+    {
+        for (Class<? extends Annotation> annotation : annotations)
+        {
+            if (field.getAnnotation(annotation) == null)
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns <code>true</code> if a field of this type can hold a {@link Bindable}
+     * object.
+     */
+    private static boolean mayHoldBindable(Class<?> type)
+    {
+        if (type.isPrimitive() || type.isArray())
+        {
+            return false;
+        }
+        return !Modifier.isFinal(type.getModifiers()) || BINDABLE.get(type);
+    }
+
+    /**
+     * Returns fields of the class and its superclasses annotated with {@link Bindable},
+     * in the order {@link AttributeBinder} uses.
+     */
+    private static List<Field> getFieldsFromBindableHierarchy(Class<?> clazz)
+    {
+        final List<Field> fields = Lists.newArrayList();
+        for (Class<?> c = clazz; c != null; c = c.getSuperclass())
+        {
+            if (BINDABLE.get(c))
+            {
+                fields.addAll(Arrays.asList(c.getDeclaredFields()));
+            }
+        }
+        return fields;
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Carrot2 project.
+ *
+ * Copyright (C) 2002-2019, Dawid Weiss, Stanisław Osiński.
+ * All rights reserved.
+ *
+ * Refer to the full license file "carrot2.LICENSE"
+ * in the root folder of the repository checkout or at:
+ * http://www.carrot2.org/carrot2.LICENSE
+ */
+
+package org.carrot2.core;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The outcome of processing one item of a batch: either a {@link ProcessingResult} or
+ * the exception processing failed with.
+ *
+ * @see Controller#processBatch(List, Object...)
+ */
+public final class BatchItemResult
+{
+    private final ProcessingResult result;
+    private final RuntimeException exception;
+
+    BatchItemResult(ProcessingResult result, RuntimeException exception)
+    {
+        this.result = result;
+        this.exception = exception;
+    }
+
+    /**
+     * Returns <code>true</code> if the item has been processed successfully.
+     */
+    public boolean isSuccessful()
+    {
+        return exception == null;
+    }
+
+    /**
+     * Returns the result of processing, <code>null</code> if processing failed.
+     */
+    public ProcessingResult getResult()
+    {
+        return result;
+    }
+
+    /**
+     * Returns the exception processing failed with, <code>null</code> if processing
+     * succeeded. This is the same exception {@link Controller#process(Map, Object...)}
+     * would throw, typically a {@link ProcessingException}.
+     */
+    public RuntimeException getException()
+    {
+        return exception;
+    }
+
+    /**
+     * Returns the result of processing or throws the exception processing failed with.
+     */
+    public ProcessingResult get()
+    {
+        if (exception != null)
+        {
+            throw exception;
+        }
+        return result;
+    }
+}
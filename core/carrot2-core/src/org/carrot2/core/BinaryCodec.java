@@ -0,0 +1,594 @@
+/*
+ * Carrot2 project.
+ *
+ * Copyright (C) 2002-2019, Dawid Weiss, Stanisław Osiński.
+ * All rights reserved.
+ *
+ * Refer to the full license file "carrot2.LICENSE"
+ * in the root folder of the repository checkout or at:
+ * http://www.carrot2.org/carrot2.LICENSE
+ */
+
+package org.carrot2.core;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.NotSerializableException;
+import java.io.StreamCorruptedException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.carrot2.util.ReflectionUtils;
+
+/**
+ * A compact binary format for attribute maps holding {@link Document}s, {@link Cluster}s
+ * and the usual attribute values (strings, boxed primitives, enums, classes, lists and
+ * maps of these). Each value is preceded by a one-byte tag; lengths and counts are
+ * written as variable-length integers.
+ * <p>
+ * Documents are written once per {@link Writer}, later occurrences (e.g. in clusters)
+ * are written as references to the first one, so the identity of documents shared by
+ * the document list and clusters is preserved on reading. Values of other types cause a
+ * {@link NotSerializableException}, unless the {@link Writer} is asked to skip them.
+ * </p>
+ * <p>
+ * The {@link Reader} can be used on untrusted input: lengths and counts are limited and
+ * memory is allocated as the data is actually read, not up-front, the nesting depth is
+ * limited and, unless the reader is created for trusted input, only whitelisted enums
+ * are resolved, other enum and class values are read as <code>null</code>s.
+ * </p>
+ */
+final class BinaryCodec
+{
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private static final byte NULL = 0;
+    private static final byte STRING = 1;
+    private static final byte INTEGER = 2;
+    private static final byte LONG = 3;
+    private static final byte DOUBLE = 4;
+    private static final byte FLOAT = 5;
+    private static final byte BOOLEAN = 6;
+    private static final byte SHORT = 7;
+    private static final byte BYTE = 8;
+    private static final byte CHARACTER = 9;
+    private static final byte LIST = 10;
+    private static final byte MAP = 11;
+    private static final byte DOCUMENT = 12;
+    private static final byte DOCUMENT_REFERENCE = 13;
+    private static final byte CLUSTER = 14;
+    private static final byte ENUM = 15;
+    private static final byte CLASS = 16;
+
+    /** The maximum length of a string in bytes and the maximum size of a collection. */
+    static final int MAX_LENGTH = 1 << 26;
+
+    /** The maximum nesting depth of lists, maps, documents and clusters. */
+    static final int MAX_DEPTH = 64;
+
+    /** The initial capacity of collections and buffers, regardless of declared size. */
+    private static final int INITIAL_CAPACITY = 1024;
+
+    /** Enums resolved by readers of untrusted input. */
+    private static final Map<String, Class<? extends Enum<?>>> ALLOWED_ENUMS;
+    static
+    {
+        ALLOWED_ENUMS = new HashMap<String, Class<? extends Enum<?>>>();
+        ALLOWED_ENUMS.put(LanguageCode.class.getName(), LanguageCode.class);
+    }
+
+    private BinaryCodec()
+    {
+    }
+
+    /**
+     * Writes values to a {@link DataOutput}.
+     */
+    static final class Writer
+    {
+        private final DataOutput out;
+
+        /** If <code>true</code>, values of unsupported types are written as nulls. */
+        private final boolean skipUnsupported;
+
+        /** Indices of documents written so far. */
+        private final IdentityHashMap<Document, Integer> documents = new IdentityHashMap<Document, Integer>();
+
+        Writer(DataOutput out)
+        {
+            this(out, false);
+        }
+
+        Writer(DataOutput out, boolean skipUnsupported)
+        {
+            this.out = out;
+            this.skipUnsupported = skipUnsupported;
+        }
+
+        /**
+         * Writes a map with string keys.
+         */
+        void writeAttributes(Map<String, Object> attributes) throws IOException
+        {
+            writeVInt(attributes.size());
+            for (Map.Entry<String, Object> entry : attributes.entrySet())
+            {
+                writeString(entry.getKey());
+                writeValue(entry.getValue());
+            }
+        }
+
+        void writeValue(Object value) throws IOException
+        {
+            if (value == null)
+            {
+                out.writeByte(NULL);
+            }
+            else if (value instanceof String)
+            {
+                out.writeByte(STRING);
+                writeString((String) value);
+            }
+            else if (value instanceof Integer)
+            {
+                out.writeByte(INTEGER);
+                out.writeInt((Integer) value);
+            }
+            else if (value instanceof Long)
+            {
+                out.writeByte(LONG);
+                out.writeLong((Long) value);
+            }
+            else if (value instanceof Double)
+            {
+                out.writeByte(DOUBLE);
+                out.writeDouble((Double) value);
+            }
+            else if (value instanceof Float)
+            {
+                out.writeByte(FLOAT);
+                out.writeFloat((Float) value);
+            }
+            else if (value instanceof Boolean)
+            {
+                out.writeByte(BOOLEAN);
+                out.writeBoolean((Boolean) value);
+            }
+            else if (value instanceof Short)
+            {
+                out.writeByte(SHORT);
+                out.writeShort((Short) value);
+            }
+            else if (value instanceof Byte)
+            {
+                out.writeByte(BYTE);
+                out.writeByte((Byte) value);
+            }
+            else if (value instanceof Character)
+            {
+                out.writeByte(CHARACTER);
+                out.writeChar((Character) value);
+            }
+            else if (value instanceof Document)
+            {
+                writeDocument((Document) value);
+            }
+            else if (value instanceof Cluster)
+            {
+                writeCluster((Cluster) value);
+            }
+            else if (value instanceof List<?>)
+            {
+                final List<?> list = (List<?>) value;
+                out.writeByte(LIST);
+                writeVInt(list.size());
+                for (Object element : list)
+                {
+                    writeValue(element);
+                }
+            }
+            else if (value instanceof Map<?, ?>)
+            {
+                final Map<?, ?> map = (Map<?, ?>) value;
+                out.writeByte(MAP);
+                writeVInt(map.size());
+                for (Map.Entry<?, ?> entry : map.entrySet())
+                {
+                    writeValue(entry.getKey());
+                    writeValue(entry.getValue());
+                }
+            }
+            else if (value instanceof Enum<?>)
+            {
+                out.writeByte(ENUM);
+                writeString(((Enum<?>) value).getDeclaringClass().getName());
+                writeString(((Enum<?>) value).name());
+            }
+            else if (value instanceof Class<?>)
+            {
+                out.writeByte(CLASS);
+                writeString(((Class<?>) value).getName());
+            }
+            else if (skipUnsupported)
+            {
+                out.writeByte(NULL);
+            }
+            else
+            {
+                throw new NotSerializableException(value.getClass().getName());
+            }
+        }
+
+        private void writeDocument(Document document) throws IOException
+        {
+            final Integer index = documents.get(document);
+            if (index != null)
+            {
+                out.writeByte(DOCUMENT_REFERENCE);
+                writeVInt(index);
+                return;
+            }
+            documents.put(document, documents.size());
+
+            out.writeByte(DOCUMENT);
+            writeNullableString(document.id);
+            writeAttributes(document.getFields());
+        }
+
+        private void writeCluster(Cluster cluster) throws IOException
+        {
+            out.writeByte(CLUSTER);
+            out.writeBoolean(cluster.id != null);
+            if (cluster.id != null)
+            {
+                out.writeInt(cluster.id);
+            }
+
+            final List<String> phrases = cluster.getPhrases();
+            writeVInt(phrases.size());
+            for (String phrase : phrases)
+            {
+                writeString(phrase);
+            }
+
+            final List<Document> clusterDocuments = cluster.getDocuments();
+            writeVInt(clusterDocuments.size());
+            for (Document document : clusterDocuments)
+            {
+                writeDocument(document);
+            }
+
+            final List<Cluster> subclusters = cluster.getSubclusters();
+            writeVInt(subclusters.size());
+            for (Cluster subcluster : subclusters)
+            {
+                writeCluster(subcluster);
+            }
+
+            writeAttributes(cluster.getAttributes());
+        }
+
+        private void writeNullableString(String value) throws IOException
+        {
+            out.writeBoolean(value != null);
+            if (value != null)
+            {
+                writeString(value);
+            }
+        }
+
+        private void writeString(String value) throws IOException
+        {
+            final byte [] bytes = value.getBytes(UTF8);
+            writeVInt(bytes.length);
+            out.write(bytes);
+        }
+
+        private void writeVInt(int value) throws IOException
+        {
+            while ((value & ~0x7f) != 0)
+            {
+                out.writeByte((value & 0x7f) | 0x80);
+                value >>>= 7;
+            }
+            out.writeByte(value);
+        }
+    }
+
+    /**
+     * Reads values written by a {@link Writer} from a {@link DataInput}.
+     */
+    static final class Reader
+    {
+        private final DataInput in;
+
+        /**
+         * If <code>true</code>, any enum or class named in the input is loaded, otherwise
+         * only {@link #ALLOWED_ENUMS} are.
+         */
+        private final boolean trusted;
+
+        /** Documents read so far, in the order of their indices. */
+        private final List<Document> documents = new ArrayList<Document>();
+
+        /** Current nesting depth. */
+        private int depth;
+
+        /**
+         * Creates a reader for untrusted input.
+         */
+        Reader(DataInput in)
+        {
+            this(in, false);
+        }
+
+        /**
+         * @param trusted if <code>true</code>, enums and classes named in the input will be
+         *            loaded, otherwise only a few known enums will be and other enum and
+         *            class values will be read as <code>null</code>s.
+         */
+        Reader(DataInput in, boolean trusted)
+        {
+            this.in = in;
+            this.trusted = trusted;
+        }
+
+        Map<String, Object> readAttributes() throws IOException
+        {
+            enter();
+            final int size = readLength();
+            final Map<String, Object> attributes = new HashMap<String, Object>(
+                capacity(size));
+            for (int i = 0; i < size; i++)
+            {
+                attributes.put(readString(), readValue());
+            }
+            depth--;
+            return attributes;
+        }
+
+        Object readValue() throws IOException
+        {
+            final byte tag = in.readByte();
+            switch (tag)
+            {
+                case NULL:
+                    return null;
+                case STRING:
+                    return readString();
+                case INTEGER:
+                    return in.readInt();
+                case LONG:
+                    return in.readLong();
+                case DOUBLE:
+                    return in.readDouble();
+                case FLOAT:
+                    return in.readFloat();
+                case BOOLEAN:
+                    return in.readBoolean();
+                case SHORT:
+                    return in.readShort();
+                case BYTE:
+                    return in.readByte();
+                case CHARACTER:
+                    return in.readChar();
+                case DOCUMENT:
+                case DOCUMENT_REFERENCE:
+                    return readDocument(tag);
+                case CLUSTER:
+                    return readCluster();
+                case LIST:
+                {
+                    enter();
+                    final int size = readLength();
+                    final List<Object> list = new ArrayList<Object>(Math.min(size,
+                        INITIAL_CAPACITY));
+                    for (int i = 0; i < size; i++)
+                    {
+                        list.add(readValue());
+                    }
+                    depth--;
+                    return list;
+                }
+                case MAP:
+                {
+                    enter();
+                    final int size = readLength();
+                    final Map<Object, Object> map = new HashMap<Object, Object>(
+                        capacity(size));
+                    for (int i = 0; i < size; i++)
+                    {
+                        map.put(readValue(), readValue());
+                    }
+                    depth--;
+                    return map;
+                }
+                case ENUM:
+                    return readEnum(readString(), readString());
+                case CLASS:
+                    return readClass(readString());
+                default:
+                    throw new StreamCorruptedException("Unknown value tag: " + tag);
+            }
+        }
+
+        private Document readDocument(byte tag) throws IOException
+        {
+            if (tag == DOCUMENT_REFERENCE)
+            {
+                final int index = readVInt();
+                if (index >= documents.size())
+                {
+                    throw new StreamCorruptedException("Unknown document: " + index);
+                }
+                return documents.get(index);
+            }
+
+            final Document document = new Document();
+            documents.add(document);
+            document.id = in.readBoolean() ? readString() : null;
+            for (Map.Entry<String, Object> field : readAttributes().entrySet())
+            {
+                document.setField(field.getKey(), field.getValue());
+            }
+            return document;
+        }
+
+        private Cluster readCluster() throws IOException
+        {
+            enter();
+            final Cluster cluster = new Cluster();
+            cluster.id = in.readBoolean() ? in.readInt() : null;
+
+            final int phrases = readLength();
+            for (int i = 0; i < phrases; i++)
+            {
+                cluster.addPhrases(readString());
+            }
+
+            final int documentCount = readLength();
+            for (int i = 0; i < documentCount; i++)
+            {
+                final byte tag = in.readByte();
+                if (tag != DOCUMENT && tag != DOCUMENT_REFERENCE)
+                {
+                    throw new StreamCorruptedException("Expected a document: " + tag);
+                }
+                cluster.addDocument(readDocument(tag));
+            }
+
+            final int subclusters = readLength();
+            for (int i = 0; i < subclusters; i++)
+            {
+                if (in.readByte() != CLUSTER)
+                {
+                    throw new StreamCorruptedException("Expected a cluster");
+                }
+                cluster.addSubcluster(readCluster());
+            }
+
+            for (Map.Entry<String, Object> attribute : readAttributes().entrySet())
+            {
+                cluster.setAttribute(attribute.getKey(), attribute.getValue());
+            }
+            depth--;
+            return cluster;
+        }
+
+        private Class<?> readClass(String name) throws IOException
+        {
+            if (!trusted)
+            {
+                return null;
+            }
+
+            try
+            {
+                return ReflectionUtils.classForName(name, false);
+            }
+            catch (ClassNotFoundException e)
+            {
+                throw new StreamCorruptedException("Class not found: " + name);
+            }
+        }
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        private Object readEnum(String className, String name) throws IOException
+        {
+            final Class<?> clazz;
+            if (trusted)
+            {
+                clazz = readClass(className);
+            }
+            else
+            {
+                clazz = ALLOWED_ENUMS.get(className);
+                if (clazz == null)
+                {
+                    return null;
+                }
+            }
+
+            if (!clazz.isEnum())
+            {
+                throw new StreamCorruptedException("Not an enum: " + clazz.getName());
+            }
+            try
+            {
+                return Enum.valueOf((Class) clazz, name);
+            }
+            catch (IllegalArgumentException e)
+            {
+                throw new StreamCorruptedException("Unknown constant: " + name);
+            }
+        }
+
+        private String readString() throws IOException
+        {
+            final int length = readLength();
+
+            // Grow the buffer as the bytes are read, so that a length not backed by
+            // the input fails at its end instead of allocating the declared length.
+            byte [] bytes = new byte [Math.min(length, INITIAL_CAPACITY)];
+            int read = 0;
+            while (true)
+            {
+                in.readFully(bytes, read, bytes.length - read);
+                read = bytes.length;
+                if (read == length)
+                {
+                    return new String(bytes, UTF8);
+                }
+                bytes = Arrays.copyOf(bytes, (int) Math.min(length, 2L * read));
+            }
+        }
+
+        private void enter() throws IOException
+        {
+            if (++depth > MAX_DEPTH)
+            {
+                throw new StreamCorruptedException("Nesting too deep");
+            }
+        }
+
+        private int readLength() throws IOException
+        {
+            final int length = readVInt();
+            if (length > MAX_LENGTH)
+            {
+                throw new StreamCorruptedException("Length too large: " + length);
+            }
+            return length;
+        }
+
+        private int readVInt() throws IOException
+        {
+            int value = 0;
+            for (int shift = 0; shift < 32; shift += 7)
+            {
+                final byte b = in.readByte();
+                value |= (b & 0x7f) << shift;
+                if (b >= 0)
+                {
+                    if (value < 0)
+                    {
+                        throw new StreamCorruptedException("Negative length: " + value);
+                    }
+                    return value;
+                }
+            }
+            throw new StreamCorruptedException("Malformed variable-length integer");
+        }
+
+        private static int capacity(int size)
+        {
+            return Math.max(4, (int) (Math.min(size, INITIAL_CAPACITY) / 0.75f) + 1);
+        }
+    }
+}
@@ -12,18 +12,27 @@
 
 package org.carrot2.core;
 
+import java.io.IOException;
 import java.util.*;
-import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.carrot2.core.Controller.IControllerStatisticsProvider;
 import org.carrot2.core.attribute.Processing;
 import org.carrot2.util.ExceptionUtils;
 import org.carrot2.util.Pair;
 import org.carrot2.util.attribute.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import org.carrot2.shaded.guava.common.cache.*;
 import org.carrot2.shaded.guava.common.collect.*;
+import org.carrot2.shaded.guava.common.util.concurrent.Futures;
+import org.carrot2.shaded.guava.common.util.concurrent.ListenableFuture;
+import org.carrot2.shaded.guava.common.util.concurrent.SettableFuture;
 import org.carrot2.shaded.guava.common.util.concurrent.UncheckedExecutionException;
 
 /**
@@ -35,10 +44,34 @@ import org.carrot2.shaded.guava.common.util.concurrent.UncheckedExecutionExcepti
  * ) and wraps the components the delegate with a functionality that either returns the
  * results from cache or performs the processing if the result are not yet cached.
  * </p>
+ * <p>
+ * The size of the cache, expiry and refreshing of the cached results can be set using a
+ * {@link ResultCacheConfiguration}. Hits, misses, evictions and time spent computing
+ * results are additionally counted for each class of cached components.
+ * </p>
+ * <p>
+ * Concurrent requests for a result that is not cached yet are coalesced: the first
+ * request computes the result, the following ones wait for it (with an optional
+ * timeout) and receive either the same result or the same failure.
+ * </p>
+ * <p>
+ * Components return partial results when interrupted (e.g. by a processing timeout or
+ * cancellation), so results computed by interrupted threads are neither cached nor
+ * passed to the waiting requests, which compute the result themselves instead.
+ * </p>
+ * <p>
+ * Optionally, results are also stored on disk (see
+ * {@link ResultCacheConfiguration#diskDirectory(java.io.File)}), so that they are
+ * available after a restart. Results missing in memory are looked up on disk before
+ * being computed.
+ * </p>
  */
 public class CachingProcessingComponentManager implements IProcessingComponentManager,
     Controller.IControllerStatisticsProvider
 {
+    private final static Logger logger = LoggerFactory
+        .getLogger(CachingProcessingComponentManager.class);
+
     /** The delegate manager that prepares the actual processing components */
     final IProcessingComponentManager delegate;
 
@@ -61,11 +94,43 @@ public class CachingProcessingComponentManager implements IProcessingComponentMa
      * value of the cache is a map of all {@link Output} {@link Processing} attributes
      * produced by the component.
      */
-    private Cache<AttributeMapCacheKey, Map<String,Object>> cache;
+    private LoadingCache<AttributeMapCacheKey, Map<String,Object>> cache;
+
+    /** Futures of results being computed, by cache key. */
+    private final ConcurrentHashMap<AttributeMapCacheKey, SettableFuture<Map<String, Object>>> inFlight =
+        new ConcurrentHashMap<AttributeMapCacheKey, SettableFuture<Map<String, Object>>>();
+
+    /** Whether cached results are refreshed, see {@link #getResult}. */
+    private final boolean refreshing;
+
+    /** Maximum time to wait for a coalesced result, 0 for no limit. */
+    private final long coalescingTimeoutMillis;
+
+    /** The second level cache, <code>null</code> if disabled. */
+    private final DiskResultCache diskCache;
+
+    /** The loader computing results on cache misses and refreshes. */
+    private final ValueProducer valueProducer = new ValueProducer();
+
+    /** The result most recently computed by the current thread, if any. */
+    private final ThreadLocal<Map<String, Object>> computedResult = new ThreadLocal<Map<String, Object>>();
+
+    /** Cache usage counters, by component class. */
+    private final ConcurrentHashMap<Class<?>, CacheCounters> counters = 
+        new ConcurrentHashMap<Class<?>, CacheCounters>();
 
     /** Cache statistics keys. */
     static final String CACHE_MISSES = "cache.misses";
     static final String CACHE_HITS_TOTAL = "cache.hits.total";
+    static final String CACHE_COALESCED = "cache.coalesced";
+    static final String CACHE_EVICTIONS = "cache.evictions";
+    static final String CACHE_ENTRIES = "cache.entries";
+    static final String CACHE_DISK_HITS = "cache.disk.hits";
+    static final String CACHE_DISK_ENTRIES = "cache.disk.entries";
+    static final String CACHE_DISK_BYTES = "cache.disk.bytes";
+
+    /** A list of {@link ComponentCacheStatistics}, one for each cached component class. */
+    static final String CACHE_COMPONENTS = "cache.components";
 
     /**
      * Creates a {@link CachingProcessingComponentManager}.
@@ -81,15 +146,102 @@ public class CachingProcessingComponentManager implements IProcessingComponentMa
     @SafeVarargs
     public CachingProcessingComponentManager(IProcessingComponentManager delegate,
         Class<? extends IProcessingComponent>... cachedComponentClasses)
+    {
+        this(delegate, new ResultCacheConfiguration(), cachedComponentClasses);
+    }
+
+    /**
+     * Creates a {@link CachingProcessingComponentManager} with the provided cache
+     * configuration.
+     * 
+     * @param delegate the manager to handle the preparation of the actual processing
+     *            component instances
+     * @param cacheConfiguration size, expiry and refreshing settings of the cache
+     * @param cachedComponentClasses classes of components whose output should be cached
+     *            by the controller. If a superclass is provided here, e.g.
+     *            {@link IDocumentSource}, all its subclasses will be subject to caching.
+     *            If {@link IProcessingComponent} is provided here, output of all
+     *            components will be cached.
+     */
+    @SafeVarargs
+    public CachingProcessingComponentManager(IProcessingComponentManager delegate,
+        ResultCacheConfiguration cacheConfiguration,
+        Class<? extends IProcessingComponent>... cachedComponentClasses)
     {
         this.delegate = delegate;
         this.cachedComponentClasses = ImmutableSet.copyOf(cachedComponentClasses);
+        this.refreshing = cacheConfiguration.getRefreshAfterWriteSeconds() > 0;
+        this.coalescingTimeoutMillis = cacheConfiguration.getCoalescingTimeoutMillis();
+        this.diskCache = openDiskCache(cacheConfiguration);
 
         // Initialize cache.
-        cache = CacheBuilder.newBuilder()
-            .maximumSize(100)
-            .recordStats()
-            .build();
+        final CacheBuilder<Object, Object> builder = CacheBuilder.newBuilder().recordStats();
+        if (cacheConfiguration.getMaximumBytes() > 0)
+        {
+            builder.maximumWeight(cacheConfiguration.getMaximumBytes()).weigher(
+                new Weigher<AttributeMapCacheKey, Map<String, Object>>()
+                {
+                    public int weigh(AttributeMapCacheKey key, Map<String, Object> value)
+                    {
+                        return (int) Math.min(Integer.MAX_VALUE,
+                            ResultSizeEstimator.estimate(value));
+                    }
+                });
+        }
+        else
+        {
+            builder.maximumSize(cacheConfiguration.getMaximumEntries());
+        }
+        if (cacheConfiguration.getExpireAfterWriteSeconds() > 0)
+        {
+            builder.expireAfterWrite(cacheConfiguration.getExpireAfterWriteSeconds(),
+                TimeUnit.SECONDS);
+        }
+        if (cacheConfiguration.getRefreshAfterWriteSeconds() > 0)
+        {
+            builder.refreshAfterWrite(cacheConfiguration.getRefreshAfterWriteSeconds(),
+                TimeUnit.SECONDS);
+        }
+
+        cache = builder
+            .removalListener(new RemovalListener<AttributeMapCacheKey, Map<String, Object>>()
+            {
+                public void onRemoval(
+                    RemovalNotification<AttributeMapCacheKey, Map<String, Object>> notification)
+                {
+                    if (notification.wasEvicted() && notification.getKey() != null)
+                    {
+                        getCounters(notification.getKey().getComponentClass()).evictions
+                            .incrementAndGet();
+                    }
+                }
+            })
+            .build(valueProducer);
+    }
+
+    /**
+     * Opens the disk cache, if configured. If it cannot be opened, results are cached in
+     * memory only.
+     */
+    private static DiskResultCache openDiskCache(ResultCacheConfiguration configuration)
+    {
+        if (configuration.getDiskDirectory() == null)
+        {
+            return null;
+        }
+
+        try
+        {
+            return new DiskResultCache(configuration.getDiskDirectory(),
+                configuration.getDiskMaximumBytes(), TimeUnit.SECONDS.toMillis(
+                    configuration.getExpireAfterWriteSeconds()));
+        }
+        catch (IOException e)
+        {
+            logger.warn("Could not open the disk cache in "
+                + configuration.getDiskDirectory() + ", caching in memory only", e);
+            return null;
+        }
     }
 
     public void init(IControllerContext context, Map<String, Object> attributes,
@@ -138,6 +290,17 @@ public class CachingProcessingComponentManager implements IProcessingComponentMa
         // they're asked to perform processing.
     }
 
+    /**
+     * Returns <code>true</code> if <code>component</code> is a wrapper created by a
+     * caching manager and its last processing served a result computed earlier, either
+     * from the cache or by another request.
+     */
+    static boolean isCachedResult(IProcessingComponent component)
+    {
+        return component instanceof CachedProcessingComponent
+            && !((CachedProcessingComponent) component).computed;
+    }
+
     public void dispose()
     {
         try
@@ -151,6 +314,10 @@ public class CachingProcessingComponentManager implements IProcessingComponentMa
         finally
         {
             cache = null;
+            if (diskCache != null)
+            {
+                diskCache.close();
+            }
         }
     }
 
@@ -163,12 +330,193 @@ public class CachingProcessingComponentManager implements IProcessingComponentMa
         {
             stats.putAll(((IControllerStatisticsProvider) delegate).getStatistics());
         }
-        stats.put(CACHE_MISSES, cacheStats.missCount());
-        stats.put(CACHE_HITS_TOTAL, cacheStats.hitCount());
+        stats.put(CACHE_EVICTIONS, cacheStats.evictionCount());
+        stats.put(CACHE_ENTRIES, cache.size());
+        if (diskCache != null)
+        {
+            stats.put(CACHE_DISK_HITS, diskCache.getHits());
+            stats.put(CACHE_DISK_ENTRIES, (long) diskCache.size());
+            stats.put(CACHE_DISK_BYTES, diskCache.getSizeInBytes());
+        }
+
+        // Hits and misses are counted by us, the cache is also queried for coalescing
+        long hits = 0, misses = 0, coalesced = 0;
+        final List<ComponentCacheStatistics> componentStats = Lists.newArrayList();
+        for (Map.Entry<Class<?>, CacheCounters> entry : counters.entrySet())
+        {
+            final CacheCounters c = entry.getValue();
+            final ComponentCacheStatistics s = new ComponentCacheStatistics(
+                entry.getKey().getName(), c.hits.get(), c.misses.get(), c.coalesced.get(),
+                c.evictions.get(), TimeUnit.NANOSECONDS.toMillis(c.loadTimeNanos.get()));
+            hits += s.hits;
+            misses += s.misses;
+            coalesced += s.coalesced;
+            componentStats.add(s);
+        }
+        stats.put(CACHE_MISSES, misses);
+        stats.put(CACHE_HITS_TOTAL, hits);
+        stats.put(CACHE_COALESCED, coalesced);
+        stats.put(CACHE_COMPONENTS, componentStats);
         
         return stats;
     }
 
+    /**
+     * Returns the result for the provided key from the cache or computes it. Only one
+     * result for a key is computed at a time, other requests wait for it.
+     * 
+     * @param bypass if <code>true</code>, the result is computed even if it is cached or
+     *            being computed by another request
+     */
+    private Map<String, Object> getResult(AttributeMapCacheKey key, boolean bypass)
+        throws Exception
+    {
+        final CacheCounters counters = getCounters(key.getComponentClass());
+        if (bypass)
+        {
+            final Map<String, Object> result = valueProducer.compute(key);
+            cache.put(key, result);
+            return result;
+        }
+
+        Map<String, Object> result = cache.getIfPresent(key);
+        if (result != null)
+        {
+            counters.hits.incrementAndGet();
+
+            // The entry is cached, so this will not load it, but may refresh it
+            return refreshing ? cache.get(key) : result;
+        }
+
+        final SettableFuture<Map<String, Object>> future = SettableFuture.create();
+        SettableFuture<Map<String, Object>> existing;
+        while ((existing = inFlight.putIfAbsent(key, future)) != null)
+        {
+            counters.coalesced.incrementAndGet();
+            try
+            {
+                return await(existing);
+            }
+            catch (InterruptedProcessingException e)
+            {
+                // The result was abandoned by the computing request, retry.
+                if (Thread.currentThread().isInterrupted())
+                {
+                    throw e;
+                }
+            }
+        }
+
+        try
+        {
+            // The result may have been cached after we checked.
+            result = cache.getIfPresent(key);
+            if (result != null)
+            {
+                counters.hits.incrementAndGet();
+            }
+            else
+            {
+                result = valueProducer.load(key);
+                cache.put(key, result);
+            }
+            future.set(result);
+            return result;
+        }
+        catch (Throwable t)
+        {
+            // Remove first, so that the waiting requests retrying can replace it.
+            inFlight.remove(key, future);
+            future.setException(t);
+            throw t;
+        }
+        finally
+        {
+            inFlight.remove(key, future);
+        }
+    }
+
+    /**
+     * Waits for a result being computed by another request.
+     */
+    private Map<String, Object> await(SettableFuture<Map<String, Object>> future)
+        throws Exception
+    {
+        try
+        {
+            if (coalescingTimeoutMillis > 0)
+            {
+                return future.get(coalescingTimeoutMillis, TimeUnit.MILLISECONDS);
+            }
+            else
+            {
+                return future.get();
+            }
+        }
+        catch (ExecutionException e)
+        {
+            throw ExceptionUtils.wrapAs(Exception.class, e.getCause());
+        }
+        catch (TimeoutException e)
+        {
+            throw new ProcessingException("Timed out after " + coalescingTimeoutMillis
+                + "ms waiting for the result computed by another request");
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new ProcessingException(
+                "Interrupted while waiting for the result computed by another request", e);
+        }
+    }
+
+    /**
+     * Returns usage counters of the cache for the provided component class.
+     */
+    private CacheCounters getCounters(Class<?> componentClass)
+    {
+        CacheCounters c = counters.get(componentClass);
+        if (c == null)
+        {
+            final CacheCounters existing = counters.putIfAbsent(componentClass,
+                c = new CacheCounters());
+            if (existing != null)
+            {
+                c = existing;
+            }
+        }
+        return c;
+    }
+
+    /**
+     * Thrown when the processing thread was interrupted and its result may be partial.
+     */
+    private static final class InterruptedProcessingException extends ProcessingException
+    {
+        private static final long serialVersionUID = 1L;
+
+        InterruptedProcessingException()
+        {
+            super("Processing interrupted.");
+        }
+    }
+
+    /**
+     * Cache usage counters of a single component class.
+     */
+    private static final class CacheCounters
+    {
+        final AtomicLong hits = new AtomicLong();
+        final AtomicLong misses = new AtomicLong();
+
+        /** Requests that waited for a result computed by another request. */
+        final AtomicLong coalesced = new AtomicLong();
+        final AtomicLong evictions = new AtomicLong();
+
+        /** Time spent computing results on misses and refreshes. */
+        final AtomicLong loadTimeNanos = new AtomicLong();
+    }
+
     // Two extra attributes to add to the input map. This way, they will also become
     // part of the cache key, which is what we need.
     private static final String COMPONENT_CLASS_KEY = 
@@ -195,6 +543,9 @@ public class CachingProcessingComponentManager implements IProcessingComponentMa
         /** A map to store the output attributes in. */
         private final Map<String, Object> outputAttributes;
 
+        /** Whether the result was computed rather than served from the cache. */
+        private boolean computed;
+
         CachedProcessingComponent(Class<? extends IProcessingComponent> componentClass,
             String componentId, Map<String, Object> inputAttributes,
             Map<String, Object> outputAttributes)
@@ -230,14 +581,14 @@ public class CachingProcessingComponentManager implements IProcessingComponentMa
                 inputProcessingAttributes, inputAttributes);
 
             // Cache bypass.
-            if (inputAttributes.containsKey(CACHE_BYPASS_ATTR) &&
-                Boolean.valueOf(inputAttributes.get(CACHE_BYPASS_ATTR).toString())) {
-                cache.invalidate(key);
-            }
+            final boolean bypass = inputAttributes.containsKey(CACHE_BYPASS_ATTR) &&
+                Boolean.valueOf(inputAttributes.get(CACHE_BYPASS_ATTR).toString());
 
+            computedResult.remove();
             try
             {
-                final Map<String, Object> processingResult = cache.get(key, new ValueProducer(key));
+                final Map<String, Object> processingResult = getResult(key, bypass);
+                computed = processingResult == computedResult.get();
 
                 // Copy the results @Output @Processing attributes back to the result
                 outputAttributes.putAll(getAttributesForDescriptors(
@@ -251,6 +602,14 @@ public class CachingProcessingComponentManager implements IProcessingComponentMa
             {
                 throw ExceptionUtils.wrapAs(ProcessingException.class, e.getCause());
             }
+            catch (Exception e)
+            {
+                throw ExceptionUtils.wrapAs(ProcessingException.class, e);
+            }
+            finally
+            {
+                computedResult.remove();
+            }
         }
 
         /**
@@ -393,34 +752,64 @@ public class CachingProcessingComponentManager implements IProcessingComponentMa
         {
             return hashCode;
         }
+
+        @SuppressWarnings("unchecked")
+        Class<? extends IProcessingComponent> getComponentClass()
+        {
+            return (Class<? extends IProcessingComponent>) inputProcessingAttributes
+                .get(COMPONENT_CLASS_KEY);
+        }
     }
 
     /**
      * A cached data factory that actually performs the processing. This factory is called
-     * only if the cache does not contain the requested value.
+     * only if the cache does not contain the requested value or the value is to be
+     * refreshed.
      */
     private final class ValueProducer 
-        implements Callable<Map<String,Object>>
+        extends CacheLoader<AttributeMapCacheKey, Map<String,Object>>
     {
-        private final AttributeMapCacheKey key;
+        @Override
+        public Map<String, Object> load(AttributeMapCacheKey key) throws Exception
+        {
+            if (diskCache != null)
+            {
+                final Map<String, Object> result = diskCache.get(key.inputProcessingAttributes);
+                if (result != null)
+                {
+                    return result;
+                }
+            }
+            return compute(key);
+        }
 
-        public ValueProducer(AttributeMapCacheKey key)
+        /**
+         * Computes the result, bypassing the disk cache.
+         */
+        Map<String, Object> compute(AttributeMapCacheKey key) throws Exception
         {
-            this.key = key;
+            getCounters(key.getComponentClass()).misses.incrementAndGet();
+            return produce(key);
         }
 
+        /*
+         * Refreshes are done synchronously, in the thread that requested the value.
+         * Other threads are served the previous value in the meantime.
+         */
         @Override
-        public Map<String, Object> call() throws Exception
+        public ListenableFuture<Map<String, Object>> reload(AttributeMapCacheKey key,
+            Map<String, Object> oldValue) throws Exception
         {
-            final Map<String, Object> inputProcessingAttributes = key.inputProcessingAttributes;
-
-            @SuppressWarnings("unchecked")
-            final Class<? extends IProcessingComponent> componentClass = 
-                (Class<? extends IProcessingComponent>) 
-                    inputProcessingAttributes.get(COMPONENT_CLASS_KEY);
+            return Futures.immediateFuture(produce(key));
+        }
 
+        private Map<String, Object> produce(AttributeMapCacheKey key) throws Exception
+        {
+            final Map<String, Object> inputProcessingAttributes = key.inputProcessingAttributes;
+            final Class<? extends IProcessingComponent> componentClass = key.getComponentClass();
             final String componentId = (String) inputProcessingAttributes.get(COMPONENT_ID_KEY);
 
+            final long start = System.nanoTime();
             IProcessingComponent component = null;
             try
             {
@@ -430,6 +819,17 @@ public class CachingProcessingComponentManager implements IProcessingComponentMa
 
                 ControllerUtils.performProcessing(component, inputProcessingAttributes, attributes);
 
+                // The result may be partial, do not let it be cached or shared.
+                if (Thread.currentThread().isInterrupted())
+                {
+                    throw new InterruptedProcessingException();
+                }
+
+                if (diskCache != null)
+                {
+                    diskCache.put(inputProcessingAttributes, attributes);
+                }
+                computedResult.set(attributes);
                 return attributes;
             }
             finally
@@ -438,6 +838,7 @@ public class CachingProcessingComponentManager implements IProcessingComponentMa
                 {
                     delegate.recycle(component, componentId);
                 }
+                getCounters(componentClass).loadTimeNanos.addAndGet(System.nanoTime() - start);
             }
         }
     }
@@ -38,6 +38,7 @@ import org.simpleframework.xml.core.Persist;
 import com.fasterxml.jackson.annotation.JsonAutoDetect;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
 import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 import org.carrot2.shaded.guava.common.base.Function;
 import org.carrot2.shaded.guava.common.collect.Lists;
@@ -60,6 +61,10 @@ import org.carrot2.shaded.guava.common.collect.Sets;
     setterVisibility   = JsonAutoDetect.Visibility.NONE)
 @JsonSerialize()
 @JsonInclude(JsonInclude.Include.NON_NULL)
+@JsonPropertyOrder(
+{
+    "id", "phrases", "size", "score", "documents", "clusters", "attributes"
+})
 public final class Cluster
 {
     /**
@@ -943,7 +948,7 @@ public final class Cluster
      * For JSON and XML serialization only.
      */
     @JsonProperty("attributes")
-    private Map<String, Object> getOtherAttributes()
+    Map<String, Object> getOtherAttributes()
     {
         final Map<String, Object> otherAttributes = Maps.newHashMap(attributesView);
         return otherAttributes.isEmpty() ? null : otherAttributes;
@@ -0,0 +1,72 @@
+/*
+ * Carrot2 project.
+ *
+ * Copyright (C) 2002-2019, Dawid Weiss, Stanisław Osiński.
+ * All rights reserved.
+ *
+ * Refer to the full license file "carrot2.LICENSE"
+ * in the root folder of the repository checkout or at:
+ * http://www.carrot2.org/carrot2.LICENSE
+ */
+
+package org.carrot2.core;
+
+import org.simpleframework.xml.Attribute;
+import org.simpleframework.xml.Root;
+
+/**
+ * Statistics of the processing results cache for one class of cached components.
+ *
+ * @see ControllerStatistics#cacheComponents
+ */
+@Root(name = "component")
+public final class ComponentCacheStatistics
+{
+    /**
+     * Name of the component class.
+     */
+    @Attribute(name = "class")
+    public final String componentClass;
+
+    /**
+     * Number of requests served from cache.
+     */
+    @Attribute(name = "hits")
+    public final long hits;
+
+    /**
+     * Number of requests that generated cache misses.
+     */
+    @Attribute(name = "misses")
+    public final long misses;
+
+    /**
+     * Number of requests that waited for the result computed by another request with the
+     * same input.
+     */
+    @Attribute(name = "coalesced")
+    public final long coalesced;
+
+    /**
+     * Number of results evicted from the cache because of its size limit or expiry.
+     */
+    @Attribute(name = "evictions")
+    public final long evictions;
+
+    /**
+     * Total time spent computing results on cache misses and refreshes, in milliseconds.
+     */
+    @Attribute(name = "load-time-total")
+    public final long loadTimeTotal;
+
+    ComponentCacheStatistics(String componentClass, long hits, long misses,
+        long coalesced, long evictions, long loadTimeTotal)
+    {
+        this.componentClass = componentClass;
+        this.hits = hits;
+        this.misses = misses;
+        this.coalesced = coalesced;
+        this.evictions = evictions;
+        this.loadTimeTotal = loadTimeTotal;
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ * Carrot2 project.
+ *
+ * Copyright (C) 2002-2019, Dawid Weiss, Stanisław Osiński.
+ * All rights reserved.
+ *
+ * Refer to the full license file "carrot2.LICENSE"
+ * in the root folder of the repository checkout or at:
+ * http://www.carrot2.org/carrot2.LICENSE
+ */
+
+package org.carrot2.core;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayDeque;
+import java.util.List;
+
+import org.carrot2.core.attribute.Init;
+import org.carrot2.core.attribute.Processing;
+
+import org.carrot2.shaded.guava.common.collect.Lists;
+import org.carrot2.shaded.guava.common.collect.Maps;
+
+/**
+ * Copies of a {@link ProcessingComponentBase}, see
+ * {@link ProcessingComponentBase#getCopyPool()}. A copy is a separate instance of the
+ * component's class, initialized in the same {@link IControllerContext} with the
+ * component's initialization-time input attributes. Each time a copy is borrowed, it is
+ * prepared for processing with the component's current processing-time input attributes,
+ * so that it can process an independent part of the input concurrently with the
+ * component. Attribute values of {@link org.carrot2.util.attribute.Bindable} types are
+ * separate for each copy, other values are shared.
+ * <p>
+ * Released copies are kept for reuse until the component is disposed. This class is
+ * thread-safe.
+ * </p>
+ */
+public final class ComponentCopyPool<T extends ProcessingComponentBase>
+{
+    /** The component to copy */
+    private final ProcessingComponentBase component;
+
+    /** Copies ready to be borrowed */
+    private final ArrayDeque<T> idle = new ArrayDeque<T>();
+
+    /** Set when the component has been disposed */
+    private boolean disposed;
+
+    ComponentCopyPool(ProcessingComponentBase component)
+    {
+        this.component = component;
+    }
+
+    /**
+     * Returns a copy prepared for processing. The copy must be returned with
+     * {@link #release(ProcessingComponentBase)}.
+     */
+    public T borrow() throws ProcessingException
+    {
+        T copy;
+        synchronized (this)
+        {
+            copy = idle.pollFirst();
+        }
+        if (copy == null)
+        {
+            copy = create();
+        }
+
+        try
+        {
+            ControllerUtils.beforeProcessing(copy,
+                component.getInputAttributes(Processing.class));
+        }
+        catch (RuntimeException e)
+        {
+            copy.dispose();
+            throw e;
+        }
+        return copy;
+    }
+
+    /**
+     * Returns a copy obtained from {@link #borrow()}.
+     */
+    public void release(T copy)
+    {
+        boolean reusable = false;
+        try
+        {
+            ControllerUtils.afterProcessing(copy, Maps.<String, Object> newHashMap());
+            reusable = true;
+        }
+        finally
+        {
+            synchronized (this)
+            {
+                if (reusable && !disposed)
+                {
+                    idle.addFirst(copy);
+                    copy = null;
+                }
+            }
+            if (copy != null)
+            {
+                copy.dispose();
+            }
+        }
+    }
+
+    /**
+     * Disposes of idle copies, copies released later are disposed at once.
+     */
+    void dispose()
+    {
+        final List<T> copies;
+        synchronized (this)
+        {
+            disposed = true;
+            copies = Lists.newArrayList(idle);
+            idle.clear();
+        }
+
+        for (T copy : copies)
+        {
+            copy.dispose();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private T create()
+    {
+        final T copy;
+        try
+        {
+            copy = (T) component.getClass().getDeclaredConstructor().newInstance();
+        }
+        catch (InstantiationException e)
+        {
+            throw newCopyException(e);
+        }
+        catch (IllegalAccessException e)
+        {
+            throw newCopyException(e);
+        }
+        catch (InvocationTargetException e)
+        {
+            throw newCopyException(e.getCause());
+        }
+        catch (NoSuchMethodException e)
+        {
+            throw newCopyException(e);
+        }
+
+        ControllerUtils.init(copy, component.getInputAttributes(Init.class),
+            Maps.<String, Object> newHashMap(), false, component.getContext());
+        return copy;
+    }
+
+    private ProcessingException newCopyException(Throwable cause)
+    {
+        return new ProcessingException("Could not create a copy of: "
+            + component.getClass().getName(), cause);
+    }
+}
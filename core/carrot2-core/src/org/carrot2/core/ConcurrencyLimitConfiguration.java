@@ -0,0 +1,130 @@
+/*
+ * Carrot2 project.
+ *
+ * Copyright (C) 2002-2019, Dawid Weiss, Stanisław Osiński.
+ * All rights reserved.
+ *
+ * Refer to the full license file "carrot2.LICENSE"
+ * in the root folder of the repository checkout or at:
+ * http://www.carrot2.org/carrot2.LICENSE
+ */
+
+package org.carrot2.core;
+
+import org.simpleframework.xml.Attribute;
+import org.simpleframework.xml.Root;
+
+/**
+ * Limits the number of requests processed concurrently by a {@link Controller}, either
+ * in total or by the requests using a given component. The configuration can be created
+ * in code or deserialized from a <code>&lt;concurrency-limit&gt;</code> XML element,
+ * e.g.:
+ *
+ * <pre>
+ * &lt;concurrency-limit limit="8" queue-depth="32" queue-timeout-millis="2000" /&gt;
+ * &lt;concurrency-limit component-id="lingo" limit="4" /&gt;
+ * </pre>
+ * <p>
+ * Each request takes one unit of the limit, or more if it has a
+ * {@link org.carrot2.core.attribute.AttributeNames#PROCESSING_WEIGHT} (never more than
+ * the whole limit, so that heavy requests still get processed, one at a time). Requests
+ * exceeding the limit wait in a first-in first-out queue. Requests that find the queue
+ * full or wait longer than the queue timeout fail with a
+ * {@link ProcessingRejectedException}.
+ * </p>
+ *
+ * @see Controller#addConcurrencyLimit(ConcurrencyLimitConfiguration)
+ */
+@Root(name = "concurrency-limit")
+public final class ConcurrencyLimitConfiguration
+{
+    /**
+     * Identifier of the limited component, <code>null</code> to limit all requests.
+     */
+    @Attribute(name = "component-id", required = false)
+    private String componentId;
+
+    /** The maximum total weight of concurrently processed requests. */
+    @Attribute(name = "limit")
+    private long limit = 1;
+
+    /** The maximum number of waiting requests, 0 to reject requests immediately. */
+    @Attribute(name = "queue-depth", required = false)
+    private int queueDepth;
+
+    /** The maximum time a request waits in the queue, in milliseconds, 0 for no limit. */
+    @Attribute(name = "queue-timeout-millis", required = false)
+    private long queueTimeoutMillis;
+
+    /**
+     * Creates a configuration limiting all requests to one at a time, with no queue.
+     */
+    public ConcurrencyLimitConfiguration()
+    {
+    }
+
+    /**
+     * Sets the identifier of the limited component, <code>null</code> to limit all
+     * requests.
+     */
+    public ConcurrencyLimitConfiguration componentId(String componentId)
+    {
+        this.componentId = componentId;
+        return this;
+    }
+
+    /**
+     * Sets the maximum total weight of concurrently processed requests.
+     */
+    public ConcurrencyLimitConfiguration limit(long limit)
+    {
+        if (limit <= 0)
+            throw new IllegalArgumentException("Limit must be positive: " + limit);
+        this.limit = limit;
+        return this;
+    }
+
+    /**
+     * Sets the maximum number of requests waiting for processing, 0 to reject requests
+     * exceeding the limit immediately.
+     */
+    public ConcurrencyLimitConfiguration queueDepth(int queueDepth)
+    {
+        if (queueDepth < 0)
+            throw new IllegalArgumentException("Queue depth must not be negative: "
+                + queueDepth);
+        this.queueDepth = queueDepth;
+        return this;
+    }
+
+    /**
+     * Sets the maximum time a request waits for processing, 0 to wait without limit.
+     */
+    public ConcurrencyLimitConfiguration queueTimeoutMillis(long millis)
+    {
+        if (millis < 0)
+            throw new IllegalArgumentException("Timeout must not be negative: " + millis);
+        this.queueTimeoutMillis = millis;
+        return this;
+    }
+
+    public String getComponentId()
+    {
+        return componentId;
+    }
+
+    public long getLimit()
+    {
+        return limit;
+    }
+
+    public int getQueueDepth()
+    {
+        return queueDepth;
+    }
+
+    public long getQueueTimeoutMillis()
+    {
+        return queueTimeoutMillis;
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * Carrot2 project.
+ *
+ * Copyright (C) 2002-2019, Dawid Weiss, Stanisław Osiński.
+ * All rights reserved.
+ *
+ * Refer to the full license file "carrot2.LICENSE"
+ * in the root folder of the repository checkout or at:
+ * http://www.carrot2.org/carrot2.LICENSE
+ */
+
+package org.carrot2.core;
+
+import org.simpleframework.xml.Attribute;
+import org.simpleframework.xml.Root;
+
+/**
+ * Current state and counters of one concurrency limit of a {@link Controller}.
+ *
+ * @see ControllerStatistics#concurrencyLimits
+ * @see ConcurrencyLimitConfiguration
+ */
+@Root(name = "concurrency-limit")
+public final class ConcurrencyLimitStatistics
+{
+    /**
+     * Identifier of the limited component, <code>null</code> for the limit of all
+     * requests.
+     */
+    @Attribute(name = "component-id", required = false)
+    public final String componentId;
+
+    /**
+     * The maximum total weight of concurrently processed requests.
+     */
+    @Attribute(name = "limit")
+    public final long limit;
+
+    /**
+     * Total weight of the requests being processed.
+     */
+    @Attribute(name = "in-use")
+    public final long inUse;
+
+    /**
+     * Number of requests waiting in the queue.
+     */
+    @Attribute(name = "queued")
+    public final int queued;
+
+    /**
+     * The largest number of requests that waited in the queue at the same time.
+     */
+    @Attribute(name = "peak-queued")
+    public final int peakQueued;
+
+    /**
+     * Number of requests admitted for processing.
+     */
+    @Attribute(name = "admitted")
+    public final long admitted;
+
+    /**
+     * Number of requests rejected because the queue was full.
+     */
+    @Attribute(name = "rejected")
+    public final long rejected;
+
+    /**
+     * Number of requests rejected because they waited in the queue for too long.
+     */
+    @Attribute(name = "timed-out")
+    public final long timedOut;
+
+    ConcurrencyLimitStatistics(String componentId, long limit, long inUse, int queued,
+        int peakQueued, long admitted, long rejected, long timedOut)
+    {
+        this.componentId = componentId;
+        this.limit = limit;
+        this.inUse = inUse;
+        this.queued = queued;
+        this.peakQueued = peakQueued;
+        this.admitted = admitted;
+        this.rejected = rejected;
+        this.timedOut = timedOut;
+    }
+}
@@ -0,0 +1,153 @@
+/*
+ * Carrot2 project.
+ *
+ * Copyright (C) 2002-2019, Dawid Weiss, Stanisław Osiński.
+ * All rights reserved.
+ *
+ * Refer to the full license file "carrot2.LICENSE"
+ * in the root folder of the repository checkout or at:
+ * http://www.carrot2.org/carrot2.LICENSE
+ */
+
+package org.carrot2.core;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Enforces a {@link ConcurrencyLimitConfiguration}: admits requests while their total
+ * weight is within the limit and queues the remaining ones in arrival order. Thread-safe.
+ */
+final class ConcurrencyLimiter
+{
+    private final ConcurrencyLimitConfiguration configuration;
+
+    /** Waiting requests, in arrival order. Only the head of the queue may be admitted. */
+    private final ArrayDeque<Object> queue = new ArrayDeque<Object>();
+
+    private long inUse;
+    private int peakQueued;
+    private long admitted;
+    private long rejected;
+    private long timedOut;
+
+    ConcurrencyLimiter(ConcurrencyLimitConfiguration configuration)
+    {
+        this.configuration = configuration;
+    }
+
+    /**
+     * Returns the weight a request of the given weight takes from the limit: at least one
+     * and at most the whole limit.
+     */
+    long getEffectiveWeight(long weight)
+    {
+        return Math.min(Math.max(weight, 1), configuration.getLimit());
+    }
+
+    /**
+     * Waits until a request of the given weight can be processed and takes its weight
+     * from the limit. The weight must be returned with {@link #release(long)}.
+     *
+     * @param weight effective weight of the request, see
+     *            {@link #getEffectiveWeight(long)}
+     * @param interruptible if <code>true</code>, waiting is abandoned when the current
+     *            thread gets interrupted, otherwise the interrupt is deferred until the
+     *            request gets admitted or rejected
+     * @throws ProcessingRejectedException if the queue is full or the request waited for
+     *             too long
+     */
+    synchronized void acquire(long weight, boolean interruptible)
+        throws ProcessingException
+    {
+        if (queue.isEmpty() && inUse + weight <= configuration.getLimit())
+        {
+            inUse += weight;
+            admitted++;
+            return;
+        }
+
+        if (queue.size() >= configuration.getQueueDepth())
+        {
+            rejected++;
+            throw new ProcessingRejectedException("Concurrency limit of "
+                + getName() + " reached, request rejected.");
+        }
+
+        final Object ticket = new Object();
+        queue.addLast(ticket);
+        peakQueued = Math.max(peakQueued, queue.size());
+
+        final long timeout = configuration.getQueueTimeoutMillis();
+        final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+        boolean interrupted = false;
+        try
+        {
+            while (queue.peekFirst() != ticket
+                || inUse + weight > configuration.getLimit())
+            {
+                try
+                {
+                    if (timeout == 0)
+                    {
+                        wait();
+                    }
+                    else
+                    {
+                        final long remaining = deadline - System.nanoTime();
+                        if (remaining <= 0)
+                        {
+                            timedOut++;
+                            throw new ProcessingRejectedException("Concurrency limit of "
+                                + getName() + " reached, request waited longer than "
+                                + timeout + " ms.");
+                        }
+                        TimeUnit.NANOSECONDS.timedWait(this, remaining);
+                    }
+                }
+                catch (InterruptedException e)
+                {
+                    if (interruptible)
+                    {
+                        throw new ProcessingException("Processing interrupted.", e);
+                    }
+                    interrupted = true;
+                }
+            }
+
+            inUse += weight;
+            admitted++;
+        }
+        finally
+        {
+            queue.remove(ticket);
+            notifyAll();
+            if (interrupted)
+            {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Returns the weight of a processed request to the limit.
+     */
+    synchronized void release(long weight)
+    {
+        inUse -= weight;
+        notifyAll();
+    }
+
+    synchronized ConcurrencyLimitStatistics getStatistics()
+    {
+        return new ConcurrencyLimitStatistics(configuration.getComponentId(),
+            configuration.getLimit(), inUse, queue.size(), peakQueued, admitted,
+            rejected, timedOut);
+    }
+
+    private String getName()
+    {
+        return configuration.getComponentId() != null ? "component "
+            + configuration.getComponentId() : "controller";
+    }
+}
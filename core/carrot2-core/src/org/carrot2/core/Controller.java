@@ -13,13 +13,29 @@
 package org.carrot2.core;
 
 import java.io.Closeable;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.commons.lang3.StringUtils;
 import org.carrot2.core.attribute.AttributeNames;
 import org.carrot2.core.attribute.Init;
+import org.carrot2.core.attribute.Processing;
+import org.carrot2.util.LatencyHistogram;
 import org.carrot2.util.ReflectionUtils;
 import org.carrot2.util.RollingWindowAverage;
 import org.carrot2.util.attribute.Input;
@@ -27,7 +43,13 @@ import org.carrot2.util.attribute.Output;
 import org.simpleframework.xml.Attribute;
 
 import org.carrot2.shaded.guava.common.collect.ImmutableMap;
+import org.carrot2.shaded.guava.common.collect.Lists;
 import org.carrot2.shaded.guava.common.collect.Maps;
+import org.carrot2.shaded.guava.common.util.concurrent.Futures;
+import org.carrot2.shaded.guava.common.util.concurrent.ListenableFuture;
+import org.carrot2.shaded.guava.common.util.concurrent.MoreExecutors;
+import org.carrot2.shaded.guava.common.util.concurrent.SettableFuture;
+import org.carrot2.shaded.guava.common.util.concurrent.ThreadFactoryBuilder;
 
 /**
  * A controller implementing the life cycle described in {@link IProcessingComponent}. Use
@@ -48,6 +70,19 @@ import org.carrot2.shaded.guava.common.collect.Maps;
  * (e.g., the {@link Document} instances in case {@link IDocumentSource} output is cached)
  * may be accessed concurrently and therefore must be thread-safe.
  * </p>
+ * <p>
+ * Requests can also be processed asynchronously, see
+ * {@link #processAsync(Map, Object...)}, and limited in time using the
+ * {@link AttributeNames#PROCESSING_TIMEOUT} attribute.
+ * </p>
+ * <p>
+ * To protect the controller from overload, the number of requests processed concurrently
+ * can be limited, see {@link #addConcurrencyLimit(ConcurrencyLimitConfiguration)}.
+ * </p>
+ * <p>
+ * Large numbers of requests with the same pipeline of components can be processed with
+ * {@link #processBatch(List, Object...)}.
+ * </p>
  * 
  * @see ControllerFactory
  */
@@ -84,6 +119,27 @@ public final class Controller implements Closeable
      */
     private ProcessingStatistics statistics = new ProcessingStatistics();
 
+    /**
+     * Runs asynchronous requests and requests with a timeout. Created on first use
+     * unless provided with {@link #setExecutor(ExecutorService)}.
+     */
+    private ExecutorService executor;
+
+    /** <code>true</code> if {@link #executor} was created (and must be shut down) here. */
+    private boolean ownExecutor;
+
+    /** Enforces processing timeouts, created on first use. */
+    private ScheduledThreadPoolExecutor timeoutScheduler;
+
+    /** The maximum number of threads processing a batch. */
+    private volatile int batchParallelism = Runtime.getRuntime().availableProcessors();
+
+    /** Limit of all requests, <code>null</code> if not limited. */
+    private volatile ConcurrencyLimiter concurrencyLimiter;
+
+    /** Limits of requests using specific components, by component id. */
+    private final ConcurrentMap<String, ConcurrencyLimiter> componentConcurrencyLimiters = new ConcurrentHashMap<String, ConcurrencyLimiter>();
+
     /**
      * Creates a simple controller with no processing component pooling and no results
      * caching. A controller with equivalent configuration can be obtained from
@@ -166,6 +222,68 @@ public final class Controller implements Closeable
         return this;
     }
 
+    /**
+     * Sets the executor on which {@link #processAsync(Map, Object...)} and requests with
+     * the {@link AttributeNames#PROCESSING_TIMEOUT} attribute will be processed. The
+     * executor will <strong>not</strong> be shut down by this controller. If no executor
+     * is set, the controller creates a cached pool of daemon threads and shuts it down
+     * in {@link #dispose()}.
+     *
+     * @return this controller for convenience
+     */
+    public synchronized Controller setExecutor(ExecutorService executor)
+    {
+        checkClosed();
+
+        if (this.executor != null)
+        {
+            throw new IllegalStateException("This controller's executor is already set or in use.");
+        }
+
+        this.executor = executor;
+        return this;
+    }
+
+    /**
+     * Sets the maximum number of threads processing a batch of requests in
+     * {@link #processBatch(List, Object...)}. By default, the number of available
+     * processors.
+     * 
+     * @return this controller for convenience
+     */
+    public Controller setBatchParallelism(int parallelism)
+    {
+        if (parallelism <= 0)
+            throw new IllegalArgumentException("Parallelism must be positive: "
+                + parallelism);
+        this.batchParallelism = parallelism;
+        return this;
+    }
+
+    /**
+     * Limits the number of requests processed concurrently by this controller, either in
+     * total or by the requests using the component with the given identifier. A new
+     * limit replaces the previous limit for the same component (or the total limit) for
+     * requests that start processing afterwards. Requests exceeding the limits fail with
+     * a {@link ProcessingRejectedException}.
+     * 
+     * @return this controller for convenience
+     * @see ConcurrencyLimitConfiguration
+     */
+    public Controller addConcurrencyLimit(ConcurrencyLimitConfiguration configuration)
+    {
+        final ConcurrencyLimiter limiter = new ConcurrencyLimiter(configuration);
+        if (configuration.getComponentId() == null)
+        {
+            concurrencyLimiter = limiter;
+        }
+        else
+        {
+            componentConcurrencyLimiters.put(configuration.getComponentId(), limiter);
+        }
+        return this;
+    }
+
     /**
      * Convenience method for performing processing with the provided query and number of
      * results. The typical use cases for this method is fetching the specified number of
@@ -288,6 +406,286 @@ public final class Controller implements Closeable
      */
     public ProcessingResult process(Map<String, Object> attributes,
         Object... processingComponentClassesOrIds) throws ProcessingException
+    {
+        if (getTimeout(attributes) == null)
+        {
+            return process(attributes, false, null, processingComponentClassesOrIds);
+        }
+
+        // Enforce the timeout on the executor's thread, the caller's thread is never
+        // interrupted by the controller.
+        final ListenableFuture<ProcessingResult> future = processAsync(attributes,
+            processingComponentClassesOrIds);
+        try
+        {
+            return future.get();
+        }
+        catch (InterruptedException e)
+        {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new ProcessingException("Interrupted while waiting for processing", e);
+        }
+        catch (ExecutionException e)
+        {
+            final Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException)
+            {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error)
+            {
+                throw (Error) cause;
+            }
+            throw new ProcessingException(cause);
+        }
+    }
+
+    /**
+     * Performs processing asynchronously, using components designated by their
+     * identifiers or classes. Processing takes place on the executor set with
+     * {@link #setExecutor(ExecutorService)} or on this controller's own thread pool.
+     * <p>
+     * If the {@link AttributeNames#PROCESSING_TIMEOUT} attribute is provided, the returned
+     * future fails with a {@link ProcessingException} after the timeout (counted from the
+     * call to this method). A timeout or a call to {@link Future#cancel(boolean)} on the
+     * returned future interrupts processing. Interrupted processing is abandoned before
+     * the next component in the pipeline is run, document sources stop waiting for
+     * pending requests and iterative clustering algorithms stop at the next iteration.
+     * </p>
+     *
+     * @param attributes attributes to be used during processing, see
+     *            {@link #process(Map, Object...)}. The map is copied before this method
+     *            returns.
+     * @param processingComponentClassesOrIds classes or identifiers of components to
+     *            perform processing in the order they should be arranged in the pipeline.
+     * @return a future of the processing result, failing with a
+     *         {@link ProcessingException} or any of the runtime exceptions
+     *         {@link #process(Map, Object...)} may throw.
+     */
+    public ListenableFuture<ProcessingResult> processAsync(Map<String, Object> attributes,
+        final Object... processingComponentClassesOrIds)
+    {
+        checkClosed();
+
+        final Long timeout;
+        try
+        {
+            timeout = getTimeout(attributes);
+        }
+        catch (ProcessingException e)
+        {
+            return Futures.immediateFailedFuture(e);
+        }
+
+        final Map<String, Object> attributesCopy = Maps.newHashMap(attributes);
+        final SettableFuture<ProcessingResult> result = SettableFuture.create();
+        final Future<?> task;
+        try
+        {
+            task = getExecutor().submit(new Runnable()
+            {
+                public void run()
+                {
+                    try
+                    {
+                        result.set(process(attributesCopy, true, null,
+                            processingComponentClassesOrIds));
+                    }
+                    catch (Throwable t)
+                    {
+                        result.setException(t);
+                    }
+                }
+            });
+        }
+        catch (RejectedExecutionException e)
+        {
+            return Futures.immediateFailedFuture(new ProcessingException(
+                "Processing rejected by the executor", e));
+        }
+
+        // Interrupt processing if the caller is no longer interested in the result
+        result.addListener(new Runnable()
+        {
+            public void run()
+            {
+                if (result.isCancelled())
+                {
+                    task.cancel(true);
+                }
+            }
+        }, MoreExecutors.directExecutor());
+
+        if (timeout != null)
+        {
+            final ScheduledFuture<?> deadline = getTimeoutScheduler().schedule(
+                new Runnable()
+                {
+                    public void run()
+                    {
+                        if (result.setException(new ProcessingException(
+                            "Processing timed out after " + timeout + " ms")))
+                        {
+                            task.cancel(true);
+                        }
+                    }
+                }, timeout, TimeUnit.MILLISECONDS);
+
+            result.addListener(new Runnable()
+            {
+                public void run()
+                {
+                    deadline.cancel(false);
+                }
+            }, MoreExecutors.directExecutor());
+        }
+
+        return result;
+    }
+
+    /**
+     * Processes a batch of requests with the same pipeline of components. The result is
+     * the same as calling {@link #process(Map, Object...)} for each request, but the
+     * components are resolved once and each thread processing the batch prepares the
+     * components (e.g. borrows them from the pool) once and reuses them for all requests
+     * it processes. Values of {@link Processing} {@link Input} attributes are reset
+     * between requests. Components are not reused if results are cached, because the
+     * caching wrappers are specific to the input of one request.
+     * <p>
+     * Requests are processed in parallel by up to {@link #setBatchParallelism(int)}
+     * threads: the calling thread and threads of the executor (see
+     * {@link #setExecutor(ExecutorService)}). The
+     * {@link AttributeNames#PROCESSING_TIMEOUT} attribute is ignored.
+     * </p>
+     * 
+     * @param attributesList attributes of the requests, see
+     *            {@link #process(Map, Object...)}
+     * @param processingComponentClassesOrIds classes or identifiers of components to
+     *            perform processing in the order they should be arranged in the pipeline.
+     * @return results of the requests in the order of <code>attributesList</code>, each
+     *         with the processing result or the exception processing of the request
+     *         failed with
+     * @throws ProcessingException if the calling thread gets interrupted, in which case
+     *             processing of the remaining requests is abandoned
+     */
+    public List<BatchItemResult> processBatch(List<Map<String, Object>> attributesList,
+        final Object... processingComponentClassesOrIds) throws ProcessingException
+    {
+        checkClosed();
+
+        synchronized (this)
+        {
+            if (componentIdToConfiguration == null)
+            {
+                init();
+            }
+        }
+
+        final ProcessingComponentConfiguration [] configurations = new ProcessingComponentConfiguration [processingComponentClassesOrIds.length];
+        for (int i = 0; i < configurations.length; i++)
+        {
+            configurations[i] = resolveComponent(processingComponentClassesOrIds[i]);
+        }
+        final boolean reuse = !(componentManager instanceof CachingProcessingComponentManager);
+
+        final List<Map<String, Object>> requests = Lists.newArrayList(attributesList);
+        final BatchItemResult [] results = new BatchItemResult [requests.size()];
+        final AtomicInteger nextRequest = new AtomicInteger();
+        final Runnable worker = new Runnable()
+        {
+            public void run()
+            {
+                final ReusedComponents reused = reuse ? new ReusedComponents(
+                    configurations) : null;
+                try
+                {
+                    int i;
+                    while (!Thread.currentThread().isInterrupted()
+                        && (i = nextRequest.getAndIncrement()) < results.length)
+                    {
+                        try
+                        {
+                            results[i] = new BatchItemResult(process(requests.get(i),
+                                true, reused, processingComponentClassesOrIds), null);
+                        }
+                        catch (RuntimeException e)
+                        {
+                            results[i] = new BatchItemResult(null, e);
+                        }
+                    }
+                }
+                finally
+                {
+                    if (reused != null)
+                    {
+                        reused.recycle();
+                    }
+                }
+            }
+        };
+
+        final int threads = Math.min(batchParallelism, results.length);
+        final List<Future<?>> workers = Lists.newArrayList();
+        try
+        {
+            for (int i = 1; i < threads; i++)
+            {
+                try
+                {
+                    workers.add(getExecutor().submit(worker));
+                }
+                catch (RejectedExecutionException e)
+                {
+                    // Process the remaining requests on the threads we already have
+                    break;
+                }
+            }
+
+            worker.run();
+            for (Future<?> future : workers)
+            {
+                future.get();
+            }
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+        catch (ExecutionException e)
+        {
+            final Throwable cause = e.getCause();
+            if (cause instanceof Error)
+            {
+                throw (Error) cause;
+            }
+            throw new ProcessingException(cause);
+        }
+        finally
+        {
+            for (Future<?> future : workers)
+            {
+                future.cancel(true);
+            }
+        }
+
+        if (Thread.currentThread().isInterrupted())
+        {
+            throw new ProcessingException("Processing interrupted.");
+        }
+        return Arrays.asList(results);
+    }
+
+    /**
+     * Performs processing on the current thread. If <code>interruptible</code>, processing
+     * is abandoned when the current thread gets interrupted.
+     * 
+     * @param reused components to reuse or <code>null</code> to prepare the components
+     *            for this request only
+     */
+    private ProcessingResult process(Map<String, Object> attributes,
+        boolean interruptible, ReusedComponents reused,
+        Object... processingComponentClassesOrIds) throws ProcessingException
     {
         checkClosed();
 
@@ -306,15 +704,26 @@ public final class Controller implements Closeable
         final IProcessingComponent [] components = new IProcessingComponent [processingComponentClassesOrIds.length];
         final ProcessingComponentConfiguration [] configurations = new ProcessingComponentConfiguration [components.length];
 
+        final long processingStart = System.nanoTime();
+        final List<ConcurrencyLimiter> limiters = Lists.newArrayList();
+        final long [] weights = new long [components.length + 1];
         ProcessingResult processingResult = null;
         try
         {
-            // Prepare final maps of all init- and processing-time input attributes
-            final Map<String, Object> inputAttributes = Maps.newHashMap();
             for (int i = 0; i < processingComponentClassesOrIds.length; i++)
             {
-                configurations[i] = resolveComponent(processingComponentClassesOrIds[i]);
+                configurations[i] = reused != null ? reused.configurations[i]
+                    : resolveComponent(processingComponentClassesOrIds[i]);
+            }
+
+            acquireConcurrencyLimits(attributes, configurations, interruptible, limiters,
+                weights);
 
+            // Prepare final maps of all init- and processing-time input attributes,
+            // reused components do not need them.
+            final Map<String, Object> inputAttributes = Maps.newHashMap();
+            for (int i = 0; reused == null && i < processingComponentClassesOrIds.length; i++)
+            {
                 inputAttributes.putAll(initAttributes); // global attributes
                 inputAttributes.putAll(configurations[i].attributes); // component-specific
 
@@ -336,15 +745,21 @@ public final class Controller implements Closeable
             // Perform processing
             for (int i = 0; i < components.length; i++)
             {
+                checkInterrupted(interruptible);
+
                 // Create a component for processing. Depending on the manager, a new
                 // component may be instantiated, a pooled one may be returned or we may
                 // get some wrapper that performs some extra actions.
-                components[i] = componentManager.prepare(
-                    configurations[i].componentClass, 
-                    configurations[i].componentId,
-                    inputAttributes, resultAttributes);
+                components[i] = reused != null ? reused.prepare(i, resultAttributes)
+                    : componentManager.prepare(
+                        configurations[i].componentClass, 
+                        configurations[i].componentId,
+                        inputAttributes, resultAttributes);
 
-                final long componentStart = System.currentTimeMillis();
+                final Object stagesBefore = resultAttributes
+                    .get(AttributeNames.PROCESSING_TIME_STAGES);
+                final long componentStart = System.nanoTime();
+                boolean completed = false;
                 try
                 {
                     // It would be tempting to provide the inputAttributes map
@@ -357,15 +772,27 @@ public final class Controller implements Closeable
                     ControllerUtils.performProcessing(components[i], attributesCopy,
                         resultAttributes);
 
+                    // Stages of a result computed earlier were recorded back then.
+                    final Object stages = resultAttributes
+                        .get(AttributeNames.PROCESSING_TIME_STAGES);
+                    if (stages != stagesBefore && stages instanceof Map<?, ?>
+                        && !CachingProcessingComponentManager.isCachedResult(components[i]))
+                    {
+                        statistics.updateStages(configurations[i], (Map<?, ?>) stages);
+                    }
+
                     // Feed the output of this component as the next one's input.
                     attributesCopy.putAll(resultAttributes);
+                    completed = true;
                 }
                 finally
                 {
-                    final long componentStop = System.currentTimeMillis();
+                    final long componentStop = System.nanoTime();
+                    statistics.updateComponent(configurations[i],
+                        componentStop - componentStart, completed);
 
                     // Log processing time
-                    final long time = componentStop - componentStart;
+                    final long time = (componentStop - componentStart) / 1000000;
 
                     // Count only regular processing components, omit wrappers
                     if (IDocumentSource.class
@@ -384,6 +811,8 @@ public final class Controller implements Closeable
                 }
             }
 
+            checkInterrupted(interruptible);
+
             try {
                 processingResult = new ProcessingResult(resultAttributes);
             } catch (IllegalArgumentException e) {
@@ -393,21 +822,115 @@ public final class Controller implements Closeable
         }
         finally
         {
-            statistics.update(processingResult);
+            statistics.update(processingResult, System.nanoTime() - processingStart);
 
             for (int i = 0; i < components.length; i++)
             {
                 final IProcessingComponent component = components[i];
-                if (component != null)
+                if (component != null && reused != null)
+                {
+                    // Keep the component for the next request of the batch.
+                    reused.reset(i);
+                }
+                else if (component != null)
                 {
                     // Recycle a component. A component manager may want to e.g. return
                     // the component to its internal pool.
                     componentManager.recycle(component, configurations[i].componentId);
                 }
             }
+
+            for (int i = 0; i < limiters.size(); i++)
+            {
+                limiters.get(i).release(weights[i]);
+            }
+        }
+    }
+
+    /**
+     * Waits until the request can be processed within the concurrency limits of this
+     * controller and the components in the pipeline. Limits are acquired in a fixed
+     * order (the total limit first, then component limits by component id), acquired
+     * limiters and weights are added to <code>limiters</code> and <code>weights</code>.
+     */
+    private void acquireConcurrencyLimits(Map<String, Object> attributes,
+        ProcessingComponentConfiguration [] configurations, boolean interruptible,
+        List<ConcurrencyLimiter> limiters, long [] weights) throws ProcessingException
+    {
+        final List<ConcurrencyLimiter> required = Lists.newArrayList();
+        final ConcurrencyLimiter limiter = concurrencyLimiter;
+        if (limiter != null)
+        {
+            required.add(limiter);
+        }
+        if (!componentConcurrencyLimiters.isEmpty())
+        {
+            final TreeSet<String> componentIds = new TreeSet<String>();
+            for (ProcessingComponentConfiguration configuration : configurations)
+            {
+                if (configuration.componentId != null)
+                {
+                    componentIds.add(configuration.componentId);
+                }
+            }
+            for (String componentId : componentIds)
+            {
+                final ConcurrencyLimiter componentLimiter = componentConcurrencyLimiters
+                    .get(componentId);
+                if (componentLimiter != null)
+                {
+                    required.add(componentLimiter);
+                }
+            }
+        }
+        if (required.isEmpty())
+        {
+            return;
+        }
+
+        final long weight = getWeight(attributes);
+        for (ConcurrencyLimiter requiredLimiter : required)
+        {
+            final long effectiveWeight = requiredLimiter.getEffectiveWeight(weight);
+            requiredLimiter.acquire(effectiveWeight, interruptible);
+            weights[limiters.size()] = effectiveWeight;
+            limiters.add(requiredLimiter);
         }
     }
 
+    /**
+     * Returns the weight of the request, at least 1.
+     */
+    private static long getWeight(Map<String, Object> attributes)
+        throws ProcessingException
+    {
+        final Object value = attributes.get(AttributeNames.PROCESSING_WEIGHT);
+        if (value == null)
+        {
+            return 1;
+        }
+
+        final long weight;
+        if (value instanceof Number)
+        {
+            weight = ((Number) value).longValue();
+        }
+        else
+        {
+            try
+            {
+                weight = Long.parseLong(value.toString().trim());
+            }
+            catch (NumberFormatException e)
+            {
+                throw new ProcessingException("Invalid "
+                    + AttributeNames.PROCESSING_WEIGHT + ": " + value);
+            }
+        }
+
+        return Math.max(weight, 1);
+    }
+
     /**
      * Shuts down this controller. For proper shut down, make sure this method is called
      * after all threads left the processing methods. No calls processing will be
@@ -418,6 +941,8 @@ public final class Controller implements Closeable
         if (closed) return;
         try
         {
+            shutdownExecutors();
+
             if (this.context != null)
             {
                 componentManager.dispose();
@@ -447,6 +972,111 @@ public final class Controller implements Closeable
             throw new IllegalStateException("Controller closed.");
     }
 
+    /**
+     * Throws an exception if processing should be abandoned because the current thread
+     * has been interrupted.
+     */
+    private static void checkInterrupted(boolean interruptible) throws ProcessingException
+    {
+        if (interruptible && Thread.currentThread().isInterrupted())
+        {
+            throw new ProcessingException("Processing interrupted.");
+        }
+    }
+
+    /**
+     * Returns the processing timeout in milliseconds or <code>null</code> if processing
+     * should not be limited in time.
+     */
+    private static Long getTimeout(Map<String, Object> attributes)
+        throws ProcessingException
+    {
+        final Object value = attributes.get(AttributeNames.PROCESSING_TIMEOUT);
+        if (value == null)
+        {
+            return null;
+        }
+
+        final long timeout;
+        if (value instanceof Number)
+        {
+            timeout = ((Number) value).longValue();
+        }
+        else
+        {
+            try
+            {
+                timeout = Long.parseLong(value.toString().trim());
+            }
+            catch (NumberFormatException e)
+            {
+                throw new ProcessingException("Invalid "
+                    + AttributeNames.PROCESSING_TIMEOUT + ": " + value);
+            }
+        }
+
+        return timeout > 0 ? timeout : null;
+    }
+
+    private synchronized ExecutorService getExecutor()
+    {
+        checkClosed();
+        if (executor == null)
+        {
+            executor = Executors.newCachedThreadPool(new ThreadFactoryBuilder()
+                .setDaemon(true).setNameFormat("carrot2-controller-%d").build());
+            ownExecutor = true;
+        }
+        return executor;
+    }
+
+    private synchronized ScheduledThreadPoolExecutor getTimeoutScheduler()
+    {
+        checkClosed();
+        if (timeoutScheduler == null)
+        {
+            timeoutScheduler = new ScheduledThreadPoolExecutor(1,
+                new ThreadFactoryBuilder().setDaemon(true)
+                    .setNameFormat("carrot2-controller-timeouts-%d").build());
+            // Most requests complete before their timeout, don't keep their timers
+            timeoutScheduler.setRemoveOnCancelPolicy(true);
+        }
+        return timeoutScheduler;
+    }
+
+    /**
+     * Shuts down the executors created by this controller, interrupting any requests
+     * still being processed.
+     */
+    private synchronized void shutdownExecutors()
+    {
+        if (timeoutScheduler != null)
+        {
+            timeoutScheduler.shutdownNow();
+            awaitTermination(timeoutScheduler);
+            timeoutScheduler = null;
+        }
+
+        if (executor != null && ownExecutor)
+        {
+            executor.shutdownNow();
+            awaitTermination(executor);
+        }
+        executor = null;
+    }
+
+    private static void awaitTermination(ExecutorService executor)
+    {
+        try
+        {
+            executor.awaitTermination(5, TimeUnit.SECONDS);
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
     /**
      * Returns an internal {@link ProcessingComponentConfiguration} based on the component
      * id, class or class name.
@@ -556,14 +1186,36 @@ public final class Controller implements Closeable
         RollingWindowAverage totalTimeAverage = new RollingWindowAverage(
             5 * RollingWindowAverage.MINUTE, 10 * RollingWindowAverage.SECOND);
 
+        /** Number of queries in the window, for throughput */
+        RollingWindowAverage queriesAverage = new RollingWindowAverage(
+            5 * RollingWindowAverage.MINUTE, 10 * RollingWindowAverage.SECOND);
+
+        /** Total processing times and errors, in nanoseconds */
+        final Latency totalLatency = new Latency();
+
+        /** Document source processing times and errors, in nanoseconds */
+        final Latency sourceLatency = new Latency();
+
+        /** Clustering algorithm processing times and errors, in nanoseconds */
+        final Latency algorithmLatency = new Latency();
+
+        /** Processing times and errors of each component, in nanoseconds */
+        final ConcurrentMap<String, Latency> componentLatencies = new ConcurrentHashMap<String, Latency>();
+
+        /** Times of algorithm stages, in nanoseconds */
+        final ConcurrentMap<String, Latency> stageLatencies = new ConcurrentHashMap<String, Latency>();
+
         /**
          * Updates the statistics
          */
-        void update(ProcessingResult processingResult)
+        void update(ProcessingResult processingResult, long time)
         {
+            totalLatency.update(time, processingResult != null);
+
             synchronized (this)
             {
                 totalQueries++;
+                queriesAverage.add(System.currentTimeMillis(), 1);
                 if (processingResult != null)
                 {
                     goodQueries++;
@@ -580,6 +1232,50 @@ public final class Controller implements Closeable
             }
         }
 
+        /**
+         * Records the processing time of one component, does not need synchronization.
+         */
+        void updateComponent(ProcessingComponentConfiguration configuration, long time,
+            boolean completed)
+        {
+            Latency.get(componentLatencies, getName(configuration)).update(time,
+                completed);
+
+            if (IDocumentSource.class.isAssignableFrom(configuration.componentClass))
+            {
+                sourceLatency.update(time, completed);
+            }
+            if (IClusteringAlgorithm.class.isAssignableFrom(configuration.componentClass))
+            {
+                algorithmLatency.update(time, completed);
+            }
+        }
+
+        /**
+         * Records the times of algorithm stages reported by a component, does not need
+         * synchronization.
+         */
+        void updateStages(ProcessingComponentConfiguration configuration,
+            Map<?, ?> stages)
+        {
+            final String component = getName(configuration);
+            for (Map.Entry<?, ?> entry : stages.entrySet())
+            {
+                if (entry.getValue() instanceof Number)
+                {
+                    Latency.get(stageLatencies, component + "/" + entry.getKey())
+                        .update(((Number) entry.getValue()).longValue(), true);
+                }
+            }
+        }
+
+        private String getName(ProcessingComponentConfiguration configuration)
+        {
+            return configuration.componentId != null ? configuration.componentId
+                : configuration.componentClass.getSimpleName();
+        }
+
+        @SuppressWarnings("unchecked")
         ControllerStatistics getStatistics()
         {
             final Map<String, Object> extraStats;
@@ -593,6 +1289,28 @@ public final class Controller implements Closeable
                 extraStats = Collections.emptyMap();
             }
 
+            final List<LatencyStatistics> latencies = Lists.newArrayList(
+                totalLatency.getStatistics("total"),
+                sourceLatency.getStatistics("source"),
+                algorithmLatency.getStatistics("algorithm"));
+
+            List<ConcurrencyLimitStatistics> concurrencyLimits = null;
+            final ConcurrencyLimiter limiter = concurrencyLimiter;
+            if (limiter != null || !componentConcurrencyLimiters.isEmpty())
+            {
+                concurrencyLimits = Lists.newArrayList();
+                if (limiter != null)
+                {
+                    concurrencyLimits.add(limiter.getStatistics());
+                }
+                for (String componentId : new TreeSet<String>(
+                    componentConcurrencyLimiters.keySet()))
+                {
+                    concurrencyLimits.add(componentConcurrencyLimiters.get(componentId)
+                        .getStatistics());
+                }
+            }
+
             // The stats may be still a little off because synchronization does not
             // affect component manager specific stats. Complete accuracy is not
             // worth the extra synchronizations though.
@@ -611,7 +1329,25 @@ public final class Controller implements Closeable
                     totalTimeAverage.getUpdatesInWindow(),
                     totalTimeAverage.getWindowSizeMillis(),
                     (Long) extraStats.get(CachingProcessingComponentManager.CACHE_MISSES),
-                    (Long) extraStats.get(CachingProcessingComponentManager.CACHE_HITS_TOTAL));
+                    (Long) extraStats.get(CachingProcessingComponentManager.CACHE_HITS_TOTAL),
+                    (Long) extraStats.get(CachingProcessingComponentManager.CACHE_COALESCED),
+                    (Long) extraStats.get(CachingProcessingComponentManager.CACHE_EVICTIONS),
+                    (Long) extraStats.get(CachingProcessingComponentManager.CACHE_ENTRIES),
+                    (Long) extraStats.get(CachingProcessingComponentManager.CACHE_DISK_HITS),
+                    (Long) extraStats.get(CachingProcessingComponentManager.CACHE_DISK_ENTRIES),
+                    (Long) extraStats.get(CachingProcessingComponentManager.CACHE_DISK_BYTES),
+                    (List<ComponentCacheStatistics>) extraStats
+                        .get(CachingProcessingComponentManager.CACHE_COMPONENTS),
+                    (Long) extraStats.get(PoolingProcessingComponentManager.POOL_HITS),
+                    (Long) extraStats.get(PoolingProcessingComponentManager.POOL_MISSES),
+                    (Long) extraStats.get(PoolingProcessingComponentManager.POOL_EVICTIONS),
+                    (Long) extraStats.get(PoolingProcessingComponentManager.POOL_IDLE),
+                    queriesAverage.getUpdatesInWindow() * 1000.0
+                        / queriesAverage.getWindowSizeMillis(),
+                    latencies,
+                    Latency.getStatistics(componentLatencies),
+                    Latency.getStatistics(stageLatencies),
+                    concurrencyLimits);
             }
         }
 
@@ -625,4 +1361,157 @@ public final class Controller implements Closeable
             }
         }
     }
+
+    /**
+     * Components prepared once and reused for processing a number of requests on one
+     * thread, see {@link Controller#processBatch(List, Object...)}. Values of
+     * {@link Processing} {@link Input} attributes are restored after each request, the
+     * same way the pooling component manager restores them when components are returned
+     * to the pool.
+     */
+    private final class ReusedComponents
+    {
+        final ProcessingComponentConfiguration [] configurations;
+        private final IProcessingComponent [] components;
+        private final AttributeBindingPlan.Snapshot [] snapshots;
+        private final List<Map<String, Object>> initOutputAttributes;
+
+        ReusedComponents(ProcessingComponentConfiguration [] configurations)
+        {
+            this.configurations = configurations;
+            this.components = new IProcessingComponent [configurations.length];
+            this.snapshots = new AttributeBindingPlan.Snapshot [configurations.length];
+            this.initOutputAttributes = Lists.newArrayList(Collections
+                .<Map<String, Object>> nCopies(configurations.length, null));
+        }
+
+        /**
+         * Returns the component at the given position of the pipeline, preparing it on
+         * first use.
+         */
+        IProcessingComponent prepare(int index, Map<String, Object> outputAttributes)
+        {
+            if (components[index] == null)
+            {
+                final ProcessingComponentConfiguration configuration = configurations[index];
+                final Map<String, Object> inputAttributes = Maps.newHashMap(initAttributes);
+                inputAttributes.putAll(configuration.attributes);
+
+                final Map<String, Object> initOutput = Maps.newHashMap();
+                final IProcessingComponent component = componentManager.prepare(
+                    configuration.componentClass, configuration.componentId,
+                    inputAttributes, initOutput);
+                try
+                {
+                    snapshots[index] = AttributeBindingPlan.get(component, Input.class,
+                        Processing.class);
+                }
+                catch (RuntimeException e)
+                {
+                    componentManager.recycle(component, configuration.componentId);
+                    throw e;
+                }
+                components[index] = component;
+                initOutputAttributes.set(index, initOutput);
+            }
+
+            outputAttributes.putAll(initOutputAttributes.get(index));
+            return components[index];
+        }
+
+        /**
+         * Restores attribute values of the component at the given position after
+         * processing. If that fails, the component is recycled and will be prepared
+         * again.
+         */
+        void reset(int index)
+        {
+            try
+            {
+                AttributeBindingPlan.set(components[index], snapshots[index],
+                    Input.class, Processing.class);
+            }
+            catch (Exception e)
+            {
+                componentManager.recycle(components[index],
+                    configurations[index].componentId);
+                components[index] = null;
+            }
+        }
+
+        /**
+         * Recycles all prepared components.
+         */
+        void recycle()
+        {
+            for (int i = 0; i < components.length; i++)
+            {
+                if (components[i] != null)
+                {
+                    componentManager.recycle(components[i], configurations[i].componentId);
+                    components[i] = null;
+                }
+            }
+        }
+    }
+
+    /**
+     * Times (in nanoseconds) of successful processing and the number of errors of one
+     * measured part of processing. Thread-safe and lock-free.
+     */
+    static final class Latency
+    {
+        final LatencyHistogram times = new LatencyHistogram();
+        final AtomicLong errors = new AtomicLong();
+
+        void update(long time, boolean completed)
+        {
+            if (completed)
+            {
+                times.record(time);
+            }
+            else
+            {
+                errors.incrementAndGet();
+            }
+        }
+
+        LatencyStatistics getStatistics(String name)
+        {
+            return new LatencyStatistics(name, times, errors.get(), 1e6);
+        }
+
+        static Latency get(ConcurrentMap<String, Latency> latencies, String name)
+        {
+            Latency latency = latencies.get(name);
+            if (latency == null)
+            {
+                final Latency existing = latencies.putIfAbsent(name,
+                    latency = new Latency());
+                if (existing != null)
+                {
+                    latency = existing;
+                }
+            }
+            return latency;
+        }
+
+        /**
+         * Returns statistics sorted by name or <code>null</code> if there are none.
+         */
+        static List<LatencyStatistics> getStatistics(ConcurrentMap<String, Latency> latencies)
+        {
+            if (latencies.isEmpty())
+            {
+                return null;
+            }
+
+            final List<LatencyStatistics> statistics = Lists.newArrayList();
+            for (String name : new TreeSet<String>(latencies.keySet()))
+            {
+                statistics.add(latencies.get(name).getStatistics(name));
+            }
+            return statistics;
+        }
+    }
 }
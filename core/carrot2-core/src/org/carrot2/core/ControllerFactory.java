@@ -13,7 +13,9 @@
 package org.carrot2.core;
 
 import org.carrot2.util.annotations.AspectModified;
+import org.carrot2.util.pool.ConcurrentPool;
 import org.carrot2.util.pool.FixedSizePool;
+import org.carrot2.util.pool.IParameterizedPool;
 
 /**
  * Creates {@link Controller}s in a number of common configurations. The most useful
@@ -157,13 +159,37 @@ public final class ControllerFactory
     @SafeVarargs
     public static Controller create(boolean componentPooling,
         Class<? extends IProcessingComponent>... cachedProcessingComponents)
+    {
+        return create(componentPooling, new ResultCacheConfiguration(),
+            cachedProcessingComponents);
+    }
+
+    /**
+     * Creates a controller with the specified pooling and caching settings, with the
+     * size, expiry and refreshing of the results cache set by the provided configuration.
+     * 
+     * @param componentPooling if <code>true</code>, component pooling 
+     *      will be performed (soft pool), otherwise no component pool will be used.
+     * @param cacheConfiguration results cache settings, ignored if no components are to
+     *            be cached
+     * @param cachedProcessingComponents classes of components whose output should be cached
+     *            by the controller. If a superclass is provided here, e.g.
+     *            {@link IDocumentSource}, all its subclasses will be subject to caching.
+     *            If {@link IProcessingComponent} is provided here, output of all
+     *            components will be cached.
+     */
+    @SafeVarargs
+    public static Controller create(boolean componentPooling,
+        ResultCacheConfiguration cacheConfiguration,
+        Class<? extends IProcessingComponent>... cachedProcessingComponents)
     {
         final IProcessingComponentManager baseManager = 
             (componentPooling 
                 ? new PoolingProcessingComponentManager()
                 : new SimpleProcessingComponentManager());
 
-        return new Controller(addCachingManager(baseManager, cachedProcessingComponents));
+        return new Controller(addCachingManager(baseManager, cacheConfiguration,
+            cachedProcessingComponents));
     }
 
     /**
@@ -186,11 +212,33 @@ public final class ControllerFactory
             throw new IllegalArgumentException("Instance pool size must be greater than zero: "
                 + instancePoolSize);
 
+        return create(new FixedSizePool<IProcessingComponent, String>(instancePoolSize),
+            cachedProcessingComponents);
+    }
+
+    /**
+     * Creates a controller pooling processing components in the provided pool, with the
+     * specified caching settings. For example, a {@link ConcurrentPool} with a bound on
+     * the number of idle instances limits memory use without making requests wait for
+     * instances, as {@link FixedSizePool} does.
+     * 
+     * @param componentPool the pool to hold processing component instances
+     * @param cachedProcessingComponents classes of components whose output should be
+     *            cached by the controller. If a superclass is provided here, e.g.
+     *            {@link IDocumentSource}, all its subclasses will be subject to caching.
+     *            If {@link IProcessingComponent} is provided here, output of all
+     *            components will be cached.
+     */
+    @SafeVarargs
+    public static Controller create(
+        IParameterizedPool<IProcessingComponent, String> componentPool,
+        Class<? extends IProcessingComponent>... cachedProcessingComponents)
+    {
         final IProcessingComponentManager baseManager = 
-            new PoolingProcessingComponentManager(
-                new FixedSizePool<IProcessingComponent, String>(instancePoolSize));
+            new PoolingProcessingComponentManager(componentPool);
 
-        return new Controller(addCachingManager(baseManager, cachedProcessingComponents));
+        return new Controller(addCachingManager(baseManager,
+            new ResultCacheConfiguration(), cachedProcessingComponents));
     }
     
     /**
@@ -200,12 +248,13 @@ public final class ControllerFactory
     @SafeVarargs
     private static IProcessingComponentManager addCachingManager(
         IProcessingComponentManager baseManager, 
+        ResultCacheConfiguration cacheConfiguration,
         Class<? extends IProcessingComponent>... cachedProcessingComponents)
     {
         if (cachedProcessingComponents.length == 0)
             return baseManager;
 
-        return new CachingProcessingComponentManager(baseManager,
+        return new CachingProcessingComponentManager(baseManager, cacheConfiguration,
             cachedProcessingComponents);
     }
 }
@@ -13,8 +13,10 @@
 package org.carrot2.core;
 
 import java.io.OutputStream;
+import java.util.List;
 
 import org.simpleframework.xml.Attribute;
+import org.simpleframework.xml.ElementList;
 import org.simpleframework.xml.Root;
 import org.simpleframework.xml.core.Persister;
 
@@ -93,6 +95,29 @@ public final class ControllerStatistics
     @Attribute(name = "total-time-window-size")
     public final long totalTimeWindowSize;
 
+    /**
+     * Number of queries (including queries resulting in an exception) per second,
+     * measured within the {@link #totalTimeWindowSize}.
+     */
+    @Attribute(name = "throughput-in-window")
+    public final double throughputInWindow;
+
+    /**
+     * Distribution of processing times since the controller was created: the
+     * <code>total</code> processing time of queries, the time spent in the document
+     * <code>source</code>s and in the clustering <code>algorithm</code>s.
+     */
+    @ElementList(name = "latencies", entry = "latency", required = false)
+    public final List<LatencyStatistics> latencies;
+
+    /**
+     * Distribution of processing times of each processing component since the
+     * controller was created. Names are component identifiers or, if not available,
+     * component class names. May be null if no processing has been performed yet.
+     */
+    @ElementList(name = "component-latencies", entry = "latency", required = false)
+    public final List<LatencyStatistics> componentLatencies;
+
     /**
      * Number of requests that generated cache misses. May be null if the controller does
      * not perform caching.
@@ -107,12 +132,117 @@ public final class ControllerStatistics
     @Attribute(name = "cache-hits-total", required = false)
     public final Long cacheHitsTotal;
 
+    /**
+     * Number of requests that waited for the result computed by another request with the
+     * same input, instead of computing it again. May be null if the controller does not
+     * perform caching.
+     */
+    @Attribute(name = "cache-coalesced", required = false)
+    public final Long cacheCoalesced;
+
+    /**
+     * Number of results evicted from cache because of its size limit or expiry. May be
+     * null if the controller does not perform caching.
+     */
+    @Attribute(name = "cache-evictions", required = false)
+    public final Long cacheEvictions;
+
+    /**
+     * Number of results in cache. May be null if the controller does not perform
+     * caching.
+     */
+    @Attribute(name = "cache-entries", required = false)
+    public final Long cacheEntries;
+
+    /**
+     * Number of results read from the disk cache. May be null if the controller does not
+     * cache results on disk.
+     */
+    @Attribute(name = "cache-disk-hits", required = false)
+    public final Long cacheDiskHits;
+
+    /**
+     * Number of results in the disk cache. May be null if the controller does not cache
+     * results on disk.
+     */
+    @Attribute(name = "cache-disk-entries", required = false)
+    public final Long cacheDiskEntries;
+
+    /**
+     * Size of the disk cache files, in bytes. May be null if the controller does not
+     * cache results on disk.
+     */
+    @Attribute(name = "cache-disk-bytes", required = false)
+    public final Long cacheDiskBytes;
+
+    /**
+     * Cache statistics for each class of cached components. May be null if the
+     * controller does not perform caching.
+     */
+    @ElementList(name = "cache-components", entry = "component", required = false)
+    public final List<ComponentCacheStatistics> cacheComponents;
+
+    /**
+     * Number of component instances taken from the pool. May be null if the controller
+     * does not pool components or its pool does not provide statistics.
+     */
+    @Attribute(name = "pool-hits", required = false)
+    public final Long poolHits;
+
+    /**
+     * Number of component instances created because none was available in the pool. May
+     * be null if the controller does not pool components or its pool does not provide
+     * statistics.
+     */
+    @Attribute(name = "pool-misses", required = false)
+    public final Long poolMisses;
+
+    /**
+     * Number of idle component instances garbage collected or removed from a full pool.
+     * May be null if the controller does not pool components or its pool does not provide
+     * statistics.
+     */
+    @Attribute(name = "pool-evictions", required = false)
+    public final Long poolEvictions;
+
+    /**
+     * Number of idle component instances in the pool. May be null if the controller does
+     * not pool components or its pool does not provide statistics.
+     */
+    @Attribute(name = "pool-idle", required = false)
+    public final Long poolIdle;
+
+    /**
+     * Distribution of processing times of the individual stages of clustering algorithms,
+     * see {@link org.carrot2.core.attribute.AttributeNames#PROCESSING_TIME_STAGES}. Names
+     * are composed of the component identifier (or class name if the identifier is not
+     * available) and the stage name, e.g. <code>lingo/PhraseExtractor</code>.
+     */
+    @ElementList(name = "algorithm-stages", entry = "latency", required = false)
+    public final List<LatencyStatistics> algorithmStages;
+
+    /**
+     * State of the concurrency limits of the controller: the limit of all requests
+     * (with no component id) first, followed by the limits of specific components. May
+     * be null if the controller does not limit concurrency.
+     */
+    @ElementList(name = "concurrency-limits", entry = "concurrency-limit", required = false)
+    public final List<ConcurrencyLimitStatistics> concurrencyLimits;
+
     ControllerStatistics(long totalQueries, long goodQueries,
         double algorithmTimeAverageInWindow, long algorithmTimeMeasurementsInWindow,
         long algorithmTimeWindowSize, double sourceTimeAverageInWindow,
         long sourceTimeMeasurementsInWindow, long sourceTimeWindowSize,
         double totalTimeAverageInWindow, long totalTimeMeasurementsInWindow,
-        long totalTimeWindowSize, Long cacheMisses, Long cacheHitsTotal)
+        long totalTimeWindowSize, Long cacheMisses, Long cacheHitsTotal,
+        Long cacheCoalesced, Long cacheEvictions, Long cacheEntries,
+        Long cacheDiskHits, Long cacheDiskEntries, Long cacheDiskBytes,
+        List<ComponentCacheStatistics> cacheComponents, Long poolHits,
+        Long poolMisses, Long poolEvictions, Long poolIdle,
+        double throughputInWindow, List<LatencyStatistics> latencies,
+        List<LatencyStatistics> componentLatencies,
+        List<LatencyStatistics> algorithmStages,
+        List<ConcurrencyLimitStatistics> concurrencyLimits)
     {
         this.totalQueries = totalQueries;
         this.goodQueries = goodQueries;
@@ -129,8 +259,27 @@ public final class ControllerStatistics
         this.totalTimeMeasurementsInWindow = totalTimeMeasurementsInWindow;
         this.totalTimeWindowSize = totalTimeWindowSize;
 
+        this.throughputInWindow = throughputInWindow;
+        this.latencies = latencies;
+        this.componentLatencies = componentLatencies;
+
         this.cacheMisses = cacheMisses;
         this.cacheHitsTotal = cacheHitsTotal;
+        this.cacheCoalesced = cacheCoalesced;
+        this.cacheEvictions = cacheEvictions;
+        this.cacheEntries = cacheEntries;
+        this.cacheDiskHits = cacheDiskHits;
+        this.cacheDiskEntries = cacheDiskEntries;
+        this.cacheDiskBytes = cacheDiskBytes;
+        this.cacheComponents = cacheComponents;
+
+        this.poolHits = poolHits;
+        this.poolMisses = poolMisses;
+        this.poolEvictions = poolEvictions;
+        this.poolIdle = poolIdle;
+
+        this.algorithmStages = algorithmStages;
+        this.concurrencyLimits = concurrencyLimits;
     }
 
     /**
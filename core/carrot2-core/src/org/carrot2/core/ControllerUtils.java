@@ -115,23 +115,17 @@ final class ControllerUtils
     public static void afterProcessing(IProcessingComponent processingComponent,
         Map<String, Object> attributes)
     {
-        try
-        {
-            processingComponent.afterProcessing();
+        processingComponent.afterProcessing();
 
-            final Map<String, Object> outputAttributesWithNulls = Maps.newHashMap();
-            // Check if we need to do binding.
-            if (processingComponent.getClass().getAnnotation(Bindable.class) != null)
-            {
-                AttributeBinder.get(processingComponent, outputAttributesWithNulls,
-                    Output.class, Processing.class);
-            }
-            attributes.putAll(Maps.filterValues(outputAttributesWithNulls,
-                Predicates.notNull()));
-        }
-        catch (final InstantiationException e)
+        final Map<String, Object> outputAttributesWithNulls = Maps.newHashMap();
+        // Check if we need to do binding. Output attributes are collected with a cached
+        // binding plan, equivalent to AttributeBinder.get().
+        if (processingComponent.getClass().getAnnotation(Bindable.class) != null)
         {
-            throw new ProcessingException("Attribute binding failed", e);
+            AttributeBindingPlan.get(processingComponent, outputAttributesWithNulls,
+                Output.class, Processing.class);
         }
+        attributes.putAll(Maps.filterValues(outputAttributesWithNulls,
+            Predicates.notNull()));
     }
 }
@@ -0,0 +1,193 @@
+/*
+ * Carrot2 project.
+ *
+ * Copyright (C) 2002-2019, Dawid Weiss, Stanisław Osiński.
+ * All rights reserved.
+ *
+ * Refer to the full license file "carrot2.LICENSE"
+ * in the root folder of the repository checkout or at:
+ * http://www.carrot2.org/carrot2.LICENSE
+ */
+
+package org.carrot2.core;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.NotSerializableException;
+import java.io.OutputStream;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The second level of the {@link CachingProcessingComponentManager}'s cache: processing
+ * results stored in a {@link DiskResultStore}, encoded with {@link BinaryCodec}.
+ * <p>
+ * Results are keyed by the SHA-1 digest of the encoded input attributes, so that they
+ * can be found after a restart (hash codes of classes or enums vary between JVM runs).
+ * Results whose input or output attributes hold values the codec does not support are
+ * not stored.
+ * </p>
+ */
+final class DiskResultCache
+{
+    private final static Logger logger = LoggerFactory.getLogger(DiskResultCache.class);
+
+    /** Version of the format of stored results. */
+    private static final byte FORMAT_VERSION = 1;
+
+    private final DiskResultStore store;
+
+    /** Maximum age of returned results, 0 for no limit. */
+    private final long maximumAgeMillis;
+
+    private final AtomicLong hits = new AtomicLong();
+
+    DiskResultCache(File directory, long maximumBytes, long maximumAgeMillis)
+        throws IOException
+    {
+        this.store = new DiskResultStore(directory, maximumBytes);
+        this.maximumAgeMillis = maximumAgeMillis;
+    }
+
+    /**
+     * Returns the stored result for the input attributes, <code>null</code> if there is
+     * none.
+     */
+    Map<String, Object> get(Map<String, Object> inputAttributes)
+    {
+        final DiskResultStore.Key key = key(inputAttributes);
+        if (key == null)
+        {
+            return null;
+        }
+
+        final byte [] bytes = store.get(key, maximumAgeMillis);
+        if (bytes == null || bytes.length == 0 || bytes[0] != FORMAT_VERSION)
+        {
+            return null;
+        }
+
+        try
+        {
+            final DataInputStream in = new DataInputStream(new ByteArrayInputStream(
+                bytes, 1, bytes.length - 1));
+            final Map<String, Object> result = new BinaryCodec.Reader(in, true)
+                .readAttributes();
+            hits.incrementAndGet();
+            return result;
+        }
+        catch (IOException e)
+        {
+            // E.g. a class that is not available anymore.
+            logger.debug("Could not read a cached result", e);
+            return null;
+        }
+    }
+
+    /**
+     * Stores the result for the input attributes, if their values are supported.
+     */
+    void put(Map<String, Object> inputAttributes, Map<String, Object> result)
+    {
+        final DiskResultStore.Key key = key(inputAttributes);
+        if (key == null)
+        {
+            return;
+        }
+
+        try
+        {
+            final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            final DataOutputStream out = new DataOutputStream(bytes);
+            out.writeByte(FORMAT_VERSION);
+            new BinaryCodec.Writer(out).writeAttributes(result);
+            out.flush();
+            store.put(key, bytes.toByteArray());
+        }
+        catch (NotSerializableException e)
+        {
+            // Not stored.
+        }
+        catch (IOException e)
+        {
+            logger.warn("Could not store a result in the disk cache", e);
+        }
+    }
+
+    long getHits()
+    {
+        return hits.get();
+    }
+
+    int size()
+    {
+        return store.size();
+    }
+
+    long getSizeInBytes()
+    {
+        return store.getSizeInBytes();
+    }
+
+    void close()
+    {
+        store.close();
+    }
+
+    /**
+     * Computes the key of the input attributes, <code>null</code> if they hold values
+     * not supported by the codec.
+     */
+    private static DiskResultStore.Key key(Map<String, Object> inputAttributes)
+    {
+        final MessageDigest digest;
+        try
+        {
+            digest = MessageDigest.getInstance("SHA-1");
+        }
+        catch (NoSuchAlgorithmException e)
+        {
+            throw new RuntimeException("SHA-1 is required to be supported", e);
+        }
+
+        final DataOutputStream out = new DataOutputStream(new DigestOutputStream(
+            new OutputStream()
+            {
+                public void write(int b)
+                {
+                }
+
+                public void write(byte [] b, int off, int len)
+                {
+                }
+            }, digest));
+        try
+        {
+            // Sort the keys, the order of the input map may vary.
+            new BinaryCodec.Writer(out).writeAttributes(
+                new TreeMap<String, Object>(inputAttributes));
+            out.flush();
+        }
+        catch (NotSerializableException e)
+        {
+            return null;
+        }
+        catch (IOException e)
+        {
+            throw new RuntimeException("Unexpected exception", e);
+        }
+
+        return new DiskResultStore.Key(digest.digest());
+    }
+}
@@ -0,0 +1,495 @@
+/*
+ * Carrot2 project.
+ *
+ * Copyright (C) 2002-2019, Dawid Weiss, Stanisław Osiński.
+ * All rights reserved.
+ *
+ * Refer to the full license file "carrot2.LICENSE"
+ * in the root folder of the repository checkout or at:
+ * http://www.carrot2.org/carrot2.LICENSE
+ */
+
+package org.carrot2.core;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+
+import org.carrot2.util.CloseableUtils;
+
+/**
+ * An append-only store of byte arrays keyed by fixed-length digests, kept in
+ * memory-mapped segment files in a local directory. This is the storage of the second
+ * level cache of {@link CachingProcessingComponentManager}.
+ * <p>
+ * Records are appended to the last segment; when it is full, a new segment is started.
+ * The index of records is kept in memory and rebuilt from the segments when the store is
+ * opened, later records of a key replacing the earlier ones. When the segments take more
+ * than the maximum size, the oldest segment is compacted: its recently read records are
+ * copied to the last segment, the others are dropped, and the segment file is deleted.
+ * </p>
+ * <p>
+ * Reads do not block. Writes and compaction are serialized.
+ * </p>
+ */
+final class DiskResultStore
+{
+    /** Length of keys, in bytes. */
+    static final int KEY_LENGTH = 20;
+
+    /** Length of record headers: body length, CRC, key and write time. */
+    private static final int HEADER_LENGTH = 4 + 4 + KEY_LENGTH + 8;
+
+    private static final int MAXIMUM_SEGMENT_SIZE = 64 * 1024 * 1024;
+    private static final int MINIMUM_SEGMENT_SIZE = 64 * 1024;
+
+    private static final Pattern SEGMENT_NAME = Pattern.compile("segment-([0-9]+)\\.dat");
+
+    private final File directory;
+    private final long maximumBytes;
+    private final int segmentSize;
+
+    /** Guards the directory against use by other processes. */
+    private final RandomAccessFile lockFile;
+    private final FileLock lock;
+
+    /** Segments, from the oldest. Modified under the store's monitor. */
+    private final LinkedList<Segment> segments = new LinkedList<Segment>();
+
+    /** Locations of the latest records, by key. */
+    private final ConcurrentHashMap<Key, Location> index = new ConcurrentHashMap<Key, Location>();
+
+    /**
+     * Logical time of reads and writes. Unlike the wall clock, it orders accesses made
+     * within the same millisecond, which compaction relies on.
+     */
+    private final AtomicLong clock = new AtomicLong();
+
+    private boolean closed;
+
+    /**
+     * A memory-mapped segment file.
+     */
+    private static final class Segment
+    {
+        final int id;
+        final File file;
+        final MappedByteBuffer buffer;
+
+        /** Position of the next record, accessed under the store's monitor. */
+        int writePosition;
+
+        Segment(int id, File file, MappedByteBuffer buffer)
+        {
+            this.id = id;
+            this.file = file;
+            this.buffer = buffer;
+        }
+    }
+
+    /**
+     * Location of a record.
+     */
+    private static final class Location
+    {
+        final Segment segment;
+        final int offset;
+        final int length;
+        final long writeTime;
+
+        /** {@link DiskResultStore#clock} time of the last read or write. */
+        volatile long lastRead;
+
+        Location(Segment segment, int offset, int length, long writeTime, long lastRead)
+        {
+            this.segment = segment;
+            this.offset = offset;
+            this.length = length;
+            this.writeTime = writeTime;
+            this.lastRead = lastRead;
+        }
+    }
+
+    /**
+     * A record key with value equality.
+     */
+    static final class Key
+    {
+        final byte [] bytes;
+        private final int hashCode;
+
+        Key(byte [] bytes)
+        {
+            if (bytes.length != KEY_LENGTH)
+                throw new IllegalArgumentException("Key must be " + KEY_LENGTH
+                    + " bytes long: " + bytes.length);
+            this.bytes = bytes;
+            this.hashCode = Arrays.hashCode(bytes);
+        }
+
+        @Override
+        public boolean equals(Object obj)
+        {
+            return obj instanceof Key && Arrays.equals(((Key) obj).bytes, bytes);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return hashCode;
+        }
+    }
+
+    /**
+     * Opens the store in the provided directory, creating the directory if needed.
+     *
+     * @param maximumBytes the maximum size of the segment files
+     * @throws IOException if the directory cannot be used, e.g. because another store
+     *             has it open
+     */
+    DiskResultStore(File directory, long maximumBytes) throws IOException
+    {
+        if (!directory.isDirectory() && !directory.mkdirs())
+        {
+            throw new IOException("Could not create directory: " + directory);
+        }
+
+        this.directory = directory;
+        this.maximumBytes = maximumBytes;
+        this.segmentSize = (int) Math.max(MINIMUM_SEGMENT_SIZE,
+            Math.min(MAXIMUM_SEGMENT_SIZE, maximumBytes / 4));
+
+        this.lockFile = new RandomAccessFile(new File(directory, "store.lock"), "rw");
+        FileLock lock;
+        try
+        {
+            lock = lockFile.getChannel().tryLock();
+        }
+        catch (OverlappingFileLockException e)
+        {
+            // Locked by another store in this JVM.
+            lock = null;
+        }
+        catch (IOException e)
+        {
+            CloseableUtils.close(lockFile);
+            throw e;
+        }
+        if (lock == null)
+        {
+            CloseableUtils.close(lockFile);
+            throw new IOException("Directory used by another store: " + directory);
+        }
+        this.lock = lock;
+
+        try
+        {
+            open();
+        }
+        catch (IOException e)
+        {
+            close();
+            throw e;
+        }
+    }
+
+    /**
+     * Maps the existing segments and rebuilds the index.
+     */
+    private void open() throws IOException
+    {
+        final List<Integer> ids = new ArrayList<Integer>();
+        final String [] names = directory.list();
+        if (names != null)
+        {
+            for (String name : names)
+            {
+                final Matcher matcher = SEGMENT_NAME.matcher(name);
+                if (matcher.matches())
+                {
+                    ids.add(Integer.parseInt(matcher.group(1)));
+                }
+            }
+        }
+        Collections.sort(ids);
+
+        for (int id : ids)
+        {
+            final Segment segment = map(id);
+            segments.add(segment);
+            scan(segment);
+        }
+    }
+
+    /**
+     * Indexes the records in the segment and sets its write position after the last
+     * complete record.
+     */
+    private void scan(Segment segment)
+    {
+        final ByteBuffer buffer = segment.buffer.duplicate();
+        int position = 0;
+        while (position + HEADER_LENGTH <= buffer.capacity())
+        {
+            final int length = buffer.getInt(position);
+            final int bodyOffset = position + 8;
+            if (length < HEADER_LENGTH - 8 || bodyOffset + length > buffer.capacity()
+                || buffer.getInt(position + 4) != crc(buffer, bodyOffset, length))
+            {
+                // The end of the records or an incomplete write.
+                break;
+            }
+
+            final byte [] key = new byte [KEY_LENGTH];
+            buffer.position(bodyOffset);
+            buffer.get(key);
+            final long writeTime = buffer.getLong();
+            index.put(new Key(key), new Location(segment, position, length + 8, writeTime,
+                clock.incrementAndGet()));
+            position = bodyOffset + length;
+        }
+        segment.writePosition = position;
+    }
+
+    /**
+     * Returns the value stored under the key, <code>null</code> if there is no value or
+     * it is older than <code>maximumAgeMillis</code> (unless 0).
+     */
+    byte [] get(Key key, long maximumAgeMillis)
+    {
+        final Location location = index.get(key);
+        if (location == null)
+        {
+            return null;
+        }
+
+        final long now = System.currentTimeMillis();
+        if (maximumAgeMillis > 0 && now - location.writeTime > maximumAgeMillis)
+        {
+            index.remove(key, location);
+            return null;
+        }
+
+        final ByteBuffer buffer = location.segment.buffer.duplicate();
+        buffer.position(location.offset + HEADER_LENGTH);
+        final byte [] value = new byte [location.length - HEADER_LENGTH];
+        buffer.get(value);
+        location.lastRead = clock.incrementAndGet();
+        return value;
+    }
+
+    /**
+     * Stores the value under the key. Values that do not fit in a single segment are not
+     * stored.
+     */
+    synchronized void put(Key key, byte [] value) throws IOException
+    {
+        if (closed || HEADER_LENGTH + value.length > segmentSize)
+        {
+            return;
+        }
+
+        append(key, value, System.currentTimeMillis(), clock.incrementAndGet());
+        if ((long) segments.size() * segmentSize > maximumBytes)
+        {
+            compact();
+        }
+    }
+
+    /**
+     * Returns the number of stored values.
+     */
+    int size()
+    {
+        return index.size();
+    }
+
+    /**
+     * Returns the total size of the segment files.
+     */
+    synchronized long getSizeInBytes()
+    {
+        return (long) segments.size() * segmentSize;
+    }
+
+    /**
+     * Writes the segments to disk and releases the directory.
+     */
+    synchronized void close()
+    {
+        if (closed)
+        {
+            return;
+        }
+        closed = true;
+
+        for (Segment segment : segments)
+        {
+            segment.buffer.force();
+        }
+        segments.clear();
+        index.clear();
+
+        try
+        {
+            if (lock != null)
+            {
+                lock.release();
+            }
+        }
+        catch (IOException e)
+        {
+            // Ignore, the lock will be released when the file is closed.
+        }
+        CloseableUtils.close(lockFile);
+    }
+
+    private void append(Key key, byte [] value, long writeTime, long lastRead)
+        throws IOException
+    {
+        Segment segment = segments.isEmpty() ? null : segments.getLast();
+        if (segment == null || segment.writePosition + HEADER_LENGTH + value.length > segmentSize)
+        {
+            segment = map(segments.isEmpty() ? 0 : segments.getLast().id + 1);
+            segments.add(segment);
+        }
+
+        final int offset = segment.writePosition;
+        final int length = HEADER_LENGTH + value.length;
+        final ByteBuffer buffer = segment.buffer.duplicate();
+        buffer.position(offset + 8);
+        buffer.put(key.bytes);
+        buffer.putLong(writeTime);
+        buffer.put(value);
+        buffer.putInt(offset + 4, crc(buffer, offset + 8, length - 8));
+        buffer.putInt(offset, length - 8);
+        segment.writePosition = offset + length;
+
+        index.put(key, new Location(segment, offset, length, writeTime, lastRead));
+    }
+
+    /**
+     * Removes the oldest segments until the segments fit in the maximum size. Records
+     * from the removed segments that were read more recently than the cold half of all
+     * records are copied to the last segment.
+     */
+    private void compact() throws IOException
+    {
+        final long cutoff = lastReadCutoff();
+        for (int i = segments.size(); i > 0
+            && segments.size() > 1 && (long) segments.size() * segmentSize > maximumBytes; i--)
+        {
+            final Segment oldest = segments.removeFirst();
+            for (Map.Entry<Key, Location> entry : index.entrySet())
+            {
+                final Location location = entry.getValue();
+                if (location.segment != oldest)
+                {
+                    continue;
+                }
+
+                if (location.lastRead >= cutoff)
+                {
+                    final ByteBuffer buffer = oldest.buffer.duplicate();
+                    buffer.position(location.offset + HEADER_LENGTH);
+                    final byte [] value = new byte [location.length - HEADER_LENGTH];
+                    buffer.get(value);
+                    append(entry.getKey(), value, location.writeTime, location.lastRead);
+                }
+                else
+                {
+                    index.remove(entry.getKey(), location);
+                }
+            }
+
+            // Readers may still hold the mapping, which stays valid after deletion on
+            // most platforms. Elsewhere, the file is deleted on exit.
+            if (!oldest.file.delete())
+            {
+                oldest.file.deleteOnExit();
+            }
+        }
+    }
+
+    /**
+     * Returns the last read time such that records read later take at most half of the
+     * maximum size.
+     */
+    private long lastReadCutoff()
+    {
+        final List<Location> locations = new ArrayList<Location>(index.values());
+        Collections.sort(locations, new Comparator<Location>()
+        {
+            public int compare(Location a, Location b)
+            {
+                return a.lastRead > b.lastRead ? -1 : (a.lastRead == b.lastRead ? 0 : 1);
+            }
+        });
+
+        long bytes = 0;
+        for (Location location : locations)
+        {
+            bytes += location.length;
+            if (bytes > maximumBytes / 2)
+            {
+                return location.lastRead + 1;
+            }
+        }
+        return Long.MIN_VALUE;
+    }
+
+    private Segment map(int id) throws IOException
+    {
+        final File file = new File(directory, String.format("segment-%08d.dat", id));
+        final RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try
+        {
+            if (raf.length() != segmentSize)
+            {
+                // A new segment or one created with a different maximum size. Records
+                // are only appended within the current segment size.
+                raf.setLength(Math.max(raf.length(), segmentSize));
+            }
+            final MappedByteBuffer buffer = raf.getChannel().map(
+                FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+            return new Segment(id, file, buffer);
+        }
+        finally
+        {
+            CloseableUtils.close(raf);
+        }
+    }
+
+    private static int crc(ByteBuffer buffer, int offset, int length)
+    {
+        final CRC32 crc = new CRC32();
+        final ByteBuffer slice = buffer.duplicate();
+        slice.position(offset);
+        slice.limit(offset + length);
+        final byte [] chunk = new byte [Math.min(length, 8192)];
+        while (slice.hasRemaining())
+        {
+            final int n = Math.min(chunk.length, slice.remaining());
+            slice.get(chunk, 0, n);
+            crc.update(chunk, 0, n);
+        }
+        return (int) crc.getValue();
+    }
+}
@@ -34,6 +34,7 @@ import org.simpleframework.xml.Root;
 import com.fasterxml.jackson.annotation.JsonAutoDetect;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
 import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 import org.carrot2.shaded.guava.common.base.Function;
 import org.carrot2.shaded.guava.common.collect.Lists;
@@ -55,6 +56,10 @@ import org.carrot2.shaded.guava.common.collect.Sets;
     setterVisibility   = JsonAutoDetect.Visibility.NONE)
 @JsonSerialize()
 @JsonInclude(JsonInclude.Include.NON_NULL)
+@JsonPropertyOrder(
+{
+    "sources", "title", "id", "snippet", "url", "language", "fields"
+})
 public final class Document implements Cloneable
 {
     /** Field name for the title of the document. */
@@ -375,7 +380,7 @@ public final class Document implements Cloneable
 
     @JsonProperty("language")
     @Attribute(required = false, name = "language")
-    private String getLanguageIsoCode()
+    String getLanguageIsoCode()
     {
         final LanguageCode language = getLanguage();
         return language != null ? language.getIsoCode() : null;
@@ -407,7 +412,7 @@ public final class Document implements Cloneable
      * For JSON and XML serialization only.
      */
     @JsonProperty("fields")
-    private Map<String, Object> getOtherFields()
+    Map<String, Object> getOtherFields()
     {
         final Map<String, Object> otherFields;
 
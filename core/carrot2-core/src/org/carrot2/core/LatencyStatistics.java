@@ -0,0 +1,104 @@
+/*
+ * Carrot2 project.
+ *
+ * Copyright (C) 2002-2019, Dawid Weiss, Stanisław Osiński.
+ * All rights reserved.
+ *
+ * Refer to the full license file "carrot2.LICENSE"
+ * in the root folder of the repository checkout or at:
+ * http://www.carrot2.org/carrot2.LICENSE
+ */
+
+package org.carrot2.core;
+
+import org.carrot2.util.LatencyHistogram;
+import org.simpleframework.xml.Attribute;
+import org.simpleframework.xml.Root;
+
+/**
+ * Distribution of processing times of one measured part of processing, e.g. a processing
+ * component or a stage of a clustering algorithm. All times are in milliseconds,
+ * percentiles are accurate to about 3%. Times are recorded for successful processing
+ * only, failures are counted in {@link #errors}.
+ *
+ * @see ControllerStatistics#latencies
+ * @see ControllerStatistics#componentLatencies
+ * @see ControllerStatistics#algorithmStages
+ */
+@Root(name = "latency")
+public final class LatencyStatistics
+{
+    /**
+     * Name of the measured part of processing.
+     */
+    @Attribute(name = "name")
+    public final String name;
+
+    /**
+     * Number of measurements.
+     */
+    @Attribute(name = "count")
+    public final long count;
+
+    /**
+     * Number of failures, not included in {@link #count}.
+     */
+    @Attribute(name = "errors")
+    public final long errors;
+
+    /**
+     * Average time.
+     */
+    @Attribute(name = "mean")
+    public final double mean;
+
+    /**
+     * Median time.
+     */
+    @Attribute(name = "p50")
+    public final double p50;
+
+    /**
+     * 90th percentile of times.
+     */
+    @Attribute(name = "p90")
+    public final double p90;
+
+    /**
+     * 99th percentile of times.
+     */
+    @Attribute(name = "p99")
+    public final double p99;
+
+    /**
+     * 99.9th percentile of times.
+     */
+    @Attribute(name = "p999")
+    public final double p999;
+
+    /**
+     * Maximum time.
+     */
+    @Attribute(name = "max")
+    public final double max;
+
+    /**
+     * @param histogram histogram of the measurements
+     * @param errors number of failures
+     * @param unitsPerMillisecond number of units of values recorded in the histogram per
+     *            millisecond, e.g. 1000000 for nanoseconds
+     */
+    LatencyStatistics(String name, LatencyHistogram histogram, long errors,
+        double unitsPerMillisecond)
+    {
+        this.name = name;
+        this.count = histogram.getCount();
+        this.errors = errors;
+        this.mean = histogram.getMean() / unitsPerMillisecond;
+        this.p50 = histogram.getValueAtPercentile(50) / unitsPerMillisecond;
+        this.p90 = histogram.getValueAtPercentile(90) / unitsPerMillisecond;
+        this.p99 = histogram.getValueAtPercentile(99) / unitsPerMillisecond;
+        this.p999 = histogram.getValueAtPercentile(99.9) / unitsPerMillisecond;
+        this.max = histogram.getMax() / unitsPerMillisecond;
+    }
+}
@@ -23,6 +23,7 @@ import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 
+import org.carrot2.core.Controller.IControllerStatisticsProvider;
 import org.carrot2.core.attribute.Init;
 import org.carrot2.core.attribute.Processing;
 import org.carrot2.util.ExceptionUtils;
@@ -36,12 +37,12 @@ import org.carrot2.util.attribute.AttributeBindingException;
 import org.carrot2.util.attribute.BindableUtils;
 import org.carrot2.util.attribute.Input;
 import org.carrot2.util.attribute.Output;
+import org.carrot2.util.pool.ConcurrentPool;
 import org.carrot2.util.pool.IActivationListener;
 import org.carrot2.util.pool.IDisposalListener;
 import org.carrot2.util.pool.IInstantiationListener;
 import org.carrot2.util.pool.IParameterizedPool;
 import org.carrot2.util.pool.IPassivationListener;
-import org.carrot2.util.pool.SoftUnboundedPool;
 import org.carrot2.util.resource.IResource;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -53,8 +54,15 @@ import org.carrot2.shaded.guava.common.collect.Maps;
 /**
  * An {@link IProcessingComponentManager} that pools instances of processing components.
  */
-public class PoolingProcessingComponentManager implements IProcessingComponentManager
+public class PoolingProcessingComponentManager implements IProcessingComponentManager,
+    IControllerStatisticsProvider
 {
+    /** Pool statistics keys. */
+    static final String POOL_HITS = "pool.hits";
+    static final String POOL_MISSES = "pool.misses";
+    static final String POOL_EVICTIONS = "pool.evictions";
+    static final String POOL_IDLE = "pool.idle";
+
     /** Controller context */
     private IControllerContext context;
 
@@ -78,11 +86,11 @@ public class PoolingProcessingComponentManager implements IProcessingComponentMa
 
     /**
      * Creates a new {@link PoolingProcessingComponentManager} using the default pool
-     * implementation {@link SoftUnboundedPool}).
+     * implementation (an unbounded {@link ConcurrentPool} holding soft references).
      */
     public PoolingProcessingComponentManager()
     {
-        this(new SoftUnboundedPool<IProcessingComponent, String>());
+        this(new ConcurrentPool<IProcessingComponent, String>());
     }
 
     /**
@@ -163,6 +171,20 @@ public class PoolingProcessingComponentManager implements IProcessingComponentMa
         componentPool.dispose();
     }
 
+    public Map<String, Object> getStatistics()
+    {
+        final Map<String, Object> stats = Maps.newHashMap();
+        if (componentPool instanceof ConcurrentPool)
+        {
+            final ConcurrentPool<?, ?> pool = (ConcurrentPool<?, ?>) componentPool;
+            stats.put(POOL_HITS, pool.getHits());
+            stats.put(POOL_MISSES, pool.getMisses());
+            stats.put(POOL_EVICTIONS, pool.getEvictions());
+            stats.put(POOL_IDLE, (long) pool.getIdleCount());
+        }
+        return stats;
+    }
+
     /**
      * Initializes newly created component instances, remembers attribute values so that
      * they can be reset after the component gets returned to the pool.
@@ -363,19 +385,16 @@ public class PoolingProcessingComponentManager implements IProcessingComponentMa
         /**
          * Stores values of {@link Processing} attributes for the duration of processing.
          */
-        private ConcurrentHashMap<ReferenceEquality, Map<String, Object>> resetValues = new ConcurrentHashMap<ReferenceEquality, Map<String, Object>>();
+        private ConcurrentHashMap<ReferenceEquality, AttributeBindingPlan.Snapshot> resetValues = new ConcurrentHashMap<ReferenceEquality, AttributeBindingPlan.Snapshot>();
 
         public void activate(IProcessingComponent processingComponent, String parameter)
         {
             // Remember values of @Input @Processing attributes
-            final Map<String, Object> originalValues = Maps.newHashMap();
             try
             {
-                AttributeBinder.get(processingComponent, originalValues, Input.class,
-                    Processing.class);
-
                 resetValues.put(new ReferenceEquality(processingComponent),
-                    originalValues);
+                    AttributeBindingPlan.get(processingComponent, Input.class,
+                        Processing.class));
             }
             catch (Exception e)
             {
@@ -385,16 +404,15 @@ public class PoolingProcessingComponentManager implements IProcessingComponentMa
 
         public void passivate(IProcessingComponent processingComponent, String parameter)
         {
-            // Reset values of @Input @Processing attributes back to original values
+            // Reset values of @Input @Processing attributes back to original values.
+            // Required attributes are not checked, we need to be able to reset
+            // @Required input attributes to null.
             try
             {
-                // Here's a little hack: we need to disable checking
-                // for required attributes, otherwise, we won't be able
-                // to reset @Required input attributes to null
-                final Map<String, Object> originalAttributes = resetValues
+                final AttributeBindingPlan.Snapshot originalValues = resetValues
                     .get(new ReferenceEquality(processingComponent));
-                if (originalAttributes != null) {
-                    AttributeBinder.set(processingComponent, originalAttributes, false,
+                if (originalValues != null) {
+                    AttributeBindingPlan.set(processingComponent, originalValues,
                         Input.class, Processing.class);
                 }
             }
@@ -12,9 +12,16 @@
 
 package org.carrot2.core;
 
+import java.lang.annotation.Annotation;
+import java.util.Map;
 import java.util.concurrent.ExecutorService;
 
 import org.carrot2.util.ExecutorServiceUtils;
+import org.carrot2.util.attribute.AttributeBinder;
+import org.carrot2.util.attribute.Bindable;
+import org.carrot2.util.attribute.Input;
+
+import org.carrot2.shaded.guava.common.collect.Maps;
 
 /**
  * A base class for implementation of the {@link IProcessingComponent} interface that
@@ -24,6 +31,9 @@ public abstract class ProcessingComponentBase implements IProcessingComponent
 {
     private IControllerContext context;
 
+    /** Copies of this component, see {@link #getCopyPool()} */
+    private ComponentCopyPool<?> copyPool;
+
     /*
      * 
      */
@@ -87,10 +97,65 @@ public abstract class ProcessingComponentBase implements IProcessingComponent
         }
     }
 
+    /**
+     * Returns the pool of copies of this component, created on first use. Copies can
+     * process independent parts of the input concurrently with this instance, see
+     * {@link ComponentCopyPool} for details. Copies are kept between requests and
+     * disposed together with this instance, so subclasses overriding {@link #dispose()}
+     * must call the super implementation.
+     */
+    @SuppressWarnings("unchecked")
+    protected final synchronized <T extends ProcessingComponentBase> ComponentCopyPool<T> getCopyPool()
+    {
+        if (copyPool == null)
+        {
+            copyPool = new ComponentCopyPool<T>(this);
+        }
+        return (ComponentCopyPool<T>) copyPool;
+    }
+
+    /**
+     * Collects the current values of input attributes of the given life cycle phase,
+     * replacing instances of {@link Bindable} types with their classes.
+     */
+    Map<String, Object> getInputAttributes(Class<? extends Annotation> phase)
+    {
+        final Map<String, Object> attributes = Maps.newHashMap();
+        try
+        {
+            AttributeBinder.get(this, attributes, Input.class, phase);
+        }
+        catch (InstantiationException e)
+        {
+            throw new ProcessingException("Attribute collection failed", e);
+        }
+
+        for (Map.Entry<String, Object> entry : attributes.entrySet())
+        {
+            final Object value = entry.getValue();
+            if (value != null && value.getClass().getAnnotation(Bindable.class) != null)
+            {
+                entry.setValue(value.getClass());
+            }
+        }
+        return attributes;
+    }
+
     /*
      * 
      */
     public void dispose()
     {
+        final ComponentCopyPool<?> copyPool;
+        synchronized (this)
+        {
+            copyPool = this.copyPool;
+            this.copyPool = null;
+        }
+
+        if (copyPool != null)
+        {
+            copyPool.dispose();
+        }
     }
 }
@@ -0,0 +1,28 @@
+/*
+ * Carrot2 project.
+ *
+ * Copyright (C) 2002-2019, Dawid Weiss, Stanisław Osiński.
+ * All rights reserved.
+ *
+ * Refer to the full license file "carrot2.LICENSE"
+ * in the root folder of the repository checkout or at:
+ * http://www.carrot2.org/carrot2.LICENSE
+ */
+
+package org.carrot2.core;
+
+/**
+ * Thrown when a request is not processed because a concurrency limit of the
+ * {@link Controller} has been reached and the request could not be queued or waited in
+ * the queue for too long.
+ *
+ * @see ConcurrencyLimitConfiguration
+ */
+@SuppressWarnings("serial")
+public class ProcessingRejectedException extends ProcessingException
+{
+    public ProcessingRejectedException(String message)
+    {
+        super(message);
+    }
+}
@@ -23,9 +23,6 @@ import org.carrot2.util.simplexml.SimpleXmlWrappers;
 import org.simpleframework.xml.*;
 import org.simpleframework.xml.core.*;
 
-import com.fasterxml.jackson.core.JsonGenerator;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.SerializationFeature;
 import org.carrot2.shaded.guava.common.collect.*;
 
 /**
@@ -36,6 +33,15 @@ import org.carrot2.shaded.guava.common.collect.*;
 @Root(name = "searchresult", strict = false)
 public final class ProcessingResult
 {
+    /** Bytes starting the binary format, see {@link #serializeBinary(OutputStream)}. */
+    private static final byte [] BINARY_MAGIC = new byte []
+    {
+        'C', '2', 'R', 'B'
+    };
+
+    /** Version of the binary format. */
+    private static final byte BINARY_VERSION = 1;
+
     /** Attributes collected after processing */
     private Map<String, Object> attributes = Maps.newHashMap();
 
@@ -372,6 +378,107 @@ public final class ProcessingResult
         return new Persister().read(ProcessingResult.class, input);
     }
 
+    /**
+     * Serializes this {@link ProcessingResult} to a compact binary stream. The output
+     * includes all documents, clusters and other attributes. The binary format is much
+     * faster to write and read than XML, but it is not meant to be human-readable or
+     * processed by other tools; use {@link #deserializeBinary(InputStream)} to read it.
+     * <p>
+     * This method is not thread-safe, external synchronization must be applied if needed.
+     * </p>
+     * 
+     * @param stream the stream to serialize this {@link ProcessingResult} to. The stream
+     *            will <strong>not</strong> be closed.
+     * @throws IOException in case of any problems with serialization
+     */
+    public void serializeBinary(OutputStream stream) throws IOException
+    {
+        serializeBinary(stream, true, true, true);
+    }
+
+    /**
+     * Serializes this {@link ProcessingResult} to a compact binary stream. Documents,
+     * clusters and other attributes can be included or skipped in the output as
+     * requested.
+     * <p>
+     * The stream starts with a format identifier and version, followed by the
+     * attributes. Strings, lists and maps are prefixed with their lengths, so the result
+     * is written and read in one pass, without buffering the whole output. Values of
+     * other attributes that the binary format does not support are written as
+     * <code>null</code>s, much like in the XML format, where they are skipped.
+     * </p>
+     * <p>
+     * This method is not thread-safe, external synchronization must be applied if needed.
+     * </p>
+     * 
+     * @param stream the stream to serialize this {@link ProcessingResult} to. The stream
+     *            will <strong>not</strong> be closed.
+     * @param saveDocuments if <code>false</code>, documents will not be serialized.
+     * @param saveClusters if <code>false</code>, clusters will not be serialized
+     * @param saveOtherAttributes if <code>false</code>, other attributes will not be
+     *            serialized
+     * @throws IOException in case of any problems with serialization
+     */
+    public void serializeBinary(OutputStream stream, boolean saveDocuments,
+        boolean saveClusters, boolean saveOtherAttributes) throws IOException
+    {
+        final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+            stream));
+        out.write(BINARY_MAGIC);
+        out.writeByte(BINARY_VERSION);
+        new BinaryCodec.Writer(out, true).writeAttributes(prepareAttributesForSerialization(
+            saveDocuments, saveClusters, saveOtherAttributes));
+        out.flush();
+    }
+
+    /**
+     * Deserializes a {@link ProcessingResult} from a binary stream written by
+     * {@link #serializeBinary(OutputStream, boolean, boolean, boolean)}. Only the bytes
+     * of one result are consumed, so several results can be read from the same stream.
+     * For best performance, the stream should be buffered.
+     * <p>
+     * The stream may come from an untrusted source: lengths and nesting are limited and
+     * no classes named in the stream are loaded. Values of enums other than
+     * {@link LanguageCode} and values of classes are read as <code>null</code>s.
+     * </p>
+     * 
+     * @param input the input stream to deserialize a {@link ProcessingResult} from. The
+     *            stream will <strong>not</strong> be closed.
+     * @return deserialized {@link ProcessingResult}
+     * @throws IOException is case of any problems with deserialization, e.g. if the
+     *             stream is not in the binary format or its version is not supported
+     */
+    public static ProcessingResult deserializeBinary(InputStream input) throws IOException
+    {
+        final DataInputStream in = new DataInputStream(input);
+        final byte [] magic = new byte [BINARY_MAGIC.length];
+        in.readFully(magic);
+        if (!Arrays.equals(BINARY_MAGIC, magic))
+        {
+            throw new StreamCorruptedException("Not a binary processing result");
+        }
+        final byte version = in.readByte();
+        if (version != BINARY_VERSION)
+        {
+            throw new StreamCorruptedException("Unsupported binary format version: "
+                + version);
+        }
+
+        final Map<String, Object> attributes = new BinaryCodec.Reader(in)
+            .readAttributes();
+        final String query = (String) attributes.get(AttributeNames.QUERY);
+        attributes.put(AttributeNames.QUERY, query != null ? query.trim() : null);
+        if (!attributes.containsKey(AttributeNames.DOCUMENTS))
+        {
+            attributes.put(AttributeNames.DOCUMENTS, null);
+        }
+        if (!attributes.containsKey(AttributeNames.CLUSTERS))
+        {
+            attributes.put(AttributeNames.CLUSTERS, null);
+        }
+        return new ProcessingResult(attributes);
+    }
+
     /**
      * Serializes this processing result as JSON to the provided <code>writer</code>. The
      * output includes all documents, clusters and other attributes.
@@ -469,10 +576,6 @@ public final class ProcessingResult
         boolean saveDocuments, boolean saveClusters, boolean saveOtherAttributes)
         throws IOException
     {
-        final ObjectMapper mapper = new ObjectMapper();
-        mapper.getFactory().disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
-        mapper.enable(SerializationFeature.INDENT_OUTPUT);
-
         if (StringUtils.isNotBlank(callback))
         {
             writer.write(callback + "(");
@@ -480,7 +583,7 @@ public final class ProcessingResult
         final Map<String, Object> attrs = prepareAttributesForSerialization(
             saveDocuments, saveClusters, saveOtherAttributes);
 
-        mapper.writeValue(writer, attrs);
+        ProcessingResultJsonWriter.write(writer, attrs);
         if (StringUtils.isNotBlank(callback))
         {
             writer.write(");");
@@ -0,0 +1,174 @@
+/*
+ * Carrot2 project.
+ *
+ * Copyright (C) 2002-2019, Dawid Weiss, Stanisław Osiński.
+ * All rights reserved.
+ *
+ * Refer to the full license file "carrot2.LICENSE"
+ * in the root folder of the repository checkout or at:
+ * http://www.carrot2.org/carrot2.LICENSE
+ */
+
+package org.carrot2.core;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+import java.util.Map;
+
+import org.carrot2.core.attribute.AttributeNames;
+
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+/**
+ * Writes {@link ProcessingResult} attributes as JSON in a single streaming pass.
+ * {@link Document}s and {@link Cluster}s are written directly with a
+ * {@link JsonGenerator}, producing the same output as Jackson's data binding would based
+ * on their annotations. The order of properties is fixed there with
+ * {@link JsonPropertyOrder}, keep it in sync with this class. Other values are
+ * delegated to a shared, pre-configured {@link ObjectMapper}, so that its serializers
+ * are introspected only once.
+ */
+final class ProcessingResultJsonWriter
+{
+    /**
+     * Shared mapper, thread-safe once configured. The output is always indented, as it
+     * has always been.
+     */
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    static
+    {
+        MAPPER.getFactory().disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        MAPPER.enable(SerializationFeature.INDENT_OUTPUT);
+    }
+
+    private ProcessingResultJsonWriter()
+    {
+    }
+
+    /**
+     * Writes the attributes map as a JSON object. The writer will <strong>not</strong>
+     * be closed.
+     */
+    @SuppressWarnings("unchecked")
+    static void write(Writer writer, Map<String, Object> attributes) throws IOException
+    {
+        final JsonGenerator generator = MAPPER.getFactory().createGenerator(writer);
+        generator.useDefaultPrettyPrinter();
+
+        generator.writeStartObject();
+        for (Map.Entry<String, Object> entry : attributes.entrySet())
+        {
+            final String key = entry.getKey();
+            final Object value = entry.getValue();
+            generator.writeFieldName(key);
+            if (value != null && AttributeNames.DOCUMENTS.equals(key))
+            {
+                writeDocuments(generator, (List<Document>) value);
+            }
+            else if (value != null && AttributeNames.CLUSTERS.equals(key))
+            {
+                writeClusters(generator, (List<Cluster>) value);
+            }
+            else
+            {
+                generator.writeObject(value);
+            }
+        }
+        generator.writeEndObject();
+        generator.close();
+    }
+
+    private static void writeDocuments(JsonGenerator generator, List<Document> documents)
+        throws IOException
+    {
+        generator.writeStartArray();
+        for (Document document : documents)
+        {
+            writeDocument(generator, document);
+        }
+        generator.writeEndArray();
+    }
+
+    private static void writeDocument(JsonGenerator generator, Document document)
+        throws IOException
+    {
+        generator.writeStartObject();
+        // The same order as in Document's @JsonPropertyOrder
+        writeNonNull(generator, "sources", document.getSources());
+        writeNonNull(generator, "title", document.getTitle());
+        writeNonNull(generator, "id", document.getStringId());
+        writeNonNull(generator, "snippet", document.getSummary());
+        writeNonNull(generator, "url", document.getContentUrl());
+        writeNonNull(generator, "language", document.getLanguageIsoCode());
+        writeNonNull(generator, "fields", document.getOtherFields());
+        generator.writeEndObject();
+    }
+
+    private static void writeClusters(JsonGenerator generator, List<Cluster> clusters)
+        throws IOException
+    {
+        generator.writeStartArray();
+        for (Cluster cluster : clusters)
+        {
+            writeCluster(generator, cluster);
+        }
+        generator.writeEndArray();
+    }
+
+    private static void writeCluster(JsonGenerator generator, Cluster cluster)
+        throws IOException
+    {
+        generator.writeStartObject();
+        final Integer id = cluster.getId();
+        if (id != null)
+        {
+            generator.writeNumberField("id", id);
+        }
+
+        generator.writeArrayFieldStart("phrases");
+        for (String phrase : cluster.getPhrases())
+        {
+            generator.writeString(phrase);
+        }
+        generator.writeEndArray();
+
+        generator.writeNumberField("size", cluster.size());
+
+        final Double score = cluster.getScore();
+        if (score != null)
+        {
+            generator.writeNumberField("score", score);
+        }
+
+        generator.writeArrayFieldStart("documents");
+        for (Document document : cluster.getDocuments())
+        {
+            generator.writeString(document.getStringId());
+        }
+        generator.writeEndArray();
+
+        final List<Cluster> subclusters = cluster.getSubclusters();
+        if (!subclusters.isEmpty())
+        {
+            generator.writeFieldName("clusters");
+            writeClusters(generator, subclusters);
+        }
+
+        writeNonNull(generator, "attributes", cluster.getOtherAttributes());
+        generator.writeEndObject();
+    }
+
+    private static void writeNonNull(JsonGenerator generator, String field, Object value)
+        throws IOException
+    {
+        if (value != null)
+        {
+            generator.writeFieldName(field);
+            generator.writeObject(value);
+        }
+    }
+}
@@ -0,0 +1,232 @@
+/*
+ * Carrot2 project.
+ *
+ * Copyright (C) 2002-2019, Dawid Weiss, Stanisław Osiński.
+ * All rights reserved.
+ *
+ * Refer to the full license file "carrot2.LICENSE"
+ * in the root folder of the repository checkout or at:
+ * http://www.carrot2.org/carrot2.LICENSE
+ */
+
+package org.carrot2.core;
+
+import java.io.File;
+
+import org.simpleframework.xml.Attribute;
+import org.simpleframework.xml.Root;
+
+/**
+ * Eviction and refreshing settings of the processing results cache maintained by a
+ * {@link CachingProcessingComponentManager}. The configuration can be created in code
+ * or deserialized from a <code>&lt;result-cache&gt;</code> XML element, e.g.:
+ *
+ * <pre>
+ * &lt;result-cache maximum-megabytes="256" expire-after-write-seconds="3600" /&gt;
+ * </pre>
+ * <p>
+ * By default, the cache holds at most {@link #DEFAULT_MAXIMUM_ENTRIES} results, no
+ * matter how large they are. If a maximum size in bytes is set, results are evicted
+ * based on an estimate of their size in memory instead.
+ * </p>
+ * <p>
+ * If a disk directory is set, results are also stored on disk, in a second level cache
+ * that survives restarts. Results found on disk are promoted back to memory.
+ * </p>
+ */
+@Root(name = "result-cache")
+public final class ResultCacheConfiguration
+{
+    /** The default maximum number of cached results. */
+    public static final long DEFAULT_MAXIMUM_ENTRIES = 100;
+
+    /** The default maximum size of the disk cache, in megabytes. */
+    public static final long DEFAULT_DISK_MAXIMUM_MEGABYTES = 256;
+
+    private static final long MEGABYTE = 1024 * 1024;
+
+    /**
+     * The maximum number of cached results, ignored if {@link #maximumBytes} is set.
+     */
+    @Attribute(name = "maximum-entries", required = false)
+    private long maximumEntries = DEFAULT_MAXIMUM_ENTRIES;
+
+    /**
+     * The maximum estimated size of the cached results, in megabytes, 0 for no limit.
+     */
+    @Attribute(name = "maximum-megabytes", required = false)
+    private long maximumMegabytes;
+
+    /**
+     * The maximum estimated size of the cached results, in bytes, 0 for no limit.
+     * Overrides {@link #maximumMegabytes}, set in code only.
+     */
+    private long maximumBytes;
+
+    /** Time after which results expire, in seconds, 0 for no expiry. */
+    @Attribute(name = "expire-after-write-seconds", required = false)
+    private long expireAfterWriteSeconds;
+
+    /**
+     * Time after which results are computed again the next time they are requested, in
+     * seconds, 0 for no refreshing.
+     */
+    @Attribute(name = "refresh-after-write-seconds", required = false)
+    private long refreshAfterWriteSeconds;
+
+    /**
+     * Maximum time a request waits for the result being computed by another request with
+     * the same input, in milliseconds, 0 for no limit.
+     */
+    @Attribute(name = "coalescing-timeout-millis", required = false)
+    private long coalescingTimeoutMillis;
+
+    /** Directory of the disk cache, <code>null</code> for no disk cache. */
+    @Attribute(name = "disk-directory", required = false)
+    private String diskDirectory;
+
+    /** The maximum size of the disk cache files, in megabytes. */
+    @Attribute(name = "disk-maximum-megabytes", required = false)
+    private long diskMaximumMegabytes = DEFAULT_DISK_MAXIMUM_MEGABYTES;
+
+    /** The maximum size of the disk cache files, in bytes, set in code only. */
+    private long diskMaximumBytes;
+
+    /**
+     * Creates a configuration with the default settings.
+     */
+    public ResultCacheConfiguration()
+    {
+    }
+
+    /**
+     * Sets the maximum number of cached results. This setting is ignored if the maximum
+     * size of the cache in bytes is set.
+     */
+    public ResultCacheConfiguration maximumEntries(long maximumEntries)
+    {
+        if (maximumEntries < 0)
+            throw new IllegalArgumentException("Maximum entries must not be negative: "
+                + maximumEntries);
+        this.maximumEntries = maximumEntries;
+        return this;
+    }
+
+    /**
+     * Sets the maximum estimated size of the cached results in bytes, 0 to limit the
+     * number of entries instead.
+     */
+    public ResultCacheConfiguration maximumBytes(long maximumBytes)
+    {
+        if (maximumBytes < 0)
+            throw new IllegalArgumentException("Maximum bytes must not be negative: "
+                + maximumBytes);
+        this.maximumBytes = maximumBytes;
+        return this;
+    }
+
+    /**
+     * Sets the time after which cached results expire, 0 for no expiry.
+     */
+    public ResultCacheConfiguration expireAfterWriteSeconds(long seconds)
+    {
+        if (seconds < 0)
+            throw new IllegalArgumentException("Expiry time must not be negative: "
+                + seconds);
+        this.expireAfterWriteSeconds = seconds;
+        return this;
+    }
+
+    /**
+     * Sets the time after which a cached result is computed again the next time it is
+     * requested, 0 for no refreshing. Until the new result is ready, the previous one is
+     * returned to other requests. If computing the new result fails, the previous result
+     * remains in the cache.
+     */
+    public ResultCacheConfiguration refreshAfterWriteSeconds(long seconds)
+    {
+        if (seconds < 0)
+            throw new IllegalArgumentException("Refresh time must not be negative: "
+                + seconds);
+        this.refreshAfterWriteSeconds = seconds;
+        return this;
+    }
+
+    /**
+     * Sets the maximum time a request waits for the result being computed by another
+     * request with the same input, 0 to wait without limit. Requests waiting longer fail
+     * with a {@link ProcessingException}.
+     */
+    public ResultCacheConfiguration coalescingTimeoutMillis(long millis)
+    {
+        if (millis < 0)
+            throw new IllegalArgumentException("Timeout must not be negative: " + millis);
+        this.coalescingTimeoutMillis = millis;
+        return this;
+    }
+
+    /**
+     * Sets the directory of the disk cache, <code>null</code> to keep the results in
+     * memory only. The directory can be used by one cache at a time.
+     */
+    public ResultCacheConfiguration diskDirectory(File directory)
+    {
+        this.diskDirectory = directory != null ? directory.getPath() : null;
+        return this;
+    }
+
+    /**
+     * Sets the maximum size of the disk cache files in bytes.
+     */
+    public ResultCacheConfiguration diskMaximumBytes(long maximumBytes)
+    {
+        if (maximumBytes <= 0)
+            throw new IllegalArgumentException("Maximum bytes must be positive: "
+                + maximumBytes);
+        this.diskMaximumBytes = maximumBytes;
+        return this;
+    }
+
+    public long getMaximumEntries()
+    {
+        return maximumEntries;
+    }
+
+    /**
+     * Returns the maximum estimated size of the cached results in bytes, 0 if the number
+     * of entries is limited instead.
+     */
+    public long getMaximumBytes()
+    {
+        return maximumBytes > 0 ? maximumBytes : maximumMegabytes * MEGABYTE;
+    }
+
+    public long getExpireAfterWriteSeconds()
+    {
+        return expireAfterWriteSeconds;
+    }
+
+    public long getRefreshAfterWriteSeconds()
+    {
+        return refreshAfterWriteSeconds;
+    }
+
+    public long getCoalescingTimeoutMillis()
+    {
+        return coalescingTimeoutMillis;
+    }
+
+    /**
+     * Returns the directory of the disk cache, <code>null</code> if there is no disk
+     * cache.
+     */
+    public File getDiskDirectory()
+    {
+        return diskDirectory != null ? new File(diskDirectory) : null;
+    }
+
+    public long getDiskMaximumBytes()
+    {
+        return diskMaximumBytes > 0 ? diskMaximumBytes : diskMaximumMegabytes * MEGABYTE;
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * Carrot2 project.
+ *
+ * Copyright (C) 2002-2019, Dawid Weiss, Stanisław Osiński.
+ * All rights reserved.
+ *
+ * Refer to the full license file "carrot2.LICENSE"
+ * in the root folder of the repository checkout or at:
+ * http://www.carrot2.org/carrot2.LICENSE
+ */
+
+package org.carrot2.core;
+
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Estimates the memory taken by processing results, for weighting entries of the
+ * {@link CachingProcessingComponentManager}'s cache. The estimates are rough (they
+ * assume a 64-bit JVM with compressed references and ignore alignment), but
+ * proportional to the actual sizes, which is what eviction needs.
+ * <p>
+ * Objects reachable more than once, e.g. {@link Document}s referenced from both the
+ * document list and the {@link Cluster}s, are counted once.
+ * </p>
+ */
+final class ResultSizeEstimator
+{
+    private static final int OBJECT_HEADER = 16;
+    private static final int REFERENCE = 4;
+    private static final int MAP_ENTRY = 32;
+
+    private final IdentityHashMap<Object, Boolean> visited = new IdentityHashMap<Object, Boolean>();
+
+    private ResultSizeEstimator()
+    {
+    }
+
+    /**
+     * Returns the estimated size of the attribute values in bytes. Keys of this and
+     * nested maps (e.g. document fields) are not counted, they are usually shared
+     * constants.
+     */
+    static long estimate(Map<String, Object> attributes)
+    {
+        final ResultSizeEstimator estimator = new ResultSizeEstimator();
+        long size = OBJECT_HEADER;
+        for (Object value : attributes.values())
+        {
+            size += MAP_ENTRY + estimator.sizeOf(value);
+        }
+        return size;
+    }
+
+    private long sizeOf(Object value)
+    {
+        if (value == null)
+        {
+            return 0;
+        }
+
+        if (value instanceof CharSequence)
+        {
+            return OBJECT_HEADER + 24 + 2L * ((CharSequence) value).length();
+        }
+
+        if (value instanceof Number || value instanceof Boolean
+            || value instanceof Character || value instanceof Enum<?>
+            || value instanceof Class<?>)
+        {
+            return OBJECT_HEADER;
+        }
+
+        if (visited.put(value, Boolean.TRUE) != null)
+        {
+            return 0;
+        }
+
+        if (value instanceof Document)
+        {
+            return OBJECT_HEADER + 4 * REFERENCE + sizeOfMap(((Document) value).getFields());
+        }
+
+        if (value instanceof Cluster)
+        {
+            final Cluster cluster = (Cluster) value;
+            return OBJECT_HEADER + 8 * REFERENCE + sizeOf(cluster.getPhrases())
+                + sizeOf(cluster.getDocuments()) + sizeOf(cluster.getSubclusters())
+                + sizeOfMap(cluster.getAttributes());
+        }
+
+        if (value instanceof Collection<?>)
+        {
+            final Collection<?> collection = (Collection<?>) value;
+            long size = OBJECT_HEADER * 2 + (long) REFERENCE * collection.size();
+            for (Object element : collection)
+            {
+                size += sizeOf(element);
+            }
+            return size;
+        }
+
+        if (value instanceof Map<?, ?>)
+        {
+            return sizeOfMap((Map<?, ?>) value);
+        }
+
+        if (value instanceof Object [])
+        {
+            final Object [] array = (Object []) value;
+            long size = OBJECT_HEADER + (long) REFERENCE * array.length;
+            for (Object element : array)
+            {
+                size += sizeOf(element);
+            }
+            return size;
+        }
+
+        // Unknown objects, including primitive arrays, which are rare in the results.
+        return OBJECT_HEADER;
+    }
+
+    private long sizeOfMap(Map<?, ?> map)
+    {
+        long size = OBJECT_HEADER * 3 + (long) MAP_ENTRY * map.size();
+        for (Object value : map.values())
+        {
+            size += sizeOf(value);
+        }
+        return size;
+    }
+}
@@ -65,11 +65,31 @@ public final class AttributeNames
      */
     public static final String PROCESSING_TIME_ALGORITHM = "processing-time-algorithm";
 
+    /**
+     * @see CommonAttributesDescriptor.Keys#PROCESSING_TIME_STAGES
+     */
+    public static final String PROCESSING_TIME_STAGES = "processing-time-stages";
+
+    /**
+     * @see CommonAttributesDescriptor.Keys#PROCESSING_ALLOCATION_STAGES
+     */
+    public static final String PROCESSING_ALLOCATION_STAGES = "processing-allocation-stages";
+
     /**
      * @see CommonAttributesDescriptor.Keys#PROCESSING_RESULT_TITLE
      */
     public static final String PROCESSING_RESULT_TITLE = "processing-result.title";
 
+    /**
+     * @see CommonAttributesDescriptor.Keys#PROCESSING_TIMEOUT
+     */
+    public static final String PROCESSING_TIMEOUT = "processing-timeout";
+
+    /**
+     * @see CommonAttributesDescriptor.Keys#PROCESSING_WEIGHT
+     */
+    public static final String PROCESSING_WEIGHT = "processing-weight";
+
     /*
      *
      */
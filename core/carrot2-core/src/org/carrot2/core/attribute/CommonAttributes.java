@@ -13,6 +13,7 @@
 package org.carrot2.core.attribute;
 
 import java.util.List;
+import java.util.Map;
 
 import org.carrot2.core.*;
 import org.carrot2.util.attribute.Attribute;
@@ -137,6 +138,32 @@ public final class CommonAttributes
     @Group(DefaultGroups.RESULT_INFO)
     public Long processingTimeAlgorithm;
 
+    /**
+     * Processing time of the individual stages of the clustering algorithm, in
+     * nanoseconds. Keys are stage names (e.g. <code>Tokenizer</code>,
+     * <code>PhraseExtractor</code>, <code>TermDocumentMatrixReducer</code>) in the order
+     * of processing. If documents in several languages are clustered, the times of each
+     * stage are summed up.
+     */
+    @Output
+    @Attribute(key = "processing-time-stages")
+    @Label("Processing time of algorithm stages")
+    @Level(AttributeLevel.ADVANCED)
+    @Group(DefaultGroups.RESULT_INFO)
+    public Map<String, Long> processingTimeStages;
+
+    /**
+     * Memory allocated by the individual stages of the clustering algorithm, in bytes.
+     * Keys are the same as in {@link #processingTimeStages}. Empty if the JVM does not
+     * support measuring allocations.
+     */
+    @Output
+    @Attribute(key = "processing-allocation-stages")
+    @Label("Memory allocated by algorithm stages")
+    @Level(AttributeLevel.ADVANCED)
+    @Group(DefaultGroups.RESULT_INFO)
+    public Map<String, Long> processingAllocationStages;
+
     /**
      * Processing result title. A typical title for a processing result will be the query
      * used to fetch documents from that source. For certain document sources the query
@@ -150,4 +177,34 @@ public final class CommonAttributes
     @Level(AttributeLevel.BASIC)
     @Group(DefaultGroups.RESULT_INFO)
     public String processingResultTitle;
+
+    /**
+     * Processing timeout in milliseconds. If processing does not complete within this
+     * time, it is cancelled and a {@link org.carrot2.core.ProcessingException} is
+     * thrown. Cancellation is cooperative: document sources stop waiting for pending
+     * requests and iterative clustering algorithms stop at the next iteration. If not
+     * set or not positive, processing is not limited in time.
+     * 
+     * @see org.carrot2.core.Controller#processAsync(java.util.Map, Object...)
+     */
+    @Input
+    @Attribute(key = "processing-timeout")
+    @Label("Processing timeout")
+    @Level(AttributeLevel.ADVANCED)
+    @Group(DefaultGroups.QUERY)
+    public Long processingTimeout;
+
+    /**
+     * Weight of the request, counted against the concurrency limits of the controller. A
+     * weight proportional to the size of the input makes large requests take a larger
+     * share of the limit. If not set or not positive, the weight is 1.
+     * 
+     * @see org.carrot2.core.ConcurrencyLimitConfiguration
+     */
+    @Input
+    @Attribute(key = "processing-weight")
+    @Label("Processing weight")
+    @Level(AttributeLevel.ADVANCED)
+    @Group(DefaultGroups.QUERY)
+    public Long processingWeight;
 }
@@ -12,7 +12,6 @@
 
 package org.carrot2.source;
 
-import java.io.IOException;
 import java.util.*;
 import java.util.concurrent.*;
 
@@ -150,7 +149,19 @@ public abstract class MultipageSearchEngine extends SearchEngineBase
             // number of needed results.
             if (buckets.length == 1 || searchMode == SearchMode.CONSERVATIVE)
             {
-                final SearchEngineResponse response = createFetcher(buckets[0]).call();
+                // Fetch on the executor, so that an interrupt of this thread
+                // abandons the request instead of waiting for its completion.
+                final Future<SearchEngineResponse> first = executor
+                    .submit(createFetcher(buckets[0]));
+                final SearchEngineResponse response;
+                try
+                {
+                    response = first.get();
+                }
+                finally
+                {
+                    first.cancel(true);
+                }
 
                 final long resultsTotal = response.getResultsTotal();
                 responses.add(response);
@@ -197,13 +208,11 @@ public abstract class MultipageSearchEngine extends SearchEngineBase
 
             return responses.toArray(new SearchEngineResponse [responses.size()]);
         }
-        catch (final IOException e)
-        {
-            throw new ProcessingException(e.getMessage(), e);
-        }
         catch (final InterruptedException e)
         {
-            // If interrupted, return with no error.
+            // If interrupted, return with no error, the caller decides what to do
+            // with the interrupt.
+            Thread.currentThread().interrupt();
             return new SearchEngineResponse [0];
         }
         catch (final Exception e)
@@ -0,0 +1,137 @@
+/*
+ * Carrot2 project.
+ *
+ * Copyright (C) 2002-2019, Dawid Weiss, Stanisław Osiński.
+ * All rights reserved.
+ *
+ * Refer to the full license file "carrot2.LICENSE"
+ * in the root folder of the repository checkout or at:
+ * http://www.carrot2.org/carrot2.LICENSE
+ */
+
+package org.carrot2.util;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.carrot2.util.tests.CarrotTestCase;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests {@link LatencyHistogram}.
+ */
+public class LatencyHistogramTest extends CarrotTestCase
+{
+    @Test
+    public void testBuckets()
+    {
+        long previousIndex = -1;
+        for (long value : new long [] {0, 1, 63, 64, 66, 127, 128, 1000, 1L << 40,
+            Long.MAX_VALUE})
+        {
+            final int index = LatencyHistogram.bucketIndex(value);
+            assertTrue(index > previousIndex);
+            assertTrue(LatencyHistogram.bucketUpperBound(index) >= value);
+            if (index > 0)
+            {
+                assertTrue(LatencyHistogram.bucketUpperBound(index - 1) < value);
+            }
+            previousIndex = index;
+        }
+    }
+
+    @Test
+    public void testEmpty()
+    {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getValueAtPercentile(99));
+        assertEquals(0, histogram.getMean(), 0);
+    }
+
+    @Test
+    public void testPercentiles()
+    {
+        final Random random = new Random(randomLong());
+        final long [] values = new long [10000];
+        final LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < values.length; i++)
+        {
+            values[i] = (long) (Math.exp(random.nextDouble() * 20));
+            histogram.record(values[i]);
+        }
+        Arrays.sort(values);
+
+        assertEquals(values.length, histogram.getCount());
+        assertEquals(values[values.length - 1], histogram.getMax());
+        for (double percentile : new double [] {50, 90, 99, 99.9, 100})
+        {
+            final long expected = values[(int) Math.ceil(percentile / 100 * values.length) - 1];
+            final long actual = histogram.getValueAtPercentile(percentile);
+            assertTrue(actual >= expected);
+            assertTrue(actual <= expected + expected / 32 + 1);
+        }
+    }
+
+    @Test
+    public void testSmallValuesExact()
+    {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 10; i++)
+        {
+            histogram.record(i);
+        }
+        assertEquals(5, histogram.getValueAtPercentile(50));
+        assertEquals(9, histogram.getValueAtPercentile(90));
+        assertEquals(10, histogram.getValueAtPercentile(99));
+        assertEquals(5.5, histogram.getMean(), 0.0001);
+    }
+
+    @Test
+    public void testAdd()
+    {
+        final LatencyHistogram a = new LatencyHistogram();
+        final LatencyHistogram b = new LatencyHistogram();
+        for (int i = 0; i < 100; i++)
+        {
+            a.record(i);
+            b.record(1000 + i);
+        }
+
+        a.add(b);
+        assertEquals(200, a.getCount());
+        assertEquals(1099, a.getMax());
+        assertEquals(99, a.getValueAtPercentile(50));
+        assertTrue(a.getValueAtPercentile(99) >= 1098);
+    }
+
+    @Test
+    public void testConcurrentRecording() throws InterruptedException
+    {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        final Thread [] threads = new Thread [4];
+        for (int t = 0; t < threads.length; t++)
+        {
+            threads[t] = new Thread()
+            {
+                public void run()
+                {
+                    for (int i = 0; i < 10000; i++)
+                    {
+                        histogram.record(i);
+                    }
+                }
+            };
+            threads[t].start();
+        }
+        for (Thread thread : threads)
+        {
+            thread.join();
+        }
+
+        assertEquals(40000, histogram.getCount());
+        assertEquals(9999, histogram.getMax());
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * Carrot2 project.
+ *
+ * Copyright (C) 2002-2019, Dawid Weiss, Stanisław Osiński.
+ * All rights reserved.
+ *
+ * Refer to the full license file "carrot2.LICENSE"
+ * in the root folder of the repository checkout or at:
+ * http://www.carrot2.org/carrot2.LICENSE
+ */
+
+package org.carrot2.util;
+
+import java.util.Arrays;
+import java.util.Map;
+
+import org.carrot2.shaded.guava.common.collect.Lists;
+import org.carrot2.util.tests.CarrotTestCase;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests {@link StageTimer}.
+ */
+public class StageTimerTest extends CarrotTestCase
+{
+    @Test
+    public void testLaps() throws InterruptedException
+    {
+        final StageTimer timer = new StageTimer();
+        sleep(10);
+        timer.lap("first");
+        timer.lap("second");
+        sleep(10);
+        timer.lap("first");
+
+        final Map<String, Long> times = timer.getTimes();
+        assertEquals(Arrays.asList("first", "second"), Lists.newArrayList(times.keySet()));
+        assertTrue(times.get("first") >= 20 * 1000000L);
+        assertTrue(times.get("second") < times.get("first"));
+    }
+
+    @Test
+    public void testAllocations()
+    {
+        final StageTimer timer = new StageTimer();
+        final long [][] allocated = new long [100][];
+        for (int i = 0; i < allocated.length; i++)
+        {
+            allocated[i] = new long [1000];
+        }
+        timer.lap("allocating");
+
+        final Map<String, Long> allocations = timer.getAllocations();
+        if (!allocations.isEmpty())
+        {
+            assertTrue(allocations.get("allocating") >= allocated.length * 1000 * 8);
+        }
+    }
+
+    @Test
+    public void testAddAll()
+    {
+        final StageTimer a = new StageTimer();
+        a.lap("first");
+        final StageTimer b = new StageTimer();
+        b.lap("second");
+        b.lap("first");
+
+        final long first = a.getTimes().get("first") + b.getTimes().get("first");
+        a.addAll(b);
+        assertEquals(Arrays.asList("first", "second"), Lists.newArrayList(a.getTimes()
+            .keySet()));
+        assertEquals(first, a.getTimes().get("first").longValue());
+    }
+}
@@ -0,0 +1,169 @@
+/*
+ * Carrot2 project.
+ *
+ * Copyright (C) 2002-2019, Dawid Weiss, Stanisław Osiński.
+ * All rights reserved.
+ *
+ * Refer to the full license file "carrot2.LICENSE"
+ * in the root folder of the repository checkout or at:
+ * http://www.carrot2.org/carrot2.LICENSE
+ */
+
+package org.carrot2.util.pool;
+
+import java.util.List;
+
+import org.junit.Test;
+
+import org.carrot2.shaded.guava.common.collect.Lists;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test cases for {@link ConcurrentPool}.
+ */
+public class ConcurrentPoolTest extends ParameterizedPoolTestBase
+{
+    protected IParameterizedPool<Object, String> createPool()
+    {
+        return randomBoolean() ? new ConcurrentPool<Object, String>()
+            : new ConcurrentPool<Object, String>(getPoolSize(), randomBoolean());
+    }
+
+    protected int getPoolSize()
+    {
+        return randomIntBetween(4, 10);
+    }
+
+    @Test
+    public void testStatistics() throws Exception
+    {
+        final ConcurrentPool<Object, String> pool = new ConcurrentPool<Object, String>(
+            ConcurrentPool.UNBOUNDED, false);
+        try
+        {
+            final String a = pool.borrowObject(String.class, "a");
+            final String b = pool.borrowObject(String.class, "b");
+            pool.returnObject(a, "a");
+            pool.returnObject(b, "b");
+            assertSame(a, pool.borrowObject(String.class, "a"));
+
+            assertEquals(1, pool.getHits());
+            assertEquals(2, pool.getMisses());
+            assertEquals(0, pool.getEvictions());
+            assertEquals(1, pool.getIdleCount());
+        }
+        finally
+        {
+            pool.dispose();
+        }
+    }
+
+    @Test
+    public void testBoundedPoolDisposesExcessObjects() throws Exception
+    {
+        final List<Object> disposed = Lists.newArrayList();
+        final ConcurrentPool<Object, String> pool = new ConcurrentPool<Object, String>(2,
+            false);
+        pool.init(null, null, null, new IDisposalListener<Object, String>()
+        {
+            public void dispose(Object object, String parameter)
+            {
+                disposed.add(object);
+            }
+        });
+
+        final List<String> borrowed = Lists.newArrayList();
+        for (int i = 0; i < 3; i++)
+        {
+            borrowed.add(pool.borrowObject(String.class, null));
+        }
+        for (String object : borrowed)
+        {
+            pool.returnObject(object, null);
+        }
+
+        assertEquals(1, disposed.size());
+        assertSame(borrowed.get(2), disposed.get(0));
+        assertEquals(1, pool.getEvictions());
+        assertEquals(2, pool.getIdleCount());
+
+        pool.dispose();
+        assertEquals(3, disposed.size());
+    }
+
+    @Test
+    public void testConstructorFailureReportedAsInstantiationException()
+    {
+        final ConcurrentPool<Object, String> pool = new ConcurrentPool<Object, String>();
+        try
+        {
+            pool.borrowObject(FailingConstructor.class, null);
+            fail();
+        }
+        catch (InstantiationException e)
+        {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+        catch (IllegalAccessException e)
+        {
+            fail();
+        }
+        finally
+        {
+            pool.dispose();
+        }
+    }
+
+    @Test
+    public void testFailedActivationDoesNotKeepObjectBorrowed() throws Exception
+    {
+        final List<Object> instantiated = Lists.newArrayList();
+        final ConcurrentPool<Object, String> pool = new ConcurrentPool<Object, String>();
+        pool.init(new IInstantiationListener<Object, String>()
+        {
+            public void objectInstantiated(Object object, String parameter)
+            {
+                instantiated.add(object);
+            }
+        }, new IActivationListener<Object, String>()
+        {
+            public void activate(Object object, String parameter)
+            {
+                throw new IllegalStateException();
+            }
+        }, null, null);
+
+        try
+        {
+            pool.borrowObject(String.class, null);
+            fail();
+        }
+        catch (IllegalStateException e)
+        {
+            // expected
+        }
+
+        try
+        {
+            pool.returnObject(instantiated.get(0), null);
+            fail();
+        }
+        catch (IllegalStateException e)
+        {
+            assertTrue(e.getMessage().startsWith("Object has not been borrowed"));
+        }
+        finally
+        {
+            pool.dispose();
+        }
+    }
+
+    public static class FailingConstructor
+    {
+        public FailingConstructor()
+        {
+            throw new IllegalStateException();
+        }
+    }
+}
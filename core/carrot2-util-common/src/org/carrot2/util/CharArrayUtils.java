@@ -136,4 +136,33 @@ public class CharArrayUtils
         }
         return different;
     }
+
+    /**
+     * Copies the characters of <code>seq</code> to the beginning of <code>buffer</code>
+     * or to a new buffer if <code>buffer</code> is too small.
+     * 
+     * @return Returns the buffer holding the characters, <code>buffer</code> if it was
+     * large enough.
+     */
+    public static char [] getChars(CharSequence seq, char [] buffer)
+    {
+        final int length = seq.length();
+        if (buffer.length < length)
+        {
+            buffer = new char [Math.max(length, buffer.length + (buffer.length >> 1))];
+        }
+
+        if (seq instanceof String)
+        {
+            ((String) seq).getChars(0, length, buffer, 0);
+        }
+        else
+        {
+            for (int i = 0; i < length; i++)
+            {
+                buffer[i] = seq.charAt(i);
+            }
+        }
+        return buffer;
+    }
 }
@@ -0,0 +1,176 @@
+/*
+ * Carrot2 project.
+ *
+ * Copyright (C) 2002-2019, Dawid Weiss, Stanisław Osiński.
+ * All rights reserved.
+ *
+ * Refer to the full license file "carrot2.LICENSE"
+ * in the root folder of the repository checkout or at:
+ * http://www.carrot2.org/carrot2.LICENSE
+ */
+
+package org.carrot2.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A histogram of non-negative <code>long</code> values (typically latencies) with
+ * bounded memory and a bounded relative error, in the spirit of HdrHistogram. Values
+ * smaller than 64 are counted exactly, larger values fall into logarithmic ranges split
+ * into 32 linear buckets each, so percentiles are reported with a relative error below
+ * 1/32 (about 3%).
+ * <p>
+ * Recording is lock-free and cheap enough to be done on every request. Reads may be
+ * slightly inconsistent with concurrent updates, but never block them. Histograms can be
+ * merged with {@link #add(LatencyHistogram)}.
+ * </p>
+ */
+public final class LatencyHistogram
+{
+    /** Bits of precision of the linear buckets within each power of two. */
+    private static final int SUB_BUCKET_BITS = 5;
+
+    /** Number of linear buckets within each power of two. */
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    /** Enough buckets for all non-negative longs. */
+    private static final int BUCKETS = SUB_BUCKETS * (64 - SUB_BUCKET_BITS);
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Records a value, negative values are recorded as 0.
+     */
+    public void record(long value)
+    {
+        if (value < 0)
+        {
+            value = 0;
+        }
+
+        counts.incrementAndGet(bucketIndex(value));
+        count.incrementAndGet();
+        sum.addAndGet(value);
+
+        long currentMax;
+        while (value > (currentMax = max.get()))
+        {
+            if (max.compareAndSet(currentMax, value))
+            {
+                break;
+            }
+        }
+    }
+
+    /**
+     * Adds all values recorded in <code>other</code> to this histogram.
+     */
+    public void add(LatencyHistogram other)
+    {
+        for (int i = 0; i < BUCKETS; i++)
+        {
+            final long bucketCount = other.counts.get(i);
+            if (bucketCount != 0)
+            {
+                counts.addAndGet(i, bucketCount);
+            }
+        }
+        count.addAndGet(other.count.get());
+        sum.addAndGet(other.sum.get());
+
+        final long otherMax = other.max.get();
+        long currentMax;
+        while (otherMax > (currentMax = max.get()))
+        {
+            if (max.compareAndSet(currentMax, otherMax))
+            {
+                break;
+            }
+        }
+    }
+
+    /**
+     * Returns the number of recorded values.
+     */
+    public long getCount()
+    {
+        return count.get();
+    }
+
+    /**
+     * Returns the largest recorded value or 0 if no values have been recorded.
+     */
+    public long getMax()
+    {
+        return max.get();
+    }
+
+    /**
+     * Returns the mean of the recorded values or 0 if no values have been recorded.
+     */
+    public double getMean()
+    {
+        final long n = count.get();
+        return n == 0 ? 0 : sum.get() / (double) n;
+    }
+
+    /**
+     * Returns the value below or at which the given percentage of the recorded values
+     * fall, e.g. <code>getValueAtPercentile(99)</code> for the 99th percentile. The
+     * returned value is the upper bound of the bucket the percentile falls into (never
+     * larger than {@link #getMax()}), or 0 if no values have been recorded.
+     */
+    public long getValueAtPercentile(double percentile)
+    {
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++)
+        {
+            total += counts.get(i);
+        }
+        if (total == 0)
+        {
+            return 0;
+        }
+
+        final double fraction = Math.min(Math.max(percentile, 0), 100) / 100;
+        final long rank = Math.max(1, (long) Math.ceil(fraction * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++)
+        {
+            seen += counts.get(i);
+            if (seen >= rank)
+            {
+                return Math.min(bucketUpperBound(i), max.get());
+            }
+        }
+        return max.get();
+    }
+
+    static int bucketIndex(long value)
+    {
+        if (value < 2 * SUB_BUCKETS)
+        {
+            return (int) value;
+        }
+
+        final int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return SUB_BUCKETS * (shift + 1) + (int) (value >>> shift) - SUB_BUCKETS;
+    }
+
+    static long bucketUpperBound(int index)
+    {
+        if (index < 2 * SUB_BUCKETS)
+        {
+            return index;
+        }
+
+        final int shift = index / SUB_BUCKETS - 1;
+        final long top = index % SUB_BUCKETS + SUB_BUCKETS;
+        final long upper = ((top + 1) << shift) - 1;
+        return upper < 0 ? Long.MAX_VALUE : upper;
+    }
+}
@@ -0,0 +1,202 @@
+/*
+ * Carrot2 project.
+ *
+ * Copyright (C) 2002-2019, Dawid Weiss, Stanisław Osiński.
+ * All rights reserved.
+ *
+ * Refer to the full license file "carrot2.LICENSE"
+ * in the root folder of the repository checkout or at:
+ * http://www.carrot2.org/carrot2.LICENSE
+ */
+
+package org.carrot2.util;
+
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Method;
+import java.util.Map;
+
+import org.carrot2.shaded.guava.common.collect.Maps;
+
+/**
+ * Measures the time (in nanoseconds) and, if supported by the JVM, the memory allocated
+ * (in bytes) by consecutive stages of processing. Each call to {@link #lap(String)}
+ * attributes the time and allocations since the previous lap (or since creation, or
+ * {@link #restart()}) to the given stage. Stages recorded more than once accumulate.
+ * <p>
+ * Allocations are measured for the current thread only, so all laps must be recorded on
+ * the thread that started the timer.
+ * </p>
+ * <p>
+ * This class is thread-safe, so timers of work done on other threads can be combined
+ * in one timer using {@link #addAll(StageTimer)}.
+ * </p>
+ */
+public final class StageTimer
+{
+    /** Stage name to its total time and allocations, in the order of first laps. */
+    private final Map<String, long []> stages = Maps.newLinkedHashMap();
+
+    /** {@link System#nanoTime()} at the start of the current lap. */
+    private long lapStart;
+
+    /** Bytes allocated by the current thread at the start of the current lap. */
+    private long lapAllocated;
+
+    /**
+     * Creates a timer and starts the first lap.
+     */
+    public StageTimer()
+    {
+        restart();
+    }
+
+    /**
+     * Starts a new lap without recording the current one.
+     */
+    public synchronized void restart()
+    {
+        lapAllocated = Allocations.current();
+        lapStart = System.nanoTime();
+    }
+
+    /**
+     * Attributes the time and allocations since the previous lap to <code>stage</code>
+     * and starts a new lap.
+     */
+    public synchronized void lap(String stage)
+    {
+        final long now = System.nanoTime();
+        final long allocated = Allocations.current();
+        add(stage, now - lapStart, allocated - lapAllocated);
+        lapStart = now;
+        lapAllocated = allocated;
+    }
+
+    /**
+     * Adds all stages recorded by <code>other</code> to this timer.
+     */
+    public void addAll(StageTimer other)
+    {
+        final Map<String, long []> added = Maps.newLinkedHashMap();
+        synchronized (other)
+        {
+            for (Map.Entry<String, long []> entry : other.stages.entrySet())
+            {
+                added.put(entry.getKey(), entry.getValue().clone());
+            }
+        }
+
+        synchronized (this)
+        {
+            for (Map.Entry<String, long []> entry : added.entrySet())
+            {
+                add(entry.getKey(), entry.getValue()[0], entry.getValue()[1]);
+            }
+        }
+    }
+
+    private void add(String stage, long time, long allocated)
+    {
+        long [] totals = stages.get(stage);
+        if (totals == null)
+        {
+            totals = new long [2];
+            stages.put(stage, totals);
+        }
+        totals[0] += time;
+        totals[1] += allocated;
+    }
+
+    /**
+     * Returns a new map of stage names to their total time in nanoseconds, in the order
+     * the stages were first recorded.
+     */
+    public synchronized Map<String, Long> getTimes()
+    {
+        return totals(0);
+    }
+
+    /**
+     * Returns a new map of stage names to the total number of bytes they allocated, in
+     * the order the stages were first recorded. The map is empty if the JVM does not
+     * support measuring allocations.
+     */
+    public synchronized Map<String, Long> getAllocations()
+    {
+        if (!Allocations.SUPPORTED)
+        {
+            return Maps.newLinkedHashMap();
+        }
+        return totals(1);
+    }
+
+    private Map<String, Long> totals(int index)
+    {
+        final Map<String, Long> totals = Maps.newLinkedHashMap();
+        for (Map.Entry<String, long []> entry : stages.entrySet())
+        {
+            totals.put(entry.getKey(), entry.getValue()[index]);
+        }
+        return totals;
+    }
+
+    /**
+     * Access to the per-thread allocation counter of HotSpot-based JVMs, initialized on
+     * first use. The counter is looked up reflectively, so this class loads on JVMs
+     * without <code>com.sun.management.ThreadMXBean</code>.
+     */
+    private static final class Allocations
+    {
+        static final Object BEAN;
+        static final Method GET_THREAD_ALLOCATED_BYTES;
+        static final boolean SUPPORTED;
+
+        static
+        {
+            Object bean = null;
+            Method getThreadAllocatedBytes = null;
+            try
+            {
+                final Class<?> beanClass = Class
+                    .forName("com.sun.management.ThreadMXBean");
+                final Object threadBean = ManagementFactory.getThreadMXBean();
+                if (beanClass.isInstance(threadBean)
+                    && (Boolean) beanClass.getMethod("isThreadAllocatedMemorySupported")
+                        .invoke(threadBean)
+                    && (Boolean) beanClass.getMethod("isThreadAllocatedMemoryEnabled")
+                        .invoke(threadBean))
+                {
+                    getThreadAllocatedBytes = beanClass.getMethod(
+                        "getThreadAllocatedBytes", long.class);
+                    bean = threadBean;
+                }
+            }
+            catch (Throwable t)
+            {
+                bean = null;
+                getThreadAllocatedBytes = null;
+            }
+            BEAN = bean;
+            GET_THREAD_ALLOCATED_BYTES = getThreadAllocatedBytes;
+            SUPPORTED = bean != null;
+        }
+
+        static long current()
+        {
+            if (!SUPPORTED)
+            {
+                return 0;
+            }
+
+            try
+            {
+                return (Long) GET_THREAD_ALLOCATED_BYTES.invoke(BEAN, Thread
+                    .currentThread().getId());
+            }
+            catch (Exception e)
+            {
+                return 0;
+            }
+        }
+    }
+}
@@ -0,0 +1,380 @@
+/*
+ * Carrot2 project.
+ *
+ * Copyright (C) 2002-2019, Dawid Weiss, Stanisław Osiński.
+ * All rights reserved.
+ *
+ * Refer to the full license file "carrot2.LICENSE"
+ * in the root folder of the repository checkout or at:
+ * http://www.carrot2.org/carrot2.LICENSE
+ */
+
+package org.carrot2.util.pool;
+
+import java.lang.ref.SoftReference;
+import java.lang.reflect.InvocationTargetException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.carrot2.util.Pair;
+
+/**
+ * An object pool that does not serialize borrowing and returning of objects. Idle
+ * objects of each [class, parameter] pair are kept on a separate lock-free stack, so
+ * both operations take constant time and threads working with different kinds of
+ * objects do not contend at all.
+ * <p>
+ * Idle objects are held using {@link SoftReference}s (as in {@link SoftUnboundedPool}),
+ * so they can be garbage collected when memory is needed, or using hard references. The
+ * number of idle objects kept for each key can be bounded; objects returned to a full
+ * stack are disposed of immediately.
+ * </p>
+ * <p>
+ * The pool counts hits (borrowed objects that were taken from the pool), misses
+ * (borrowed objects that had to be created) and evictions (idle objects that were
+ * garbage collected or did not fit in the pool).
+ * </p>
+ * <p>
+ * Borrowed objects are tracked by identity until they are returned, so that returning
+ * an object twice can be detected. Every borrowed object must therefore be returned
+ * with {@link #returnObject(Object, Object)}; objects that are never returned are never
+ * garbage collected while the pool is in use.
+ * </p>
+ */
+public final class ConcurrentPool<T, P> implements IParameterizedPool<T, P>
+{
+    /** No limit on the number of idle objects per key. */
+    public static final int UNBOUNDED = Integer.MAX_VALUE;
+
+    /** Idle objects by key, <code>null</code> after the pool has been disposed of. */
+    private volatile ConcurrentMap<Pair<Class<? extends T>, P>, Stack<T>> stacks =
+        new ConcurrentHashMap<Pair<Class<? extends T>, P>, Stack<T>>();
+
+    /** Objects currently borrowed from the pool, strongly referenced until returned. */
+    private final ConcurrentMap<Identity, Boolean> borrowed =
+        new ConcurrentHashMap<Identity, Boolean>();
+
+    private final int maxIdlePerKey;
+    private final boolean softReferences;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    private IInstantiationListener<T, P> instantiationListener;
+    private IActivationListener<T, P> activationListener;
+    private IPassivationListener<T, P> passivationListener;
+    private IDisposalListener<T, P> disposalListener;
+
+    /**
+     * Idle objects of one [class, parameter] pair. Elements are either the objects or
+     * their {@link SoftReference}s.
+     */
+    private static final class Stack<T>
+    {
+        final ConcurrentLinkedDeque<Object> idle = new ConcurrentLinkedDeque<Object>();
+        final AtomicInteger size = new AtomicInteger();
+    }
+
+    /**
+     * Wraps a borrowed object, so that it can be looked up by identity.
+     */
+    private static final class Identity
+    {
+        final Object object;
+
+        Identity(Object object)
+        {
+            this.object = object;
+        }
+
+        @Override
+        public boolean equals(Object obj)
+        {
+            return obj instanceof Identity && ((Identity) obj).object == object;
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return System.identityHashCode(object);
+        }
+    }
+
+    /**
+     * Creates an unbounded pool holding idle objects using {@link SoftReference}s.
+     */
+    public ConcurrentPool()
+    {
+        this(UNBOUNDED, true);
+    }
+
+    /**
+     * @param maxIdlePerKey the maximum number of idle objects kept for each
+     *            [class, parameter] pair, or {@link #UNBOUNDED}
+     * @param softReferences if <code>true</code>, idle objects will be held using
+     *            {@link SoftReference}s
+     */
+    public ConcurrentPool(int maxIdlePerKey, boolean softReferences)
+    {
+        if (maxIdlePerKey <= 0)
+            throw new IllegalArgumentException("Pool size must be greater than zero: "
+                + maxIdlePerKey);
+        this.maxIdlePerKey = maxIdlePerKey;
+        this.softReferences = softReferences;
+    }
+
+    public void init(IInstantiationListener<T, P> objectInstantiationListener,
+        IActivationListener<T, P> objectActivationListener,
+        IPassivationListener<T, P> objectPassivationListener,
+        IDisposalListener<T, P> objectDisposalListener)
+    {
+        this.instantiationListener = objectInstantiationListener;
+        this.activationListener = objectActivationListener;
+        this.passivationListener = objectPassivationListener;
+        this.disposalListener = objectDisposalListener;
+    }
+
+    @SuppressWarnings("unchecked")
+    public <I extends T> I borrowObject(Class<I> clazz, P parameter)
+        throws InstantiationException, IllegalAccessException
+    {
+        final ConcurrentMap<Pair<Class<? extends T>, P>, Stack<T>> stacks = this.stacks;
+        if (stacks == null)
+        {
+            throw new IllegalStateException("The pool has already been disposed of");
+        }
+
+        I instance = null;
+        final Stack<T> stack = stacks.get(new Pair<Class<? extends T>, P>(clazz, parameter));
+        if (stack != null)
+        {
+            Object element;
+            while (instance == null && (element = stack.idle.pollFirst()) != null)
+            {
+                stack.size.decrementAndGet();
+
+                // This cast goes unchecked and can be broken by bad calls, but we shift
+                // the responsibility to the users of this class.
+                instance = (I) (softReferences ? ((SoftReference<T>) element).get() : element);
+                if (instance == null)
+                {
+                    evictions.incrementAndGet();
+                }
+            }
+        }
+
+        if (instance == null)
+        {
+            misses.incrementAndGet();
+            instance = newInstance(clazz);
+            if (instantiationListener != null)
+            {
+                instantiationListener.objectInstantiated(instance, parameter);
+            }
+        }
+        else
+        {
+            hits.incrementAndGet();
+        }
+
+        final Identity identity = new Identity(instance);
+        borrowed.put(identity, Boolean.TRUE);
+
+        if (activationListener != null)
+        {
+            boolean activated = false;
+            try
+            {
+                activationListener.activate(instance, parameter);
+                activated = true;
+            }
+            finally
+            {
+                if (!activated)
+                {
+                    borrowed.remove(identity);
+                }
+            }
+        }
+
+        return instance;
+    }
+
+    /**
+     * Creates a new instance using the class's no-argument constructor. Failures
+     * other than access errors are reported as {@link InstantiationException}s with
+     * the original exception as the cause.
+     */
+    private static <I> I newInstance(Class<I> clazz)
+        throws InstantiationException, IllegalAccessException
+    {
+        try
+        {
+            return clazz.getDeclaredConstructor().newInstance();
+        }
+        catch (InvocationTargetException e)
+        {
+            throw newInstantiationException(clazz, e.getCause());
+        }
+        catch (NoSuchMethodException e)
+        {
+            throw newInstantiationException(clazz, e);
+        }
+    }
+
+    private static InstantiationException newInstantiationException(Class<?> clazz,
+        Throwable cause)
+    {
+        final InstantiationException e = new InstantiationException(
+            "Could not instantiate: " + clazz.getName());
+        e.initCause(cause);
+        return e;
+    }
+
+    public void returnObject(T object, P parameter)
+    {
+        if (object == null)
+        {
+            return;
+        }
+
+        if (passivationListener != null)
+        {
+            passivationListener.passivate(object, parameter);
+        }
+
+        final ConcurrentMap<Pair<Class<? extends T>, P>, Stack<T>> stacks = this.stacks;
+        if (stacks == null)
+        {
+            // disposed, silently ignore.
+            return;
+        }
+
+        if (borrowed.remove(new Identity(object)) == null)
+        {
+            throw new IllegalStateException("Object has not been borrowed: " + object);
+        }
+
+        @SuppressWarnings("unchecked")
+        final Pair<Class<? extends T>, P> key = new Pair<Class<? extends T>, P>(
+            (Class<? extends T>) object.getClass(), parameter);
+        Stack<T> stack = stacks.get(key);
+        if (stack == null)
+        {
+            final Stack<T> existing = stacks.putIfAbsent(key, stack = new Stack<T>());
+            if (existing != null)
+            {
+                stack = existing;
+            }
+        }
+
+        if (stack.size.incrementAndGet() > maxIdlePerKey)
+        {
+            stack.size.decrementAndGet();
+            evictions.incrementAndGet();
+            dispose(object, parameter);
+            return;
+        }
+        stack.idle.offerFirst(softReferences ? new SoftReference<T>(object) : object);
+
+        // The pool may have been disposed of while we were returning the object.
+        if (this.stacks == null)
+        {
+            disposeIdle(stack, parameter);
+        }
+    }
+
+    public void dispose()
+    {
+        final Map<Pair<Class<? extends T>, P>, Stack<T>> stacks;
+        synchronized (this)
+        {
+            stacks = this.stacks;
+            this.stacks = null;
+        }
+
+        if (stacks != null)
+        {
+            for (Map.Entry<Pair<Class<? extends T>, P>, Stack<T>> entry : stacks.entrySet())
+            {
+                disposeIdle(entry.getValue(), entry.getKey().objectB);
+            }
+        }
+    }
+
+    /**
+     * Returns the number of borrowed objects that were taken from the pool.
+     */
+    public long getHits()
+    {
+        return hits.get();
+    }
+
+    /**
+     * Returns the number of borrowed objects that had to be created.
+     */
+    public long getMisses()
+    {
+        return misses.get();
+    }
+
+    /**
+     * Returns the number of idle objects that were garbage collected or disposed of
+     * because the pool was full.
+     */
+    public long getEvictions()
+    {
+        return evictions.get();
+    }
+
+    /**
+     * Returns the number of idle objects in the pool. With soft references, some of these
+     * may have already been garbage collected.
+     */
+    public int getIdleCount()
+    {
+        final Map<Pair<Class<? extends T>, P>, Stack<T>> stacks = this.stacks;
+        if (stacks == null)
+        {
+            return 0;
+        }
+
+        int count = 0;
+        for (Stack<T> stack : stacks.values())
+        {
+            count += stack.size.get();
+        }
+        return count;
+    }
+
+    /**
+     * Disposes of all idle objects on the stack.
+     */
+    @SuppressWarnings("unchecked")
+    private void disposeIdle(Stack<T> stack, P parameter)
+    {
+        Object element;
+        while ((element = stack.idle.pollFirst()) != null)
+        {
+            stack.size.decrementAndGet();
+            final T instance = softReferences ? ((SoftReference<T>) element).get() : (T) element;
+            if (instance != null)
+            {
+                dispose(instance, parameter);
+            }
+        }
+    }
+
+    private void dispose(T instance, P parameter)
+    {
+        if (disposalListener != null)
+        {
+            disposalListener.dispose(instance, parameter);
+        }
+    }
+}
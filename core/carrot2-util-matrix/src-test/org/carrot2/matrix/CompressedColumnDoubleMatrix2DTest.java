@@ -0,0 +1,231 @@
+/*
+ * Carrot2 project.
+ *
+ * Copyright (C) 2002-2019, Dawid Weiss, Stanisław Osiński.
+ * All rights reserved.
+ *
+ * Refer to the full license file "carrot2.LICENSE"
+ * in the root folder of the repository checkout or at:
+ * http://www.carrot2.org/carrot2.LICENSE
+ */
+
+package org.carrot2.matrix;
+
+import org.carrot2.mahout.math.function.IntIntDoubleFunction;
+import org.carrot2.mahout.math.matrix.DoubleMatrix2D;
+import org.carrot2.mahout.math.matrix.impl.DenseDoubleMatrix2D;
+import org.carrot2.matrix.factorization.IMatrixFactorization;
+import org.carrot2.matrix.factorization.IterativeMatrixFactorizationFactory;
+import org.carrot2.matrix.factorization.KMeansMatrixFactorizationFactory;
+import org.carrot2.matrix.factorization.LocalNonnegativeMatrixFactorizationFactory;
+import org.carrot2.matrix.factorization.NonnegativeMatrixFactorizationEDFactory;
+import org.carrot2.matrix.factorization.NonnegativeMatrixFactorizationKLFactory;
+import org.carrot2.util.tests.CarrotTestCase;
+import org.junit.Test;
+
+/**
+ * Test cases for {@link CompressedColumnDoubleMatrix2D}.
+ */
+public class CompressedColumnDoubleMatrix2DTest extends CarrotTestCase
+{
+    private static final double DELTA = 1e-9;
+
+    @Test
+    public void testElementAccess()
+    {
+        final double [][] values = randomSparse(7, 5);
+        final DoubleMatrix2D sparse = compress(values);
+
+        MatrixAssertions.assertThat(sparse).isEquivalentTo(values);
+        MatrixAssertions.assertThat(sparse.viewDice()).isEquivalentTo(
+            new DenseDoubleMatrix2D(values).viewDice());
+        MatrixAssertions.assertThat(sparse.viewPart(1, 2, 4, 3)).isEquivalentTo(
+            new DenseDoubleMatrix2D(values).viewPart(1, 2, 4, 3));
+
+        final int [] rows = new int [] { 5, 0, 3 };
+        final int [] columns = new int [] { 4, 1 };
+        MatrixAssertions.assertThat(sparse.viewSelection(rows, columns).viewDice())
+            .isEquivalentTo(
+                new DenseDoubleMatrix2D(values).viewSelection(rows, columns).viewDice());
+
+        for (int c = 0; c < values[0].length; c++)
+        {
+            for (int r = 0; r < values.length; r++)
+            {
+                assertThat(sparse.viewColumn(c).get(r)).isEqualTo(values[r][c]);
+                assertThat(sparse.viewRow(r).get(c)).isEqualTo(values[r][c]);
+            }
+        }
+    }
+
+    @Test
+    public void testZMult()
+    {
+        final double [][] values = randomSparse(9, 6);
+        final DoubleMatrix2D sparse = compress(values);
+        final DoubleMatrix2D dense = new DenseDoubleMatrix2D(values);
+
+        final DoubleMatrix2D B = random(6, 3);
+        final DoubleMatrix2D BT = random(9, 3);
+
+        MatrixAssertions.assertThat(sparse.zMult(B, null, 2, 0, false, false))
+            .isEquivalentTo(dense.zMult(B, null, 2, 0, false, false), DELTA);
+        MatrixAssertions.assertThat(sparse.zMult(B.viewDice(), null, 1, 0, false, true))
+            .isEquivalentTo(dense.zMult(B, null, 1, 0, false, false), DELTA);
+        MatrixAssertions.assertThat(sparse.zMult(BT, null, 1, 0, true, false))
+            .isEquivalentTo(dense.zMult(BT, null, 1, 0, true, false), DELTA);
+        MatrixAssertions.assertThat(sparse.zMult(BT.viewDice(), null, 1, 0, true, true))
+            .isEquivalentTo(dense.zMult(BT, null, 1, 0, true, false), DELTA);
+
+        // Dense times sparse and accumulation into an existing result
+        final DoubleMatrix2D C = random(3, 6);
+        final DoubleMatrix2D expected = BT.zMult(dense, C.copy(), 1, 0.5, true, false);
+        MatrixAssertions.assertThat(BT.zMult(sparse, C, 1, 0.5, true, false))
+            .isEquivalentTo(expected, DELTA);
+    }
+
+    @Test
+    public void testNormalizeColumnL2()
+    {
+        final double [][] values = randomSparse(8, 5);
+        MatrixAssertions.assertThat(MatrixUtils.normalizeColumnL2(compress(values), null))
+            .isEquivalentTo(MatrixUtils.normalizeColumnL2(new DenseDoubleMatrix2D(values),
+                null), DELTA);
+    }
+
+    @Test
+    public void testFactorizations()
+    {
+        final double [][] values = randomSparse(20, 12);
+        checkFactorization(new NonnegativeMatrixFactorizationEDFactory(), values);
+        checkFactorization(new NonnegativeMatrixFactorizationKLFactory(), values);
+        checkFactorization(new LocalNonnegativeMatrixFactorizationFactory(), values);
+        checkFactorization(new KMeansMatrixFactorizationFactory(), values);
+    }
+
+    @Test
+    public void testCopyColumns()
+    {
+        final double [][] values = randomSparse(6, 5);
+        final int [] columns = new int [] { 3, 0, 3 };
+
+        final CompressedColumnDoubleMatrix2D copy = compress(values).copyColumns(columns);
+        MatrixAssertions.assertThat(copy).isEquivalentTo(
+            new DenseDoubleMatrix2D(values).viewSelection(null, columns));
+    }
+
+    @Test
+    public void testForEachNonZero()
+    {
+        final double [][] values = randomSparse(6, 5);
+        final DoubleMatrix2D sparse = compress(values);
+        final DoubleMatrix2D dense = new DenseDoubleMatrix2D(values);
+
+        final IntIntDoubleFunction twice = new IntIntDoubleFunction()
+        {
+            public double apply(int row, int column, double value)
+            {
+                return 2 * value;
+            }
+        };
+        sparse.forEachNonZero(twice);
+        dense.forEachNonZero(twice);
+        MatrixAssertions.assertThat(sparse).isEquivalentTo(dense);
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testStructureIsFixed()
+    {
+        final double [][] values = new double [] []
+        {
+            {
+                1, 0
+            },
+            {
+                0, 1
+            }
+        };
+        compress(values).setQuick(0, 1, 2);
+    }
+
+    private void checkFactorization(IterativeMatrixFactorizationFactory factory,
+        double [][] values)
+    {
+        factory.setK(3);
+        final DoubleMatrix2D sparse = MatrixUtils.normalizeColumnL2(compress(values), null);
+        final DoubleMatrix2D dense = MatrixUtils.normalizeColumnL2(
+            new DenseDoubleMatrix2D(values), null);
+
+        final IMatrixFactorization expected = factory.factorize(dense);
+        final IMatrixFactorization actual = factory.factorize(sparse);
+        MatrixAssertions.assertThat(actual.getU()).isEquivalentTo(expected.getU(), 1e-6);
+        MatrixAssertions.assertThat(actual.getV()).isEquivalentTo(expected.getV(), 1e-6);
+    }
+
+    private double [][] randomSparse(int rows, int columns)
+    {
+        final double [][] values = new double [rows] [columns];
+        for (int c = 0; c < columns; c++)
+        {
+            // Make sure no column is empty
+            values[randomIntBetween(0, rows - 1)][c] = 1 + randomInt(5);
+            for (int r = 0; r < rows; r++)
+            {
+                if (randomInt(3) == 0)
+                {
+                    values[r][c] = 1 + randomInt(5);
+                }
+            }
+        }
+        return values;
+    }
+
+    private DoubleMatrix2D random(int rows, int columns)
+    {
+        final DoubleMatrix2D matrix = new DenseDoubleMatrix2D(rows, columns);
+        for (int r = 0; r < rows; r++)
+        {
+            for (int c = 0; c < columns; c++)
+            {
+                matrix.setQuick(r, c, randomDouble());
+            }
+        }
+        return matrix;
+    }
+
+    static CompressedColumnDoubleMatrix2D compress(double [][] values)
+    {
+        final int rows = values.length;
+        final int columns = values[0].length;
+        final int [] columnPointers = new int [columns + 1];
+        int nonZeros = 0;
+        for (int c = 0; c < columns; c++)
+        {
+            for (int r = 0; r < rows; r++)
+            {
+                if (values[r][c] != 0)
+                {
+                    nonZeros++;
+                }
+            }
+            columnPointers[c + 1] = nonZeros;
+        }
+
+        final int [] rowIndices = new int [nonZeros];
+        final double [] elements = new double [nonZeros];
+        for (int c = 0, i = 0; c < columns; c++)
+        {
+            for (int r = 0; r < rows; r++)
+            {
+                if (values[r][c] != 0)
+                {
+                    rowIndices[i] = r;
+                    elements[i++] = values[r][c];
+                }
+            }
+        }
+
+        return new CompressedColumnDoubleMatrix2D(rows, columns, columnPointers,
+            rowIndices, elements);
+    }
+}
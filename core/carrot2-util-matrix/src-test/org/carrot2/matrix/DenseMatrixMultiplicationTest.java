@@ -0,0 +1,187 @@
+/*
+ * Carrot2 project.
+ *
+ * Copyright (C) 2002-2019, Dawid Weiss, Stanisław Osiński.
+ * All rights reserved.
+ *
+ * Refer to the full license file "carrot2.LICENSE"
+ * in the root folder of the repository checkout or at:
+ * http://www.carrot2.org/carrot2.LICENSE
+ */
+
+package org.carrot2.matrix;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.carrot2.mahout.math.matrix.DoubleMatrix2D;
+import org.carrot2.mahout.math.matrix.impl.DenseDoubleMatrix2D;
+import org.carrot2.mahout.math.matrix.impl.DenseMatrixMultiplication;
+import org.carrot2.util.tests.CarrotTestCase;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test cases for {@link DenseMatrixMultiplication}, used by
+ * {@link DenseDoubleMatrix2D#zMult(DoubleMatrix2D, DoubleMatrix2D, double, double, boolean, boolean)}.
+ */
+public class DenseMatrixMultiplicationTest extends CarrotTestCase
+{
+    private static final double DELTA = 1e-9;
+
+    @Test
+    public void testTranspositions()
+    {
+        // Sizes not aligned with the kernel's block sizes
+        final int m = 37, n = 301, p = 530;
+        final DoubleMatrix2D A = random(m, n);
+        final DoubleMatrix2D B = random(n, p);
+        final double [][] expected = multiply(A, B, null, 1, 0);
+
+        final DoubleMatrix2D AT = A.viewDice().copy();
+        final DoubleMatrix2D BT = B.viewDice().copy();
+        MatrixAssertions.assertThat(A.zMult(B, null, 1, 0, false, false)).isEquivalentTo(
+            expected, DELTA);
+        MatrixAssertions.assertThat(AT.zMult(B, null, 1, 0, true, false)).isEquivalentTo(
+            expected, DELTA);
+        MatrixAssertions.assertThat(A.zMult(BT, null, 1, 0, false, true)).isEquivalentTo(
+            expected, DELTA);
+        MatrixAssertions.assertThat(AT.zMult(BT, null, 1, 0, true, true)).isEquivalentTo(
+            expected, DELTA);
+    }
+
+    @Test
+    public void testViewsAndScaling()
+    {
+        final DoubleMatrix2D A = random(20, 15).viewPart(2, 3, 12, 9);
+        final DoubleMatrix2D B = random(9, 11).viewDice();
+        final DoubleMatrix2D C = random(14, 13).viewDice().viewPart(1, 2, 12, 11);
+        final double [][] expected = multiply(A, B.viewDice(), C, 0.5, -2);
+
+        A.zMult(B, C, 0.5, -2, false, true);
+        MatrixAssertions.assertThat(C).isEquivalentTo(expected, DELTA);
+    }
+
+    @Test
+    public void testZeroBeta()
+    {
+        final DoubleMatrix2D A = random(4, 3);
+        final DoubleMatrix2D B = random(3, 5);
+        final DoubleMatrix2D C = random(4, 5);
+        MatrixAssertions.assertThat(A.zMult(B, C, 1, 0, false, false)).isEquivalentTo(
+            multiply(A, B, null, 1, 0), DELTA);
+
+        // 0 * NaN is NaN, as in the naive product.
+        C.assign(Double.NaN);
+        A.zMult(B, C, 1, 0, false, false);
+        assertTrue(Double.isNaN(C.getQuick(2, 3)));
+    }
+
+    @Test
+    public void testZeroAlpha()
+    {
+        final DoubleMatrix2D A = random(4, 3);
+        final DoubleMatrix2D B = random(3, 5);
+        final DoubleMatrix2D C = random(4, 5);
+        final double [][] expected = multiply(A, B, C, 0, 2);
+        MatrixAssertions.assertThat(A.zMult(B, C, 0, 2, false, false)).isEquivalentTo(
+            expected, DELTA);
+
+        // 0 * Inf is NaN, as in the naive product.
+        A.setQuick(1, 2, Double.POSITIVE_INFINITY);
+        A.zMult(B, C, 0, 2, false, false);
+        assertTrue(Double.isNaN(C.getQuick(1, 0)));
+        assertEquals(2 * expected[0][0], C.getQuick(0, 0), DELTA);
+    }
+
+    @Test
+    public void testNonFiniteValuesPropagate()
+    {
+        final DoubleMatrix2D A = new DenseDoubleMatrix2D(new double [] []
+        {
+            {
+                0, 1
+            },
+            {
+                1, 0
+            }
+        });
+        final DoubleMatrix2D B = new DenseDoubleMatrix2D(new double [] []
+        {
+            {
+                Double.NaN, Double.POSITIVE_INFINITY
+            },
+            {
+                1, 1
+            }
+        });
+
+        // 0 * NaN and 0 * Inf are NaN, as in the naive product.
+        final DoubleMatrix2D C = A.zMult(B, null, 1, 0, false, false);
+        assertTrue(Double.isNaN(C.getQuick(0, 0)));
+        assertTrue(Double.isNaN(C.getQuick(0, 1)));
+        assertTrue(Double.isNaN(C.getQuick(1, 0)));
+        assertEquals(Double.POSITIVE_INFINITY, C.getQuick(1, 1), 0);
+    }
+
+    @Test
+    public void testParallel() throws InterruptedException
+    {
+        final DoubleMatrix2D A = random(65, 40);
+        final DoubleMatrix2D B = random(65, 70);
+        final DoubleMatrix2D C = random(40, 70);
+        final double [][] expected = multiply(A.viewDice(), B, C, 2, 1);
+
+        final long threshold = DenseMatrixMultiplication.getParallelThreshold();
+        final ForkJoinPool pool = new ForkJoinPool(3);
+        try
+        {
+            DenseMatrixMultiplication.setForkJoinPool(pool);
+            DenseMatrixMultiplication.setParallelThreshold(1000);
+            A.zMult(B, C, 2, 1, true, false);
+        }
+        finally
+        {
+            DenseMatrixMultiplication.setParallelThreshold(threshold);
+            DenseMatrixMultiplication.setForkJoinPool(null);
+            pool.shutdown();
+            pool.awaitTermination(10, TimeUnit.SECONDS);
+        }
+
+        MatrixAssertions.assertThat(C).isEquivalentTo(expected, DELTA);
+    }
+
+    private double [][] multiply(DoubleMatrix2D A, DoubleMatrix2D B, DoubleMatrix2D C,
+        double alpha, double beta)
+    {
+        final double [][] result = new double [A.rows()] [B.columns()];
+        for (int i = 0; i < A.rows(); i++)
+        {
+            for (int j = 0; j < B.columns(); j++)
+            {
+                double s = 0;
+                for (int k = 0; k < A.columns(); k++)
+                {
+                    s += A.getQuick(i, k) * B.getQuick(k, j);
+                }
+                result[i][j] = alpha * s + (C != null ? beta * C.getQuick(i, j) : 0);
+            }
+        }
+        return result;
+    }
+
+    private DoubleMatrix2D random(int rows, int columns)
+    {
+        final DoubleMatrix2D matrix = new DenseDoubleMatrix2D(rows, columns);
+        for (int r = 0; r < rows; r++)
+        {
+            for (int c = 0; c < columns; c++)
+            {
+                // Some zeros
+                matrix.setQuick(r, c, randomInt(4) == 0 ? 0 : randomDouble());
+            }
+        }
+        return matrix;
+    }
+}
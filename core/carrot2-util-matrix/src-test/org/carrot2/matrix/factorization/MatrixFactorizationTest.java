@@ -12,12 +12,18 @@
 
 package org.carrot2.matrix.factorization;
 
+import java.util.Arrays;
+
+import org.carrot2.mahout.math.function.Functions;
 import org.carrot2.mahout.math.matrix.DoubleMatrix2D;
 import org.carrot2.mahout.math.matrix.impl.DenseDoubleMatrix2D;
 import org.carrot2.matrix.MatrixAssertions;
+import org.carrot2.matrix.MatrixUtils;
 import org.carrot2.matrix.factorization.seeding.ISeedingStrategy;
 import org.carrot2.matrix.factorization.seeding.ISeedingStrategyFactory;
+import org.carrot2.matrix.factorization.seeding.WarmStartSeedingStrategyFactory;
 import org.carrot2.util.tests.CarrotTestCase;
+import org.fest.assertions.Delta;
 import org.junit.Test;
 
 /**
@@ -68,13 +74,13 @@ public class MatrixFactorizationTest extends CarrotTestCase
                 0, 0.752646
             },
             {
-                -0.651927, 0
+                0.651927, 0
             },
             {
-                -0.651927, 0
+                0.651927, 0
             },
             {
-                -0.387277, 0
+                0.387277, 0
             },
             {
                 0, 0.658425
@@ -84,25 +90,25 @@ public class MatrixFactorizationTest extends CarrotTestCase
         DoubleMatrix2D expectedV = new DenseDoubleMatrix2D(new double [] []
         {
             {
-                -0.557873, 0
+                0.557873, 0
             },
             {
-                -0.562741, 0
+                0.562741, 0
             },
             {
-                -2.775558E-017, 0.619628
+                2.775558E-017, 0.619628
             },
             {
-                8.326673E-017, 0.619628
+                -8.326673E-017, 0.619628
             },
             {
-                -0.23542, 0
+                0.23542, 0
             },
             {
-                -0.562741, 0
+                0.562741, 0
             },
             {
-                2.220446E-016, 0.48179
+                -2.220446E-016, 0.48179
             }
         });
 
@@ -115,6 +121,60 @@ public class MatrixFactorizationTest extends CarrotTestCase
         org.junit.Assert.assertArrayEquals(expectedS, factorization.getSingularValues(), DELTA);
     }
 
+    @Test
+    public void testTruncatedSVD()
+    {
+        // A rank-4 matrix large enough for the truncated decomposition to kick in.
+        final int rows = 60, columns = 40, rank = 4;
+        final DoubleMatrix2D X = new DenseDoubleMatrix2D(rows, rank);
+        final DoubleMatrix2D Y = new DenseDoubleMatrix2D(columns, rank);
+        for (int c = 0; c < rank; c++)
+        {
+            for (int r = 0; r < rows; r++)
+            {
+                X.setQuick(r, c, randomDouble());
+            }
+            for (int r = 0; r < columns; r++)
+            {
+                Y.setQuick(r, c, randomDouble());
+            }
+        }
+        final DoubleMatrix2D B = X.zMult(Y, null, 1, 0, false, true);
+
+        final PartialSingularValueDecompositionFactory full = new PartialSingularValueDecompositionFactory();
+        final PartialSingularValueDecomposition expected = (PartialSingularValueDecomposition) full
+            .factorize(B);
+        final double [] expectedS = expected.getSingularValues();
+
+        final PartialSingularValueDecompositionFactory truncated = new PartialSingularValueDecompositionFactory();
+        truncated.setK(rank);
+        final PartialSingularValueDecomposition factorization = (PartialSingularValueDecomposition) truncated
+            .factorize(B);
+
+        assertThat(factorization.getU().columns()).isEqualTo(rank);
+        assertThat(factorization.getV().columns()).isEqualTo(rank);
+        org.junit.Assert.assertArrayEquals(Arrays.copyOf(expectedS, rank),
+            factorization.getSingularValues(), DELTA);
+
+        // U * S * V' must reconstruct the input matrix.
+        final DoubleMatrix2D US = factorization.getU().copy();
+        for (int c = 0; c < rank; c++)
+        {
+            US.viewColumn(c).assign(Functions.mult(factorization.getSingularValues()[c]));
+        }
+        MatrixAssertions.assertThat(US.zMult(factorization.getV(), null, 1, 0, false, true))
+            .isEquivalentTo(B, DELTA);
+
+        // Base vectors are oriented towards the non-negative data in both computations.
+        for (int c = 0; c < rank; c++)
+        {
+            assertThat(factorization.getU().viewColumn(c).zSum()).isGreaterThanOrEqualTo(0);
+            assertThat(expected.getU().viewColumn(c).zSum()).isGreaterThanOrEqualTo(0);
+        }
+        MatrixAssertions.assertThat(factorization.getU().viewPart(0, 0, rows, 1))
+            .isEquivalentTo(expected.getU().viewPart(0, 0, rows, 1), DELTA);
+    }
+
     @Test
     public void testUnorderedNMFED()
     {
@@ -371,6 +431,127 @@ public class MatrixFactorizationTest extends CarrotTestCase
             new LocalNonnegativeMatrixFactorizationFactory());
     }
 
+    @Test
+    public void testTemporariesReusedBetweenFactorizations()
+    {
+        checkReuse(new NonnegativeMatrixFactorizationEDFactory(),
+            new NonnegativeMatrixFactorizationEDFactory());
+        checkReuse(new NonnegativeMatrixFactorizationKLFactory(),
+            new NonnegativeMatrixFactorizationKLFactory());
+        checkReuse(new LocalNonnegativeMatrixFactorizationFactory(),
+            new LocalNonnegativeMatrixFactorizationFactory());
+    }
+
+    @Test
+    public void testApproximationError()
+    {
+        final NonnegativeMatrixFactorizationEDFactory factory = new NonnegativeMatrixFactorizationEDFactory();
+        factory.setK(K);
+        factory.setMaxIterations(MAX_ITERATIONS);
+        factory.setStopThreshold(STOP_THRESHOLD);
+
+        final NonnegativeMatrixFactorizationED factorization = (NonnegativeMatrixFactorizationED) factory
+            .factorize(A);
+        final double expected = MatrixUtils.frobeniusNorm(factorization.getU()
+            .zMult(factorization.getV(), null, 1, 0, false, true)
+            .assign(A, Functions.MINUS));
+        assertThat(factorization.getApproximationError()).isEqualTo(expected,
+            Delta.delta(1e-9));
+    }
+
+    @Test
+    public void testIterationListener()
+    {
+        final int [] notifications = new int [1];
+        final NonnegativeMatrixFactorizationKLFactory factory = new NonnegativeMatrixFactorizationKLFactory();
+        factory.setK(K);
+        factory.setMaxIterations(MAX_ITERATIONS);
+        factory.setIterationListener(new IIterationListener()
+        {
+            public void iterationCompleted(IIterativeMatrixFactorization factorization,
+                int iteration, long elapsedNanos)
+            {
+                assertThat(iteration).isEqualTo(++notifications[0]);
+                assertThat(elapsedNanos).isGreaterThanOrEqualTo(0);
+                assertThat(factorization.getApproximationError()).isEqualTo(-1);
+            }
+        });
+
+        factory.factorize(A);
+        assertThat(notifications[0]).isEqualTo(MAX_ITERATIONS);
+    }
+
+    @Test
+    public void testWarmStart()
+    {
+        final DoubleMatrix2D matrix = new DenseDoubleMatrix2D(40, 25);
+        final Object [] keys = new Object [matrix.rows()];
+        for (int r = 0; r < matrix.rows(); r++)
+        {
+            keys[r] = "term" + r;
+            for (int c = 0; c < matrix.columns(); c++)
+            {
+                matrix.setQuick(r, c, randomInt(3) == 0 ? randomDouble() : 0);
+            }
+        }
+
+        final WarmStartSeedingStrategyFactory warmStart = new WarmStartSeedingStrategyFactory();
+        final NonnegativeMatrixFactorizationEDFactory factory = new NonnegativeMatrixFactorizationEDFactory();
+        factory.setK(5);
+        factory.setMaxIterations(500);
+        factory.setStopThreshold(1e-4);
+
+        // Without previous base vectors, warm start seeding is random seeding
+        factory.setSeedingFactory(warmStart.forRows(keys));
+        final IIterativeMatrixFactorization cold = (IIterativeMatrixFactorization) factory
+            .factorize(matrix);
+        warmStart.remember(keys, cold.getU());
+
+        // The same terms in a different order, as in a subsequent request
+        final int [] permutation = new int [matrix.rows()];
+        final Object [] permutedKeys = new Object [matrix.rows()];
+        for (int r = 0; r < permutation.length; r++)
+        {
+            permutation[r] = permutation.length - 1 - r;
+            permutedKeys[r] = keys[permutation[r]];
+        }
+        final DoubleMatrix2D permuted = matrix.viewSelection(permutation, null).copy();
+
+        factory.setSeedingFactory(warmStart.forRows(permutedKeys));
+        final IIterativeMatrixFactorization warm = (IIterativeMatrixFactorization) factory
+            .factorize(permuted);
+
+        assertThat(warm.getIterationsCompleted()).isLessThan(cold.getIterationsCompleted());
+        assertThat(warm.getApproximationError()).isLessThanOrEqualTo(
+            cold.getApproximationError() * 1.01);
+    }
+
+    private void checkReuse(IterativeMatrixFactorizationFactory reused,
+        IterativeMatrixFactorizationFactory fresh)
+    {
+        final DoubleMatrix2D larger = new DenseDoubleMatrix2D(9, 11);
+        for (int r = 0; r < larger.rows(); r++)
+        {
+            for (int c = 0; c < larger.columns(); c++)
+            {
+                larger.setQuick(r, c, randomDouble());
+            }
+        }
+
+        reused.setK(K);
+        fresh.setK(K);
+
+        // The second factorization runs in temporaries left over by the first one
+        final IMatrixFactorization first = reused.factorize(larger);
+        final DoubleMatrix2D firstU = first.getU().copy();
+        final IMatrixFactorization second = reused.factorize(A);
+
+        final IMatrixFactorization expected = fresh.factorize(A);
+        MatrixAssertions.assertThat(second.getU()).isEquivalentTo(expected.getU(), 0);
+        MatrixAssertions.assertThat(second.getV()).isEquivalentTo(expected.getV(), 0);
+        MatrixAssertions.assertThat(first.getU()).isEquivalentTo(firstU, 0);
+    }
+
     private IMatrixFactorization checkIterative(DoubleMatrix2D expectedU,
         DoubleMatrix2D expectedV, IterativeMatrixFactorizationFactory factory)
     {
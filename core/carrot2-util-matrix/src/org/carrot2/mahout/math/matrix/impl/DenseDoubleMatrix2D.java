@@ -25,6 +25,20 @@ public final class DenseDoubleMatrix2D extends DoubleMatrix2D {
     this.elements = new double[rows * columns];
   }
 
+  /**
+   * Carrot2: creates a matrix backed by (a row-major prefix of) an existing array,
+   * which allows reusing temporary storage. If the array is longer than
+   * <code>rows * columns</code>, the matrix behaves as a view.
+   */
+  public DenseDoubleMatrix2D(int rows, int columns, double[] elements) {
+    setUp(rows, columns);
+    if (elements.length < rows * columns) {
+      throw new IllegalArgumentException("Array too small: " + elements.length);
+    }
+    this.elements = elements;
+    this.isNoView = (elements.length == rows * columns);
+  }
+
   
   public static DoubleMatrix2D identity(int rowsAndColumns) {
     DoubleMatrix2D matrix = new DenseDoubleMatrix2D(rowsAndColumns, rowsAndColumns);
@@ -381,33 +395,27 @@ public final class DenseDoubleMatrix2D extends DoubleMatrix2D {
   public DoubleMatrix2D zMult(DoubleMatrix2D B, DoubleMatrix2D C, double alpha, double beta, boolean transposeA,
                               boolean transposeB) {
     // overriden for performance only
-    if (transposeA) {
-      return viewDice().zMult(B, C, alpha, beta, false, transposeB);
-    }
-    if (B instanceof SparseDoubleMatrix2D) {
-      // exploit quick sparse mult
+    if (!(B instanceof DenseDoubleMatrix2D)) {
+      // exploit quick sparse mult (or let other representations handle it)
       // A*B = (B' * A')'
       if (C == null) {
-        return B.zMult(this, null, alpha, beta, !transposeB, true).viewDice();
+        return B.zMult(this, null, alpha, beta, !transposeB, !transposeA).viewDice();
       } else {
-        B.zMult(this, C.viewDice(), alpha, beta, !transposeB, true);
+        B.zMult(this, C.viewDice(), alpha, beta, !transposeB, !transposeA);
         return C;
       }
     }
-    if (transposeB) {
-      return this.zMult(B.viewDice(), C, alpha, beta, transposeA, false);
-    }
 
-    int m = rows;
-    int n = columns;
-    int p = B.columns;
+    int m = transposeA ? columns : rows;
+    int n = transposeA ? rows : columns;
+    int p = transposeB ? B.rows : B.columns;
     if (C == null) {
       C = new DenseDoubleMatrix2D(m, p);
     }
     if (!(C instanceof DenseDoubleMatrix2D)) {
       return super.zMult(B, C, alpha, beta, transposeA, transposeB);
     }
-    if (B.rows != n) {
+    if ((transposeB ? B.columns : B.rows) != n) {
       throw new IllegalArgumentException(
           "Matrix2D inner dimensions must agree");
     }
@@ -421,96 +429,13 @@ public final class DenseDoubleMatrix2D extends DoubleMatrix2D {
 
     DenseDoubleMatrix2D BB = (DenseDoubleMatrix2D) B;
     DenseDoubleMatrix2D CC = (DenseDoubleMatrix2D) C;
-    double[] AElems = this.elements;
-    double[] BElems = BB.elements;
-    double[] CElems = CC.elements;
-    if (AElems == null || BElems == null || CElems == null) {
+    if (this.elements == null || BB.elements == null || CC.elements == null) {
       throw new IllegalStateException();
     }
 
-    int cA = this.columnStride;
-    int cB = BB.columnStride;
-    int cC = CC.columnStride;
-
-    int rA = this.rowStride;
-    int rB = BB.rowStride;
-    int rC = CC.rowStride;
-
-    /*
-    A is blocked to hide memory latency
-        xxxxxxx B
-        xxxxxxx
-        xxxxxxx
-    A
-    xxx     xxxxxxx C
-    xxx     xxxxxxx
-    ---     -------
-    xxx     xxxxxxx
-    xxx     xxxxxxx
-    ---     -------
-    xxx     xxxxxxx
-    */
-    int blockSize = 30000; // * 8 == Level 2 cache in bytes
-    //if (n+p == 0) return C;
-    //int m_optimal = (BLOCK_SIZE - n*p) / (n+p);
-    int mOptimal = (blockSize - n) / (n + 1);
-    if (mOptimal <= 0) {
-      mOptimal = 1;
-    }
-    int blocks = m / mOptimal;
-    if (m % mOptimal != 0) {
-      blocks++;
-    }
-    int rr = 0;
-    while (--blocks >= 0) {
-      int jB = BB.index(0, 0);
-      int indexA = index(rr, 0);
-      int jC = CC.index(rr, 0);
-      rr += mOptimal;
-      if (blocks == 0) {
-        mOptimal += m - rr;
-      }
-
-      for (int j = p; --j >= 0;) {
-        int iA = indexA;
-        int iC = jC;
-        for (int i = mOptimal; --i >= 0;) {
-          int kA = iA;
-          int kB = jB;
-
-          /*
-          // not unrolled:
-          for (int k = n; --k >= 0; ) {
-            //s += getQuick(i,k) * B.getQuick(k,j);
-            s += AElems[kA] * BElems[kB];
-            kB += rB;
-            kA += cA;
-          }
-          */
-
-          // loop unrolled
-          kA -= cA;
-          kB -= rB;
-
-          double s = 0;
-          for (int k = n % 4; --k >= 0;) {
-            s += AElems[kA += cA] * BElems[kB += rB];
-          }
-          for (int k = n / 4; --k >= 0;) {
-            s += AElems[kA += cA] * BElems[kB += rB]
-                + AElems[kA += cA] * BElems[kB += rB] 
-                + AElems[kA += cA] * BElems[kB += rB]
-                + AElems[kA += cA] * BElems[kB += rB];
-          }
-
-          CElems[iC] = alpha * s + beta * CElems[iC];
-          iA += rA;
-          iC += rC;
-        }
-        jB += cB;
-        jC += cC;
-      }
-    }
+    // cache-blocked (and possibly parallel) kernel, transpositions are
+    // handled by swapping strides rather than through diced views
+    DenseMatrixMultiplication.multiply(this, transposeA, BB, transposeB, CC, alpha, beta);
     return C;
   }
 
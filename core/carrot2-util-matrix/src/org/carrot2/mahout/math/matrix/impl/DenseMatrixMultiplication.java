@@ -0,0 +1,303 @@
+/*
+ * Carrot2 project.
+ *
+ * Copyright (C) 2002-2019, Dawid Weiss, Stanisław Osiński.
+ * All rights reserved.
+ *
+ * Refer to the full license file "carrot2.LICENSE"
+ * in the root folder of the repository checkout or at:
+ * http://www.carrot2.org/carrot2.LICENSE
+ */
+
+package org.carrot2.mahout.math.matrix.impl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Cache-blocked, optionally parallel multiplication kernel for
+ * {@link DenseDoubleMatrix2D}s. Transposed operands are handled by swapping strides,
+ * so no transposed views or copies are created.
+ * <p>
+ * For each block of the inner dimension and each block of result columns, the
+ * corresponding block of <i>B</i> is packed into a contiguous row-major buffer and rows
+ * of the result are accumulated with unit-stride inner loops. Multiplications whose
+ * number of multiply-add operations exceeds the {@link #getParallelThreshold()} are
+ * split by result rows and executed in a {@link ForkJoinPool}.
+ * <p>
+ * Zero values of <i>alpha</i>, <i>beta</i> or operand elements are not special-cased,
+ * so, as in the naive product, <code>NaN</code>s and infinities in the operands
+ * propagate to the result.
+ */
+public final class DenseMatrixMultiplication
+{
+    /**
+     * System property with the default {@link #getParallelThreshold()}.
+     */
+    public static final String PARALLEL_THRESHOLD_PROPERTY = "carrot2.matrix.parallelThreshold";
+
+    /**
+     * The default minimum number of multiply-add operations for which a multiplication
+     * is split into parallel tasks.
+     */
+    public static final long DEFAULT_PARALLEL_THRESHOLD = 1L << 23;
+
+    /** Block size along the inner dimension */
+    private static final int KC = 256;
+
+    /** Block size along the result columns */
+    private static final int NC = 512;
+
+    private static volatile long parallelThreshold = Long.getLong(
+        PARALLEL_THRESHOLD_PROPERTY, DEFAULT_PARALLEL_THRESHOLD);
+
+    private static volatile ForkJoinPool pool;
+
+    private DenseMatrixMultiplication()
+    {
+        // No instances.
+    }
+
+    /**
+     * Returns the minimum number of multiply-add operations for which a multiplication
+     * is executed in parallel.
+     */
+    public static long getParallelThreshold()
+    {
+        return parallelThreshold;
+    }
+
+    /**
+     * Sets the minimum number of multiply-add operations for which a multiplication is
+     * executed in parallel. Use {@link Long#MAX_VALUE} to disable parallel execution.
+     */
+    public static void setParallelThreshold(long threshold)
+    {
+        if (threshold <= 0)
+        {
+            throw new IllegalArgumentException("Threshold must be positive: " + threshold);
+        }
+        parallelThreshold = threshold;
+    }
+
+    /**
+     * Sets the pool in which parallel multiplications are executed. If
+     * <code>null</code>, a shared pool with one thread per available processor is
+     * created on first use.
+     */
+    public static void setForkJoinPool(ForkJoinPool forkJoinPool)
+    {
+        pool = forkJoinPool;
+    }
+
+    private static ForkJoinPool getForkJoinPool()
+    {
+        ForkJoinPool p = pool;
+        if (p == null)
+        {
+            synchronized (DenseMatrixMultiplication.class)
+            {
+                p = pool;
+                if (p == null)
+                {
+                    pool = p = new ForkJoinPool();
+                }
+            }
+        }
+        return p;
+    }
+
+    /**
+     * Computes <code>C = alpha * op(A) * op(B) + beta * C</code>, where
+     * <code>op(X)</code> is <code>X'</code> if the corresponding transposition flag is
+     * set. Arguments must be of compatible sizes; this is verified by the caller.
+     */
+    static void multiply(DenseDoubleMatrix2D A, boolean transposeA,
+        DenseDoubleMatrix2D B, boolean transposeB, DenseDoubleMatrix2D C, double alpha,
+        double beta)
+    {
+        final Operand a = new Operand(A, transposeA);
+        final Operand b = new Operand(B, transposeB);
+        final Operand c = new Operand(C, false);
+
+        final int m = a.rows;
+        final int n = a.columns;
+        final int p = b.columns;
+
+        final long work = (long) m * n * p;
+        final int parallelism = getParallelism(work, m);
+        if (parallelism <= 1)
+        {
+            multiply(a, b, c, alpha, beta, 0, m);
+        }
+        else
+        {
+            final List<RowRange> tasks = new ArrayList<RowRange>(parallelism);
+            final int step = (m + parallelism - 1) / parallelism;
+            for (int from = 0; from < m; from += step)
+            {
+                tasks.add(new RowRange(a, b, c, alpha, beta, from, Math.min(m, from + step)));
+            }
+            getForkJoinPool().invoke(new RecursiveAction()
+            {
+                @Override
+                protected void compute()
+                {
+                    invokeAll(tasks);
+                }
+            });
+        }
+    }
+
+    private static int getParallelism(long work, int rows)
+    {
+        final long threshold = parallelThreshold;
+        if (work < threshold || rows < 2)
+        {
+            return 1;
+        }
+
+        final long byWork = work / threshold + 1;
+        final int processors = pool != null ? pool.getParallelism() : Runtime
+            .getRuntime().availableProcessors();
+        return (int) Math.min(Math.min(byWork, processors), rows);
+    }
+
+    /**
+     * Multiplies the given range of result rows.
+     */
+    private static void multiply(Operand a, Operand b, Operand c, double alpha,
+        double beta, int fromRow, int toRow)
+    {
+        final int n = a.columns;
+        final int p = b.columns;
+
+        final double [] A = a.elements;
+        final double [] B = b.elements;
+        final double [] C = c.elements;
+
+        // Scale the result first, then accumulate products block by block.
+        for (int i = fromRow; i < toRow; i++)
+        {
+            for (int j = 0, ic = c.index(i, 0); j < p; j++, ic += c.columnStride)
+            {
+                C[ic] = beta * C[ic];
+            }
+        }
+        if (n == 0)
+        {
+            return;
+        }
+
+        final double [] packed = new double [Math.min(KC, n) * Math.min(NC, p)];
+        final double [] row = new double [Math.min(NC, p)];
+
+        for (int jj = 0; jj < p; jj += NC)
+        {
+            final int nc = Math.min(NC, p - jj);
+            for (int kk = 0; kk < n; kk += KC)
+            {
+                final int kc = Math.min(KC, n - kk);
+
+                // Pack B[kk:kk+kc, jj:jj+nc] into a row-major buffer.
+                for (int k = 0; k < kc; k++)
+                {
+                    final int offset = k * nc;
+                    for (int j = 0, ib = b.index(kk + k, jj); j < nc; j++, ib += b.columnStride)
+                    {
+                        packed[offset + j] = B[ib];
+                    }
+                }
+
+                for (int i = fromRow; i < toRow; i++)
+                {
+                    Arrays.fill(row, 0, nc, 0);
+                    for (int k = 0, ia = a.index(i, kk); k < kc; k++, ia += a.columnStride)
+                    {
+                        final double aik = A[ia];
+                        final int offset = k * nc;
+                        for (int j = 0; j < nc; j++)
+                        {
+                            row[j] += aik * packed[offset + j];
+                        }
+                    }
+
+                    for (int j = 0, ic = c.index(i, jj); j < nc; j++, ic += c.columnStride)
+                    {
+                        C[ic] += alpha * row[j];
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Storage layout of a (possibly transposed) dense matrix.
+     */
+    private static final class Operand
+    {
+        final double [] elements;
+        final int rows;
+        final int columns;
+        final int zero;
+        final int rowStride;
+        final int columnStride;
+
+        Operand(DenseDoubleMatrix2D matrix, boolean transpose)
+        {
+            this.elements = matrix.elements;
+            this.zero = matrix.index(0, 0);
+            if (transpose)
+            {
+                this.rows = matrix.columns;
+                this.columns = matrix.rows;
+                this.rowStride = matrix.columnStride;
+                this.columnStride = matrix.rowStride;
+            }
+            else
+            {
+                this.rows = matrix.rows;
+                this.columns = matrix.columns;
+                this.rowStride = matrix.rowStride;
+                this.columnStride = matrix.columnStride;
+            }
+        }
+
+        int index(int row, int column)
+        {
+            return zero + row * rowStride + column * columnStride;
+        }
+    }
+
+    /**
+     * Parallel task multiplying a range of result rows.
+     */
+    @SuppressWarnings("serial")
+    private static final class RowRange extends RecursiveAction
+    {
+        private final Operand a, b, c;
+        private final double alpha, beta;
+        private final int fromRow, toRow;
+
+        RowRange(Operand a, Operand b, Operand c, double alpha, double beta, int fromRow,
+            int toRow)
+        {
+            this.a = a;
+            this.b = b;
+            this.c = c;
+            this.alpha = alpha;
+            this.beta = beta;
+            this.fromRow = fromRow;
+            this.toRow = toRow;
+        }
+
+        @Override
+        protected void compute()
+        {
+            multiply(a, b, c, alpha, beta, fromRow, toRow);
+        }
+    }
+}
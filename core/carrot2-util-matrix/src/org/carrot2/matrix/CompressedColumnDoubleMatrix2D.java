@@ -0,0 +1,541 @@
+/*
+ * Carrot2 project.
+ *
+ * Copyright (C) 2002-2019, Dawid Weiss, Stanisław Osiński.
+ * All rights reserved.
+ *
+ * Refer to the full license file "carrot2.LICENSE"
+ * in the root folder of the repository checkout or at:
+ * http://www.carrot2.org/carrot2.LICENSE
+ */
+
+package org.carrot2.matrix;
+
+import java.util.Arrays;
+
+import org.carrot2.mahout.math.function.Functions;
+import org.carrot2.mahout.math.function.IntIntDoubleFunction;
+import org.carrot2.mahout.math.matrix.DoubleMatrix1D;
+import org.carrot2.mahout.math.matrix.DoubleMatrix2D;
+import org.carrot2.mahout.math.matrix.impl.AbstractMatrix2D;
+import org.carrot2.mahout.math.matrix.impl.DenseDoubleMatrix1D;
+import org.carrot2.mahout.math.matrix.impl.DenseDoubleMatrix2D;
+
+/**
+ * A sparse matrix stored in the compressed sparse column (CSC) format. Non-zero
+ * elements of each column are kept in consecutive slots of the {@link #values} array,
+ * ordered by their row index. Column <code>c</code> occupies slots
+ * <code>columnPointers[c]</code> (inclusive) to <code>columnPointers[c + 1]</code>
+ * (exclusive).
+ * <p>
+ * The sparsity structure of the matrix is fixed at construction time: existing elements
+ * can be modified, but an attempt to set a non-zero value to an element outside of the
+ * structure will result in an {@link UnsupportedOperationException}. Matrices created
+ * by {@link #like(int, int)} are dense. Views (transposition, parts, selections, rows
+ * and columns) are supported, though only operations on the matrix itself take
+ * advantage of the compressed storage.
+ */
+public final class CompressedColumnDoubleMatrix2D extends DoubleMatrix2D
+{
+    /** Column start offsets, <code>columns + 1</code> elements */
+    final int [] columnPointers;
+
+    /** Row index of each stored element */
+    final int [] rowIndices;
+
+    /** Value of each stored element */
+    final double [] values;
+
+    /**
+     * The number of columns of the underlying storage, used to decode raw indices of
+     * views.
+     */
+    private final int storageColumns;
+
+    /**
+     * Creates a matrix from raw compressed sparse column arrays. The arrays are not
+     * copied. Row indices of each column must be sorted in the ascending order.
+     *
+     * @param rows the number of rows
+     * @param columns the number of columns
+     * @param columnPointers start offsets of columns in <code>rowIndices</code> and
+     *            <code>values</code>, <code>columns + 1</code> elements, the last of
+     *            which is the number of stored elements
+     * @param rowIndices row index of each stored element
+     * @param values value of each stored element
+     */
+    public CompressedColumnDoubleMatrix2D(int rows, int columns, int [] columnPointers,
+        int [] rowIndices, double [] values)
+    {
+        if (columnPointers.length != columns + 1)
+        {
+            throw new IllegalArgumentException("Expected " + (columns + 1)
+                + " column pointers, got: " + columnPointers.length);
+        }
+        if (rowIndices.length < columnPointers[columns]
+            || values.length < columnPointers[columns])
+        {
+            throw new IllegalArgumentException("Row indices or values array too short");
+        }
+
+        setUp(rows, columns);
+        this.columnPointers = columnPointers;
+        this.rowIndices = rowIndices;
+        this.values = values;
+        this.storageColumns = columns;
+    }
+
+    /**
+     * Returns the number of stored (structurally non-zero) elements.
+     */
+    public int nonZeros()
+    {
+        return columnPointers[storageColumns];
+    }
+
+    /**
+     * Returns <code>true</code> if this object is a view of another compressed matrix.
+     */
+    boolean isView()
+    {
+        return !isNoView;
+    }
+
+    @Override
+    public double getQuick(int row, int column)
+    {
+        if (isNoView)
+        {
+            final int slot = slotOf(row, column);
+            return slot >= 0 ? values[slot] : 0;
+        }
+        return getRaw(index(row, column));
+    }
+
+    @Override
+    public void setQuick(int row, int column, double value)
+    {
+        if (isNoView)
+        {
+            set(slotOf(row, column), value);
+        }
+        else
+        {
+            setRaw(index(row, column), value);
+        }
+    }
+
+    @Override
+    public DoubleMatrix2D assign(double value)
+    {
+        if (isNoView && value == 0)
+        {
+            Arrays.fill(values, 0, nonZeros(), 0);
+            return this;
+        }
+        return super.assign(value);
+    }
+
+    @Override
+    public DoubleMatrix2D copy()
+    {
+        if (isNoView)
+        {
+            return new CompressedColumnDoubleMatrix2D(rows, columns, columnPointers
+                .clone(), rowIndices.clone(), values.clone());
+        }
+        return super.copy();
+    }
+
+    @Override
+    public int cardinality()
+    {
+        if (isNoView)
+        {
+            int cardinality = 0;
+            for (int i = nonZeros(); --i >= 0;)
+            {
+                if (values[i] != 0)
+                {
+                    cardinality++;
+                }
+            }
+            return cardinality;
+        }
+        return super.cardinality();
+    }
+
+    @Override
+    public double zSum()
+    {
+        if (isNoView)
+        {
+            double sum = 0;
+            for (int i = nonZeros(); --i >= 0;)
+            {
+                sum += values[i];
+            }
+            return sum;
+        }
+        return super.zSum();
+    }
+
+    @Override
+    public void forEachNonZero(IntIntDoubleFunction function)
+    {
+        if (isNoView)
+        {
+            for (int c = 0; c < columns; c++)
+            {
+                for (int i = columnPointers[c]; i < columnPointers[c + 1]; i++)
+                {
+                    final double value = values[i];
+                    if (value != 0)
+                    {
+                        values[i] = function.apply(rowIndices[i], c, value);
+                    }
+                }
+            }
+        }
+        else
+        {
+            super.forEachNonZero(function);
+        }
+    }
+
+    /**
+     * Returns a new compressed matrix containing copies of the given columns of this
+     * matrix. Unlike <code>viewSelection(null, columns).copy()</code>, the result is not
+     * stored densely.
+     */
+    public CompressedColumnDoubleMatrix2D copyColumns(int [] columns)
+    {
+        if (!isNoView)
+        {
+            throw new UnsupportedOperationException("Not supported for views.");
+        }
+
+        final int [] pointers = new int [columns.length + 1];
+        for (int c = 0; c < columns.length; c++)
+        {
+            checkColumn(columns[c]);
+            pointers[c + 1] = pointers[c] + columnPointers[columns[c] + 1]
+                - columnPointers[columns[c]];
+        }
+
+        final int [] rowIndices = new int [pointers[columns.length]];
+        final double [] values = new double [pointers[columns.length]];
+        for (int c = 0; c < columns.length; c++)
+        {
+            final int from = columnPointers[columns[c]];
+            final int length = pointers[c + 1] - pointers[c];
+            System.arraycopy(this.rowIndices, from, rowIndices, pointers[c], length);
+            System.arraycopy(this.values, from, values, pointers[c], length);
+        }
+
+        return new CompressedColumnDoubleMatrix2D(rows, columns.length, pointers,
+            rowIndices, values);
+    }
+
+    @Override
+    public DoubleMatrix2D like(int rows, int columns)
+    {
+        return new DenseDoubleMatrix2D(rows, columns);
+    }
+
+    @Override
+    public DoubleMatrix1D like1D(int size)
+    {
+        return new DenseDoubleMatrix1D(size);
+    }
+
+    @Override
+    protected DoubleMatrix1D like1D(int size, int zero, int stride)
+    {
+        return new VectorView(this, size, zero, stride, null, 0);
+    }
+
+    @Override
+    protected DoubleMatrix2D viewSelectionLike(int [] rowOffsets, int [] columnOffsets)
+    {
+        return new SelectionView(this, rowOffsets, columnOffsets);
+    }
+
+    /**
+     * Multiplication that iterates over stored elements only. Falls back to the generic
+     * implementation for views.
+     */
+    @Override
+    public DoubleMatrix2D zMult(DoubleMatrix2D B, DoubleMatrix2D C, double alpha,
+        double beta, boolean transposeA, boolean transposeB)
+    {
+        if (!isNoView)
+        {
+            return super.zMult(B, C, alpha, beta, transposeA, transposeB);
+        }
+
+        final int m = transposeA ? columns : rows;
+        final int n = transposeA ? rows : columns;
+        final int p = transposeB ? B.rows() : B.columns();
+        if ((transposeB ? B.columns() : B.rows()) != n)
+        {
+            throw new IllegalArgumentException("Matrix2D inner dimensions must agree");
+        }
+        if (C == null)
+        {
+            C = new DenseDoubleMatrix2D(m, p);
+        }
+        else
+        {
+            if (C.rows() != m || C.columns() != p)
+            {
+                throw new IllegalArgumentException("Incompatible result matrix");
+            }
+            if (C == this || C == B)
+            {
+                throw new IllegalArgumentException("Matrices must not be identical");
+            }
+            if (beta == 0)
+            {
+                C.assign(0);
+            }
+            else if (beta != 1)
+            {
+                C.assign(Functions.mult(beta));
+            }
+        }
+
+        if (transposeA)
+        {
+            // C[c, :] += sum over stored A[r, c] * B[r, :]
+            final double [] row = new double [p];
+            for (int c = 0; c < columns; c++)
+            {
+                Arrays.fill(row, 0);
+                for (int i = columnPointers[c]; i < columnPointers[c + 1]; i++)
+                {
+                    final int r = rowIndices[i];
+                    final double a = values[i];
+                    for (int j = 0; j < p; j++)
+                    {
+                        row[j] += a * (transposeB ? B.getQuick(j, r) : B.getQuick(r, j));
+                    }
+                }
+                for (int j = 0; j < p; j++)
+                {
+                    C.setQuick(c, j, C.getQuick(c, j) + alpha * row[j]);
+                }
+            }
+        }
+        else
+        {
+            // C[r, :] += A[r, c] * B[c, :] for each stored A[r, c]
+            for (int c = 0; c < columns; c++)
+            {
+                for (int i = columnPointers[c]; i < columnPointers[c + 1]; i++)
+                {
+                    final int r = rowIndices[i];
+                    final double a = alpha * values[i];
+                    for (int j = 0; j < p; j++)
+                    {
+                        C.setQuick(r, j, C.getQuick(r, j) + a
+                            * (transposeB ? B.getQuick(j, c) : B.getQuick(c, j)));
+                    }
+                }
+            }
+        }
+
+        return C;
+    }
+
+    /**
+     * Returns the slot of element at (<code>row</code>, <code>column</code>) of the
+     * underlying storage or a negative value if the element is not stored.
+     */
+    private int slotOf(int row, int column)
+    {
+        return Arrays.binarySearch(rowIndices, columnPointers[column],
+            columnPointers[column + 1], row);
+    }
+
+    private void set(int slot, double value)
+    {
+        if (slot >= 0)
+        {
+            values[slot] = value;
+        }
+        else if (value != 0)
+        {
+            throw new UnsupportedOperationException(
+                "Sparsity structure of a compressed column matrix cannot be changed.");
+        }
+    }
+
+    /**
+     * Raw indices of views follow a row-major layout of the underlying storage, the same
+     * as the one set up by {@link #setUp(int, int)}.
+     */
+    double getRaw(int rawIndex)
+    {
+        final int slot = slotOf(rawIndex / storageColumns, rawIndex % storageColumns);
+        return slot >= 0 ? values[slot] : 0;
+    }
+
+    void setRaw(int rawIndex, double value)
+    {
+        set(slotOf(rawIndex / storageColumns, rawIndex % storageColumns), value);
+    }
+
+    /**
+     * A row, column or selection view of a {@link CompressedColumnDoubleMatrix2D}.
+     */
+    private static final class VectorView extends DoubleMatrix1D
+    {
+        private final CompressedColumnDoubleMatrix2D content;
+
+        /** Raw index offsets of a selection view, <code>null</code> otherwise */
+        private final int [] offsets;
+        private final int offset;
+
+        VectorView(CompressedColumnDoubleMatrix2D content, int size, int zero,
+            int stride, int [] offsets, int offset)
+        {
+            setUp(size, zero, stride);
+            this.content = content;
+            this.offsets = offsets;
+            this.offset = offset;
+            this.isNoView = false;
+        }
+
+        @Override
+        public double getQuick(int index)
+        {
+            return content.getRaw(index(index));
+        }
+
+        @Override
+        public void setQuick(int index, double value)
+        {
+            content.setRaw(index(index), value);
+        }
+
+        @Override
+        protected int offset(int absRank)
+        {
+            return offsets != null ? offset + offsets[absRank] : absRank;
+        }
+
+        @Override
+        public DoubleMatrix1D like(int size)
+        {
+            return new DenseDoubleMatrix1D(size);
+        }
+
+        @Override
+        public DoubleMatrix2D like2D(int rows, int columns)
+        {
+            return new DenseDoubleMatrix2D(rows, columns);
+        }
+
+        @Override
+        protected DoubleMatrix1D viewSelectionLike(int [] offsets)
+        {
+            return new VectorView(content, offsets.length, 0, 1, offsets, 0);
+        }
+    }
+
+    /**
+     * A selection view of a {@link CompressedColumnDoubleMatrix2D}.
+     */
+    private static final class SelectionView extends DoubleMatrix2D
+    {
+        private final CompressedColumnDoubleMatrix2D content;
+        private int [] rowOffsets;
+        private int [] columnOffsets;
+
+        SelectionView(CompressedColumnDoubleMatrix2D content, int [] rowOffsets,
+            int [] columnOffsets)
+        {
+            setUp(rowOffsets.length, columnOffsets.length, 0, 0, 1, 1);
+            this.content = content;
+            this.rowOffsets = rowOffsets;
+            this.columnOffsets = columnOffsets;
+            this.isNoView = false;
+        }
+
+        @Override
+        public double getQuick(int row, int column)
+        {
+            return content.getRaw(index(row, column));
+        }
+
+        @Override
+        public void setQuick(int row, int column, double value)
+        {
+            content.setRaw(index(row, column), value);
+        }
+
+        @Override
+        protected int rowOffset(int absRank)
+        {
+            return rowOffsets[absRank];
+        }
+
+        @Override
+        protected int columnOffset(int absRank)
+        {
+            return columnOffsets[absRank];
+        }
+
+        @Override
+        protected AbstractMatrix2D vDice()
+        {
+            super.vDice();
+            final int [] tmp = rowOffsets;
+            rowOffsets = columnOffsets;
+            columnOffsets = tmp;
+            return this;
+        }
+
+        @Override
+        public DoubleMatrix1D viewColumn(int column)
+        {
+            checkColumn(column);
+            return new VectorView(content, rows, rowZero, rowStride, rowOffsets,
+                columnOffset(columnRank(column)));
+        }
+
+        @Override
+        public DoubleMatrix1D viewRow(int row)
+        {
+            checkRow(row);
+            return new VectorView(content, columns, columnZero, columnStride,
+                columnOffsets, rowOffset(rowRank(row)));
+        }
+
+        @Override
+        public DoubleMatrix2D like(int rows, int columns)
+        {
+            return new DenseDoubleMatrix2D(rows, columns);
+        }
+
+        @Override
+        public DoubleMatrix1D like1D(int size)
+        {
+            return new DenseDoubleMatrix1D(size);
+        }
+
+        @Override
+        protected DoubleMatrix1D like1D(int size, int zero, int stride)
+        {
+            // Never called, viewRow() and viewColumn() are overridden.
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        protected DoubleMatrix2D viewSelectionLike(int [] rowOffsets, int [] columnOffsets)
+        {
+            return new SelectionView(content, rowOffsets, columnOffsets);
+        }
+    }
+}
@@ -43,6 +43,13 @@ public class MatrixUtils
     {
         work = prepareWork(A, work);
 
+        if (A instanceof CompressedColumnDoubleMatrix2D
+            && !((CompressedColumnDoubleMatrix2D) A).isView())
+        {
+            normalizeCompressedColumnL2((CompressedColumnDoubleMatrix2D) A, work);
+            return A;
+        }
+
         // Calculate the L2 norm for each column
         for (int r = 0; r < A.rows(); r++)
         {
@@ -64,6 +71,32 @@ public class MatrixUtils
         return A;
     }
 
+    /**
+     * Normalizes columns of a compressed column matrix, touching stored elements only.
+     */
+    private static void normalizeCompressedColumnL2(CompressedColumnDoubleMatrix2D A,
+        double [] work)
+    {
+        final int [] columnPointers = A.columnPointers;
+        final double [] values = A.values;
+        for (int c = 0; c < A.columns(); c++)
+        {
+            for (int i = columnPointers[c]; i < columnPointers[c + 1]; i++)
+            {
+                work[c] += values[i] * values[i];
+            }
+
+            work[c] = Math.sqrt(work[c]);
+            if (work[c] != 0)
+            {
+                for (int i = columnPointers[c]; i < columnPointers[c + 1]; i++)
+                {
+                    values[i] /= work[c];
+                }
+            }
+        }
+    }
+
     /**
      * Normalizes column vectors of a sparse matrix <code>A</code> so that their L2 norm
      * (Euclidean distance) is equal to 1.0.
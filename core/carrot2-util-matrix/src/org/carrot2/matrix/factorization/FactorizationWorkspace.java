@@ -0,0 +1,74 @@
+/*
+ * Carrot2 project.
+ *
+ * Copyright (C) 2002-2019, Dawid Weiss, Stanisław Osiński.
+ * All rights reserved.
+ *
+ * Refer to the full license file "carrot2.LICENSE"
+ * in the root folder of the repository checkout or at:
+ * http://www.carrot2.org/carrot2.LICENSE
+ */
+
+package org.carrot2.matrix.factorization;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.carrot2.mahout.math.matrix.impl.DenseDoubleMatrix2D;
+
+/**
+ * Storage for the temporary matrices of iterative factorizations, reused between
+ * subsequent factorizations. Arrays only grow, so once warmed up, factorizations of
+ * matrices of similar sizes do not allocate any temporaries. A workspace must not be
+ * used by more than one factorization at a time.
+ */
+final class FactorizationWorkspace
+{
+    private double [][] buffers = new double [0] [];
+
+    /**
+     * Returns an array of at least <code>length</code> elements stored in the given
+     * slot. The contents of the array are undefined.
+     */
+    double [] array(int slot, int length)
+    {
+        if (slot >= buffers.length)
+        {
+            buffers = Arrays.copyOf(buffers, slot + 1);
+        }
+        if (buffers[slot] == null || buffers[slot].length < length)
+        {
+            buffers[slot] = new double [length];
+        }
+        return buffers[slot];
+    }
+
+    /**
+     * Returns a matrix backed by the array stored in the given slot. The contents of the
+     * matrix are undefined.
+     */
+    DenseDoubleMatrix2D matrix(int slot, int rows, int columns)
+    {
+        return new DenseDoubleMatrix2D(rows, columns, array(slot, rows * columns));
+    }
+
+    /**
+     * Holds a workspace shared by factorizations created by one factory. Concurrent
+     * factorizations receive fresh workspaces.
+     */
+    static final class Holder
+    {
+        private final AtomicReference<FactorizationWorkspace> workspace = new AtomicReference<FactorizationWorkspace>();
+
+        FactorizationWorkspace borrow()
+        {
+            final FactorizationWorkspace borrowed = workspace.getAndSet(null);
+            return borrowed != null ? borrowed : new FactorizationWorkspace();
+        }
+
+        void release(FactorizationWorkspace released)
+        {
+            workspace.set(released);
+        }
+    }
+}
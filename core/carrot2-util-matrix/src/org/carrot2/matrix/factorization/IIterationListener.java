@@ -0,0 +1,30 @@
+/*
+ * Carrot2 project.
+ *
+ * Copyright (C) 2002-2019, Dawid Weiss, Stanisław Osiński.
+ * All rights reserved.
+ *
+ * Refer to the full license file "carrot2.LICENSE"
+ * in the root folder of the repository checkout or at:
+ * http://www.carrot2.org/carrot2.LICENSE
+ */
+
+package org.carrot2.matrix.factorization;
+
+/**
+ * Receives notifications about the progress of an iterative matrix factorization.
+ */
+public interface IIterationListener
+{
+    /**
+     * Called after each completed iteration.
+     *
+     * @param factorization the factorization in progress. If approximation error is being
+     *            computed, {@link IIterativeMatrixFactorization#getApproximationError()}
+     *            returns the error after this iteration.
+     * @param iteration the number of iterations completed so far
+     * @param elapsedNanos time spent in this iteration, in nanoseconds
+     */
+    public void iterationCompleted(IIterativeMatrixFactorization factorization,
+        int iteration, long elapsedNanos);
+}
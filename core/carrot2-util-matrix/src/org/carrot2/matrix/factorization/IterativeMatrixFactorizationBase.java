@@ -36,10 +36,10 @@ abstract class IterativeMatrixFactorizationBase extends MatrixFactorizationBase
 
     /**
      * If the percentage decrease in approximation error becomes smaller than
-     * <code>stopThreshold</code>, the algorithm will stop. Note: calculation of
-     * approximation error is quite costly. Setting the threshold to -1 turns off
-     * approximation error calculation and hence makes the algorithm do the maximum number
-     * of iterations.
+     * <code>stopThreshold</code>, the algorithm will stop. The approximation error is
+     * updated incrementally at a cost proportional to the size of U and V rather than A.
+     * Setting the threshold to -1 turns off approximation error calculation and hence
+     * makes the algorithm do the maximum number of iterations.
      */
     protected double stopThreshold;
     protected static double DEFAULT_STOP_THRESHOLD = -1.0;
@@ -65,6 +65,15 @@ abstract class IterativeMatrixFactorizationBase extends MatrixFactorizationBase
     /** Sorting aggregates */
     protected double [] aggregates;
 
+    /** Storage for temporary matrices, may be shared with previous factorizations */
+    private FactorizationWorkspace workspace;
+
+    /** Notified after each iteration, may be <code>null</code> */
+    protected IIterationListener iterationListener;
+
+    /** Squared Frobenius norm of A, computed on first use */
+    private double normASquared = -1;
+
     /**
      */
     public IterativeMatrixFactorizationBase(DoubleMatrix2D A)
@@ -99,20 +108,70 @@ abstract class IterativeMatrixFactorizationBase extends MatrixFactorizationBase
         return k;
     }
 
+    /**
+     * Sets the storage for temporary matrices to be used by {@link #compute()}.
+     */
+    void setWorkspace(FactorizationWorkspace workspace)
+    {
+        this.workspace = workspace;
+    }
+
+    /**
+     * Returns the storage for temporary matrices, creating a private one if none has been
+     * set.
+     */
+    FactorizationWorkspace getWorkspace()
+    {
+        if (workspace == null)
+        {
+            workspace = new FactorizationWorkspace();
+        }
+        return workspace;
+    }
+
     /**
      * @return true if the decrease in the approximation error is smaller than the
      *         <code>stopThreshold</code>
      */
     protected boolean updateApproximationError()
+    {
+        return updateApproximationError(null);
+    }
+
+    /**
+     * Updates the approximation error without computing UV'. The squared error is
+     * expanded to <code>||A||^2 - 2 tr(U'AV) + tr(U'U V'V)</code>, where
+     * <code>||A||^2</code> is computed once and the remaining terms involve
+     * <i>k</i>-column matrices only.
+     * 
+     * @param AV the product of A and the current V if available to the caller,
+     *            <code>null</code> to compute it here
+     * @return true if the decrease in the approximation error is smaller than the
+     *         <code>stopThreshold</code>
+     */
+    protected boolean updateApproximationError(DoubleMatrix2D AV)
     {
         if (approximationErrors == null)
         {
             approximationErrors = new double [maxIterations + 1];
         }
 
-        // Approximation error
-        double newApproximationError = MatrixUtils.frobeniusNorm(U.zMult(V, null, 1, 0,
-            false, true).assign(A, Functions.MINUS));
+        if (normASquared < 0)
+        {
+            normASquared = A.aggregate(Functions.PLUS, Functions.SQUARE);
+        }
+        if (AV == null)
+        {
+            AV = A.zMult(V, null, 1, 0, false, false);
+        }
+
+        final DoubleMatrix2D UU = U.zMult(U, null, 1, 0, true, false);
+        final DoubleMatrix2D VV = V.zMult(V, null, 1, 0, true, false);
+        final double squaredError = normASquared - 2 * U.aggregate(AV, Functions.PLUS,
+            Functions.MULT) + UU.aggregate(VV, Functions.PLUS, Functions.MULT);
+
+        // Rounding may make the expansion slightly negative for exact factorizations
+        double newApproximationError = Math.sqrt(Math.max(0, squaredError));
         approximationErrors[iterationsCompleted] = newApproximationError;
 
         if ((approximationError - newApproximationError) / approximationError < stopThreshold)
@@ -127,6 +186,34 @@ abstract class IterativeMatrixFactorizationBase extends MatrixFactorizationBase
         }
     }
 
+    /**
+     * Counts a completed iteration, updates the approximation error if required and
+     * notifies the {@link #iterationListener}.
+     * 
+     * @param AV the product of A and the current V if available, or <code>null</code>
+     * @param iterationStart {@link System#nanoTime()} at the start of the iteration
+     * @return true if the algorithm should stop, which is also the case when the
+     *         current thread has been interrupted
+     */
+    protected boolean iterationCompleted(DoubleMatrix2D AV, long iterationStart)
+    {
+        iterationsCompleted++;
+
+        boolean converged = false;
+        if (stopThreshold >= 0)
+        {
+            converged = updateApproximationError(AV);
+        }
+
+        if (iterationListener != null)
+        {
+            iterationListener.iterationCompleted(this, iterationsCompleted,
+                System.nanoTime() - iterationStart);
+        }
+
+        return converged || Thread.currentThread().isInterrupted();
+    }
+
     /**
      * Orders U and V matrices according to the 'activity' of base vectors.
      */
@@ -162,6 +249,22 @@ abstract class IterativeMatrixFactorizationBase extends MatrixFactorizationBase
         this.seedingStrategy = seedingStrategy;
     }
 
+    /**
+     * Returns the listener notified after each iteration, or <code>null</code>.
+     */
+    public IIterationListener getIterationListener()
+    {
+        return iterationListener;
+    }
+
+    /**
+     * Sets the listener to be notified after each iteration.
+     */
+    public void setIterationListener(IIterationListener iterationListener)
+    {
+        this.iterationListener = iterationListener;
+    }
+
     /**
      * Returns the maximum number of iterations the algorithm is allowed to run.
      */
@@ -193,9 +296,8 @@ abstract class IterativeMatrixFactorizationBase extends MatrixFactorizationBase
      * approximation error becomes smaller than <code>stopThreshold</code>, the algorithm
      * will stop.
      * <p>
-     * Note: calculation of approximation error is quite costly. Setting the threshold to
-     * -1 turns off calculation of the approximation error and hence makes the algorithm
-     * do the maximum allowed number of iterations.
+     * Setting the threshold to -1 turns off calculation of the approximation error and
+     * hence makes the algorithm do the maximum allowed number of iterations.
      */
     public void setStopThreshold(double stopThreshold)
     {
@@ -20,7 +20,7 @@ import org.carrot2.matrix.factorization.seeding.RandomSeedingStrategyFactory;
  * A factory for {@link IMatrixFactorization}s.
  */
 public abstract class IterativeMatrixFactorizationFactory implements
-    IMatrixFactorizationFactory
+    IMatrixFactorizationFactory, Cloneable
 {
     /** The number of base vectors */
     protected int k;
@@ -51,6 +51,12 @@ public abstract class IterativeMatrixFactorizationFactory implements
     protected boolean ordered;
     protected static final boolean DEFAULT_ORDERED = true;
 
+    /** Notified after each iteration of created factorizations */
+    protected IIterationListener iterationListener;
+
+    /** Temporary matrices reused between factorizations */
+    private final FactorizationWorkspace.Holder workspaces = new FactorizationWorkspace.Holder();
+
     public IterativeMatrixFactorizationFactory()
     {
         this.k = DEFAULT_K;
@@ -78,6 +84,43 @@ public abstract class IterativeMatrixFactorizationFactory implements
         return k;
     }
 
+    /**
+     * Creates a shallow copy of this factory, which can be configured independently of
+     * this one, e.g. for a single factorization. Temporary matrices retained between
+     * factorizations are shared with this factory.
+     */
+    @Override
+    public IterativeMatrixFactorizationFactory clone()
+    {
+        try
+        {
+            return (IterativeMatrixFactorizationFactory) super.clone();
+        }
+        catch (CloneNotSupportedException e)
+        {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Computes the factorization using temporary matrices retained from previous
+     * factorizations created by this factory.
+     */
+    void compute(IterativeMatrixFactorizationBase factorization)
+    {
+        final FactorizationWorkspace workspace = workspaces.borrow();
+        try
+        {
+            factorization.setWorkspace(workspace);
+            factorization.compute();
+        }
+        finally
+        {
+            factorization.setWorkspace(null);
+            workspaces.release(workspace);
+        }
+    }
+
     /**
      */
     protected ISeedingStrategy createSeedingStrategy()
@@ -133,6 +176,23 @@ public abstract class IterativeMatrixFactorizationFactory implements
         this.seedingFactory = seedingFactory;
     }
 
+    /**
+     * Returns the listener notified after each iteration of the created factorizations.
+     */
+    public IIterationListener getIterationListener()
+    {
+        return iterationListener;
+    }
+
+    /**
+     * Sets the listener to be notified after each iteration of the created
+     * factorizations, for example to collect per-iteration timings.
+     */
+    public void setIterationListener(IIterationListener iterationListener)
+    {
+        this.iterationListener = iterationListener;
+    }
+
     /**
      * Returns <code>true</code> when the factorization is set to generate an ordered
      * basis.
@@ -53,8 +53,10 @@ public class KMeansMatrixFactorization extends IterativeMatrixFactorizationBase
         int [] minIndices = new int [D.columns()];
         double [] minValues = new double [D.columns()];
 
-        for (iterationsCompleted = 0; iterationsCompleted < maxIterations; iterationsCompleted++)
+        while (iterationsCompleted < maxIterations)
         {
+            final long iterationStart = System.nanoTime();
+
             // Calculate cosine distances
             U.zMult(A, D, 1, 0, true, false);
 
@@ -87,6 +89,10 @@ public class KMeansMatrixFactorization extends IterativeMatrixFactorizationBase
                 MatrixUtils.normalizeColumnL2(U, null);
             }
 
+            if (iterationCompleted(null, iterationStart))
+            {
+                break;
+            }
         }
     }
 
@@ -0,0 +1,147 @@
+/*
+ * Carrot2 project.
+ *
+ * Copyright (C) 2002-2019, Dawid Weiss, Stanisław Osiński.
+ * All rights reserved.
+ *
+ * Refer to the full license file "carrot2.LICENSE"
+ * in the root folder of the repository checkout or at:
+ * http://www.carrot2.org/carrot2.LICENSE
+ */
+
+package org.carrot2.matrix.factorization;
+
+import org.carrot2.mahout.math.function.IntIntDoubleFunction;
+import org.carrot2.mahout.math.matrix.DoubleMatrix2D;
+import org.carrot2.mahout.math.matrix.impl.DenseDoubleMatrix2D;
+
+import com.carrotsearch.hppc.DoubleArrayList;
+import com.carrotsearch.hppc.IntArrayList;
+
+/**
+ * Fused element-wise steps of the multiplicative update rules used by the non-negative
+ * matrix factorizations. Each method makes a single pass over the first
+ * <code>length</code> elements of row-major arrays backing matrices of the same shape.
+ */
+final class MultiplicativeUpdates
+{
+    private MultiplicativeUpdates()
+    {
+        // No instances.
+    }
+
+    /**
+     * <code>X <- X .* (N + eps) ./ (D + eps)</code>
+     */
+    static void update(double [] X, double [] N, double [] D, int length, double eps)
+    {
+        for (int i = 0; i < length; i++)
+        {
+            X[i] *= (N[i] + eps) / (D[i] + eps);
+        }
+    }
+
+    /**
+     * <code>X <- X .* Y</code>
+     */
+    static void multiply(double [] X, double [] Y, int length)
+    {
+        for (int i = 0; i < length; i++)
+        {
+            X[i] *= Y[i];
+        }
+    }
+
+    /**
+     * <code>X <- sqrt(X .* Y)</code>
+     */
+    static void multiplySqrt(double [] X, double [] Y, int length)
+    {
+        for (int i = 0; i < length; i++)
+        {
+            X[i] = Math.sqrt(X[i] * Y[i]);
+        }
+    }
+
+    /**
+     * <code>A + eps</code> for the updates of the Kullback-Leibler divergence based
+     * factorizations. A dense <code>A</code> is copied to a workspace array, for other
+     * matrices only non-zero elements are kept, so that sparse matrices are never stored
+     * in full.
+     */
+    static final class ShiftedMatrix
+    {
+        /** Row-major elements of <code>A + eps</code> if <code>A</code> is dense */
+        private final double [] dense;
+
+        /** Row-major indices of non-zero elements of a sparse <code>A</code> */
+        private final int [] indices;
+
+        /** (<code>A + eps</code>) / <code>eps</code> for non-zero elements of a sparse <code>A</code> */
+        private final double [] ratios;
+
+        private final double eps;
+
+        ShiftedMatrix(DoubleMatrix2D A, final double eps, FactorizationWorkspace workspace,
+            int slot)
+        {
+            this.eps = eps;
+            if (A instanceof DenseDoubleMatrix2D)
+            {
+                final int length = A.rows() * A.columns();
+                workspace.matrix(slot, A.rows(), A.columns()).assign(A);
+                this.dense = workspace.array(slot, length);
+                for (int i = 0; i < length; i++)
+                {
+                    dense[i] += eps;
+                }
+                this.indices = null;
+                this.ratios = null;
+            }
+            else
+            {
+                final int columns = A.columns();
+                final IntArrayList indices = new IntArrayList();
+                final DoubleArrayList ratios = new DoubleArrayList();
+                A.forEachNonZero(new IntIntDoubleFunction()
+                {
+                    public double apply(int row, int column, double value)
+                    {
+                        indices.add(row * columns + column);
+                        ratios.add((value + eps) / eps);
+                        return value;
+                    }
+                });
+                this.dense = null;
+                this.indices = indices.toArray();
+                this.ratios = ratios.toArray();
+            }
+        }
+
+        /**
+         * <code>UV <- (A + eps) ./ (UV + eps)</code>
+         */
+        void divide(double [] UV, int length)
+        {
+            if (dense != null)
+            {
+                for (int i = 0; i < length; i++)
+                {
+                    UV[i] = dense[i] / (UV[i] + eps);
+                }
+            }
+            else
+            {
+                // eps ./ (UV + eps) everywhere, scaled where A is non-zero
+                for (int i = 0; i < length; i++)
+                {
+                    UV[i] = eps / (UV[i] + eps);
+                }
+                for (int i = 0; i < indices.length; i++)
+                {
+                    UV[indices[i]] *= ratios[i];
+                }
+            }
+        }
+    }
+}
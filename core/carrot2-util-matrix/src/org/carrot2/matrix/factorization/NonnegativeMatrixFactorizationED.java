@@ -12,8 +12,6 @@
 
 package org.carrot2.matrix.factorization;
 
-import org.carrot2.mahout.math.function.DoubleFunction;
-import org.carrot2.mahout.math.function.Functions;
 import org.carrot2.mahout.math.matrix.DoubleMatrix2D;
 import org.carrot2.mahout.math.matrix.impl.DenseDoubleMatrix2D;
 
@@ -53,20 +51,30 @@ public class NonnegativeMatrixFactorizationED extends IterativeMatrixFactorizati
         // C(1, iter) = norm((A-U*V'), 'fro'); % approximation quality
         // end
 
-        double eps = 1e-9;
+        final int m = A.rows();
+        final int n = A.columns();
+        final double eps = 1e-9;
 
         // Seed U and V with initial values
-        U = new DenseDoubleMatrix2D(A.rows(), k);
-        V = new DenseDoubleMatrix2D(A.columns(), k);
+        final double [] u = new double [m * k];
+        final double [] v = new double [n * k];
+        U = new DenseDoubleMatrix2D(m, k, u);
+        V = new DenseDoubleMatrix2D(n, k, v);
         seedingStrategy.seed(A, U, V);
 
         // Temporary matrices
-        DoubleMatrix2D T = new DenseDoubleMatrix2D(k, k);
-        DoubleMatrix2D UT1 = new DenseDoubleMatrix2D(A.rows(), k);
-        DoubleMatrix2D UT2 = new DenseDoubleMatrix2D(A.rows(), k);
-        DoubleMatrix2D VT1 = new DenseDoubleMatrix2D(A.columns(), k);
-        DoubleMatrix2D VT2 = new DenseDoubleMatrix2D(A.columns(), k);
-        DoubleFunction plusEps = Functions.plus(eps);
+        final FactorizationWorkspace workspace = getWorkspace();
+        final DoubleMatrix2D T = workspace.matrix(0, k, k);
+        final DoubleMatrix2D UT1 = workspace.matrix(1, m, k);
+        final DoubleMatrix2D UT2 = workspace.matrix(2, m, k);
+        final DoubleMatrix2D VT1 = workspace.matrix(3, n, k);
+        final DoubleMatrix2D VT2 = workspace.matrix(4, n, k);
+
+        // Row-major arrays backing the temporaries, updated in place by fused kernels
+        final double [] ut1 = workspace.array(1, 0);
+        final double [] ut2 = workspace.array(2, 0);
+        final double [] vt1 = workspace.array(3, 0);
+        final double [] vt2 = workspace.array(4, 0);
 
         if (stopThreshold >= 0)
         {
@@ -75,31 +83,24 @@ public class NonnegativeMatrixFactorizationED extends IterativeMatrixFactorizati
 
         for (int i = 0; i < maxIterations; i++)
         {
+            final long iterationStart = System.nanoTime();
+
             // Update V
             U.zMult(U, T, 1, 0, true, false); // T <- U'U
             A.zMult(U, VT1, 1, 0, true, false); // VT1 <- A'U
             V.zMult(T, VT2, 1, 0, false, false); // VT2 <- VT
-            VT1.assign(plusEps); // TODO: shift this to the dividing function?
-            VT2.assign(plusEps);
-            VT1.assign(VT2, Functions.DIV); // VT1 <- VT1 ./ VT2
-            V.assign(VT1, Functions.MULT); // V <- V .* VT1
+            MultiplicativeUpdates.update(v, vt1, vt2, n * k, eps); // V <- V .* (VT1 + eps) ./ (VT2 + eps)
 
             // Update U
             V.zMult(V, T, 1, 0, true, false); // T <- V'V
             A.zMult(V, UT1, 1, 0, false, false); // UT1 <- AV
             U.zMult(T, UT2, 1, 0, false, false); // UT2 <- UT
-            UT1.assign(plusEps);
-            UT2.assign(plusEps);
-            UT1.assign(UT2, Functions.DIV); // UT1 <- UT1 ./ UT2
-            U.assign(UT1, Functions.MULT); // U <- U .* UT1
+            MultiplicativeUpdates.update(u, ut1, ut2, m * k, eps); // U <- U .* (UT1 + eps) ./ (UT2 + eps)
 
-            iterationsCompleted++;
-            if (stopThreshold >= 0)
+            // UT1 holds AV for the updated V, which saves a multiplication
+            if (iterationCompleted(UT1, iterationStart))
             {
-                if (updateApproximationError())
-                {
-                    break;
-                }
+                break;
             }
         }
 
@@ -29,8 +29,9 @@ public class NonnegativeMatrixFactorizationEDFactory extends
         factorization.setStopThreshold(stopThreshold);
         factorization.setSeedingStrategy(createSeedingStrategy());
         factorization.setOrdered(ordered);
+        factorization.setIterationListener(iterationListener);
 
-        factorization.compute();
+        compute(factorization);
 
         return factorization;
     }
@@ -12,9 +12,6 @@
 
 package org.carrot2.matrix.factorization;
 
-import org.carrot2.mahout.math.function.DoubleDoubleFunction;
-import org.carrot2.mahout.math.function.DoubleFunction;
-import org.carrot2.mahout.math.function.Functions;
 import org.carrot2.mahout.math.matrix.DoubleMatrix2D;
 import org.carrot2.mahout.math.matrix.impl.DenseDoubleMatrix2D;
 import org.carrot2.matrix.MatrixUtils;
@@ -58,26 +55,30 @@ public class NonnegativeMatrixFactorizationKL extends IterativeMatrixFactorizati
         // C(1, iter) = norm((A-U*V'), 'fro'); % approximation quality
         // end
 
-        int m = A.rows();
-        int n = A.columns();
-        double eps = 1e-9;
+        final int m = A.rows();
+        final int n = A.columns();
+        final double eps = 1e-9;
 
         // Seed U and V with initial values
-        U = new DenseDoubleMatrix2D(m, k);
-        V = new DenseDoubleMatrix2D(n, k);
+        final double [] u = new double [m * k];
+        final double [] v = new double [n * k];
+        U = new DenseDoubleMatrix2D(m, k, u);
+        V = new DenseDoubleMatrix2D(n, k, v);
         seedingStrategy.seed(A, U, V);
 
         // Temporary matrices
-        DoubleMatrix2D Aeps = A.copy();
-        Aeps.assign(Functions.plus(eps));
-        DoubleMatrix2D UV = new DenseDoubleMatrix2D(m, n);
-        DoubleMatrix2D VT = new DenseDoubleMatrix2D(n, k);
-        DoubleMatrix2D UT = new DenseDoubleMatrix2D(m, k);
-        double [] work = new double [U.columns()];
-
-        // Colt functions
-        DoubleDoubleFunction invDiv = Functions.swapArgs(Functions.DIV);
-        DoubleFunction plusEps = Functions.plus(eps);
+        final FactorizationWorkspace workspace = getWorkspace();
+        final MultiplicativeUpdates.ShiftedMatrix Aeps = new MultiplicativeUpdates.ShiftedMatrix(
+            A, eps, workspace, 0);
+        final DoubleMatrix2D UV = workspace.matrix(1, m, n);
+        final DoubleMatrix2D VT = workspace.matrix(2, n, k);
+        final DoubleMatrix2D UT = workspace.matrix(3, m, k);
+        final double [] work = new double [k];
+
+        // Row-major arrays backing the temporaries, updated in place by fused kernels
+        final double [] uv = workspace.array(1, 0);
+        final double [] vt = workspace.array(2, 0);
+        final double [] ut = workspace.array(3, 0);
 
         if (stopThreshold >= 0)
         {
@@ -86,29 +87,25 @@ public class NonnegativeMatrixFactorizationKL extends IterativeMatrixFactorizati
 
         for (int i = 0; i < maxIterations; i++)
         {
+            final long iterationStart = System.nanoTime();
+
             // Update V
             U.zMult(V, UV, 1, 0, false, true); // UV <- U*V'
-            UV.assign(plusEps); // UV <- UV + eps
-            UV.assign(Aeps, invDiv); // UV <- Aeps ./ UV
+            Aeps.divide(uv, m * n); // UV <- Aeps ./ (UV + eps)
             UV.zMult(U, VT, 1, 0, true, false); // VT <- UV' * U
-            V.assign(VT, Functions.MULT); // V <- V .* VT
+            MultiplicativeUpdates.multiply(v, vt, n * k); // V <- V .* VT
 
             // Update U
             U.zMult(V, UV, 1, 0, false, true); // UV <- U*V'
-            UV.assign(plusEps); // UV <- UV + eps
-            UV.assign(Aeps, invDiv); // UV <- Aeps ./ UV
+            Aeps.divide(uv, m * n); // UV <- Aeps ./ (UV + eps)
             UV.zMult(V, UT, 1, 0, false, false); // UT <- UV * V
-            U.assign(UT, Functions.MULT); // U <- U .* UT
+            MultiplicativeUpdates.multiply(u, ut, m * k); // U <- U .* UT
 
             MatrixUtils.normalizeColumnL1(U, work);
 
-            iterationsCompleted++;
-            if (stopThreshold >= 0)
+            if (iterationCompleted(null, iterationStart))
             {
-                if (updateApproximationError())
-                {
-                    break;
-                }
+                break;
             }
         }
 
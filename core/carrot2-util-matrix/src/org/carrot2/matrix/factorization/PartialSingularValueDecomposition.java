@@ -13,15 +13,27 @@
 package org.carrot2.matrix.factorization;
 
 import java.util.Arrays;
+import java.util.Random;
 
 import org.carrot2.mahout.math.DenseMatrix;
 import org.carrot2.mahout.math.Matrix;
 import org.carrot2.mahout.math.SingularValueDecomposition;
+import org.carrot2.mahout.math.function.Functions;
 import org.carrot2.mahout.math.matrix.DoubleMatrix2D;
 import org.carrot2.mahout.math.matrix.impl.DenseDoubleMatrix2D;
 
 /**
  * Performs matrix factorization using the Singular Value Decomposition algorithm.
+ * <p>
+ * If the number of desired base vectors <i>k</i> is set and sufficiently smaller than
+ * the rank of the input matrix, only the top <i>k</i> singular triplets are computed
+ * using a randomized range finder (Halko, Martinsson, Tropp, <i>Finding structure with
+ * randomness</i>, 2011). The cost of this computation is close to <i>O(mnk)</i> instead
+ * of the <i>O(mn&sup2;)</i> of the full decomposition and the input matrix is never
+ * copied.
+ * <p>
+ * Singular vectors computed by both the full and the truncated decomposition are
+ * oriented so that the entries of each base vector sum up to a non-negative value.
  */
 public class PartialSingularValueDecomposition extends MatrixFactorizationBase implements
     IMatrixFactorization
@@ -32,6 +44,30 @@ public class PartialSingularValueDecomposition extends MatrixFactorizationBase i
     /** The default number of desired base vectors */
     protected static final int DEFAULT_K = -1;
 
+    /**
+     * The number of additional random projections used by the truncated decomposition
+     * to improve the accuracy of the top <i>k</i> singular triplets.
+     */
+    protected int oversampling;
+
+    /** The default number of additional random projections */
+    protected static final int DEFAULT_OVERSAMPLING = 10;
+
+    /**
+     * The number of power iterations performed by the truncated decomposition. Power
+     * iterations sharpen the approximation for matrices with slowly decaying spectra.
+     */
+    protected int powerIterations;
+
+    /** The default number of power iterations */
+    protected static final int DEFAULT_POWER_ITERATIONS = 2;
+
+    /** Random projections are seeded with a constant to make results repeatable */
+    private static final long RANDOM_SEED = 0x5eed;
+
+    /** Columns whose norm drops below this value are considered linearly dependent */
+    private static final double EPSILON = 1e-12;
+
     /** Singular values */
     private double [] S;
 
@@ -46,9 +82,26 @@ public class PartialSingularValueDecomposition extends MatrixFactorizationBase i
         super(A);
 
         this.k = DEFAULT_K;
+        this.oversampling = DEFAULT_OVERSAMPLING;
+        this.powerIterations = DEFAULT_POWER_ITERATIONS;
     }
 
     public void compute()
+    {
+        if (k > 0 && k + oversampling < Math.min(A.rows(), A.columns()))
+        {
+            computeTruncated();
+        }
+        else
+        {
+            computeFull();
+        }
+    }
+
+    /**
+     * Computes all singular triplets and then trims the result to <i>k</i> vectors.
+     */
+    private void computeFull()
     {
         // Use Colt's SVD
         SingularValueDecomposition svd;
@@ -73,6 +126,120 @@ public class PartialSingularValueDecomposition extends MatrixFactorizationBase i
             V = V.viewPart(0, 0, V.rows(), k);
             S = Arrays.copyOf(S, k);
         }
+
+        orientSigns();
+    }
+
+    /**
+     * Computes the top <i>k</i> singular triplets only. An orthonormal basis <i>Q</i>
+     * approximating the range of <i>A</i> is built from random projections, then the
+     * SVD of the small <i>(k + oversampling)</i> &times; <i>n</i> matrix <i>Q'A</i> is
+     * lifted back to the original space.
+     */
+    private void computeTruncated()
+    {
+        final int l = k + oversampling;
+        final Random random = new Random(RANDOM_SEED);
+
+        final DoubleMatrix2D omega = new DenseDoubleMatrix2D(A.columns(), l);
+        for (int r = 0; r < omega.rows(); r++)
+        {
+            for (int c = 0; c < l; c++)
+            {
+                omega.setQuick(r, c, random.nextGaussian());
+            }
+        }
+
+        final DoubleMatrix2D Q = A.zMult(omega, null, 1, 0, false, false);
+        orthonormalizeColumns(Q);
+
+        DoubleMatrix2D Z = new DenseDoubleMatrix2D(A.columns(), l);
+        for (int i = 0; i < powerIterations; i++)
+        {
+            A.zMult(Q, Z, 1, 0, true, false);
+            orthonormalizeColumns(Z);
+            A.zMult(Z, Q, 1, 0, false, false);
+            orthonormalizeColumns(Q);
+        }
+
+        // B' = (Q'A)' = A'Q is n x l with n > l, which is what Colt's SVD expects.
+        A.zMult(Q, Z, 1, 0, true, false);
+        final SingularValueDecomposition svd = new SingularValueDecomposition(
+            new DenseMatrix(Z.toArray()));
+
+        // B = Vb * S * Ub', hence A ~= (Q * Vb) * S * Ub'.
+        final DoubleMatrix2D Vb = toColtMatrix(svd.getV()).viewPart(0, 0, l, k);
+        U = Q.zMult(Vb, null, 1, 0, false, false);
+        V = toColtMatrix(svd.getU()).viewPart(0, 0, A.columns(), k).copy();
+        S = Arrays.copyOf(svd.getSingularValues(), k);
+
+        orientSigns();
+    }
+
+    /**
+     * Singular vectors are determined up to a sign, which is arbitrary and differs
+     * between the full and the truncated computation. Flips pairs of corresponding
+     * columns of <i>U</i> and <i>V</i>, so that each column of <i>U</i> has a
+     * non-negative sum.
+     */
+    private void orientSigns()
+    {
+        for (int c = 0; c < U.columns(); c++)
+        {
+            double sum = 0;
+            for (int r = 0; r < U.rows(); r++)
+            {
+                sum += U.getQuick(r, c);
+            }
+
+            if (sum < 0)
+            {
+                U.viewColumn(c).assign(Functions.NEGATE);
+                V.viewColumn(c).assign(Functions.NEGATE);
+            }
+        }
+    }
+
+    /**
+     * Orthonormalizes columns of <code>M</code> in place using the modified Gram-Schmidt
+     * process with a single reorthogonalization pass. Columns that turn out to be
+     * linearly dependent on the preceding ones are zeroed.
+     */
+    private static void orthonormalizeColumns(DoubleMatrix2D M)
+    {
+        final int rows = M.rows();
+        final int columns = M.columns();
+
+        for (int c = 0; c < columns; c++)
+        {
+            for (int pass = 0; pass < 2; pass++)
+            {
+                for (int p = 0; p < c; p++)
+                {
+                    double dot = 0;
+                    for (int r = 0; r < rows; r++)
+                    {
+                        dot += M.getQuick(r, p) * M.getQuick(r, c);
+                    }
+                    for (int r = 0; r < rows; r++)
+                    {
+                        M.setQuick(r, c, M.getQuick(r, c) - dot * M.getQuick(r, p));
+                    }
+                }
+            }
+
+            double norm = 0;
+            for (int r = 0; r < rows; r++)
+            {
+                norm += M.getQuick(r, c) * M.getQuick(r, c);
+            }
+            norm = Math.sqrt(norm);
+
+            for (int r = 0; r < rows; r++)
+            {
+                M.setQuick(r, c, norm > EPSILON ? M.getQuick(r, c) / norm : 0);
+            }
+        }
     }
 
     private static DenseDoubleMatrix2D toColtMatrix(Matrix m)
@@ -118,4 +285,38 @@ public class PartialSingularValueDecomposition extends MatrixFactorizationBase i
     {
         return k;
     }
+
+    /**
+     * Sets the number of additional random projections used by the truncated
+     * decomposition.
+     */
+    public void setOversampling(int oversampling)
+    {
+        this.oversampling = oversampling;
+    }
+
+    /**
+     * Returns the number of additional random projections used by the truncated
+     * decomposition.
+     */
+    public int getOversampling()
+    {
+        return oversampling;
+    }
+
+    /**
+     * Sets the number of power iterations performed by the truncated decomposition.
+     */
+    public void setPowerIterations(int powerIterations)
+    {
+        this.powerIterations = powerIterations;
+    }
+
+    /**
+     * Returns the number of power iterations performed by the truncated decomposition.
+     */
+    public int getPowerIterations()
+    {
+        return powerIterations;
+    }
 }
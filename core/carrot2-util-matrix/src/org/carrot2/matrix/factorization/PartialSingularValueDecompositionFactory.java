@@ -18,7 +18,7 @@ import org.carrot2.mahout.math.matrix.*;
  * Factory for {@link PartialSingularValueDecomposition}s.
  */
 public class PartialSingularValueDecompositionFactory implements
-    IMatrixFactorizationFactory
+    IMatrixFactorizationFactory, Cloneable
 {
     /** The desired number of base vectors */
     protected int k;
@@ -26,6 +26,12 @@ public class PartialSingularValueDecompositionFactory implements
     /** The default desired number of base vectors */
     protected static final int DEFAULT_K = -1;
 
+    /** The number of additional random projections of the truncated decomposition */
+    protected int oversampling;
+
+    /** The number of power iterations of the truncated decomposition */
+    protected int powerIterations;
+
     /**
      * Creates the factory that creates factorizations that compute the maximum number of
      * base vectors.
@@ -33,6 +39,8 @@ public class PartialSingularValueDecompositionFactory implements
     public PartialSingularValueDecompositionFactory()
     {
         this.k = DEFAULT_K;
+        this.oversampling = PartialSingularValueDecomposition.DEFAULT_OVERSAMPLING;
+        this.powerIterations = PartialSingularValueDecomposition.DEFAULT_POWER_ITERATIONS;
     }
 
     public IMatrixFactorization factorize(DoubleMatrix2D A)
@@ -41,6 +49,8 @@ public class PartialSingularValueDecompositionFactory implements
             A);
 
         partialSingularValueDecomposition.setK(k);
+        partialSingularValueDecomposition.setOversampling(oversampling);
+        partialSingularValueDecomposition.setPowerIterations(powerIterations);
         partialSingularValueDecomposition.compute();
 
         return partialSingularValueDecomposition;
@@ -63,4 +73,59 @@ public class PartialSingularValueDecompositionFactory implements
     {
         return k;
     }
+
+    /**
+     * Sets the number of additional random projections used by the truncated
+     * decomposition.
+     * 
+     * @see PartialSingularValueDecomposition#setOversampling(int)
+     */
+    public void setOversampling(int oversampling)
+    {
+        this.oversampling = oversampling;
+    }
+
+    /**
+     * Returns the number of additional random projections used by the truncated
+     * decomposition.
+     */
+    public int getOversampling()
+    {
+        return oversampling;
+    }
+
+    /**
+     * Sets the number of power iterations performed by the truncated decomposition.
+     * 
+     * @see PartialSingularValueDecomposition#setPowerIterations(int)
+     */
+    public void setPowerIterations(int powerIterations)
+    {
+        this.powerIterations = powerIterations;
+    }
+
+    /**
+     * Returns the number of power iterations performed by the truncated decomposition.
+     */
+    public int getPowerIterations()
+    {
+        return powerIterations;
+    }
+
+    /**
+     * Creates a copy of this factory, which can be configured independently of this one,
+     * e.g. for a single factorization.
+     */
+    @Override
+    public PartialSingularValueDecompositionFactory clone()
+    {
+        try
+        {
+            return (PartialSingularValueDecompositionFactory) super.clone();
+        }
+        catch (CloneNotSupportedException e)
+        {
+            throw new RuntimeException(e);
+        }
+    }
 }
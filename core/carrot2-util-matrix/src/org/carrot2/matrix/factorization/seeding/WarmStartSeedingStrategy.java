@@ -0,0 +1,113 @@
+/*
+ * Carrot2 project.
+ *
+ * Copyright (C) 2002-2019, Dawid Weiss, Stanisław Osiński.
+ * All rights reserved.
+ *
+ * Refer to the full license file "carrot2.LICENSE"
+ * in the root folder of the repository checkout or at:
+ * http://www.carrot2.org/carrot2.LICENSE
+ */
+
+package org.carrot2.matrix.factorization.seeding;
+
+import java.util.Map;
+
+import org.carrot2.mahout.math.matrix.DoubleMatrix2D;
+
+/**
+ * Seeds the base vector matrix U with rows of a base vector matrix computed for a
+ * previous, overlapping input. Rows of both matrices are matched by keys (e.g. the
+ * terms the rows correspond to). Rows without a previous counterpart and the V matrix
+ * are seeded using a fallback strategy.
+ */
+public class WarmStartSeedingStrategy implements ISeedingStrategy
+{
+    /** Keys of rows of the matrix to be factorized */
+    private final Object [] rowKeys;
+
+    /** Rows of the previous base vector matrix */
+    private final Map<Object, double []> previousRows;
+
+    /** Minimum fraction of rows that must have previous values */
+    private final double minOverlap;
+
+    /** Seeds rows with no previous values */
+    private final ISeedingStrategy fallback;
+
+    /**
+     * Creates a warm start seeding strategy.
+     *
+     * @param rowKeys keys of rows of the matrix to be factorized
+     * @param previousRows rows of the previous base vector matrix by key
+     * @param minOverlap minimum fraction of rows that must have previous values for the
+     *            previous values to be used at all
+     * @param fallback seeding strategy for V and the rows that have no previous values
+     */
+    public WarmStartSeedingStrategy(Object [] rowKeys, Map<Object, double []> previousRows,
+        double minOverlap, ISeedingStrategy fallback)
+    {
+        this.rowKeys = rowKeys;
+        this.previousRows = previousRows;
+        this.minOverlap = minOverlap;
+        this.fallback = fallback;
+    }
+
+    public void seed(DoubleMatrix2D A, DoubleMatrix2D U, DoubleMatrix2D V)
+    {
+        fallback.seed(A, U, V);
+
+        if (rowKeys == null || rowKeys.length != U.rows() || previousRows.isEmpty())
+        {
+            return;
+        }
+
+        int overlap = 0;
+        for (Object key : rowKeys)
+        {
+            if (previousRows.containsKey(key))
+            {
+                overlap++;
+            }
+        }
+        if (overlap == 0 || overlap < minOverlap * rowKeys.length)
+        {
+            return;
+        }
+
+        final double [] means = new double [U.columns()];
+        for (int row = 0; row < rowKeys.length; row++)
+        {
+            final double [] previous = previousRows.get(rowKeys[row]);
+            if (previous != null)
+            {
+                final int columns = Math.min(previous.length, U.columns());
+                for (int column = 0; column < columns; column++)
+                {
+                    U.setQuick(row, column, previous[column]);
+                    means[column] += previous[column] / overlap;
+                }
+            }
+        }
+
+        // Bring the fallback values of the remaining rows to the scale of previous values
+        for (int row = 0; row < rowKeys.length; row++)
+        {
+            if (!previousRows.containsKey(rowKeys[row]))
+            {
+                for (int column = 0; column < means.length; column++)
+                {
+                    if (means[column] > 0)
+                    {
+                        U.setQuick(row, column, U.getQuick(row, column) * means[column]);
+                    }
+                }
+            }
+        }
+    }
+
+    public String toString()
+    {
+        return "W";
+    }
+}
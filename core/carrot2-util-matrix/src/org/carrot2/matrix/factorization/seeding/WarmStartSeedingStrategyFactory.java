@@ -0,0 +1,145 @@
+/*
+ * Carrot2 project.
+ *
+ * Copyright (C) 2002-2019, Dawid Weiss, Stanisław Osiński.
+ * All rights reserved.
+ *
+ * Refer to the full license file "carrot2.LICENSE"
+ * in the root folder of the repository checkout or at:
+ * http://www.carrot2.org/carrot2.LICENSE
+ */
+
+package org.carrot2.matrix.factorization.seeding;
+
+import java.util.Map;
+
+import org.carrot2.mahout.math.matrix.DoubleMatrix2D;
+import org.carrot2.shaded.guava.common.collect.Maps;
+
+/**
+ * Creates {@link WarmStartSeedingStrategy}s that reuse the base vectors of the
+ * previous factorization. A factorization should be seeded by the factory returned from
+ * {@link #forRows(Object[])} for the keys of rows of the matrix to be factorized; after
+ * the factorization, its base vector matrix should be passed to
+ * {@link #remember(Object[], DoubleMatrix2D)} with the same keys. Repeated or paged
+ * inputs over the same vocabulary then start close to a previous solution and, with a
+ * stop threshold set, converge in fewer iterations.
+ * <p>
+ * Row keys are passed with each call, so one factory can be shared by concurrent
+ * factorizations. Strategies created by {@link #createSeedingStrategy()} know no row
+ * keys and use the fallback seeding only.
+ * </p>
+ */
+public class WarmStartSeedingStrategyFactory implements ISeedingStrategyFactory
+{
+    /** The default minimum fraction of rows with previous values */
+    public static final double DEFAULT_MIN_OVERLAP = 0.5;
+
+    /** Seeding of V and rows with no previous values */
+    private ISeedingStrategyFactory fallbackFactory = new RandomSeedingStrategyFactory(0);
+
+    /** Minimum fraction of rows that must have previous values */
+    private double minOverlap = DEFAULT_MIN_OVERLAP;
+
+    /** Rows of the last remembered base vector matrix, by key, never modified */
+    private volatile Map<Object, double []> previousRows = Maps.newHashMap();
+
+    public ISeedingStrategy createSeedingStrategy()
+    {
+        return createSeedingStrategy(null);
+    }
+
+    /**
+     * Creates a seeding strategy for a matrix with rows identified by the provided keys.
+     */
+    public ISeedingStrategy createSeedingStrategy(Object [] rowKeys)
+    {
+        return new WarmStartSeedingStrategy(rowKeys, previousRows, minOverlap,
+            fallbackFactory.createSeedingStrategy());
+    }
+
+    /**
+     * Returns a factory of seeding strategies for a matrix with rows identified by the
+     * provided keys.
+     */
+    public ISeedingStrategyFactory forRows(final Object [] rowKeys)
+    {
+        return new ISeedingStrategyFactory()
+        {
+            public ISeedingStrategy createSeedingStrategy()
+            {
+                return WarmStartSeedingStrategyFactory.this.createSeedingStrategy(rowKeys);
+            }
+
+            public String toString()
+            {
+                return WarmStartSeedingStrategyFactory.this.toString();
+            }
+        };
+    }
+
+    /**
+     * Remembers the base vector matrix computed for the rows identified by the provided
+     * keys, to be used for seeding subsequent factorizations.
+     */
+    public void remember(Object [] rowKeys, DoubleMatrix2D U)
+    {
+        if (rowKeys == null || rowKeys.length != U.rows())
+        {
+            return;
+        }
+
+        final Map<Object, double []> rows = Maps.newHashMapWithExpectedSize(rowKeys.length);
+        for (int row = 0; row < rowKeys.length; row++)
+        {
+            rows.put(rowKeys[row], U.viewRow(row).toArray());
+        }
+        this.previousRows = rows;
+    }
+
+    /**
+     * Forgets the remembered base vectors.
+     */
+    public void clear()
+    {
+        this.previousRows = Maps.newHashMap();
+    }
+
+    /**
+     * Returns the minimum fraction of rows that must have previous values.
+     */
+    public double getMinOverlap()
+    {
+        return minOverlap;
+    }
+
+    /**
+     * Sets the minimum fraction of rows that must have previous values for the previous
+     * base vectors to be used. Below this overlap the fallback seeding is used alone.
+     */
+    public void setMinOverlap(double minOverlap)
+    {
+        this.minOverlap = minOverlap;
+    }
+
+    /**
+     * Returns the factory of seeding strategies for V and rows with no previous values.
+     */
+    public ISeedingStrategyFactory getFallbackFactory()
+    {
+        return fallbackFactory;
+    }
+
+    /**
+     * Sets the factory of seeding strategies for V and rows with no previous values.
+     */
+    public void setFallbackFactory(ISeedingStrategyFactory fallbackFactory)
+    {
+        this.fallbackFactory = fallbackFactory;
+    }
+
+    public String toString()
+    {
+        return "W";
+    }
+}
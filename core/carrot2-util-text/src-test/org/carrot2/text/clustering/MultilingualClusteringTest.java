@@ -15,6 +15,9 @@ package org.carrot2.text.clustering;
 import static org.carrot2.core.test.assertions.Carrot2CoreAssertions.assertThatClusters;
 
 import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 import org.carrot2.core.*;
 import org.carrot2.text.clustering.MultilingualClustering.LanguageAggregationStrategy;
@@ -299,6 +302,45 @@ public class MultilingualClusteringTest extends CarrotTestCase
             strategy);
     }
 
+    @Test
+    public void testConcurrentLanguages() throws InterruptedException
+    {
+        final List<Document> documents = documentsWithLanguages(LanguageCode.ENGLISH,
+            LanguageCode.POLISH, LanguageCode.ENGLISH, LanguageCode.GERMAN,
+            LanguageCode.NORWEGIAN, null, LanguageCode.GERMAN, LanguageCode.ITALIAN);
+        final IMonolingualClusteringAlgorithm algorithm = new IMonolingualClusteringAlgorithm()
+        {
+            public List<Cluster> process(List<Document> documents, LanguageCode language)
+            {
+                return new TestMultilingualClusteringAlgorithm().process(documents, language);
+            }
+        };
+
+        for (LanguageAggregationStrategy strategy : LanguageAggregationStrategy.values())
+        {
+            multilingualClustering.languageAggregationStrategy = strategy;
+            multilingualClustering.maxConcurrentLanguages = 1;
+            final List<Cluster> expectedClusters = multilingualClustering.process(
+                documents, algorithm);
+            final Map<String, Integer> expectedCounts = multilingualClustering.languageCounts;
+
+            final ExecutorService executor = Executors.newFixedThreadPool(3);
+            try
+            {
+                multilingualClustering.maxConcurrentLanguages = 2;
+                final List<Cluster> actualClusters = multilingualClustering.process(
+                    documents, algorithm, algorithm, executor);
+                assertThatClusters(actualClusters).isEquivalentTo(expectedClusters);
+                assertThat(multilingualClustering.languageCounts).isEqualTo(expectedCounts);
+            }
+            finally
+            {
+                executor.shutdown();
+                executor.awaitTermination(1, TimeUnit.MINUTES);
+            }
+        }
+    }
+
     private void check(final List<Document> documents,
         final List<Cluster> expectedClusters,
         final List<LanguageCode> expectedClusteringLanguages,
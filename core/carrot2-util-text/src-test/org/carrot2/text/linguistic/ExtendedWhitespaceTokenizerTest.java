@@ -12,11 +12,18 @@
 
 package org.carrot2.text.linguistic;
 
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
 
 import org.carrot2.text.analysis.ExtendedWhitespaceTokenizer;
 import org.carrot2.text.analysis.ITokenizer;
+import org.carrot2.text.util.MutableCharArray;
 import org.junit.Test;
 
+import org.carrot2.shaded.guava.common.base.Strings;
+
+import static org.junit.Assert.*;
+
 /**
  * Test {@link ExtendedWhitespaceTokenizer}.
  */
@@ -28,6 +35,59 @@ public class ExtendedWhitespaceTokenizerTest extends TokenizerTestBase
         return new ExtendedWhitespaceTokenizer();
     }
 
+    @Test
+    public void testInputLongerThanScannerBuffer()
+    {
+        final StringBuilder test = new StringBuilder();
+        final TokenImage [] tokens = new TokenImage [5000];
+        for (int i = 0; i < tokens.length; i++)
+        {
+            final String term = "term" + i;
+            test.append(term).append(' ');
+            tokens[i] = new TokenImage(term, ITokenizer.TT_TERM);
+        }
+        assertTrue(test.length() > 16384);
+
+        assertEqualTokens(test.toString(), tokens);
+    }
+
+    @Test
+    public void testNoAllocationAfterLongInput() throws IOException
+    {
+        final java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+        final com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+        assumeTrue(threads.isThreadAllocatedMemorySupported()
+            && threads.isThreadAllocatedMemoryEnabled());
+
+        final ExtendedWhitespaceTokenizer tokenizer = new ExtendedWhitespaceTokenizer();
+        final MutableCharArray image = new MutableCharArray();
+        tokenizer.reset(Strings.repeat("term ", 5000));
+        consume(tokenizer, image);
+
+        final String field = "short field";
+        final long threadId = Thread.currentThread().getId();
+        final long before = threads.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < 1000; i++)
+        {
+            tokenizer.reset(field);
+            consume(tokenizer, image);
+        }
+        final long allocated = threads.getThreadAllocatedBytes(threadId) - before;
+
+        // A new scanner buffer per reset would take over 30MB.
+        assertTrue("Allocated: " + allocated, allocated < 1024 * 1024);
+    }
+
+    private static void consume(ITokenizer tokenizer, MutableCharArray image)
+        throws IOException
+    {
+        while (tokenizer.nextToken() != ITokenizer.TT_EOF)
+        {
+            tokenizer.setTermBuffer(image);
+        }
+    }
+
     @Test
     public void testTermTokens()
     {
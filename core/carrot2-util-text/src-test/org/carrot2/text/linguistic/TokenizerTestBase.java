@@ -16,6 +16,7 @@ import java.io.IOException;
 import java.io.StringReader;
 import java.util.ArrayList;
 
+import org.carrot2.text.analysis.ICharSequenceTokenizer;
 import org.carrot2.text.analysis.ITokenizer;
 import org.carrot2.text.util.MutableCharArray;
 import org.carrot2.util.tests.CarrotTestCase;
@@ -72,7 +73,8 @@ abstract class TokenizerTestBase extends CarrotTestCase
     }
 
     /**
-     * Compare expected and produced token sequences.
+     * Compare expected and produced token sequences. Checks all reset methods of a
+     * single, reused tokenizer.
      */
     protected void assertEqualTokens(String testString, TokenImage [] expectedTokens)
     {
@@ -80,21 +82,28 @@ abstract class TokenizerTestBase extends CarrotTestCase
         {
             final ITokenizer tokenStream = createTokenStream();
             tokenStream.reset(new StringReader(testString));
+            Assertions
+                .assertThat(collectTokens(tokenStream))
+                .containsExactly((Object[]) expectedTokens);
 
-            final ArrayList<TokenImage> tokens = new ArrayList<TokenImage>();
-            short token;
-            MutableCharArray buffer = new MutableCharArray();
-            while ((token = tokenStream.nextToken()) >= 0)
+            if (tokenStream instanceof ICharSequenceTokenizer)
             {
-                tokenStream.setTermBuffer(buffer);
-                tokens.add(new TokenImage(buffer.toString(), token));
+                final ICharSequenceTokenizer cts = (ICharSequenceTokenizer) tokenStream;
+                cts.reset(testString);
+                Assertions
+                    .assertThat(collectTokens(tokenStream))
+                    .containsExactly((Object[]) expectedTokens);
+
+                final char [] padded = ("x" + testString + "x").toCharArray();
+                cts.reset(padded, 1, testString.length());
+                Assertions
+                    .assertThat(collectTokens(tokenStream))
+                    .containsExactly((Object[]) expectedTokens);
             }
 
-            for (int i = 0; i < tokens.size(); i++) {
-            }        
-
+            tokenStream.reset(new StringReader(testString));
             Assertions
-                .assertThat(tokens)
+                .assertThat(collectTokens(tokenStream))
                 .containsExactly((Object[]) expectedTokens);
         }
         catch (IOException e)
@@ -103,6 +112,20 @@ abstract class TokenizerTestBase extends CarrotTestCase
         }
     }
 
+    private static ArrayList<TokenImage> collectTokens(ITokenizer tokenStream)
+        throws IOException
+    {
+        final ArrayList<TokenImage> tokens = new ArrayList<TokenImage>();
+        short token;
+        MutableCharArray buffer = new MutableCharArray();
+        while ((token = tokenStream.nextToken()) >= 0)
+        {
+            tokenStream.setTermBuffer(buffer);
+            tokens.add(new TokenImage(buffer.toString(), token));
+        }
+        return tokens;
+    }
+
     protected TokenImage term(String image)
     {
         return new TokenImage(image, ITokenizer.TT_TERM);
@@ -168,6 +168,34 @@ public class CaseNormalizerTest extends PreprocessingContextTestBase
             "ABC", "ABC", "ABC", "bcd", "bcd", "bcd", EOS);
     }
 
+    @Test
+    public void testTokenVariantsAcrossDocuments()
+    {
+        PreprocessingContext ctx = contextBuilder
+            .newDoc("MacOS x")
+            .newDoc("macos", "MacOS")
+            .newDoc("Macos", "MacOS")
+            .buildContext();
+
+        assertThat(ctx).containsWord("MacOS").withTf(5).withFieldIndices(0, 1)
+            .withDocumentTf(0, 1).withDocumentTf(1, 2).withDocumentTf(2, 2);
+        assertThat(ctx.allWords.image.length).isEqualTo(2);
+    }
+
+    @Test
+    public void testWordOrder()
+    {
+        PreprocessingContext ctx = contextBuilder
+            .newDoc("zeta beta Al b", "ZETA al")
+            .buildContext();
+
+        assertThat(ctx.allWords.image.length).isEqualTo(4);
+        assertThat(new String(ctx.allWords.image[0])).isEqualTo("b");
+        assertThat(new String(ctx.allWords.image[1])).isEqualTo("al");
+        assertThat(new String(ctx.allWords.image[2])).isEqualTo("beta");
+        assertThat(new String(ctx.allWords.image[3])).isEqualTo("zeta");
+    }
+
     @Test
     public void testDfThresholding()
     {
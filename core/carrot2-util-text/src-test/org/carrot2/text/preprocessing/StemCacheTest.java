@@ -0,0 +1,76 @@
+/*
+ * Carrot2 project.
+ *
+ * Copyright (C) 2002-2019, Dawid Weiss, Stanisław Osiński.
+ * All rights reserved.
+ *
+ * Refer to the full license file "carrot2.LICENSE"
+ * in the root folder of the repository checkout or at:
+ * http://www.carrot2.org/carrot2.LICENSE
+ */
+
+package org.carrot2.text.preprocessing;
+
+import org.carrot2.core.LanguageCode;
+import org.carrot2.text.linguistic.IdentityStemmer;
+import org.carrot2.text.util.MutableCharArray;
+import org.carrot2.util.tests.CarrotTestCase;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test cases for {@link StemCache}.
+ */
+public class StemCacheTest extends CarrotTestCase
+{
+    private StemCache cache;
+
+    @Before
+    public void prepareCache()
+    {
+        cache = StemCache.get(LanguageCode.MALTESE, new IdentityStemmer(), 10);
+        cache.clear();
+    }
+
+    @Test
+    public void testSharedPerLanguageAndStemmer()
+    {
+        assertThat(StemCache.get(LanguageCode.MALTESE, new IdentityStemmer(), 10))
+            .isSameAs(cache);
+        assertThat(StemCache.get(LanguageCode.ENGLISH, new IdentityStemmer(), 10))
+            .isNotSameAs(cache);
+    }
+
+    @Test
+    public void testStems()
+    {
+        cache.put(new MutableCharArray("xwordsx".toCharArray(), 1, 5), "word");
+        cache.put(new MutableCharArray("a"), null);
+
+        assertThat(new String(cache.get(new MutableCharArray("words")))).isEqualTo("word");
+        assertThat(cache.get(new MutableCharArray("a"))).isSameAs(StemCache.NO_STEM);
+        assertThat(cache.get(new MutableCharArray("b"))).isNull();
+    }
+
+    @Test
+    public void testBounded()
+    {
+        for (int i = 0; i < 100; i++)
+        {
+            cache.put(new MutableCharArray("w" + i), "s" + i);
+            assertThat(cache.get(new MutableCharArray("w0"))).isNotNull();
+            assertThat(cache.size()).isLessThanOrEqualTo(10);
+        }
+        assertThat(cache.get(new MutableCharArray("w99"))).isNotNull();
+        assertThat(cache.get(new MutableCharArray("w50"))).isNull();
+    }
+
+    @Test
+    public void testHitRate()
+    {
+        cache.addLookups(3, 1);
+        assertThat(cache.getHitCount()).isEqualTo(3);
+        assertThat(cache.getMissCount()).isEqualTo(1);
+        assertThat(cache.getHitRate()).isEqualTo(0.75);
+    }
+}
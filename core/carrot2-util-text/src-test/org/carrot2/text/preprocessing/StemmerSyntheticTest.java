@@ -14,6 +14,8 @@ package org.carrot2.text.preprocessing;
 
 import static org.carrot2.text.analysis.ITokenizer.*;
 
+import org.carrot2.core.LanguageCode;
+import org.carrot2.util.attribute.AttributeUtils;
 import org.carrot2.util.tests.CarrotTestCase;
 import org.junit.Before;
 import org.junit.Test;
@@ -211,4 +213,40 @@ public class StemmerSyntheticTest extends CarrotTestCase
     }
 
     // @formatter:on
+
+    @Test
+    public void testStemCache()
+    {
+        final StemCache cache = StemCache.get(LanguageCode.ENGLISH,
+            new TestStemmerFactory().getStemmer(LanguageCode.ENGLISH), 1000);
+        contextBuilder.newDoc("abc Abc xy", "bcd");
+
+        final PreprocessingContext first = contextBuilder.buildContext();
+        final long hits = cache.getHitCount();
+        final long misses = cache.getMissCount();
+        final PreprocessingContext second = contextBuilder.buildContext();
+
+        assertThat(cache.getHitCount() - hits).isEqualTo(first.allWords.image.length);
+        assertThat(cache.getMissCount()).isEqualTo(misses);
+        assertThat(StemCache.getCaches()).contains(cache);
+        assertStemsEqual(first, second);
+
+        final PreprocessingContext uncached = contextBuilder
+            .setAttribute(AttributeUtils.getKey(LanguageModelStemmer.class, "stemCacheSize"), 0)
+            .buildContext();
+        assertThat(cache.getHitCount() - hits).isEqualTo(first.allWords.image.length);
+        assertStemsEqual(first, uncached);
+    }
+
+    private static void assertStemsEqual(PreprocessingContext expected, PreprocessingContext actual)
+    {
+        assertThat(actual.allWords.stemIndex).isEqualTo(expected.allWords.stemIndex);
+        assertThat(actual.allStems.image.length).isEqualTo(expected.allStems.image.length);
+        for (int i = 0; i < expected.allStems.image.length; i++)
+        {
+            assertThat(new String(actual.allStems.image[i])).isEqualTo(
+                new String(expected.allStems.image[i]));
+        }
+    }
+
 }
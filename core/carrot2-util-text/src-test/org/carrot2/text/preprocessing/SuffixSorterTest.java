@@ -12,6 +12,9 @@
 
 package org.carrot2.text.preprocessing;
 
+import java.util.Arrays;
+import java.util.Comparator;
+
 import org.junit.Before;
 import org.junit.Test;
 
@@ -160,6 +163,86 @@ public class SuffixSorterTest extends PreprocessingComponentTestBase
         checkAsserts(expectedSuffixOrder, expectedLcpArray);
     }
 
+    @Test
+    public void testRandomAgainstNaiveSorting()
+    {
+        for (int round = 0; round < 50; round++)
+        {
+            // Small alphabets produce long repeats, large ones mostly unique suffixes
+            final int length = randomIntBetween(1, 300);
+            final int alphabet = randomBoolean() ? randomIntBetween(1, 3) : randomIntBetween(
+                10, 1000);
+            final int [] codes = new int [length];
+            int separator = -1;
+            for (int i = 0; i < length; i++)
+            {
+                codes[i] = randomInt(9) == 0 ? separator-- : randomInt(alphabet - 1);
+            }
+            codes[length - 1] = separator;
+
+            checkAgainstNaiveSorting(codes);
+        }
+    }
+
+    @Test
+    public void testRepetitive()
+    {
+        // Near-duplicate sentences are the worst case for comparison-based sorting
+        final int [] codes = new int [2000];
+        for (int i = 0; i < codes.length - 1; i++)
+        {
+            codes[i] = i % 7 == 6 ? -1 - i : i % 7;
+        }
+        codes[codes.length - 1] = -codes.length;
+
+        checkAgainstNaiveSorting(codes);
+    }
+
+    private void checkAgainstNaiveSorting(final int [] codes)
+    {
+        final Integer [] expected = new Integer [codes.length];
+        for (int i = 0; i < expected.length; i++)
+        {
+            expected[i] = i;
+        }
+        Arrays.sort(expected, new Comparator<Integer>()
+        {
+            public int compare(Integer a, Integer b)
+            {
+                int i = a, j = b;
+                while (i < codes.length && j < codes.length && codes[i] == codes[j])
+                {
+                    i++;
+                    j++;
+                }
+                if (i == codes.length || j == codes.length)
+                {
+                    return i == codes.length ? -1 : 1;
+                }
+                return codes[j] < codes[i] ? -1 : 1;
+            }
+        });
+
+        final int [] suffixOrder = SuffixSorter.suffixArray(codes);
+        final int [] lcp = SuffixSorter.calculateLcp(codes, suffixOrder);
+        for (int i = 0; i < codes.length; i++)
+        {
+            assertThat(suffixOrder[i]).as("suffixOrder[" + i + "]").isEqualTo(expected[i]);
+            if (i > 0)
+            {
+                int expectedLcp = 0;
+                while (suffixOrder[i] + expectedLcp < codes.length
+                    && suffixOrder[i - 1] + expectedLcp < codes.length
+                    && codes[suffixOrder[i] + expectedLcp] == codes[suffixOrder[i - 1]
+                        + expectedLcp])
+                {
+                    expectedLcp++;
+                }
+                assertThat(lcp[i]).as("lcp[" + i + "]").isEqualTo(expectedLcp);
+            }
+        }
+    }
+
     private void checkAsserts(int [] expectedSuffixOrder, int [] expectedLcpArray)
     {
         tokenizer.tokenize(context);
@@ -15,10 +15,21 @@ package org.carrot2.text.preprocessing;
 import static org.carrot2.text.preprocessing.PreprocessingContextAssert.tokens;
 import static org.carrot2.text.preprocessing.PreprocessingContextBuilder.FieldValue.*;
 
+import java.io.IOException;
+import java.io.Reader;
 import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
 
+import org.carrot2.core.LanguageCode;
+import org.carrot2.text.analysis.ExtendedWhitespaceTokenizer;
 import org.carrot2.text.analysis.ITokenizer;
+import org.carrot2.text.linguistic.ITokenizerFactory;
 import org.carrot2.text.preprocessing.pipeline.BasicPreprocessingPipeline;
+import org.carrot2.text.util.MutableCharArray;
+import org.carrot2.text.util.WordDictionary;
 import org.carrot2.util.attribute.AttributeUtils;
 import org.junit.Before;
 import org.junit.Test;
@@ -213,4 +224,130 @@ public class TokenizerTest extends PreprocessingContextTestBase
     }
 
     // @formatter:on
+
+    @Test
+    public void testParallelTokenizationSameAsSequential()
+    {
+        final Random rnd = new Random(0x1234);
+        final String [] words = new String [500];
+        for (int i = 0; i < words.length; i++)
+        {
+            words[i] = "w" + Integer.toString(i, 36) + (i % 7 == 0 ? "." : "");
+        }
+        for (int i = 0; i < 1500; i++)
+        {
+            contextBuilder.newDoc(randomText(rnd, words), randomText(rnd, words));
+        }
+
+        final String thresholdKey = AttributeUtils.getKey(Tokenizer.class, "parallelThreshold");
+        final PreprocessingContext sequential = contextBuilder
+            .setAttribute(thresholdKey, 0)
+            .buildContext();
+
+        final ForkJoinPool pool = new ForkJoinPool(4);
+        final PreprocessingContext parallel;
+        try
+        {
+            Tokenizer.setForkJoinPool(pool);
+            parallel = contextBuilder
+                .setAttribute(thresholdKey, 2)
+                .buildContext();
+        }
+        finally
+        {
+            Tokenizer.setForkJoinPool(null);
+            pool.shutdown();
+        }
+
+        assertThat(parallel.allTokens.documentIndex).isEqualTo(sequential.allTokens.documentIndex);
+        assertThat(parallel.allTokens.fieldIndex).isEqualTo(sequential.allTokens.fieldIndex);
+        assertThat(parallel.allTokens.type).isEqualTo(sequential.allTokens.type);
+        assertThat(Arrays.deepEquals(parallel.allTokens.image, sequential.allTokens.image)).isTrue();
+
+        // Images must be interned across chunk boundaries.
+        final Map<String, char []> interned = new HashMap<String, char []>();
+        for (char [] image : parallel.allTokens.image)
+        {
+            if (image != null)
+            {
+                final String key = new String(image);
+                if (!interned.containsKey(key))
+                {
+                    interned.put(key, image);
+                }
+                assertThat(interned.get(key)).isSameAs(image);
+            }
+        }
+    }
+
+    @Test
+    public void testSharedWordDictionary()
+    {
+        final WordDictionary dictionary = new WordDictionary();
+        final PreprocessingContext first = contextBuilder
+            .setAttribute(AttributeUtils.getKey(BasicPreprocessingPipeline.class, "wordDictionary"), dictionary)
+            .newDoc("data mining", "web mining")
+            .buildContext();
+        final PreprocessingContext second = contextBuilder.buildContext();
+
+        assertThat(first.getWordDictionary()).isSameAs(dictionary);
+        assertThat(first.allTokens.image[0]).isSameAs(second.allTokens.image[0]);
+        assertThat(first.allTokens.image[1]).isSameAs(first.allTokens.image[4]);
+        assertThat(first.allTokens.image[4]).isSameAs(second.allTokens.image[4]);
+    }
+
+    @Test
+    public void testReaderOnlyTokenizer()
+    {
+        final PreprocessingContext expected = contextBuilder
+            .newDoc("data mining", "web mining. Text")
+            .buildContext();
+        final PreprocessingContext actual = contextBuilder
+            .setAttribute(AttributeUtils.getKey(BasicPreprocessingPipeline.class, "tokenizerFactory"),
+                new ReaderOnlyTokenizerFactory())
+            .buildContext();
+
+        assertThat(actual.allTokens.type).isEqualTo(expected.allTokens.type);
+        assertThat(Arrays.deepEquals(actual.allTokens.image, expected.allTokens.image)).isTrue();
+    }
+
+    /**
+     * Creates tokenizers implementing only {@link ITokenizer}, like custom ones may.
+     */
+    public static final class ReaderOnlyTokenizerFactory implements ITokenizerFactory
+    {
+        @Override
+        public ITokenizer getTokenizer(LanguageCode language)
+        {
+            final ITokenizer delegate = new ExtendedWhitespaceTokenizer();
+            return new ITokenizer()
+            {
+                public void reset(Reader reader) throws IOException
+                {
+                    delegate.reset(reader);
+                }
+
+                public short nextToken() throws IOException
+                {
+                    return delegate.nextToken();
+                }
+
+                public void setTermBuffer(MutableCharArray array)
+                {
+                    delegate.setTermBuffer(array);
+                }
+            };
+        }
+    }
+
+    private static String randomText(Random rnd, String [] words)
+    {
+        final int length = rnd.nextInt(10);
+        final StringBuilder b = new StringBuilder();
+        for (int i = 0; i < length; i++)
+        {
+            b.append(words[rnd.nextInt(words.length)]).append(' ');
+        }
+        return b.toString();
+    }
 }
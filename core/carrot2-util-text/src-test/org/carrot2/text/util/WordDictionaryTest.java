@@ -0,0 +1,111 @@
+/*
+ * Carrot2 project.
+ *
+ * Copyright (C) 2002-2019, Dawid Weiss, Stanisław Osiński.
+ * All rights reserved.
+ *
+ * Refer to the full license file "carrot2.LICENSE"
+ * in the root folder of the repository checkout or at:
+ * http://www.carrot2.org/carrot2.LICENSE
+ */
+
+package org.carrot2.text.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.carrot2.util.tests.CarrotTestCase;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test cases for {@link WordDictionary}.
+ */
+public class WordDictionaryTest extends CarrotTestCase
+{
+    @Test
+    public void testCanonicalImages()
+    {
+        final WordDictionary dictionary = new WordDictionary(10);
+        final char [] image = dictionary.intern(new MutableCharArray("xdatax".toCharArray(), 1, 4));
+
+        assertEquals("data", new String(image));
+        assertSame(image, dictionary.intern(new MutableCharArray("data")));
+        assertNotSame(image, dictionary.intern(new MutableCharArray("Data")));
+        assertEquals(2, dictionary.size());
+    }
+
+    @Test
+    public void testStableIds()
+    {
+        final WordDictionary dictionary = new WordDictionary(10);
+        final int data = dictionary.getId(new MutableCharArray("data"));
+        final int mining = dictionary.getId(new MutableCharArray("mining"));
+
+        assertTrue(data != mining);
+        assertEquals(data, dictionary.getId(new MutableCharArray("data")));
+        assertEquals(mining, dictionary.getId(new MutableCharArray("mining")));
+    }
+
+    @Test
+    public void testEvictsLeastFrequent()
+    {
+        final WordDictionary dictionary = new WordDictionary(10);
+        final char [] frequent = dictionary.intern(new MutableCharArray("frequent"));
+        for (int i = 0; i < 100; i++)
+        {
+            assertSame(frequent, dictionary.intern(new MutableCharArray("frequent")));
+            dictionary.intern(new MutableCharArray("w" + i));
+            assertTrue(dictionary.size() <= 10);
+        }
+
+        assertTrue(dictionary.getEvictionCount() >= 90);
+        assertSame(frequent, dictionary.intern(new MutableCharArray("frequent")));
+    }
+
+    @Test
+    public void testConcurrentInterning() throws Exception
+    {
+        final WordDictionary dictionary = new WordDictionary(1000);
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try
+        {
+            final List<Future<char [][]>> futures = new ArrayList<Future<char [][]>>();
+            for (int t = 0; t < 4; t++)
+            {
+                futures.add(executor.submit(new Callable<char [][]>()
+                {
+                    public char [][] call()
+                    {
+                        final char [][] images = new char [500] [];
+                        for (int i = 0; i < images.length; i++)
+                        {
+                            images[i] = dictionary.intern(new MutableCharArray("w" + i));
+                        }
+                        return images;
+                    }
+                }));
+            }
+
+            final char [][] first = futures.get(0).get();
+            for (Future<char [][]> future : futures)
+            {
+                final char [][] images = future.get();
+                for (int i = 0; i < images.length; i++)
+                {
+                    assertSame(first[i], images[i]);
+                }
+            }
+            assertEquals(500, dictionary.size());
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+    }
+}
@@ -12,6 +12,7 @@
 
 package org.carrot2.text.vsm;
 
+import org.carrot2.matrix.CompressedColumnDoubleMatrix2D;
 import org.carrot2.matrix.MatrixAssertions;
 import org.carrot2.text.preprocessing.PreprocessingContext;
 import org.junit.Test;
@@ -162,6 +163,60 @@ public class TermDocumentMatrixBuilderTest extends TermDocumentMatrixBuilderTest
         check(expectedTdMatrixElements, expectedTdMatrixStemIndices);
     }
 
+    @Test
+    public void testCompressedMatrix()
+    {
+        createDocuments("", "aa . bb", "", "bb . cc", "", "aa . cc . cc");
+
+        int [] expectedTdMatrixStemIndices = new int []
+        {
+            2, 0, 1
+        };
+        double [][] expectedTdMatrixElements = new double [] []
+        {
+            {
+                0, 1, 2
+            },
+            {
+                1, 0, 1
+            },
+            {
+                1, 1, 0
+            }
+        };
+
+        matrixBuilder.maximumSparseMatrixDensity = 1.0;
+        check(expectedTdMatrixElements, expectedTdMatrixStemIndices);
+        assertThat(vsmContext.termDocumentMatrix).isInstanceOf(
+            CompressedColumnDoubleMatrix2D.class);
+    }
+
+    @Test
+    public void testCompressedMatrixSizeLimit()
+    {
+        createDocuments("", "aa . aa", "", "bb . bb . bb", "", "cc . cc . cc . cc");
+        preprocessingPipeline.documentAssigner.minClusterSize = 1;
+
+        // The limit applies to all matrix elements, regardless of the storage format
+        int [] expectedTdMatrixStemIndices = new int []
+        {
+            2, 1
+        };
+        double [][] expectedTdMatrixElements = new double [] []
+        {
+            {
+                0, 0, 4
+            },
+            {
+                0, 3, 0
+            }
+        };
+
+        matrixBuilder.maximumMatrixSize = 3 * 2;
+        matrixBuilder.maximumSparseMatrixDensity = 1.0;
+        check(expectedTdMatrixElements, expectedTdMatrixStemIndices);
+    }
+
     @Test
     public void testTitleWordBoost()
     {
@@ -16,18 +16,24 @@ import java.io.IOException;
 import java.io.Reader;
 
 import org.carrot2.text.util.MutableCharArray;
+import org.carrot2.util.CharArrayUtils;
 
 /**
  * A tokenizer separating input characters on whitespace, but capable of extracting more
  * complex tokens, such as URLs, e-mail addresses and sentence delimiters.
  */
-public final class ExtendedWhitespaceTokenizer implements ITokenizer
+public final class ExtendedWhitespaceTokenizer implements ICharSequenceTokenizer
 {
     /**
      * JFlex parser used to split the input into tokens.
      */
     private final ExtendedWhitespaceTokenizerImpl parser;
 
+    /**
+     * Reusable buffer for {@link CharSequence} inputs.
+     */
+    private char [] buffer = CharArrayUtils.EMPTY_ARRAY;
+
     public ExtendedWhitespaceTokenizer()
     {
         parser = new ExtendedWhitespaceTokenizerImpl((Reader)null);
@@ -39,9 +45,31 @@ public final class ExtendedWhitespaceTokenizer implements ITokenizer
     @Override
     public void reset(Reader input)
     {
+        this.parser.yyresetOwnBuffer();
         this.parser.yyreset(input);
     }
 
+    /**
+     * Reset this tokenizer to start parsing another character sequence. The characters
+     * are copied to a buffer reused between calls.
+     */
+    @Override
+    public void reset(CharSequence input)
+    {
+        this.buffer = CharArrayUtils.getChars(input, buffer);
+        reset(buffer, 0, input.length());
+    }
+
+    /**
+     * Reset this tokenizer to start parsing a fragment of the provided buffer. The buffer
+     * is scanned in place, without copying.
+     */
+    @Override
+    public void reset(char [] buffer, int start, int length)
+    {
+        this.parser.yyreset(buffer, start, length);
+    }
+
     @Override
     public short nextToken() throws IOException
     {
@@ -461,6 +461,38 @@ public final class ExtendedWhitespaceTokenizerImpl {
 	final int yystart() {
 		return zzStartRead;
 	}
+
+	/**
+	 * The scanner's own buffer while an external buffer is scanned.
+	 */
+	private char [] zzOwnBuffer;
+
+	/**
+	 * Resets the scanner to scan a fragment of an external buffer in place, without
+	 * copying it. The buffer must not change until the scanner is reset again.
+	 */
+	final void yyreset(char [] buffer, int start, int length) {
+		// Restore the own buffer first, so that a large external buffer is not
+		// mistaken for a grown own buffer and replaced with a new one.
+		yyresetOwnBuffer();
+		yyreset((java.io.Reader) null);
+		zzOwnBuffer = zzBuffer;
+		zzBuffer = buffer;
+		zzStartRead = zzCurrentPos = zzMarkedPos = start;
+		zzEndRead = start + length;
+		zzAtEOF = true;
+	}
+
+	/**
+	 * Restores the scanner's own buffer after an external buffer has been scanned.
+	 * Must be called before resetting the scanner to read from a reader.
+	 */
+	final void yyresetOwnBuffer() {
+		if (zzOwnBuffer != null) {
+			zzBuffer = zzOwnBuffer;
+			zzOwnBuffer = null;
+		}
+	}
 
 
   /**
@@ -0,0 +1,47 @@
+/*
+ * Carrot2 project.
+ *
+ * Copyright (C) 2002-2019, Dawid Weiss, Stanisław Osiński.
+ * All rights reserved.
+ *
+ * Refer to the full license file "carrot2.LICENSE"
+ * in the root folder of the repository checkout or at:
+ * http://www.carrot2.org/carrot2.LICENSE
+ */
+
+package org.carrot2.text.analysis;
+
+import java.io.IOException;
+import java.io.Reader;
+
+import org.carrot2.text.util.MutableCharArray;
+
+/**
+ * An {@link ITokenizer} that can also be reset to characters already in memory, without
+ * wrapping them in a {@link Reader}. {@link org.carrot2.text.preprocessing.Tokenizer}
+ * uses these methods for tokenizers implementing this interface and
+ * {@link #reset(Reader)} for all others.
+ */
+public interface ICharSequenceTokenizer extends ITokenizer
+{
+    /**
+     * Resets the tokenizer to process the provided characters. Implementations should
+     * not allocate new buffers for each input, which makes this method preferable to
+     * {@link #reset(Reader)} for short inputs such as document fields.
+     * 
+     * @param input the input to tokenize. The input must not change until the
+     *            tokenizer is reset again.
+     */
+    public void reset(CharSequence input) throws IOException;
+
+    /**
+     * Resets the tokenizer to process <code>length</code> characters of the provided
+     * buffer, starting at <code>start</code>. Implementations may scan the buffer in
+     * place and return token images pointing into it from
+     * {@link #setTermBuffer(MutableCharArray)}.
+     * 
+     * @param buffer the input to tokenize. The buffer must not change until the
+     *            tokenizer is reset again.
+     */
+    public void reset(char [] buffer, int start, int length) throws IOException;
+}
@@ -0,0 +1,31 @@
+/*
+ * Carrot2 project.
+ *
+ * Copyright (C) 2002-2019, Dawid Weiss, Stanisław Osiński.
+ * All rights reserved.
+ *
+ * Refer to the full license file "carrot2.LICENSE"
+ * in the root folder of the repository checkout or at:
+ * http://www.carrot2.org/carrot2.LICENSE
+ */
+
+package org.carrot2.text.clustering;
+
+import java.util.List;
+
+import org.carrot2.core.*;
+
+/**
+ * Clusters documents in one language using the provided instance of a clustering
+ * component, which is either the component itself or one of its copies, see
+ * {@link MultilingualClustering#process(List, ProcessingComponentBase, ComponentCopyPool, IMonolingualClusterer, java.util.concurrent.Executor)}.
+ */
+public interface IMonolingualClusterer<T extends ProcessingComponentBase>
+{
+    /**
+     * Clusters <code>documents</code> with <code>component</code> assuming they are
+     * written in <code>language</code>.
+     */
+    public List<Cluster> process(T component, List<Document> documents,
+        LanguageCode language);
+}
@@ -13,10 +13,12 @@
 package org.carrot2.text.clustering;
 
 import java.util.*;
+import java.util.concurrent.*;
 
 import org.carrot2.core.*;
 import org.carrot2.core.attribute.Processing;
 import org.carrot2.util.attribute.*;
+import org.carrot2.util.attribute.constraint.IntRange;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -37,6 +39,9 @@ public class MultilingualClustering
     /** {@link Group} name. */
     private static final String MULTILINGUAL_CLUSTERING = "Multilingual clustering";
 
+    /** The largest allowed value of {@link #maxConcurrentLanguages}. */
+    public static final int MAX_CONCURRENT_LANGUAGES = 16;
+
     /**
      * Defines how monolingual partial clusters will be combined to form final results.
      */
@@ -143,8 +148,70 @@ public class MultilingualClustering
     @Group(MULTILINGUAL_CLUSTERING)
     @Level(AttributeLevel.MEDIUM)
     public String majorityLanguage = ""; 
-    
+
+    /**
+     * Maximum concurrent languages. The maximum number of language partitions clustered
+     * at the same time, each by a separate instance of the clustering algorithm. With the
+     * default value of 1, partitions are clustered one after another. The clusters do not
+     * depend on this setting.
+     */
+    @Input
+    @Processing
+    @Attribute
+    @IntRange(min = 1, max = MAX_CONCURRENT_LANGUAGES)
+    @Group(MULTILINGUAL_CLUSTERING)
+    @Level(AttributeLevel.ADVANCED)
+    public int maxConcurrentLanguages = 1;
+
     public List<Cluster> process(List<Document> documents, IMonolingualClusteringAlgorithm algorithm)
+    {
+        return process(documents, algorithm, null, null);
+    }
+
+    /**
+     * Clusters documents like
+     * {@link #process(List, IMonolingualClusteringAlgorithm, IMonolingualClusteringAlgorithm, Executor)}
+     * with <code>clusterer</code>. Partitions clustered sequentially are passed to
+     * <code>component</code>, partitions clustered concurrently are passed to copies
+     * borrowed from <code>copies</code>.
+     */
+    public <T extends ProcessingComponentBase> List<Cluster> process(
+        List<Document> documents, final T component, final ComponentCopyPool<T> copies,
+        final IMonolingualClusterer<T> clusterer, Executor executor)
+    {
+        return process(documents, new IMonolingualClusteringAlgorithm()
+        {
+            public List<Cluster> process(List<Document> documents, LanguageCode language)
+            {
+                return clusterer.process(component, documents, language);
+            }
+        }, new IMonolingualClusteringAlgorithm()
+        {
+            public List<Cluster> process(List<Document> documents, LanguageCode language)
+            {
+                final T copy = copies.borrow();
+                try
+                {
+                    return clusterer.process(copy, documents, language);
+                }
+                finally
+                {
+                    copies.release(copy);
+                }
+            }
+        }, executor);
+    }
+
+    /**
+     * Clusters documents like {@link #process(List, IMonolingualClusteringAlgorithm)},
+     * but if {@link #maxConcurrentLanguages} is larger than 1, up to that many language
+     * partitions are clustered at the same time on <code>executor</code> using
+     * <code>concurrentAlgorithm</code>, which must be thread-safe. If either of these is
+     * <code>null</code>, partitions are clustered sequentially with <code>algorithm</code>.
+     */
+    public List<Cluster> process(List<Document> documents,
+        IMonolingualClusteringAlgorithm algorithm,
+        IMonolingualClusteringAlgorithm concurrentAlgorithm, Executor executor)
     {
         languageCounts = Maps.newHashMap();
         
@@ -160,7 +227,8 @@ public class MultilingualClustering
 
         // Clusters documents in each language separately,
         // creates a map of top-level Cluster instances named after the language code.
-        final Map<LanguageCode, Cluster> clustersByLanguage = clusterByLanguage(documents, algorithm);
+        final Map<LanguageCode, Cluster> clustersByLanguage = clusterByLanguage(documents,
+            algorithm, concurrentAlgorithm, executor);
         final List<Cluster> clusters = Lists.newArrayList(clustersByLanguage.values());
 
         // For FLATTEN_ALL we combine all clusters
@@ -249,7 +317,8 @@ public class MultilingualClustering
      * Clusters documents in each language separately.
      */
     private Map<LanguageCode, Cluster> clusterByLanguage(List<Document> documents,
-        IMonolingualClusteringAlgorithm algorithm)
+        IMonolingualClusteringAlgorithm algorithm,
+        IMonolingualClusteringAlgorithm concurrentAlgorithm, Executor executor)
     {
         // Partition by language first. As Multimaps.index() does not handle null
         // keys, we'd need to index by LanguageCode string and have a dedicated empty
@@ -264,25 +333,52 @@ public class MultilingualClustering
                 }
             });
 
-        // For each language, perform clustering. Please note that implementations of 
-        // IMonolingualClusteringAlgorithm.cluster() are not guaranteed to be thread-safe
-        // and hence the method must NOT be called concurrently.
-        final Map<LanguageCode, Cluster> clusters = Maps.newHashMap();
+        final List<LanguageCode> languageCodes = Lists.newArrayList();
+        final List<LanguageCode> clusteringLanguages = Lists.newArrayList();
+        final List<List<Document>> partitions = Lists.newArrayList();
         for (String language : documentsByLanguage.keySet())
         {
             final ImmutableList<Document> languageDocuments = documentsByLanguage.get(language);
             final LanguageCode languageCode = language.equals("") ? null : LanguageCode.valueOf(language);
-            final Cluster languageCluster = new Cluster(
-                languageCode != null ? languageCode.toString() : "Unknown Language");
-            
+
             languageCounts.put(languageCode != null ? languageCode.getIsoCode() : "",
                 languageDocuments.size());
 
-            // Perform clustering
-            final LanguageCode currentLanguage = languageCode != null ? languageCode : defaultLanguage;
-            logger.debug("Performing monolingual clustering in: " + currentLanguage);
-            final List<Cluster> clustersForLanguage = algorithm.process(
-                languageDocuments, currentLanguage);
+            languageCodes.add(languageCode);
+            clusteringLanguages.add(languageCode != null ? languageCode : defaultLanguage);
+            partitions.add(languageDocuments);
+        }
+
+        // For each language, perform clustering. Please note that implementations of 
+        // IMonolingualClusteringAlgorithm.cluster() are not guaranteed to be thread-safe
+        // and hence only the concurrent algorithm may be called concurrently.
+        final List<List<Cluster>> clustersForLanguages;
+        if (maxConcurrentLanguages > 1 && partitions.size() > 1
+            && concurrentAlgorithm != null && executor != null)
+        {
+            clustersForLanguages = clusterConcurrently(partitions, clusteringLanguages,
+                concurrentAlgorithm, executor);
+        }
+        else
+        {
+            clustersForLanguages = Lists.newArrayList();
+            for (int i = 0; i < partitions.size(); i++)
+            {
+                logger.debug("Performing monolingual clustering in: "
+                    + clusteringLanguages.get(i));
+                clustersForLanguages.add(algorithm.process(partitions.get(i),
+                    clusteringLanguages.get(i)));
+            }
+        }
+
+        final Map<LanguageCode, Cluster> clusters = Maps.newHashMap();
+        for (int i = 0; i < partitions.size(); i++)
+        {
+            final LanguageCode languageCode = languageCodes.get(i);
+            final List<Document> languageDocuments = partitions.get(i);
+            final List<Cluster> clustersForLanguage = clustersForLanguages.get(i);
+            final Cluster languageCluster = new Cluster(
+                languageCode != null ? languageCode.toString() : "Unknown Language");
 
             if (clustersForLanguage.size() == 0 || 
                 clustersForLanguage.size() == 1 && clustersForLanguage.get(0).isOtherTopics())
@@ -299,6 +395,74 @@ public class MultilingualClustering
 
         return clusters;
     }
+
+    /**
+     * Clusters language partitions on the executor, at most
+     * {@link #maxConcurrentLanguages} at a time. Returns clusters in the order of
+     * partitions.
+     */
+    private List<List<Cluster>> clusterConcurrently(final List<List<Document>> partitions,
+        final List<LanguageCode> languages, final IMonolingualClusteringAlgorithm algorithm,
+        Executor executor)
+    {
+        final CompletionService<List<Cluster>> completionService = 
+            new ExecutorCompletionService<List<Cluster>>(executor);
+        final Map<Future<List<Cluster>>, Integer> pending = Maps.newHashMap();
+        final List<List<Cluster>> clusters = Lists.newArrayList(
+            Collections.<List<Cluster>> nCopies(partitions.size(), null));
+
+        int submitted = 0;
+        try
+        {
+            while (submitted < partitions.size() || !pending.isEmpty())
+            {
+                while (submitted < partitions.size() && pending.size() < maxConcurrentLanguages)
+                {
+                    final int partition = submitted++;
+                    logger.debug("Performing monolingual clustering in: "
+                        + languages.get(partition));
+                    pending.put(completionService.submit(new Callable<List<Cluster>>()
+                    {
+                        public List<Cluster> call()
+                        {
+                            return algorithm.process(partitions.get(partition),
+                                languages.get(partition));
+                        }
+                    }), partition);
+                }
+
+                final Future<List<Cluster>> done = completionService.take();
+                clusters.set(pending.remove(done), done.get());
+            }
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new ProcessingException("Interrupted while clustering languages", e);
+        }
+        catch (ExecutionException e)
+        {
+            final Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException)
+            {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error)
+            {
+                throw (Error) cause;
+            }
+            throw new ProcessingException("Clustering of a language failed", cause);
+        }
+        finally
+        {
+            for (Future<List<Cluster>> future : pending.keySet())
+            {
+                future.cancel(true);
+            }
+        }
+
+        return clusters;
+    }
     
     private List<Cluster> clusterInMajorityLanguage(List<Document> documents,
         IMonolingualClusteringAlgorithm algorithm)
@@ -26,6 +26,7 @@ public final class LanguageModel
     private final LanguageCode languageCode;
     private final IFactory<IStemmer> stemmerFactory;
     private final IFactory<ITokenizer> tokenizerFactory;
+    private final IFactory<ITokenizer> tokenizerInstanceFactory;
     private final IFactory<ILexicalData> lexicalDataFactory;
 
     LanguageModel(LanguageCode languageCode, IFactory<IStemmer> stemmerFactory,
@@ -35,6 +36,7 @@ public final class LanguageModel
         this.stemmerFactory = new CachedInstanceFactoryDecorator<IStemmer>(stemmerFactory);
         this.tokenizerFactory = new CachedInstanceFactoryDecorator<ITokenizer>(
             tokenizerFactory);
+        this.tokenizerInstanceFactory = tokenizerFactory;
         this.lexicalDataFactory = new CachedInstanceFactoryDecorator<ILexicalData>(
             lexicalDataFactory);
     }
@@ -92,4 +94,15 @@ public final class LanguageModel
     {
         return tokenizerFactory.createInstance();
     }
+
+    /**
+     * Returns a tokenizer obtained directly from the underlying factory, bypassing the
+     * instance cached by {@link #getTokenizer()}. Use when tokenizing from more than one
+     * thread. Factories are free to return shared instances, so callers should check
+     * whether the returned tokenizer is distinct from the ones they already hold.
+     */
+    public ITokenizer createTokenizer()
+    {
+        return tokenizerInstanceFactory.createInstance();
+    }
 }
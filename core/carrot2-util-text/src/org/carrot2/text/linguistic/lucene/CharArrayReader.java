@@ -0,0 +1,64 @@
+/*
+ * Carrot2 project.
+ *
+ * Copyright (C) 2002-2019, Dawid Weiss, Stanisław Osiński.
+ * All rights reserved.
+ *
+ * Refer to the full license file "carrot2.LICENSE"
+ * in the root folder of the repository checkout or at:
+ * http://www.carrot2.org/carrot2.LICENSE
+ */
+
+package org.carrot2.text.linguistic.lucene;
+
+import java.io.Reader;
+
+/**
+ * A {@link Reader} over a fragment of a character buffer which, unlike
+ * {@link java.io.CharArrayReader}, can be reset to another buffer and is not
+ * synchronized. Lets Lucene tokenizers be reused for many inputs without allocating a
+ * reader for each of them.
+ */
+final class CharArrayReader extends Reader
+{
+    private char [] buffer = new char [0];
+    private int position;
+    private int end;
+
+    /**
+     * Resets this reader to read <code>length</code> characters of
+     * <code>buffer</code>, starting at <code>start</code>.
+     */
+    void reset(char [] buffer, int start, int length)
+    {
+        this.buffer = buffer;
+        this.position = start;
+        this.end = start + length;
+    }
+
+    @Override
+    public int read(char [] cbuf, int off, int len)
+    {
+        if (position >= end)
+        {
+            return -1;
+        }
+
+        final int count = Math.min(len, end - position);
+        System.arraycopy(buffer, position, cbuf, off, count);
+        position += count;
+        return count;
+    }
+
+    @Override
+    public int read()
+    {
+        return position < end ? buffer[position++] : -1;
+    }
+
+    @Override
+    public void close()
+    {
+        // Nothing to release, the buffer belongs to the caller.
+    }
+}
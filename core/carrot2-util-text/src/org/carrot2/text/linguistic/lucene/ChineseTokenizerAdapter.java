@@ -19,14 +19,16 @@ import java.util.regex.Pattern;
 import org.apache.lucene.analysis.Tokenizer;
 import org.apache.lucene.analysis.cn.smart.HMMChineseTokenizer;
 import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.carrot2.text.analysis.ICharSequenceTokenizer;
 import org.carrot2.text.analysis.ITokenizer;
 import org.carrot2.text.util.MutableCharArray;
+import org.carrot2.util.CharArrayUtils;
 import org.carrot2.util.ExceptionUtils;
 
 /**
  * 
  */
-public final class ChineseTokenizerAdapter implements ITokenizer
+public final class ChineseTokenizerAdapter implements ICharSequenceTokenizer
 {
     private final static Pattern numeric = Pattern
         .compile("[\\-+'$]?\\d+([:\\-/,.]?\\d+)*[%$]?");
@@ -36,6 +38,13 @@ public final class ChineseTokenizerAdapter implements ITokenizer
 
     private final MutableCharArray tempCharSequence;
 
+    /**
+     * Reusable input buffer and reader for {@link #reset(CharSequence)} and
+     * {@link #reset(char[], int, int)}.
+     */
+    private char [] buffer = CharArrayUtils.EMPTY_ARRAY;
+    private final CharArrayReader reader = new CharArrayReader();
+
     public ChineseTokenizerAdapter()
     {
         this.tempCharSequence = new MutableCharArray(new char [0]);
@@ -95,4 +104,16 @@ public final class ChineseTokenizerAdapter implements ITokenizer
             throw ExceptionUtils.wrapAsRuntimeException(e);
         }
     }
+
+    public void reset(CharSequence input) throws IOException
+    {
+        this.buffer = CharArrayUtils.getChars(input, buffer);
+        reset(buffer, 0, input.length());
+    }
+
+    public void reset(char [] buffer, int start, int length) throws IOException
+    {
+        reader.reset(buffer, start, length);
+        reset(reader);
+    }
 }
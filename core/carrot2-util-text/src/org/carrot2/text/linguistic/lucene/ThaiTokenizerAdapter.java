@@ -17,20 +17,29 @@ import java.io.Reader;
 
 import org.apache.lucene.analysis.th.ThaiTokenizer;
 import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.carrot2.text.analysis.ICharSequenceTokenizer;
 import org.carrot2.text.analysis.ITokenizer;
 import org.carrot2.text.util.MutableCharArray;
+import org.carrot2.util.CharArrayUtils;
 import org.carrot2.util.ExceptionUtils;
 
 /**
  * Thai tokenizer implemented using Lucene's {@link ThaiTokenizer}.
  */
-public final class ThaiTokenizerAdapter implements ITokenizer
+public final class ThaiTokenizerAdapter implements ICharSequenceTokenizer
 {
     private CharTermAttribute term = null;
 
     private final MutableCharArray tempCharSequence;
     private ThaiTokenizer tokenizer;
 
+    /**
+     * Reusable input buffer and reader for {@link #reset(CharSequence)} and
+     * {@link #reset(char[], int, int)}.
+     */
+    private char [] buffer = CharArrayUtils.EMPTY_ARRAY;
+    private final CharArrayReader reader = new CharArrayReader();
+
     public ThaiTokenizerAdapter()
     {
         this.tempCharSequence = new MutableCharArray(new char [0]);
@@ -64,10 +73,19 @@ public final class ThaiTokenizerAdapter implements ITokenizer
         assert input != null;
         try
         {
-            this.tokenizer = new ThaiTokenizer();
-            tokenizer.setReader(input);
+            if (tokenizer == null)
+            {
+                this.tokenizer = new ThaiTokenizer();
+                this.term = tokenizer.addAttribute(CharTermAttribute.class);
+            }
+            else
+            {
+                // Reuse the tokenizer, its dictionary-based break iterator is costly to create.
+                tokenizer.end();
+                tokenizer.close();
+            }
 
-            this.term = tokenizer.addAttribute(CharTermAttribute.class);
+            tokenizer.setReader(input);
             this.tokenizer.reset();
         }
         catch (Exception e)
@@ -75,6 +93,18 @@ public final class ThaiTokenizerAdapter implements ITokenizer
             throw ExceptionUtils.wrapAsRuntimeException(e);
         }
     }
+
+    public void reset(CharSequence input) throws IOException
+    {
+        this.buffer = CharArrayUtils.getChars(input, buffer);
+        reset(buffer, 0, input.length());
+    }
+
+    public void reset(char [] buffer, int start, int length) throws IOException
+    {
+        reader.reset(buffer, start, length);
+        reset(reader);
+    }
     
     /**
      * Check support for Thai.
@@ -20,6 +20,8 @@ import org.carrot2.text.analysis.ITokenizer;
 import org.carrot2.text.preprocessing.PreprocessingContext.AllTokens;
 import org.carrot2.text.preprocessing.PreprocessingContext.AllWords;
 import org.carrot2.text.util.CharArrayComparators;
+import org.carrot2.text.util.MutableCharArray;
+import org.carrot2.util.CharArrayUtils;
 import org.carrot2.util.attribute.Attribute;
 import org.carrot2.util.attribute.AttributeLevel;
 import org.carrot2.util.attribute.Bindable;
@@ -30,11 +32,12 @@ import org.carrot2.util.attribute.Label;
 import org.carrot2.util.attribute.Level;
 import org.carrot2.util.attribute.constraint.IntRange;
 
-import com.carrotsearch.hppc.BitSet;
 import com.carrotsearch.hppc.ByteArrayList;
 import com.carrotsearch.hppc.IntArrayList;
 import com.carrotsearch.hppc.IntStack;
+import com.carrotsearch.hppc.ObjectIntHashMap;
 import com.carrotsearch.hppc.ShortArrayList;
+import com.carrotsearch.hppc.sorting.IndirectComparator;
 import com.carrotsearch.hppc.sorting.IndirectSort;
 import org.carrot2.shaded.guava.common.collect.Lists;
 
@@ -84,9 +87,103 @@ public final class CaseNormalizer
         final byte [] tokensFieldIndex = context.allTokens.fieldIndex;
         final int tokenCount = tokenImages.length;
 
-        // Sort token images
-        final int [] tokenImagesOrder = IndirectSort.mergesort(tokenImages, 0,
-            tokenImages.length, CharArrayComparators.NORMALIZING_CHAR_ARRAY_COMPARATOR);
+        // Group tokens by image (variants) and variants by case-insensitive image (words)
+        final int [] tokenVariants = new int [tokenCount];
+        final ObjectIntHashMap<MutableCharArray> variantIndexes = new ObjectIntHashMap<>();
+        final IntArrayList variantWords = new IntArrayList();
+        final IntArrayList variantTf = new IntArrayList();
+        final IntArrayList variantFirstTokens = new IntArrayList();
+        final IntArrayList variantLastTokens = new IntArrayList();
+        final ObjectIntHashMap<MutableCharArray> wordIndexesByImage = new ObjectIntHashMap<>();
+        final IntArrayList wordVariantCounts = new IntArrayList();
+        final IntArrayList wordTokenCounts = new IntArrayList();
+
+        final MutableCharArray wrapper = new MutableCharArray(CharArrayUtils.EMPTY_ARRAY);
+        char [] buffer = new char [128];
+
+        for (int i = 0; i < tokenCount; i++)
+        {
+            final char [] image = tokenImages[i];
+            if (image == null || isNotIndexed(tokenTypesArray[i]))
+            {
+                tokenVariants[i] = -1;
+                continue;
+            }
+
+            wrapper.reset(image);
+            final int index = variantIndexes.indexOf(wrapper);
+            int variant;
+            if (variantIndexes.indexExists(index))
+            {
+                variant = variantIndexes.indexGet(index);
+                variantTf.buffer[variant]++;
+                variantLastTokens.buffer[variant] = i;
+            }
+            else
+            {
+                variant = variantWords.size();
+                variantIndexes.indexInsert(index, new MutableCharArray(image), variant);
+                variantTf.add(1);
+                variantFirstTokens.add(i);
+                variantLastTokens.add(i);
+
+                if (buffer.length < image.length) buffer = new char [image.length];
+                CharArrayUtils.toLowerCase(image, buffer);
+                wrapper.reset(buffer, 0, image.length);
+                final int wordIndex = wordIndexesByImage.indexOf(wrapper);
+                final int word;
+                if (wordIndexesByImage.indexExists(wordIndex))
+                {
+                    word = wordIndexesByImage.indexGet(wordIndex);
+                    wordVariantCounts.buffer[word]++;
+                }
+                else
+                {
+                    word = wordVariantCounts.size();
+                    wordIndexesByImage.indexInsert(wordIndex,
+                        new MutableCharArray(Arrays.copyOf(buffer, image.length)), word);
+                    wordVariantCounts.add(1);
+                    wordTokenCounts.add(0);
+                }
+                variantWords.add(word);
+            }
+
+            tokenVariants[i] = variant;
+            wordTokenCounts.buffer[variantWords.get(variant)]++;
+        }
+
+        // Bucket variants and tokens by word, preserving their order of appearance
+        final int wordCount = wordVariantCounts.size();
+        final int [] wordVariantStarts = startOffsets(wordVariantCounts);
+        final int [] wordTokenStarts = startOffsets(wordTokenCounts);
+        final int [] variantsByWord = new int [variantWords.size()];
+        final int [] tokensByWord = new int [wordTokenStarts[wordCount]];
+        final int [] variantFill = Arrays.copyOf(wordVariantStarts, wordCount);
+        final int [] tokenFill = Arrays.copyOf(wordTokenStarts, wordCount);
+        for (int v = 0; v < variantsByWord.length; v++)
+        {
+            variantsByWord[variantFill[variantWords.get(v)]++] = v;
+        }
+        for (int i = 0; i < tokenCount; i++)
+        {
+            if (tokenVariants[i] >= 0)
+            {
+                tokensByWord[tokenFill[variantWords.get(tokenVariants[i])]++] = i;
+            }
+        }
+
+        // Order words and their variants as they would be sorted by the normalizing
+        // comparator. Only distinct images are sorted, not all tokens.
+        final int [] wordOrder = IndirectSort.mergesort(0, wordCount, new IndirectComparator()
+        {
+            @Override
+            public int compare(int a, int b)
+            {
+                return CharArrayComparators.NORMALIZING_CHAR_ARRAY_COMPARATOR.compare(
+                    tokenImages[variantFirstTokens.get(variantsByWord[wordVariantStarts[a]])],
+                    tokenImages[variantFirstTokens.get(variantsByWord[wordVariantStarts[b]])]);
+            }
+        });
 
         // Create holders for new arrays
         final List<char []> normalizedWordImages = Lists.newArrayList();
@@ -98,124 +195,83 @@ public final class CaseNormalizer
         final int [] wordIndexes = new int [tokenCount];
         Arrays.fill(wordIndexes, -1);
 
-        // Initial values for counters
-        int tf = 1;
-        int maxTf = 1;
-        int maxTfVariantIndex = tokenImagesOrder[0];
-        int totalTf = 1;
-        int variantStartIndex = 0;
-
-        // A byte set for word fields tracking
-        final BitSet fieldIndices = new BitSet(context.allFields.name.length);
-
         // A stack for pushing information about the term's documents.
         final IntStack wordDocuments = new IntStack();
 
-        if (documentIndexesArray[tokenImagesOrder[0]] >= 0)
-        {
-            wordDocuments.push(documentIndexesArray[tokenImagesOrder[0]]);
-        }
-
-        // Go through the ordered token images
-        for (int i = 0; i < tokenImagesOrder.length - 1; i++)
+        for (int w = 0; w < wordCount; w++)
         {
-            final char [] image = tokenImages[tokenImagesOrder[i]];
-            final char [] nextImage = tokenImages[tokenImagesOrder[i + 1]];
-            final int tokenType = tokenTypesArray[tokenImagesOrder[i]];
-            final int documentIndex = documentIndexesArray[tokenImagesOrder[i + 1]];
+            final int word = wordOrder[w];
+            final int variantStart = wordVariantStarts[word];
+            final int variantCount = wordVariantStarts[word + 1] - variantStart;
+            final int [] variantOrder = variantCount == 1 ? new int [] { variantStart }
+                : IndirectSort.mergesort(variantStart, variantCount, new IndirectComparator()
+                {
+                    @Override
+                    public int compare(int a, int b)
+                    {
+                        return CharArrayComparators.NORMALIZING_CHAR_ARRAY_COMPARATOR.compare(
+                            tokenImages[variantFirstTokens.get(variantsByWord[a])],
+                            tokenImages[variantFirstTokens.get(variantsByWord[b])]);
+                    }
+                });
 
-            // Reached the end of non-null tokens?
-            if (image == null)
+            // Select the most frequent case variant. A variant's frequency includes
+            // the frequencies of the preceding variants that did not become the most
+            // frequent one; this is how the variants have always been counted.
+            int tf = 1;
+            int maxTf = 1;
+            int maxTfVariantIndex = variantFirstTokens.get(variantsByWord[variantOrder[0]]);
+            for (int j = 0; j < variantCount; j++)
             {
-                break;
+                final int variant = variantsByWord[variantOrder[j]];
+                tf += variantTf.get(variant) - 1;
+                if (maxTf < tf)
+                {
+                    maxTf = tf;
+                    maxTfVariantIndex = variantLastTokens.get(variant);
+                    tf = 1;
+                }
             }
 
-            // Check if we want to index this token at all
-            if (isNotIndexed(tokenType))
+            // Collect the documents and fields of all the word's tokens
+            final int tokenStart = wordTokenStarts[word];
+            final int tokenEnd = wordTokenStarts[word + 1];
+            int fieldIndices = 0;
+            wordDocuments.clear();
+            for (int j = tokenStart; j < tokenEnd; j++)
             {
-                variantStartIndex = i + 1;
-                maxTfVariantIndex = tokenImagesOrder[i + 1];
-
-                resetForNewTokenImage(documentIndexesArray, tokenImagesOrder, 
-                    fieldIndices, wordDocuments, i);
-                continue;
-            }
-
-            fieldIndices.set(tokensFieldIndex[tokenImagesOrder[i]]);
-
-            // Now check if image case is changing
-            final boolean sameCase = CharArrayComparators.FAST_CHAR_ARRAY_COMPARATOR
-                .compare(image, nextImage) == 0;
-            if (sameCase)
-            {
-                // Case has not changed, just increase counters
-                tf++;
-                totalTf++;
-                wordDocuments.push(documentIndex);
-                continue;
+                final int token = tokensByWord[j];
+                fieldIndices |= 1 << tokensFieldIndex[token];
+                if (documentIndexesArray[token] >= 0)
+                {
+                    wordDocuments.push(documentIndexesArray[token]);
+                }
             }
 
-            // Case (or even token image) has changed. Update most frequent case
-            // variant
-            if (maxTf < tf)
+            // wordDocuments.size() may contain duplicate entries from the same document, 
+            // but this check is faster than deduping, so we do it first.  
+            if (wordDocuments.size() >= dfThreshold)
             {
-                maxTf = tf;
-                maxTfVariantIndex = tokenImagesOrder[i];
-                tf = 1;
-            }
+                // Flatten the list of documents this term occurred in.
+                final int [] sparseEncoding = SparseArray.toSparseEncoding(wordDocuments);
+                final int df = (sparseEncoding.length >> 1); 
+                if (df >= dfThreshold)
+                {
+                    wordTfByDocumentList.add(sparseEncoding);
 
-            final boolean sameImage = CharArrayComparators.CASE_INSENSITIVE_CHAR_ARRAY_COMPARATOR
-                .compare(image, nextImage) == 0;
+                    // Add the word to the word list
+                    normalizedWordImages.add(tokenImages[maxTfVariantIndex]);
+                    types.add(tokenTypesArray[maxTfVariantIndex]);
+                    normalizedWordTf.add(tokenEnd - tokenStart);
+                    fieldIndexList.add((byte) fieldIndices);
 
-            // Check if token image has changed
-            if (sameImage)
-            {
-                totalTf++;
-                wordDocuments.push(documentIndex);
-            }
-            else
-            {
-                // The image has changed completely.
-                // Before we start processing the new image, we need to
-                // see if we want to store the previous image, and if so
-                // we need add some data about it to the arrays
-                
-                // wordDocuments.size() may contain duplicate entries from the same document, 
-                // but this check is faster than deduping, so we do it first.  
-                if (wordDocuments.size() >= dfThreshold)
-                {
-                    // Flatten the list of documents this term occurred in.
-                    final int [] sparseEncoding = SparseArray.toSparseEncoding(wordDocuments);
-                    final int df = (sparseEncoding.length >> 1); 
-                    if (df >= dfThreshold)
+                    // Add this word's index in AllWords to all its instances
+                    // in the AllTokens multiarray
+                    for (int j = tokenStart; j < tokenEnd; j++)
                     {
-                        wordTfByDocumentList.add(sparseEncoding);
-    
-                        // Add the word to the word list
-                        normalizedWordImages.add(tokenImages[maxTfVariantIndex]);
-                        types.add(tokenTypesArray[maxTfVariantIndex]);
-                        normalizedWordTf.add(totalTf);
-                        fieldIndexList.add((byte) fieldIndices.bits[0]);
-
-                        // Add this word's index in AllWords to all its instances
-                        // in the AllTokens multiarray
-                        for (int j = variantStartIndex; j < i + 1; j++)
-                        {
-                            wordIndexes[tokenImagesOrder[j]] = normalizedWordImages.size() - 1;
-                        }
+                        wordIndexes[tokensByWord[j]] = normalizedWordImages.size() - 1;
                     }
                 }
-
-                // Reinitialize counters
-                totalTf = 1;
-                tf = 1;
-                maxTf = 1;
-                maxTfVariantIndex = tokenImagesOrder[i + 1];
-                variantStartIndex = i + 1;
-
-                // Re-initialize int set used for document frequency calculation
-                resetForNewTokenImage(documentIndexesArray, tokenImagesOrder,
-                    fieldIndices, wordDocuments, i);
             }
         }
 
@@ -232,18 +288,17 @@ public final class CaseNormalizer
     }
 
     /**
-     * Initializes the counters for the a token image.
+     * Converts a list of counts into start offsets of consecutive buckets. The returned
+     * array has one more element, the total count.
      */
-    private void resetForNewTokenImage(final int [] documentIndexesArray,
-        final int [] tokenImagesOrder,
-        final BitSet fieldIndices, IntStack wordDocuments, int i)
+    private static int [] startOffsets(IntArrayList counts)
     {
-        fieldIndices.clear();
-        wordDocuments.clear();
-        if (documentIndexesArray[tokenImagesOrder[i + 1]] >= 0)
+        final int [] starts = new int [counts.size() + 1];
+        for (int i = 0; i < counts.size(); i++)
         {
-            wordDocuments.push(documentIndexesArray[tokenImagesOrder[i + 1]]);
+            starts[i + 1] = starts[i] + counts.get(i);
         }
+        return starts;
     }
 
     /**
@@ -15,14 +15,25 @@ package org.carrot2.text.preprocessing;
 import java.util.ArrayList;
 import java.util.Set;
 
+import org.carrot2.core.attribute.Init;
+import org.carrot2.core.attribute.Processing;
 import org.carrot2.text.analysis.ITokenizer;
 import org.carrot2.text.linguistic.IStemmer;
+import org.carrot2.text.linguistic.IdentityStemmer;
 import org.carrot2.text.preprocessing.PreprocessingContext.AllStems;
 import org.carrot2.text.preprocessing.PreprocessingContext.AllWords;
 import org.carrot2.text.util.CharArrayComparators;
 import org.carrot2.text.util.MutableCharArray;
 import org.carrot2.util.CharArrayUtils;
+import org.carrot2.util.attribute.Attribute;
+import org.carrot2.util.attribute.AttributeLevel;
 import org.carrot2.util.attribute.Bindable;
+import org.carrot2.util.attribute.DefaultGroups;
+import org.carrot2.util.attribute.Group;
+import org.carrot2.util.attribute.Input;
+import org.carrot2.util.attribute.Label;
+import org.carrot2.util.attribute.Level;
+import org.carrot2.util.attribute.constraint.IntRange;
 
 import com.carrotsearch.hppc.ByteArrayList;
 import com.carrotsearch.hppc.IntArrayList;
@@ -48,17 +59,37 @@ import org.carrot2.shaded.guava.common.collect.Sets;
 @Bindable(prefix = "LanguageModelStemmer")
 public final class LanguageModelStemmer
 {
+    /**
+     * Maximum number of words whose stems are cached for each language. The cache is
+     * shared by all stemmers of the same class and language in the process, see
+     * {@link StemCache}. Set to 0 to disable caching.
+     */
+    @Init
+    @Processing
+    @Input
+    @Attribute
+    @IntRange(min = 0)
+    @Label("Stem cache size")
+    @Level(AttributeLevel.ADVANCED)
+    @Group(DefaultGroups.PREPROCESSING)
+    public int stemCacheSize = 100000;
+
     /**
      * Performs stemming and saves the results to the <code>context</code>.
      */
     public void stem(PreprocessingContext context)
     {
         final IStemmer stemmer = context.language.getStemmer();
+        final StemCache cache = stemCacheSize > 0 && !(stemmer instanceof IdentityStemmer)
+            ? StemCache.get(context.language.getLanguageCode(), stemmer, stemCacheSize)
+            : null;
+        long hits = 0;
 
         final char [][] wordImages = context.allWords.image;
         final char [][] stemImages = new char [wordImages.length] [];
 
         final MutableCharArray mutableCharArray = new MutableCharArray(CharArrayUtils.EMPTY_ARRAY);
+        final MutableCharArray cachedStem = new MutableCharArray(CharArrayUtils.EMPTY_ARRAY);
         char [] buffer = new char [128];
 
         for (int i = 0; i < wordImages.length; i++)
@@ -69,7 +100,30 @@ public final class LanguageModelStemmer
             final boolean different = CharArrayUtils.toLowerCase(word, buffer);
 
             mutableCharArray.reset(buffer, 0, word.length);
-            final CharSequence stemmed = stemmer.stem(mutableCharArray);
+            final CharSequence stemmed;
+            final char [] cached = cache != null ? cache.get(mutableCharArray) : null;
+            if (cached != null)
+            {
+                hits++;
+                if (cached == StemCache.NO_STEM)
+                {
+                    stemmed = null;
+                }
+                else
+                {
+                    cachedStem.reset(cached);
+                    stemmed = cachedStem;
+                }
+            }
+            else
+            {
+                stemmed = stemmer.stem(mutableCharArray);
+                if (cache != null)
+                {
+                    cache.put(mutableCharArray, stemmed);
+                }
+            }
+
             if (stemmed != null)
             {
                 mutableCharArray.reset(stemmed);
@@ -86,6 +140,11 @@ public final class LanguageModelStemmer
             }
         }
 
+        if (cache != null)
+        {
+            cache.addLookups(hits, wordImages.length - hits);
+        }
+
         addStemStatistics(context, stemImages, prepareQueryWords(context.query, stemmer));
     }
 
@@ -22,6 +22,8 @@ import org.carrot2.text.linguistic.IStemmer;
 import org.carrot2.text.linguistic.LanguageModel;
 import org.carrot2.text.util.MutableCharArray;
 import org.carrot2.text.util.TabularOutput;
+import org.carrot2.text.util.WordDictionary;
+import org.carrot2.util.StageTimer;
 
 import com.carrotsearch.hppc.*;
 
@@ -46,22 +48,47 @@ public final class PreprocessingContext
     /** Language model to be used */
     public final LanguageModel language;
 
+    /**
+     * Times the stages of preprocessing and of the clustering that follows it. The first
+     * lap starts when this context is created. Algorithms add their own stages after
+     * preprocessing, see {@link org.carrot2.core.attribute.AttributeNames#PROCESSING_TIME_STAGES}.
+     */
+    public final StageTimer timer = new StageTimer();
+
     /**
      * Token interning cache. Token images are interned to save memory and allow reference
      * comparisons.
      */
     private ObjectHashSet<MutableCharArray> tokenCache = new ObjectHashSet<>();
 
+    /**
+     * Dictionary shared with other contexts from which images of words not yet in
+     * {@link #tokenCache} are taken, may be <code>null</code>.
+     */
+    private final WordDictionary wordDictionary;
+
     /**
      * Creates a preprocessing context for the provided <code>documents</code> and with
      * the provided <code>languageModel</code>.
      */
     public PreprocessingContext(LanguageModel languageModel, List<Document> documents,
         String query)
+    {
+        this(languageModel, documents, query, null);
+    }
+
+    /**
+     * Creates a preprocessing context for the provided <code>documents</code> and with
+     * the provided <code>languageModel</code>. Token images are taken from the
+     * <code>wordDictionary</code> shared with other contexts, if not <code>null</code>.
+     */
+    public PreprocessingContext(LanguageModel languageModel, List<Document> documents,
+        String query, WordDictionary wordDictionary)
     {
         this.query = query;
         this.documents = documents;
         this.language = languageModel;
+        this.wordDictionary = wordDictionary;
     }
 
     /**
@@ -744,7 +771,8 @@ public final class PreprocessingContext
     }
 
     /**
-     * Return a unique char buffer representing a given character sequence.
+     * Return a unique char buffer representing a given character sequence. Buffers
+     * remain unique within this context even if the shared word dictionary evicts them.
      */
     public char [] intern(MutableCharArray chs)
     {
@@ -755,10 +783,27 @@ public final class PreprocessingContext
         }
         else
         {
-            final char [] tokenImage = new char [chs.length()];
-            System.arraycopy(chs.getBuffer(), chs.getStart(), tokenImage, 0, chs.length());
-            tokenCache.add(new MutableCharArray(tokenImage));
+            final char [] tokenImage;
+            if (wordDictionary != null)
+            {
+                tokenImage = wordDictionary.intern(chs);
+            }
+            else
+            {
+                tokenImage = new char [chs.length()];
+                System.arraycopy(chs.getBuffer(), chs.getStart(), tokenImage, 0, chs.length());
+            }
+            tokenCache.indexInsert(index, new MutableCharArray(tokenImage));
             return tokenImage;
         }
     }
+
+    /**
+     * Returns the word dictionary shared with other contexts or <code>null</code> if
+     * token images are not shared.
+     */
+    public WordDictionary getWordDictionary()
+    {
+        return wordDictionary;
+    }
 }
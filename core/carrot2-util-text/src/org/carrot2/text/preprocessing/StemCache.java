@@ -0,0 +1,257 @@
+/*
+ * Carrot2 project.
+ *
+ * Copyright (C) 2002-2019, Dawid Weiss, Stanisław Osiński.
+ * All rights reserved.
+ *
+ * Refer to the full license file "carrot2.LICENSE"
+ * in the root folder of the repository checkout or at:
+ * http://www.carrot2.org/carrot2.LICENSE
+ */
+
+package org.carrot2.text.preprocessing;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.carrot2.core.LanguageCode;
+import org.carrot2.text.linguistic.IStemmer;
+import org.carrot2.text.util.MutableCharArray;
+import org.carrot2.util.annotations.ThreadSafe;
+
+/**
+ * A bounded cache of stems of lower-cased words, shared by all {@link IStemmer}
+ * instances of one class for one language in the process. Used by
+ * {@link LanguageModelStemmer}.
+ * <p>
+ * Entries are kept in two generations. New entries go to the current generation; when
+ * it reaches half of the maximum size, it becomes the previous generation and the former
+ * previous generation is dropped. Entries found in the previous generation are moved
+ * to the current one, so frequently used words are retained.
+ */
+@ThreadSafe
+public final class StemCache
+{
+    /**
+     * All caches, keyed by language and stemmer class.
+     */
+    private static final ConcurrentMap<String, StemCache> caches =
+        new ConcurrentHashMap<String, StemCache>();
+
+    /**
+     * Stem marker of words for which the stemmer returned <code>null</code>.
+     */
+    static final char [] NO_STEM = new char [0];
+
+    /**
+     * A cached word and its stem.
+     */
+    private static final class Entry
+    {
+        final char [] word;
+        final char [] stem;
+
+        Entry(char [] word, char [] stem)
+        {
+            this.word = word;
+            this.stem = stem;
+        }
+    }
+
+    private final LanguageCode languageCode;
+    private final String stemmerClass;
+    private volatile int maximumSize;
+
+    private volatile ConcurrentHashMap<MutableCharArray, Entry> current =
+        new ConcurrentHashMap<MutableCharArray, Entry>();
+    private volatile ConcurrentHashMap<MutableCharArray, Entry> previous =
+        new ConcurrentHashMap<MutableCharArray, Entry>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    private StemCache(LanguageCode languageCode, String stemmerClass, int maximumSize)
+    {
+        this.languageCode = languageCode;
+        this.stemmerClass = stemmerClass;
+        this.maximumSize = maximumSize;
+    }
+
+    /**
+     * Returns the cache for the given language and stemmer, creating it if necessary.
+     * The maximum size of an existing cache is updated to <code>maximumSize</code>.
+     */
+    static StemCache get(LanguageCode languageCode, IStemmer stemmer, int maximumSize)
+    {
+        final String stemmerClass = stemmer.getClass().getName();
+        final String key = languageCode.name() + "/" + stemmerClass;
+        StemCache cache = caches.get(key);
+        if (cache == null)
+        {
+            final StemCache created = new StemCache(languageCode, stemmerClass,
+                maximumSize);
+            cache = caches.putIfAbsent(key, created);
+            if (cache == null)
+            {
+                cache = created;
+            }
+        }
+        cache.maximumSize = maximumSize;
+        return cache;
+    }
+
+    /**
+     * Returns all stem caches created in this process.
+     */
+    public static List<StemCache> getCaches()
+    {
+        return new ArrayList<StemCache>(caches.values());
+    }
+
+    /**
+     * Returns the stem of a lower-cased word, {@link #NO_STEM} if the stemmer returned
+     * <code>null</code> for the word or <code>null</code> if the word is not cached.
+     */
+    char [] get(MutableCharArray word)
+    {
+        final ConcurrentHashMap<MutableCharArray, Entry> c = current;
+        Entry entry = c.get(word);
+        if (entry == null)
+        {
+            entry = previous.get(word);
+            if (entry == null)
+            {
+                return null;
+            }
+            add(c, entry);
+        }
+        return entry.stem;
+    }
+
+    /**
+     * Caches the stem of a lower-cased word, <code>null</code> if the stemmer returned
+     * <code>null</code>.
+     */
+    void put(MutableCharArray word, CharSequence stem)
+    {
+        final char [] wordImage = new char [word.length()];
+        System.arraycopy(word.getBuffer(), word.getStart(), wordImage, 0, word.length());
+
+        final char [] stemImage;
+        if (stem == null)
+        {
+            stemImage = NO_STEM;
+        }
+        else
+        {
+            stemImage = new char [stem.length()];
+            for (int i = 0; i < stemImage.length; i++)
+            {
+                stemImage[i] = stem.charAt(i);
+            }
+        }
+
+        add(current, new Entry(wordImage, stemImage));
+    }
+
+    /**
+     * Adds lookup counts of a single request.
+     */
+    void addLookups(long hitCount, long missCount)
+    {
+        hits.addAndGet(hitCount);
+        misses.addAndGet(missCount);
+    }
+
+    private void add(ConcurrentHashMap<MutableCharArray, Entry> generation, Entry entry)
+    {
+        generation.put(new MutableCharArray(entry.word), entry);
+        if (generation.size() >= Math.max(1, maximumSize / 2))
+        {
+            synchronized (this)
+            {
+                if (current == generation)
+                {
+                    previous = generation;
+                    current = new ConcurrentHashMap<MutableCharArray, Entry>();
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the language of this cache.
+     */
+    public LanguageCode getLanguageCode()
+    {
+        return languageCode;
+    }
+
+    /**
+     * Returns the name of the class of stemmers whose stems are cached.
+     */
+    public String getStemmerClass()
+    {
+        return stemmerClass;
+    }
+
+    /**
+     * Returns the maximum number of cached words.
+     */
+    public int getMaximumSize()
+    {
+        return maximumSize;
+    }
+
+    /**
+     * Returns the number of cached words.
+     */
+    public int size()
+    {
+        return current.size() + previous.size();
+    }
+
+    /**
+     * Returns the number of words whose stems were found in this cache.
+     */
+    public long getHitCount()
+    {
+        return hits.get();
+    }
+
+    /**
+     * Returns the number of words whose stems were not found in this cache.
+     */
+    public long getMissCount()
+    {
+        return misses.get();
+    }
+
+    /**
+     * Returns the fraction of words whose stems were found in this cache or 0 if there
+     * were no lookups.
+     */
+    public double getHitRate()
+    {
+        final long h = hits.get();
+        final long total = h + misses.get();
+        return total == 0 ? 0 : (double) h / total;
+    }
+
+    /**
+     * Removes all entries and resets statistics.
+     */
+    public void clear()
+    {
+        synchronized (this)
+        {
+            current = new ConcurrentHashMap<MutableCharArray, Entry>();
+            previous = new ConcurrentHashMap<MutableCharArray, Entry>();
+        }
+        hits.set(0);
+        misses.set(0);
+    }
+}
@@ -1,4 +1,3 @@
-
 /*
  * Carrot2 project.
  *
@@ -12,48 +11,16 @@
 
 package org.carrot2.text.preprocessing;
 
-import com.carrotsearch.hppc.sorting.IndirectComparator;
-import com.carrotsearch.hppc.sorting.IndirectSort;
+import java.util.Arrays;
 
 /**
- * A simple suffix sorting utility based on the generic sorting routines from {@link IndirectSort}.
+ * A linear-time suffix sorting utility. Suffix arrays are built with the SA-IS algorithm
+ * (G. Nong, S. Zhang, W. H. Chan, <i>Two Efficient Algorithms for Linear Time Suffix
+ * Array Construction</i>) over the integer alphabet of word codes, the LCP array is
+ * computed with the algorithm of Kasai et al.
  */
 final class SuffixSorter
 {
-    /**
-     * An int comparator that enables suffix sorting.
-     */
-    private static class SuffixComparator implements IndirectComparator
-    {
-        private int [] suffixData;
-
-        public SuffixComparator(int [] suffixData)
-        {
-            this.suffixData = suffixData;
-        }
-
-        public int compare(int suffixA, int suffixB)
-        {
-            if (suffixA == suffixB)
-            {
-                return 0;
-            }
-
-            /*
-             * Suffix data ends with a unique negative value, so we don't need to do extra
-             * range checks and we still won't run into array index out of bounds
-             * exceptions.
-             */
-            while (suffixData[suffixA] == suffixData[suffixB])
-            {
-                suffixA++;
-                suffixB++;
-            }
-
-            return suffixData[suffixB] - suffixData[suffixA];
-        }
-    }
-
     /**
      * Performs suffix sorting and saves the results to the <code>context</code>.
      */
@@ -78,32 +45,268 @@ final class SuffixSorter
         }
 
         // Create suffix order
-        int [] suffixOrder = IndirectSort.mergesort(0, intCodes.length, new SuffixComparator(intCodes));
+        int [] suffixOrder = suffixArray(intCodes);
         context.allTokens.suffixOrder = suffixOrder;
-        
+
         // Add LCPs
         context.allTokens.lcp = calculateLcp(intCodes, suffixOrder);
     }
 
     /**
-     * Calculates the Longest Common Prefix values for each token.
+     * Returns the order of suffixes of <code>codes</code>. Suffixes are compared code by
+     * code in <b>descending</b> order of codes, so suffixes starting with negative
+     * separator codes come last.
      */
-    private int [] calculateLcp(int [] intCodes, int [] suffixOrder)
+    static int [] suffixArray(int [] codes)
     {
-        // LCP array
-        int [] lcpArray = new int [intCodes.length];
+        final int n = codes.length;
+        if (n == 0)
+        {
+            return new int [0];
+        }
 
-        lcpArray[0] = 0;
-        for (int i = 1; i < lcpArray.length - 1; i++)
+        int max = Integer.MIN_VALUE;
+        int min = Integer.MAX_VALUE;
+        for (int code : codes)
         {
-            int lcp = 0;
-            while (intCodes[suffixOrder[i - 1] + lcp] == intCodes[suffixOrder[i] + lcp])
+            max = Math.max(max, code);
+            min = Math.min(min, code);
+        }
+
+        // Map codes to symbols 1..K-1 in reverse order and append the 0 sentinel.
+        final int [] s = new int [n + 1];
+        for (int i = 0; i < n; i++)
+        {
+            s[i] = max - codes[i] + 1;
+        }
+        final int alphabetSize = max - min + 2;
+
+        final int [] sa = new int [n + 1];
+        sais(s, 0, sa, 0, n + 1, alphabetSize);
+
+        // The sentinel suffix is always first
+        return Arrays.copyOfRange(sa, 1, n + 1);
+    }
+
+    /**
+     * Calculates the Longest Common Prefix values for each token. <code>lcp[i]</code> is
+     * the length of the common prefix of suffixes <code>suffixOrder[i - 1]</code> and
+     * <code>suffixOrder[i]</code>, <code>lcp[0]</code> is 0.
+     */
+    static int [] calculateLcp(int [] intCodes, int [] suffixOrder)
+    {
+        final int n = intCodes.length;
+        final int [] lcpArray = new int [n];
+        final int [] rank = new int [n];
+        for (int i = 0; i < n; i++)
+        {
+            rank[suffixOrder[i]] = i;
+        }
+
+        // Kasai et al.: the LCP with the preceding suffix drops by at most one
+        // when moving to the next text position.
+        int h = 0;
+        for (int i = 0; i < n; i++)
+        {
+            final int r = rank[i];
+            if (r == 0)
             {
-                lcp++;
+                h = 0;
+                continue;
+            }
+
+            final int j = suffixOrder[r - 1];
+            while (i + h < n && j + h < n && intCodes[i + h] == intCodes[j + h])
+            {
+                h++;
+            }
+            lcpArray[r] = h;
+            if (h > 0)
+            {
+                h--;
             }
-            lcpArray[i] = lcp;
         }
 
         return lcpArray;
     }
+
+    /**
+     * SA-IS. The input <code>s[sOffset, sOffset + n)</code> must be over the alphabet
+     * <code>[0, k)</code> and end with a unique 0 sentinel. The suffix array is stored in
+     * <code>sa[saOffset, saOffset + n)</code>. Recursive calls store the reduced problem
+     * in the suffix array, as in the original algorithm.
+     */
+    private static void sais(int [] s, int sOffset, int [] sa, int saOffset, int n, int k)
+    {
+        // Suffix types: true for S-type, false for L-type.
+        final boolean [] t = new boolean [n];
+        t[n - 1] = true;
+        for (int i = n - 2; i >= 0; i--)
+        {
+            final int c = s[sOffset + i], next = s[sOffset + i + 1];
+            t[i] = c < next || (c == next && t[i + 1]);
+        }
+
+        final int [] buckets = new int [k];
+
+        // Stage 1: sort LMS substrings.
+        bucketEnds(s, sOffset, n, buckets);
+        Arrays.fill(sa, saOffset, saOffset + n, -1);
+        for (int i = 1; i < n; i++)
+        {
+            if (isLms(t, i))
+            {
+                sa[saOffset + --buckets[s[sOffset + i]]] = i;
+            }
+        }
+        induceL(s, sOffset, sa, saOffset, n, t, buckets);
+        induceS(s, sOffset, sa, saOffset, n, t, buckets);
+
+        // Compact sorted LMS substrings into the first n1 slots.
+        int n1 = 0;
+        for (int i = 0; i < n; i++)
+        {
+            final int pos = sa[saOffset + i];
+            if (isLms(t, pos))
+            {
+                sa[saOffset + n1++] = pos;
+            }
+        }
+
+        // Name LMS substrings, equal substrings get equal names.
+        Arrays.fill(sa, saOffset + n1, saOffset + n, -1);
+        int name = 0;
+        int prev = -1;
+        for (int i = 0; i < n1; i++)
+        {
+            final int pos = sa[saOffset + i];
+            boolean diff = false;
+            for (int d = 0; d < n; d++)
+            {
+                if (prev == -1 || s[sOffset + pos + d] != s[sOffset + prev + d]
+                    || t[pos + d] != t[prev + d])
+                {
+                    diff = true;
+                    break;
+                }
+                else if (d > 0 && (isLms(t, pos + d) || isLms(t, prev + d)))
+                {
+                    break;
+                }
+            }
+            if (diff)
+            {
+                name++;
+                prev = pos;
+            }
+            sa[saOffset + n1 + pos / 2] = name - 1;
+        }
+        for (int i = n - 1, j = n - 1; i >= n1; i--)
+        {
+            if (sa[saOffset + i] >= 0)
+            {
+                sa[saOffset + j--] = sa[saOffset + i];
+            }
+        }
+
+        // Stage 2: sort the reduced problem, recursively if names are not unique.
+        final int s1Offset = saOffset + n - n1;
+        if (name < n1)
+        {
+            sais(sa, s1Offset, sa, saOffset, n1, name);
+        }
+        else
+        {
+            for (int i = 0; i < n1; i++)
+            {
+                sa[saOffset + sa[s1Offset + i]] = i;
+            }
+        }
+
+        // Stage 3: induce the suffix array from sorted LMS suffixes.
+        bucketEnds(s, sOffset, n, buckets);
+        for (int i = 1, j = 0; i < n; i++)
+        {
+            if (isLms(t, i))
+            {
+                sa[s1Offset + j++] = i;
+            }
+        }
+        for (int i = 0; i < n1; i++)
+        {
+            sa[saOffset + i] = sa[s1Offset + sa[saOffset + i]];
+        }
+        Arrays.fill(sa, saOffset + n1, saOffset + n, -1);
+        for (int i = n1 - 1; i >= 0; i--)
+        {
+            final int j = sa[saOffset + i];
+            sa[saOffset + i] = -1;
+            sa[saOffset + --buckets[s[sOffset + j]]] = j;
+        }
+        induceL(s, sOffset, sa, saOffset, n, t, buckets);
+        induceS(s, sOffset, sa, saOffset, n, t, buckets);
+    }
+
+    private static boolean isLms(boolean [] t, int i)
+    {
+        return i > 0 && t[i] && !t[i - 1];
+    }
+
+    private static void induceL(int [] s, int sOffset, int [] sa, int saOffset, int n,
+        boolean [] t, int [] buckets)
+    {
+        bucketStarts(s, sOffset, n, buckets);
+        for (int i = 0; i < n; i++)
+        {
+            final int j = sa[saOffset + i] - 1;
+            if (j >= 0 && !t[j])
+            {
+                sa[saOffset + buckets[s[sOffset + j]]++] = j;
+            }
+        }
+    }
+
+    private static void induceS(int [] s, int sOffset, int [] sa, int saOffset, int n,
+        boolean [] t, int [] buckets)
+    {
+        bucketEnds(s, sOffset, n, buckets);
+        for (int i = n - 1; i >= 0; i--)
+        {
+            final int j = sa[saOffset + i] - 1;
+            if (j >= 0 && t[j])
+            {
+                sa[saOffset + --buckets[s[sOffset + j]]] = j;
+            }
+        }
+    }
+
+    private static void bucketStarts(int [] s, int sOffset, int n, int [] buckets)
+    {
+        countSymbols(s, sOffset, n, buckets);
+        for (int c = 0, sum = 0; c < buckets.length; c++)
+        {
+            final int count = buckets[c];
+            buckets[c] = sum;
+            sum += count;
+        }
+    }
+
+    private static void bucketEnds(int [] s, int sOffset, int n, int [] buckets)
+    {
+        countSymbols(s, sOffset, n, buckets);
+        for (int c = 0, sum = 0; c < buckets.length; c++)
+        {
+            sum += buckets[c];
+            buckets[c] = sum;
+        }
+    }
+
+    private static void countSymbols(int [] s, int sOffset, int n, int [] buckets)
+    {
+        Arrays.fill(buckets, 0);
+        for (int i = 0; i < n; i++)
+        {
+            buckets[s[sOffset + i]]++;
+        }
+    }
 }
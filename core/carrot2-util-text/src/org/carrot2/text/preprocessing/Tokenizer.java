@@ -19,11 +19,16 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 import org.apache.commons.lang3.StringUtils;
 import org.carrot2.core.Document;
 import org.carrot2.core.ProcessingException;
 import org.carrot2.core.attribute.Init;
+import org.carrot2.core.attribute.Processing;
+import org.carrot2.text.analysis.ICharSequenceTokenizer;
 import org.carrot2.text.analysis.ITokenizer;
 import org.carrot2.text.preprocessing.PreprocessingContext.AllFields;
 import org.carrot2.text.preprocessing.PreprocessingContext.AllTokens;
@@ -38,11 +43,14 @@ import org.carrot2.util.attribute.Group;
 import org.carrot2.util.attribute.Input;
 import org.carrot2.util.attribute.Label;
 import org.carrot2.util.attribute.Level;
+import org.carrot2.util.attribute.constraint.IntRange;
 
 import com.carrotsearch.hppc.ByteArrayList;
 import com.carrotsearch.hppc.IntArrayList;
+import com.carrotsearch.hppc.ObjectIntHashMap;
 import com.carrotsearch.hppc.ShortArrayList;
 import org.carrot2.shaded.guava.common.collect.Lists;
+import org.carrot2.shaded.guava.common.collect.Sets;
 
 /**
  * Performs tokenization of documents.
@@ -54,6 +62,11 @@ import org.carrot2.shaded.guava.common.collect.Lists;
  * <li>{@link AllTokens#fieldIndex}</li>
  * <li>{@link AllTokens#type}</li>
  * </ul>
+ * <p>
+ * Large document sets are split into contiguous chunks tokenized in parallel (see
+ * {@link #parallelThreshold}). Chunks are merged in document order and their token
+ * images interned in the order of first occurrence, so the results are identical to
+ * sequential tokenization.
  */
 @Bindable(prefix = "Tokenizer")
 public final class Tokenizer
@@ -73,28 +86,53 @@ public final class Tokenizer
     });
 
     /**
-     * Token images.
+     * Minimum number of documents for which tokenization is split into chunks processed
+     * in parallel, each with its own {@link ITokenizer} instance. Set to 0 to always
+     * tokenize sequentially. The tokens produced are the same regardless of this
+     * setting.
      */
-    private ArrayList<char []> images;
+    @Init
+    @Processing
+    @Input
+    @Attribute
+    @IntRange(min = 0)
+    @Label("Parallel tokenization threshold")
+    @Level(AttributeLevel.ADVANCED)
+    @Group(DefaultGroups.PREPROCESSING)
+    public int parallelThreshold = 1000;
 
     /**
-     * An array of token types.
-     * 
-     * @see ITokenizer
+     * Minimum number of documents in a single parallel chunk.
      */
-    private ShortArrayList tokenTypes;
+    static final int MIN_CHUNK_DOCUMENTS = 250;
 
-    /**
-     * An array of document indexes.
-     */
-    private IntArrayList documentIndices;
+    private static volatile ForkJoinPool pool;
 
     /**
-     * An array of field indexes.
-     * 
-     * @see AllFields
+     * Sets the pool in which parallel tokenization is executed. If <code>null</code>, a
+     * shared pool with one thread per available processor is created on first use.
      */
-    private ByteArrayList fieldIndices;
+    public static void setForkJoinPool(ForkJoinPool forkJoinPool)
+    {
+        pool = forkJoinPool;
+    }
+
+    private static ForkJoinPool getForkJoinPool()
+    {
+        ForkJoinPool p = pool;
+        if (p == null)
+        {
+            synchronized (Tokenizer.class)
+            {
+                p = pool;
+                if (p == null)
+                {
+                    pool = p = new ForkJoinPool();
+                }
+            }
+        }
+        return p;
+    }
 
     /**
      * Performs tokenization and saves the results to the <code>context</code>.
@@ -112,118 +150,302 @@ public final class Tokenizer
             throw new ProcessingException("Maximum number of tokenized fields is 8.");
         }
 
-        // Prepare arrays
-        images = Lists.newArrayList();
-        tokenTypes = new ShortArrayList();
-        documentIndices = new IntArrayList();
-        fieldIndices = new ByteArrayList();
-
-        final Iterator<Document> docIterator = documents.iterator();
-        int documentIndex = 0;
-        final ITokenizer ts = context.language.getTokenizer();
-        final MutableCharArray wrapper = new MutableCharArray(CharArrayUtils.EMPTY_ARRAY);
-
-        while (docIterator.hasNext())
+        final List<Chunk> chunks = createChunks(context, fieldNames);
+        if (chunks.size() == 1)
         {
-            final Document doc = docIterator.next();
-
-            boolean hadTokens = false;
-            for (int i = 0; i < fieldNames.length; i++)
+            chunks.get(0).compute();
+        }
+        else
+        {
+            getForkJoinPool().invoke(new RecursiveAction()
             {
-                final byte fieldIndex = (byte) i;
-                final String fieldName = fieldNames[i];
-                final String fieldValue = doc.getField(fieldName);
-
-                if (!StringUtils.isEmpty(fieldValue))
+                @Override
+                protected void compute()
                 {
-                    try
-                    {
-                        short tokenType;
-
-                        ts.reset(new StringReader(fieldValue));
-                        if ((tokenType = ts.nextToken()) != ITokenizer.TT_EOF)
-                        {
-                            if (hadTokens) addFieldSeparator(documentIndex);
-                            do
-                            {
-                                ts.setTermBuffer(wrapper);
-                                add(documentIndex, fieldIndex, context.intern(wrapper), tokenType);
-                            } while ( (tokenType = ts.nextToken()) != ITokenizer.TT_EOF);
-                            hadTokens = true;
-                        }
-                    }
-                    catch (IOException e)
-                    {
-                        // Not possible (StringReader above)?
-                        throw ExceptionUtils.wrapAsRuntimeException(e);
-                    }
+                    invokeAll(chunks);
                 }
+            });
+        }
+
+        // Merge chunks in document order, with document separators between chunks
+        int tokenCount = chunks.size();
+        for (Chunk chunk : chunks)
+        {
+            tokenCount += chunk.types.size();
+        }
+
+        final int [] documentIndices = new int [tokenCount];
+        final byte [] fieldIndices = new byte [tokenCount];
+        final char [][] images = new char [tokenCount][];
+        final short [] tokenTypes = new short [tokenCount];
+
+        int offset = 0;
+        for (Chunk chunk : chunks)
+        {
+            if (offset > 0)
+            {
+                documentIndices[offset] = -1;
+                fieldIndices[offset] = -1;
+                tokenTypes[offset] = ITokenizer.TF_SEPARATOR_DOCUMENT;
+                offset++;
             }
 
-            if (docIterator.hasNext())
+            // Intern distinct images in the order of their first occurrence
+            final char [][] interned = new char [chunk.images.size()][];
+            final MutableCharArray wrapper = new MutableCharArray(CharArrayUtils.EMPTY_ARRAY);
+            for (int i = 0; i < interned.length; i++)
             {
-                addDocumentSeparator();
+                wrapper.reset(chunk.images.get(i));
+                interned[i] = context.intern(wrapper);
             }
 
-            documentIndex++;
+            final int size = chunk.types.size();
+            System.arraycopy(chunk.documentIndices.buffer, 0, documentIndices, offset, size);
+            System.arraycopy(chunk.fieldIndices.buffer, 0, fieldIndices, offset, size);
+            System.arraycopy(chunk.types.buffer, 0, tokenTypes, offset, size);
+            final int [] imageIds = chunk.imageIds.buffer;
+            for (int i = 0; i < size; i++)
+            {
+                if (imageIds[i] >= 0)
+                {
+                    images[offset + i] = interned[imageIds[i]];
+                }
+            }
+            offset += size;
         }
 
-        addTerminator();
+        documentIndices[offset] = -1;
+        fieldIndices[offset] = -1;
+        tokenTypes[offset] = ITokenizer.TF_TERMINATOR;
 
         // Save results in the PreprocessingContext
-        context.allTokens.documentIndex = documentIndices.toArray();
-        context.allTokens.fieldIndex = fieldIndices.toArray();
-        context.allTokens.image = images.toArray(new char [images.size()] []);
-        context.allTokens.type = tokenTypes.toArray();
+        context.allTokens.documentIndex = documentIndices;
+        context.allTokens.fieldIndex = fieldIndices;
+        context.allTokens.image = images;
+        context.allTokens.type = tokenTypes;
         context.allFields.name = fieldNames;
-
-        // Clean up
-        images = null;
-        fieldIndices = null;
-        tokenTypes = null;
-        documentIndices = null;
     }
 
     /**
-     * Adds a special terminating token required at the very end of all documents.
+     * Splits documents into contiguous chunks, each with a distinct tokenizer. Falls
+     * back to a single chunk if the tokenizer factory does not provide distinct
+     * instances.
      */
-    void addTerminator()
+    private List<Chunk> createChunks(PreprocessingContext context, String [] fieldNames)
     {
-        add(-1, (byte) -1, null, ITokenizer.TF_TERMINATOR);
-    }
+        final List<Document> documents = context.documents;
+        final int documentCount = documents.size();
+        final ITokenizer tokenizer = context.language.getTokenizer();
 
-    /**
-     * Adds a document separator to the lists.
-     */
-    void addDocumentSeparator()
-    {
-        add(-1, (byte) -1, null, ITokenizer.TF_SEPARATOR_DOCUMENT);
-    }
+        int chunkCount = 1;
+        if (parallelThreshold > 0 && documentCount >= Math.max(2, parallelThreshold))
+        {
+            final int processors = pool != null ? pool.getParallelism() : Runtime
+                .getRuntime().availableProcessors();
+            chunkCount = Math.min(processors,
+                Math.max(2, documentCount / MIN_CHUNK_DOCUMENTS));
+        }
 
-    /**
-     * Adds a field separator to the lists.
-     */
-    void addFieldSeparator(int documentIndex)
-    {
-        add(documentIndex, (byte) -1, null, ITokenizer.TF_SEPARATOR_FIELD);
-    }
+        if (chunkCount > 1)
+        {
+            final List<ITokenizer> tokenizers = Lists.newArrayList(tokenizer);
+            final Set<ITokenizer> distinct = Sets.newIdentityHashSet();
+            distinct.add(tokenizer);
+            while (tokenizers.size() < chunkCount)
+            {
+                final ITokenizer ts = context.language.createTokenizer();
+                if (ts == null || !distinct.add(ts))
+                {
+                    break;
+                }
+                tokenizers.add(ts);
+            }
 
-    /**
-     * Adds a sentence separator to the lists.
-     */
-    void addSentenceSeparator(int documentIndex, byte fieldIndex)
-    {
-        add(documentIndex, fieldIndex, null, ITokenizer.TF_SEPARATOR_FIELD);
+            if (tokenizers.size() == chunkCount)
+            {
+                final List<Chunk> chunks = Lists.newArrayListWithCapacity(chunkCount);
+                for (int i = 0; i < chunkCount; i++)
+                {
+                    final int from = (int) ((long) documentCount * i / chunkCount);
+                    final int to = (int) ((long) documentCount * (i + 1) / chunkCount);
+                    chunks.add(new Chunk(tokenizers.get(i), documents.subList(from, to),
+                        from, fieldNames));
+                }
+                return chunks;
+            }
+        }
+
+        final List<Chunk> chunks = Lists.newArrayList();
+        chunks.add(new Chunk(tokenizer, documents, 0, fieldNames));
+        return chunks;
     }
 
     /**
-     * Adds custom token code to the sequence. May be used to add separator constants.
+     * Tokens of a contiguous range of documents. Token images are interned in a table
+     * local to the chunk so that chunks can be tokenized concurrently; they are
+     * re-interned in the {@link PreprocessingContext} when chunks are merged.
      */
-    void add(int documentIndex, byte fieldIndex, char [] image, short tokenTypeCode)
+    @SuppressWarnings("serial")
+    private static final class Chunk extends RecursiveAction
     {
-        documentIndices.add(documentIndex);
-        fieldIndices.add(fieldIndex);
-        images.add(image);
-        tokenTypes.add(tokenTypeCode);
+        private final ITokenizer ts;
+        private final List<Document> documents;
+        private final int firstDocumentIndex;
+        private final String [] fieldNames;
+
+        /**
+         * Local intern table: image to index in {@link #images}.
+         */
+        private final ObjectIntHashMap<MutableCharArray> imageIndex = new ObjectIntHashMap<>();
+
+        /**
+         * Distinct token images, in the order of their first occurrence.
+         */
+        final ArrayList<char []> images = Lists.newArrayList();
+
+        /**
+         * An array of indexes in {@link #images}, -1 for tokens with no image.
+         */
+        final IntArrayList imageIds = new IntArrayList();
+
+        /**
+         * An array of token types.
+         * 
+         * @see ITokenizer
+         */
+        final ShortArrayList types = new ShortArrayList();
+
+        /**
+         * An array of document indexes.
+         */
+        final IntArrayList documentIndices = new IntArrayList();
+
+        /**
+         * An array of field indexes.
+         * 
+         * @see AllFields
+         */
+        final ByteArrayList fieldIndices = new ByteArrayList();
+
+        Chunk(ITokenizer ts, List<Document> documents, int firstDocumentIndex,
+            String [] fieldNames)
+        {
+            this.ts = ts;
+            this.documents = documents;
+            this.firstDocumentIndex = firstDocumentIndex;
+            this.fieldNames = fieldNames;
+        }
+
+        @Override
+        protected void compute()
+        {
+            final Iterator<Document> docIterator = documents.iterator();
+            int documentIndex = firstDocumentIndex;
+            final MutableCharArray wrapper = new MutableCharArray(CharArrayUtils.EMPTY_ARRAY);
+
+            // Custom tokenizers may only be able to read from a reader.
+            final ICharSequenceTokenizer cts = ts instanceof ICharSequenceTokenizer
+                ? (ICharSequenceTokenizer) ts : null;
+
+            while (docIterator.hasNext())
+            {
+                final Document doc = docIterator.next();
+
+                boolean hadTokens = false;
+                for (int i = 0; i < fieldNames.length; i++)
+                {
+                    final byte fieldIndex = (byte) i;
+                    final String fieldName = fieldNames[i];
+                    final String fieldValue = doc.getField(fieldName);
+
+                    if (!StringUtils.isEmpty(fieldValue))
+                    {
+                        try
+                        {
+                            short tokenType;
+
+                            if (cts != null)
+                            {
+                                cts.reset(fieldValue);
+                            }
+                            else
+                            {
+                                ts.reset(new StringReader(fieldValue));
+                            }
+                            if ((tokenType = ts.nextToken()) != ITokenizer.TT_EOF)
+                            {
+                                if (hadTokens) addFieldSeparator(documentIndex);
+                                do
+                                {
+                                    ts.setTermBuffer(wrapper);
+                                    add(documentIndex, fieldIndex, intern(wrapper), tokenType);
+                                } while ( (tokenType = ts.nextToken()) != ITokenizer.TT_EOF);
+                                hadTokens = true;
+                            }
+                        }
+                        catch (IOException e)
+                        {
+                            // Not possible (in-memory input above)?
+                            throw ExceptionUtils.wrapAsRuntimeException(e);
+                        }
+                    }
+                }
+
+                if (docIterator.hasNext())
+                {
+                    addDocumentSeparator();
+                }
+
+                documentIndex++;
+            }
+        }
+
+        /**
+         * Returns the index of a given image in the local intern table.
+         */
+        private int intern(MutableCharArray chs)
+        {
+            final int index = imageIndex.indexOf(chs);
+            if (imageIndex.indexExists(index))
+            {
+                return imageIndex.indexGet(index);
+            }
+            else
+            {
+                final char [] tokenImage = new char [chs.length()];
+                System.arraycopy(chs.getBuffer(), chs.getStart(), tokenImage, 0, chs.length());
+                final int id = images.size();
+                images.add(tokenImage);
+                imageIndex.indexInsert(index, new MutableCharArray(tokenImage), id);
+                return id;
+            }
+        }
+
+        /**
+         * Adds a document separator to the lists.
+         */
+        void addDocumentSeparator()
+        {
+            add(-1, (byte) -1, -1, ITokenizer.TF_SEPARATOR_DOCUMENT);
+        }
+
+        /**
+         * Adds a field separator to the lists.
+         */
+        void addFieldSeparator(int documentIndex)
+        {
+            add(documentIndex, (byte) -1, -1, ITokenizer.TF_SEPARATOR_FIELD);
+        }
+
+        /**
+         * Adds custom token code to the sequence. May be used to add separator constants.
+         */
+        void add(int documentIndex, byte fieldIndex, int imageId, short tokenTypeCode)
+        {
+            documentIndices.add(documentIndex);
+            fieldIndices.add(fieldIndex);
+            imageIds.add(imageId);
+            types.add(tokenTypeCode);
+        }
     }
 }
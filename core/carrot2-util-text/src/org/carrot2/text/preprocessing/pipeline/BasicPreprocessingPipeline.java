@@ -31,6 +31,7 @@ import org.carrot2.text.preprocessing.LanguageModelStemmer;
 import org.carrot2.text.preprocessing.PreprocessingContext;
 import org.carrot2.text.preprocessing.StopListMarker;
 import org.carrot2.text.preprocessing.Tokenizer;
+import org.carrot2.text.util.WordDictionary;
 import org.carrot2.util.attribute.Attribute;
 import org.carrot2.util.attribute.AttributeLevel;
 import org.carrot2.util.attribute.Bindable;
@@ -113,6 +114,22 @@ public class BasicPreprocessingPipeline implements IPreprocessingPipeline
     @Group(DefaultGroups.PREPROCESSING)
     public ILexicalDataFactory lexicalDataFactory = new DefaultLexicalDataFactory();
 
+    /**
+     * Word dictionary shared across requests. If provided, images of tokens and stems
+     * are taken from this dictionary instead of being allocated for each request. Pass
+     * the same instance to all components, e.g. as an initialization attribute of the
+     * controller, to share words process-wide.
+     */
+    @Input
+    @Init
+    @Processing
+    @Internal
+    @Attribute
+    @ImplementingClasses(classes = {}, strict = false)
+    @Level(AttributeLevel.ADVANCED)
+    @Group(DefaultGroups.PREPROCESSING)
+    public WordDictionary wordDictionary;
+
     /**
      * Performs preprocessing on the provided list of documents. Results can be obtained
      * from the returned {@link PreprocessingContext}.
@@ -123,12 +140,16 @@ public class BasicPreprocessingPipeline implements IPreprocessingPipeline
     {
         final PreprocessingContext context = new PreprocessingContext(
             LanguageModel.create(language, stemmerFactory, tokenizerFactory,
-                lexicalDataFactory), documents, query);
+                lexicalDataFactory), documents, query, wordDictionary);
 
         tokenizer.tokenize(context);
+        context.timer.lap("Tokenizer");
         caseNormalizer.normalize(context);
+        context.timer.lap("CaseNormalizer");
         languageModelStemmer.stem(context);
+        context.timer.lap("LanguageModelStemmer");
         stopListMarker.mark(context);
+        context.timer.lap("StopListMarker");
 
         context.preprocessingFinished();
         return context;
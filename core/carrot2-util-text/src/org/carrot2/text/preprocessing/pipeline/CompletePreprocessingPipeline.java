@@ -64,18 +64,24 @@ public class CompletePreprocessingPipeline extends BasicPreprocessingPipeline
     {
         final PreprocessingContext context = new PreprocessingContext(
             LanguageModel.create(language, stemmerFactory, tokenizerFactory,
-                lexicalDataFactory), documents, query);
+                lexicalDataFactory), documents, query, wordDictionary);
 
         tokenizer.tokenize(context);
+        context.timer.lap("Tokenizer");
         caseNormalizer.normalize(context);
+        context.timer.lap("CaseNormalizer");
         languageModelStemmer.stem(context);
+        context.timer.lap("LanguageModelStemmer");
         stopListMarker.mark(context);
+        context.timer.lap("StopListMarker");
         phraseExtractor.extractPhrases(context);
+        context.timer.lap("PhraseExtractor");
         labelFilterProcessor.process(context);
+        context.timer.lap("LabelFilterProcessor");
         documentAssigner.assign(context);
+        context.timer.lap("DocumentAssigner");
 
         context.preprocessingFinished();
         return context;
-
     }
 }
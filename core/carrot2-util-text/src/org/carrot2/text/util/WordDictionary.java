@@ -0,0 +1,221 @@
+/*
+ * Carrot2 project.
+ *
+ * Copyright (C) 2002-2019, Dawid Weiss, Stanisław Osiński.
+ * All rights reserved.
+ *
+ * Refer to the full license file "carrot2.LICENSE"
+ * in the root folder of the repository checkout or at:
+ * http://www.carrot2.org/carrot2.LICENSE
+ */
+
+package org.carrot2.text.util;
+
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.carrot2.util.annotations.ThreadSafe;
+
+import com.carrotsearch.hppc.sorting.IndirectComparator;
+import com.carrotsearch.hppc.sorting.IndirectSort;
+
+/**
+ * A bounded dictionary mapping character sequences to stable integer identifiers and
+ * canonical <code>char[]</code> images. A single instance can be shared by all
+ * preprocessing contexts in a process, so that words repeating across requests reuse one
+ * image instead of allocating a new one in each request.
+ * <p>
+ * When the number of words exceeds {@link #getMaximumSize()}, the least frequently
+ * looked up words are evicted and the frequencies of the remaining ones are halved, so
+ * that words no longer in use eventually make room for new ones. Images and identifiers
+ * handed out before an eviction remain valid for their holders, but a word added again
+ * after it has been evicted receives a new image and identifier.
+ * <p>
+ * Images returned from this dictionary are shared and must not be modified.
+ */
+@ThreadSafe
+public final class WordDictionary
+{
+    /**
+     * Default maximum number of words.
+     */
+    public static final int DEFAULT_MAXIMUM_SIZE = 100000;
+
+    /**
+     * A dictionary entry.
+     */
+    private static final class Entry
+    {
+        final int id;
+        final char [] image;
+        final AtomicInteger frequency = new AtomicInteger(1);
+
+        Entry(int id, char [] image)
+        {
+            this.id = id;
+            this.image = image;
+        }
+    }
+
+    private final int maximumSize;
+    private final ConcurrentHashMap<MutableCharArray, Entry> entries;
+    private final AtomicInteger nextId = new AtomicInteger();
+    private final AtomicLong evictions = new AtomicLong();
+    private final ReentrantLock evictionLock = new ReentrantLock();
+
+    /**
+     * Creates a dictionary of {@link #DEFAULT_MAXIMUM_SIZE} words.
+     */
+    public WordDictionary()
+    {
+        this(DEFAULT_MAXIMUM_SIZE);
+    }
+
+    /**
+     * Creates a dictionary of at most <code>maximumSize</code> words.
+     */
+    public WordDictionary(int maximumSize)
+    {
+        if (maximumSize <= 0)
+        {
+            throw new IllegalArgumentException("Maximum size must be positive: "
+                + maximumSize);
+        }
+        this.maximumSize = maximumSize;
+        this.entries = new ConcurrentHashMap<MutableCharArray, Entry>(
+            Math.min(maximumSize, 1024));
+    }
+
+    /**
+     * Returns the canonical image of the provided word, adding the word to the
+     * dictionary if necessary. The provided {@link MutableCharArray} is not retained.
+     */
+    public char [] intern(MutableCharArray word)
+    {
+        return lookup(word).image;
+    }
+
+    /**
+     * Returns the identifier of the provided word, adding the word to the dictionary if
+     * necessary. Identifiers are never reused for different words.
+     */
+    public int getId(MutableCharArray word)
+    {
+        return lookup(word).id;
+    }
+
+    /**
+     * Returns the maximum number of words in this dictionary.
+     */
+    public int getMaximumSize()
+    {
+        return maximumSize;
+    }
+
+    /**
+     * Returns the current number of words in this dictionary.
+     */
+    public int size()
+    {
+        return entries.size();
+    }
+
+    /**
+     * Returns the total number of words evicted from this dictionary.
+     */
+    public long getEvictionCount()
+    {
+        return evictions.get();
+    }
+
+    private Entry lookup(MutableCharArray word)
+    {
+        Entry entry = entries.get(word);
+        if (entry != null)
+        {
+            entry.frequency.incrementAndGet();
+            return entry;
+        }
+
+        final char [] image = new char [word.length()];
+        System.arraycopy(word.getBuffer(), word.getStart(), image, 0, word.length());
+
+        final Entry added = new Entry(nextId.getAndIncrement(), image);
+        entry = entries.putIfAbsent(new MutableCharArray(image), added);
+        if (entry != null)
+        {
+            // Added concurrently by another thread.
+            entry.frequency.incrementAndGet();
+            return entry;
+        }
+
+        if (entries.size() > maximumSize)
+        {
+            evict();
+        }
+        return added;
+    }
+
+    /**
+     * Evicts the least frequent words down to 90% of the maximum size. Only one thread
+     * evicts at a time, others continue without waiting.
+     */
+    private void evict()
+    {
+        if (!evictionLock.tryLock())
+        {
+            return;
+        }
+
+        try
+        {
+            final ArrayList<Map.Entry<MutableCharArray, Entry>> snapshot =
+                new ArrayList<Map.Entry<MutableCharArray, Entry>>(entries.entrySet());
+            final int target = maximumSize - maximumSize / 10;
+            if (snapshot.size() <= target)
+            {
+                return;
+            }
+
+            // Frequencies change concurrently, sort on a copy.
+            final int [] frequencies = new int [snapshot.size()];
+            for (int i = 0; i < frequencies.length; i++)
+            {
+                frequencies[i] = snapshot.get(i).getValue().frequency.get();
+            }
+            final int [] order = IndirectSort.mergesort(0, frequencies.length,
+                new IndirectComparator.AscendingIntComparator(frequencies));
+
+            final int toEvict = snapshot.size() - target;
+            for (int i = 0; i < order.length; i++)
+            {
+                final Map.Entry<MutableCharArray, Entry> e = snapshot.get(order[i]);
+                if (i < toEvict)
+                {
+                    if (entries.remove(e.getKey(), e.getValue()))
+                    {
+                        evictions.incrementAndGet();
+                    }
+                }
+                else
+                {
+                    final AtomicInteger frequency = e.getValue().frequency;
+                    int f;
+                    do
+                    {
+                        f = frequency.get();
+                    }
+                    while (!frequency.compareAndSet(f, (f + 1) >>> 1));
+                }
+            }
+        }
+        finally
+        {
+            evictionLock.unlock();
+        }
+    }
+}
@@ -18,6 +18,7 @@ import org.carrot2.core.attribute.Processing;
 import org.carrot2.mahout.math.matrix.DoubleMatrix2D;
 import org.carrot2.mahout.math.matrix.impl.DenseDoubleMatrix2D;
 import org.carrot2.mahout.math.matrix.impl.SparseDoubleMatrix2D;
+import org.carrot2.matrix.CompressedColumnDoubleMatrix2D;
 import org.carrot2.matrix.MatrixUtils;
 import org.carrot2.text.analysis.TokenTypeUtils;
 import org.carrot2.text.preprocessing.PreprocessingContext;
@@ -72,6 +73,22 @@ public class TermDocumentMatrixBuilder
     @Group(MATRIX_MODEL)
     public int maximumMatrixSize = 250 * 150;
 
+    /**
+     * Maximum sparse matrix density. If the fraction of non-zero elements of the
+     * term-document matrix is lower than this value, the matrix will be stored in a
+     * compressed sparse format, which requires less memory. The storage format does not
+     * affect the number of terms included in the matrix. Set to <code>0</code> to always
+     * use a dense matrix.
+     */
+    @Input
+    @Processing
+    @Attribute
+    @DoubleRange(min = 0.0, max = 1.0)
+    @Internal(configuration = true)
+    @Level(AttributeLevel.ADVANCED)
+    @Group(MATRIX_MODEL)
+    public double maximumSparseMatrixDensity = 0.05;
+
     /**
      * Maximum word document frequency. The maximum document frequency allowed for words
      * as a fraction of all documents. Words with document frequency larger than
@@ -167,22 +184,38 @@ public class TermDocumentMatrixBuilder
 
         // Calculate the number of terms we can include to fulfill the max matrix size
         final int maxRows = maximumMatrixSize / documentCount;
-        final DoubleMatrix2D tdMatrix = new DenseDoubleMatrix2D(Math.min(maxRows,
-            stemsToInclude.length), documentCount);
+        final int rows = Math.min(maxRows, stemsToInclude.length);
 
-        for (int i = 0; i < stemWeightOrder.length && i < maxRows; i++)
+        // Check whether the matrix is sparse enough to use the compressed format
+        long nonZeros = 0;
+        for (int i = 0; i < rows; i++)
         {
-            final int stemIndex = stemsToInclude[stemWeightOrder[i]];
-            final int [] tfByDocument = stemsTfByDocument[stemIndex];
-            final int df = tfByDocument.length / 2;
-            final byte fieldIndices = stemsFieldIndices[stemIndex];
+            nonZeros += stemsTfByDocument[stemsToInclude[stemWeightOrder[i]]].length / 2;
+        }
 
-            for (int j = 0; j < df; j++) {
-                double weight = termWeighting.calculateTermWeight(
-                    tfByDocument[j * 2 + 1], df, documentCount);
+        final DoubleMatrix2D tdMatrix;
+        if (rows > 0 && nonZeros < maximumSparseMatrixDensity * rows * documentCount)
+        {
+            tdMatrix = buildCompressedMatrix(rows, documentCount, stemsToInclude,
+                stemWeightOrder, titleFieldIndex, preprocessingContext);
+        }
+        else
+        {
+            tdMatrix = new DenseDoubleMatrix2D(rows, documentCount);
+            for (int i = 0; i < rows; i++)
+            {
+                final int stemIndex = stemsToInclude[stemWeightOrder[i]];
+                final int [] tfByDocument = stemsTfByDocument[stemIndex];
+                final int df = tfByDocument.length / 2;
+                final byte fieldIndices = stemsFieldIndices[stemIndex];
 
-                weight *= getWeightBoost(titleFieldIndex, fieldIndices);
-                tdMatrix.set(i, tfByDocument[j * 2], weight);
+                for (int j = 0; j < df; j++) {
+                    double weight = termWeighting.calculateTermWeight(
+                        tfByDocument[j * 2 + 1], df, documentCount);
+
+                    weight *= getWeightBoost(titleFieldIndex, fieldIndices);
+                    tdMatrix.set(i, tfByDocument[j * 2], weight);
+                }
             }
         }
 
@@ -228,6 +261,58 @@ public class TermDocumentMatrixBuilder
         }
     }
 
+    /**
+     * Builds a term-document matrix in the compressed sparse column format directly from
+     * the stems' <code>tfByDocument</code> arrays.
+     */
+    private DoubleMatrix2D buildCompressedMatrix(int rows, int documentCount,
+        int [] stemsToInclude, int [] stemWeightOrder, int titleFieldIndex,
+        PreprocessingContext preprocessingContext)
+    {
+        final int [][] stemsTfByDocument = preprocessingContext.allStems.tfByDocument;
+        final byte [] stemsFieldIndices = preprocessingContext.allStems.fieldIndices;
+
+        // Count non-zero elements in each column
+        final int [] columnPointers = new int [documentCount + 1];
+        for (int i = 0; i < rows; i++)
+        {
+            final int [] tfByDocument = stemsTfByDocument[stemsToInclude[stemWeightOrder[i]]];
+            for (int j = 0; j < tfByDocument.length; j += 2)
+            {
+                columnPointers[tfByDocument[j] + 1]++;
+            }
+        }
+        for (int c = 0; c < documentCount; c++)
+        {
+            columnPointers[c + 1] += columnPointers[c];
+        }
+
+        // Rows are visited in order, so row indices of each column end up sorted
+        final int [] rowIndices = new int [columnPointers[documentCount]];
+        final double [] values = new double [rowIndices.length];
+        final int [] next = new int [documentCount];
+        System.arraycopy(columnPointers, 0, next, 0, documentCount);
+        for (int i = 0; i < rows; i++)
+        {
+            final int stemIndex = stemsToInclude[stemWeightOrder[i]];
+            final int [] tfByDocument = stemsTfByDocument[stemIndex];
+            final int df = tfByDocument.length / 2;
+            final double boost = getWeightBoost(titleFieldIndex,
+                stemsFieldIndices[stemIndex]);
+
+            for (int j = 0; j < df; j++)
+            {
+                final int slot = next[tfByDocument[j * 2]]++;
+                rowIndices[slot] = i;
+                values[slot] = termWeighting.calculateTermWeight(
+                    tfByDocument[j * 2 + 1], df, documentCount) * boost;
+            }
+        }
+
+        return new CompressedColumnDoubleMatrix2D(rows, documentCount, columnPointers,
+            rowIndices, values);
+    }
+
     /**
      * Calculates the boost we should apply to a stem, based on the field indices array.
      */
@@ -26,6 +26,8 @@ import org.carrot2.matrix.factorization.LocalNonnegativeMatrixFactorizationFacto
 import org.carrot2.matrix.factorization.NonnegativeMatrixFactorizationEDFactory;
 import org.carrot2.matrix.factorization.NonnegativeMatrixFactorizationKLFactory;
 import org.carrot2.matrix.factorization.PartialSingularValueDecompositionFactory;
+import org.carrot2.matrix.factorization.seeding.ISeedingStrategyFactory;
+import org.carrot2.matrix.factorization.seeding.WarmStartSeedingStrategyFactory;
 import org.carrot2.util.attribute.Attribute;
 import org.carrot2.util.attribute.AttributeLevel;
 import org.carrot2.util.attribute.Bindable;
@@ -36,6 +38,8 @@ import org.carrot2.util.attribute.Level;
 import org.carrot2.util.attribute.Required;
 import org.carrot2.util.attribute.constraint.ImplementingClasses;
 
+import com.carrotsearch.hppc.cursors.IntIntCursor;
+
 /**
  * Reduces the dimensionality of a term-document matrix using a matrix factorization
  * algorithm.
@@ -92,17 +96,49 @@ public class TermDocumentMatrixReducer
             return;
         }
 
+        // The factory is configured for each reduction, so we use a copy of it. The
+        // configured factory may be used concurrently, e.g. by copies of a component
+        // clustering different languages.
+        final IMatrixFactorizationFactory factory;
         if (factorizationFactory instanceof IterativeMatrixFactorizationFactory)
         {
-            ((IterativeMatrixFactorizationFactory) factorizationFactory).setK(dimensions);
-            IterationNumberGuesser.setEstimatedIterationsNumber(
-                (IterativeMatrixFactorizationFactory) factorizationFactory,
+            final IterativeMatrixFactorizationFactory iterative =
+                ((IterativeMatrixFactorizationFactory) factorizationFactory).clone();
+            iterative.setK(dimensions);
+            IterationNumberGuesser.setEstimatedIterationsNumber(iterative,
                 vsmContext.termDocumentMatrix, factorizationQuality);
+            factory = iterative;
+        }
+        else if (factorizationFactory instanceof PartialSingularValueDecompositionFactory)
+        {
+            // Compute only the base vectors we need instead of the full decomposition.
+            final PartialSingularValueDecompositionFactory partialSvd =
+                ((PartialSingularValueDecompositionFactory) factorizationFactory).clone();
+            partialSvd.setK(dimensions);
+            factory = partialSvd;
+        }
+        else
+        {
+            factory = factorizationFactory;
+        }
+
+        // Warm start seeding needs the keys of this matrix's rows.
+        final WarmStartSeedingStrategyFactory warmStart = getWarmStartSeedingFactory();
+        final Object [] rowKeys = warmStart != null ? getRowKeys(vsmContext) : null;
+        if (warmStart != null)
+        {
+            ((IterativeMatrixFactorizationFactory) factory).setSeedingFactory(warmStart
+                .forRows(rowKeys));
         }
 
         MatrixUtils.normalizeColumnL2(vsmContext.termDocumentMatrix, null);
-        final IMatrixFactorization factorization = factorizationFactory
+        final IMatrixFactorization factorization = factory
             .factorize(vsmContext.termDocumentMatrix);
+        if (warmStart != null)
+        {
+            warmStart.remember(rowKeys, factorization.getU());
+        }
+
         context.baseMatrix = factorization.getU();
         context.coefficientMatrix = factorization.getV();
 
@@ -110,6 +146,38 @@ public class TermDocumentMatrixReducer
         context.coefficientMatrix = trim(factorization.getV(), dimensions);
     }
 
+    /**
+     * Returns the warm start seeding factory if the factorization uses one.
+     */
+    private WarmStartSeedingStrategyFactory getWarmStartSeedingFactory()
+    {
+        if (factorizationFactory instanceof IterativeMatrixFactorizationFactory)
+        {
+            final ISeedingStrategyFactory seedingFactory = ((IterativeMatrixFactorizationFactory) factorizationFactory)
+                .getSeedingFactory();
+            if (seedingFactory instanceof WarmStartSeedingStrategyFactory)
+            {
+                return (WarmStartSeedingStrategyFactory) seedingFactory;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns stem images corresponding to rows of the term-document matrix, so that base
+     * vectors can be matched between requests.
+     */
+    private static Object [] getRowKeys(VectorSpaceModelContext vsmContext)
+    {
+        final char [][] stemImages = vsmContext.preprocessingContext.allStems.image;
+        final Object [] keys = new Object [vsmContext.termDocumentMatrix.rows()];
+        for (IntIntCursor c : vsmContext.stemToRowIndex)
+        {
+            keys[c.value] = new String(stemImages[c.key]);
+        }
+        return keys;
+    }
+
     private final DoubleMatrix2D trim(DoubleMatrix2D matrix, int dimensions)
     {
         if (!(factorizationFactory instanceof IterativeMatrixFactorizationFactory)